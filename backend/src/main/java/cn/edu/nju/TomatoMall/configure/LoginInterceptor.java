@@ -32,9 +32,12 @@ public class LoginInterceptor implements HandlerInterceptor {
         WHITELIST.put("/api/products/{productId}", "GET");
         WHITELIST.put("/api/search/products", "GET");
         WHITELIST.put("/api/search/stores", "GET");
+        WHITELIST.put("/api/search/suggest", "GET");
         WHITELIST.put("/api/alipay/notify", "POST");
         WHITELIST.put("/api/shipping/{trackingNo}/update", "POST");
         WHITELIST.put("/api/shipping/{trackingNo}/confirm-delivery", "POST");
+        WHITELIST.put("/files/**", "GET");
+        WHITELIST.put("/img/{key}", "GET");
     }
 
     /**
@@ -58,8 +61,8 @@ public class LoginInterceptor implements HandlerInterceptor {
                 return false;
             }
 
-            // 处理路径参数的情况
-            if (whitelistPath.contains("{")) {
+            // 处理路径参数与通配符的情况
+            if (whitelistPath.contains("{") || whitelistPath.contains("*")) {
                 return pathMatcher.match(whitelistPath, cleanPath);
             } else {
                 // 精确匹配
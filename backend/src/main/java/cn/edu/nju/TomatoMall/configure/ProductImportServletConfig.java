@@ -0,0 +1,38 @@
+package cn.edu.nju.TomatoMall.configure;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.MultipartConfigFactory;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+
+/**
+ * 批量导入接口单独注册一个 DispatcherServlet，只为它放宽上传大小限制
+ * Servlet 容器按 Servlet 解析 multipart，上限只能按 Servlet 配置；其余接口沿用 spring.servlet.multipart 的较小上限。
+ * 两个 DispatcherServlet 共用同一个应用上下文，控制器、拦截器与异常处理完全相同
+ */
+@Configuration
+public class ProductImportServletConfig {
+    private static final String IMPORT_PATH = "/api/products/import";
+
+    @Bean
+    public ServletRegistrationBean<DispatcherServlet> productImportServlet(
+            WebApplicationContext applicationContext,
+            @Value("${app.product.import.max-upload-size:1GB}") DataSize maxUploadSize,
+            @Value("${spring.servlet.multipart.file-size-threshold:0B}") DataSize fileSizeThreshold) {
+        ServletRegistrationBean<DispatcherServlet> registration =
+                new ServletRegistrationBean<>(new DispatcherServlet(applicationContext), IMPORT_PATH);
+        registration.setName("productImportDispatcherServlet");
+        registration.setLoadOnStartup(1);
+
+        MultipartConfigFactory multipartConfig = new MultipartConfigFactory();
+        multipartConfig.setMaxFileSize(maxUploadSize);
+        multipartConfig.setMaxRequestSize(maxUploadSize);
+        multipartConfig.setFileSizeThreshold(fileSizeThreshold);
+        registration.setMultipartConfig(multipartConfig.createMultipartConfig());
+        return registration;
+    }
+}
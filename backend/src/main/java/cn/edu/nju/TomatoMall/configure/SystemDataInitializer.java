@@ -3,23 +3,36 @@ package cn.edu.nju.TomatoMall.configure;
 import cn.edu.nju.TomatoMall.enums.Role;
 import cn.edu.nju.TomatoMall.enums.StoreStatus;
 import cn.edu.nju.TomatoMall.exception.TomatoMallException;
+import cn.edu.nju.TomatoMall.models.po.Product;
 import cn.edu.nju.TomatoMall.models.po.Store;
 import cn.edu.nju.TomatoMall.models.po.User;
+import cn.edu.nju.TomatoMall.repository.ProductRepository;
 import cn.edu.nju.TomatoMall.repository.StoreRepository;
 import cn.edu.nju.TomatoMall.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Component
 public class SystemDataInitializer implements CommandLineRunner {
 
     private final UserRepository userRepository;
     private final StoreRepository storeRepository;
+    private final ProductRepository productRepository;
+
+    // 历史商品回填冗余列表字段的批大小
+    private static final int BACKFILL_BATCH_SIZE = 200;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Value("${app.init-data.root-user.id}")
     private Integer userId;
@@ -48,9 +61,12 @@ public class SystemDataInitializer implements CommandLineRunner {
     @Value("${app.init-data.system-store.logo-url}")
     private String storeLogoUrl;
 
-    public SystemDataInitializer(UserRepository userRepository, StoreRepository storeRepository) {
+    public SystemDataInitializer(UserRepository userRepository,
+                                 StoreRepository storeRepository,
+                                 ProductRepository productRepository) {
         this.userRepository = userRepository;
         this.storeRepository = storeRepository;
+        this.productRepository = productRepository;
     }
 
     @Override
@@ -58,6 +74,7 @@ public class SystemDataInitializer implements CommandLineRunner {
     public void run(String... args) {
         initAdminUser();
         initSystemStore();
+        backfillProductListing();
     }
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
@@ -97,4 +114,22 @@ public class SystemDataInitializer implements CommandLineRunner {
             storeRepository.save(systemStore);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 为历史商品回填封面与摘要冗余字段，按ID分批处理，每批结束后清空持久化上下文
+     */
+    public void backfillProductListing() {
+        int lastId = 0;
+        List<Product> batch;
+        do {
+            batch = productRepository.findWithoutListing(lastId, PageRequest.of(0, BACKFILL_BATCH_SIZE));
+            for (Product product : batch) {
+                product.refreshListing();
+                lastId = product.getId();
+            }
+            productRepository.saveAll(batch);
+            entityManager.flush();
+            entityManager.clear();
+        } while (batch.size() == BACKFILL_BATCH_SIZE);
+    }
+}
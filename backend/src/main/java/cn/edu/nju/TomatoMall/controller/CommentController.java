@@ -11,6 +11,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.List;
 
 /**
  * comment
@@ -131,6 +132,32 @@ public class CommentController {
         );
     }
 
+    /**
+     * 获取商店热门评论
+     * @param storeId 商店ID
+     * @param size 数量
+     * @return 按点赞数与发表时间综合排序的评论列表
+     */
+    @GetMapping("/store/{storeId}/hot")
+    public ApiResponse<List<CommentResponse>> getStoreHotComments(
+            @PathVariable int storeId,
+            @RequestParam(value = "size", defaultValue = "10") int size) {
+        return ApiResponse.success(commentService.getHotComments(EntityType.STORE, storeId, size));
+    }
+
+    /**
+     * 获取商品热门评论
+     * @param productId 商品ID
+     * @param size 数量
+     * @return 按点赞数与发表时间综合排序的评论列表
+     */
+    @GetMapping("/product/{productId}/hot")
+    public ApiResponse<List<CommentResponse>> getProductHotComments(
+            @PathVariable int productId,
+            @RequestParam(value = "size", defaultValue = "10") int size) {
+        return ApiResponse.success(commentService.getHotComments(EntityType.PRODUCT, productId, size));
+    }
+
     /**
      * 获取评论的回复列表
      * @param parentId 父评论ID
@@ -0,0 +1,72 @@
+package cn.edu.nju.TomatoMall.controller;
+
+import cn.edu.nju.TomatoMall.models.dto.image.ImageDerivative;
+import cn.edu.nju.TomatoMall.service.ImageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * 图片衍生图（缩略图）
+ */
+@RestController
+public class ImageController {
+    // 衍生图由原图URL与参数唯一确定，原图对象名由内容哈希决定，内容不会改变
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    @Autowired
+    private ImageService imageService;
+
+    /**
+     * 获取缩放后的图片，支持 If-None-Match；无法处理时返回 404，不重定向到原图
+     */
+    @GetMapping("/img/{key}")
+    public void getImage(@PathVariable("key") String key,
+                         @RequestParam(value = "w", required = false) Integer width,
+                         @RequestParam(value = "h", required = false) Integer height,
+                         @RequestParam(value = "fmt", required = false) String format,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        ImageDerivative derivative = imageService.describe(key, width, height, format);
+        String etag = derivative.getETag();
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        Path path = imageService.render(derivative);
+        if (path != null) {
+            try (InputStream inputStream = Files.newInputStream(path)) {
+                response.setContentType(derivative.getContentType());
+                response.setContentLengthLong(Files.size(path));
+                response.setHeader(HttpHeaders.ETAG, etag);
+                response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+                StreamUtils.copy(inputStream, response.getOutputStream());
+                return;
+            } catch (NoSuchFileException e) {
+                // 打开前恰好被缓存淘汰
+            }
+        }
+        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    private boolean matches(String ifNoneMatch, String etag) {
+        return ifNoneMatch != null && ("*".equals(ifNoneMatch.trim())
+                || Arrays.stream(ifNoneMatch.split(",")).map(String::trim).anyMatch(etag::equals));
+    }
+}
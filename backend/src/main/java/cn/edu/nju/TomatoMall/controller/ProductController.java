@@ -1,13 +1,19 @@
 package cn.edu.nju.TomatoMall.controller;
 
+import cn.edu.nju.TomatoMall.enums.ExportFormat;
+import cn.edu.nju.TomatoMall.exception.TomatoMallException;
 import cn.edu.nju.TomatoMall.models.dto.product.*;
 import cn.edu.nju.TomatoMall.models.vo.ApiResponse;
+import cn.edu.nju.TomatoMall.service.ProductImportService;
 import cn.edu.nju.TomatoMall.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 
 /**
  * product
@@ -19,6 +25,9 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductImportService productImportService;
+
     /**
      * 获取商品列表
      */
@@ -48,6 +57,29 @@ public class ProductController {
         return ApiResponse.success(productPage);
     }
 
+    /**
+     * 流式导出在售商品，storeId 为空时导出全部商品
+     */
+    @GetMapping("/export")
+    public void exportProducts(
+            @RequestParam(required = false) Integer storeId,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            HttpServletResponse response) throws IOException {
+
+        response.setContentType(format.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"products." + format.getExtension() + "\"");
+        try {
+            productService.exportProducts(storeId, format, response.getOutputStream());
+        } catch (TomatoMallException e) {
+            // 尚未开始输出时清除导出头部，交由全局异常处理返回错误信息
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+    }
+
     /**
      * 创建新商品
      */
@@ -65,6 +97,19 @@ public class ProductController {
         return ApiResponse.success();
     }
 
+    /**
+     * 批量导入商品（商品清单 + 图片压缩包）
+     */
+    @PostMapping(path = "/import", consumes = "multipart/form-data")
+    public ApiResponse<ProductImportResponse> importProducts(
+            @Valid @ModelAttribute ProductImportRequest params
+    ) {
+        return ApiResponse.success(productImportService.importProducts(
+                params.getStoreId(),
+                params.getManifest(),
+                params.getImages()));
+    }
+
     /**
      * 获取商品信息
      */
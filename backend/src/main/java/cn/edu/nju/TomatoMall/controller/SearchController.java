@@ -1,9 +1,11 @@
 package cn.edu.nju.TomatoMall.controller;
 
 import cn.edu.nju.TomatoMall.models.dto.product.ProductBriefResponse;
+import cn.edu.nju.TomatoMall.models.dto.search.SuggestionResponse;
 import cn.edu.nju.TomatoMall.models.dto.store.StoreInfoResponse;
 import cn.edu.nju.TomatoMall.models.vo.ApiResponse;
 import cn.edu.nju.TomatoMall.service.SearchService;
+import cn.edu.nju.TomatoMall.service.SuggestService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * search
@@ -20,10 +23,12 @@ import java.math.BigDecimal;
 @RequestMapping("/api/search")
 public class SearchController {
     private final SearchService searchService;
+    private final SuggestService suggestService;
 
     @Autowired
-    public SearchController(SearchService searchService) {
+    public SearchController(SearchService searchService, SuggestService suggestService) {
         this.searchService = searchService;
+        this.suggestService = suggestService;
     }
 
     /**
@@ -35,7 +40,10 @@ public class SearchController {
      * @param order
      * @param minPrice
      * @param maxPrice
-     * @return 商品简略信息分页响应
+     * @param spec 规格筛选，可重复，形如 颜色:红色
+     * @param priceBucket 价格区间筛选，可重复，形如 50-100
+     * @param facets 需要返回计数的规格键
+     * @return 商品简略信息分页响应，指定 facets 时附带 facets 与 priceBuckets 计数
      */
     @GetMapping("/products")
     public ApiResponse<Page<ProductBriefResponse>> searchProducts(
@@ -45,11 +53,15 @@ public class SearchController {
             @RequestParam(required = false) String field,
             @RequestParam(required = false) Boolean order,
             @RequestParam(required = false) BigDecimal minPrice,
-            @RequestParam(required = false) BigDecimal maxPrice
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) List<String> spec,
+            @RequestParam(required = false) List<String> priceBucket,
+            @RequestParam(required = false) List<String> facets
     ) {
         return ApiResponse.success(
                 searchService.searchProducts(
-                        keyword, page < 0 ? 0 : page, size < 0 ? 10 : size, field, order, minPrice, maxPrice
+                        keyword, page < 0 ? 0 : page, size < 0 ? 10 : size, field, order, minPrice, maxPrice,
+                        spec, priceBucket, facets
                 )
         );
     }
@@ -77,4 +89,18 @@ public class SearchController {
                 )
         );
     }
+
+    /**
+     * 搜索联想
+     * @param prefix
+     * @param size
+     * @return 补全列表
+     */
+    @GetMapping("/suggest")
+    public ApiResponse<List<SuggestionResponse>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        return ApiResponse.success(suggestService.suggest(prefix, size));
+    }
 }
@@ -0,0 +1,7 @@
+package cn.edu.nju.TomatoMall.enums;
+
+public enum SuggestionType {
+    PRODUCT, // 商品名称
+    STORE, // 店铺名称
+    QUERY // 热门搜索词
+}
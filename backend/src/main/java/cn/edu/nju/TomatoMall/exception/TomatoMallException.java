@@ -80,6 +80,14 @@ public class TomatoMallException extends RuntimeException {
         return new TomatoMallException(500, 106, message);
     }
 
+    public static TomatoMallException fileNotFound() {
+        return new TomatoMallException(404, 107, "文件不存在!");
+    }
+
+    public static TomatoMallException fileNotFound(String message) {
+        return new TomatoMallException(404, 107, message);
+    }
+
     // User-related Exceptions (200–299)
     public static TomatoMallException phoneAlreadyExists() {
         return new TomatoMallException(409, 200, "手机号已经存在!");
@@ -1,6 +1,8 @@
 package cn.edu.nju.TomatoMall.models.dto.advertisement;
 
 import cn.edu.nju.TomatoMall.models.po.Advertisement;
+import cn.edu.nju.TomatoMall.util.ThumbnailSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -10,6 +12,8 @@ public class AdInfoResponse {
     private Integer id;
     private String title;
     private String content; // 广告图片URL
+    @JsonSerialize(using = ThumbnailSerializer.AdBanner.class)
+    private String thumbnail; // 广告图片缩略图URL，保存原图URL，输出时替换
     private String linkUrl; // 跳转链接
     private String status;
     private Integer storeId;
@@ -19,6 +23,7 @@ public class AdInfoResponse {
         this.id = ad.getId();
         this.title = ad.getTitle();
         this.content = ad.getContent();
+        this.thumbnail = ad.getContent();
         this.linkUrl = ad.getLinkUrl();
         this.status = ad.getStatus().toString();
         this.storeId = ad.getStore().getId();
@@ -3,6 +3,7 @@ package cn.edu.nju.TomatoMall.models.dto.comment;
 import cn.edu.nju.TomatoMall.enums.EntityType;
 import cn.edu.nju.TomatoMall.models.dto.user.UserBriefResponse;
 import cn.edu.nju.TomatoMall.models.po.Comment;
+import cn.edu.nju.TomatoMall.models.po.User;
 import lombok.Data;
 
 @Data
@@ -16,19 +17,21 @@ public class CommentResponse {
     private UserBriefResponse author;
     private int likes;
     private boolean liked;
+    private int replyCount;
     private String createdAt;
     private String updatedAt;
 
-    public CommentResponse(Comment comment, boolean liked) {
+    public CommentResponse(Comment comment, User author, boolean liked, int replyCount) {
         this.id = comment.getId();
         this.entityType = comment.getEntityType();
         this.entityId = comment.getEntityId();
         this.parentId = comment.getParent() == null ? null : comment.getParent().getId();
         this.content = comment.getContent();
         this.rating = comment.getRating();
-        this.author = new UserBriefResponse(comment.getUser());
-        this.likes = comment.getLikes();
+        this.author = new UserBriefResponse(author);
+        this.likes = comment.getLikeCount();
         this.liked = liked;
+        this.replyCount = replyCount;
         this.createdAt = comment.getCreateTime().toString();
         this.updatedAt = comment.getUpdateTime().toString();
     }
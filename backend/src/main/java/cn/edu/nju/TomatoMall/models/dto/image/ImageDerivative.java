@@ -0,0 +1,27 @@
+package cn.edu.nju.TomatoMall.models.dto.image;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 衍生图描述，参数已校验并归一化
+ */
+@Getter
+@AllArgsConstructor
+public class ImageDerivative {
+    private String sourceUrl;
+    private int width;
+    private int height;
+    // jpg 或 png
+    private String format;
+    // 磁盘缓存键，同时作为强 ETag
+    private String cacheKey;
+
+    public String getContentType() {
+        return "png".equals(format) ? "image/png" : "image/jpeg";
+    }
+
+    public String getETag() {
+        return "\"" + cacheKey + "\"";
+    }
+}
@@ -20,7 +20,7 @@ public class OrderItemInfoResponse {
         this.id = orderItem.getId();
         this.productId = orderItem.getProductId();
         this.productName = orderItem.getProductSnapshot().getName();
-        this.cover = orderItem.getProductSnapshot().getImages().get(0);
+        this.cover = orderItem.getProductSnapshot().getCoverUrl();
         this.price = orderItem.getProductSnapshot().getPrice();
         this.quantity = orderItem.getQuantity();
         this.totalPrice = orderItem.getTotalPrice();
@@ -2,6 +2,8 @@ package cn.edu.nju.TomatoMall.models.dto.product;
 
 import cn.edu.nju.TomatoMall.enums.InventoryStatus;
 import cn.edu.nju.TomatoMall.models.po.Product;
+import cn.edu.nju.TomatoMall.util.ThumbnailSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Data;
 
 import java.math.BigDecimal;
@@ -10,7 +12,10 @@ import java.math.BigDecimal;
 public class ProductBriefResponse {
     int id;
     String title;
+    // 描述摘要，完整描述见商品详情
     String description;
+    // 列表封面原图URL，输出时替换为缩略图URL，原图见商品详情
+    @JsonSerialize(using = ThumbnailSerializer.ListCover.class)
     String cover;
     BigDecimal price;
     BigDecimal rate;
@@ -20,11 +25,26 @@ public class ProductBriefResponse {
     public ProductBriefResponse(Product product) {
         this.id = product.getId();
         this.title = product.getName();
-        this.description = product.getDescription();
-        this.cover = product.getImages().get(0);
+        this.description = product.getSummary();
+        this.cover = product.getCoverUrl();
         this.price = product.getPrice();
         this.rate = product.getRating();
         this.sales = product.getSales();
         this.inventoryStatus = product.getInventoryStatus();
     }
+
+    /**
+     * 供 JPQL 构造器表达式使用，列表查询只读取 products 单表
+     */
+    public ProductBriefResponse(int id, String title, String summary, String cover, BigDecimal price,
+                                BigDecimal rate, int sales, InventoryStatus inventoryStatus) {
+        this.id = id;
+        this.title = title;
+        this.description = summary;
+        this.cover = cover;
+        this.price = price;
+        this.rate = rate;
+        this.sales = sales;
+        this.inventoryStatus = inventoryStatus;
+    }
 }
@@ -18,6 +18,8 @@ public class ProductDetailResponse {
     List<String> images;
     BigDecimal price;
     BigDecimal rate;
+    // 评分分布，下标 i 为 i+1 分的评论数
+    int[] ratingDistribution;
     Map<String, String> specifications;
     int storeId;
     String createTime;
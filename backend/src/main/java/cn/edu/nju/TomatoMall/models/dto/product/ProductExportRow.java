@@ -0,0 +1,24 @@
+package cn.edu.nju.TomatoMall.models.dto.product;
+
+import cn.edu.nju.TomatoMall.enums.InventoryStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 商品导出行，由 JPQL 构造器表达式直接投影生成，不经过实体及其集合属性
+ */
+@Data
+@AllArgsConstructor
+public class ProductExportRow {
+    private int id;
+    private int storeId;
+    private String name;
+    private BigDecimal price;
+    private BigDecimal rating;
+    private int sales;
+    private InventoryStatus inventoryStatus;
+    private LocalDateTime createTime;
+}
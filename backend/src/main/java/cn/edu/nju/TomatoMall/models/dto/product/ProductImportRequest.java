@@ -0,0 +1,16 @@
+package cn.edu.nju.TomatoMall.models.dto.product;
+
+import lombok.Data;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.validation.constraints.NotNull;
+
+@Data
+public class ProductImportRequest {
+    @NotNull
+    private Integer storeId;
+    @NotNull
+    private MultipartFile manifest; // 商品清单，.csv 或 .json
+    @NotNull
+    private MultipartFile images; // 图片压缩包，清单中按文件名引用
+}
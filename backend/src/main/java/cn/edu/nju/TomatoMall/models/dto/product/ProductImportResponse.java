@@ -0,0 +1,32 @@
+package cn.edu.nju.TomatoMall.models.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ProductImportResponse {
+    // 最多返回的错误条数，其余只计数
+    private static final int MAX_ERRORS = 1000;
+
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<RowError> errors = new ArrayList<>();
+
+    public void addError(int row, String message) {
+        failed++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new RowError(row, message));
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class RowError {
+        private int row;
+        private String message;
+    }
+}
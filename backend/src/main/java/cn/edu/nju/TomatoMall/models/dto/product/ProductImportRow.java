@@ -0,0 +1,22 @@
+package cn.edu.nju.TomatoMall.models.dto.product;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量导入清单中的一行商品
+ * CSV 表头：title,description,price,images,specifications,stock
+ * 其中 images 为以 | 分隔的压缩包内文件名，specifications 为 JSON 对象字符串，stock 可选
+ */
+@Data
+public class ProductImportRow {
+    private String title;
+    private String description;
+    private BigDecimal price;
+    private List<String> images;
+    private Map<String, String> specifications;
+    private Integer stock;
+}
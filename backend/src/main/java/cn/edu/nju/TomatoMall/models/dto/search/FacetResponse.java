@@ -0,0 +1,15 @@
+package cn.edu.nju.TomatoMall.models.dto.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class FacetResponse {
+    // 规格键
+    String key;
+    // 按数量降序的取值
+    List<FacetValueResponse> values;
+}
@@ -0,0 +1,11 @@
+package cn.edu.nju.TomatoMall.models.dto.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class FacetValueResponse {
+    String value;
+    long count;
+}
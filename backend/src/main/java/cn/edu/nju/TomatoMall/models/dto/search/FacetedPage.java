@@ -0,0 +1,29 @@
+package cn.edu.nju.TomatoMall.models.dto.search;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * 带分面统计的分页结果，序列化时在原分页字段之外增加 facets 与 priceBuckets，兼容原有调用方
+ */
+public class FacetedPage<T> extends PageImpl<T> {
+    private final List<FacetResponse> facets;
+    private final List<FacetValueResponse> priceBuckets;
+
+    public FacetedPage(List<T> content, Pageable pageable, long total,
+                       List<FacetResponse> facets, List<FacetValueResponse> priceBuckets) {
+        super(content, pageable, total);
+        this.facets = facets;
+        this.priceBuckets = priceBuckets;
+    }
+
+    public List<FacetResponse> getFacets() {
+        return facets;
+    }
+
+    public List<FacetValueResponse> getPriceBuckets() {
+        return priceBuckets;
+    }
+}
@@ -0,0 +1,27 @@
+package cn.edu.nju.TomatoMall.models.dto.search;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 商品搜索索引的源数据，由 ProductSearchRepository 以 JDBC 直接读取
+ */
+@Getter
+@Setter
+public class ProductSearchDocument {
+    private int id;
+    private int storeId;
+    private String name;
+    private String description;
+    // 规格键 -> 值；全文检索与原搜索一致只匹配值，分面按键值对统计
+    private Map<String, String> specifications = new LinkedHashMap<>();
+    private BigDecimal price;
+    private int sales;
+    private BigDecimal rating;
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,21 @@
+package cn.edu.nju.TomatoMall.models.dto.search;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 店铺搜索索引的源数据，由 StoreSearchRepository 以 JDBC 直接读取
+ */
+@Getter
+@Setter
+public class StoreSearchDocument {
+    private int id;
+    private String name;
+    private String description;
+    private String address;
+    private BigDecimal rating;
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,12 @@
+package cn.edu.nju.TomatoMall.models.dto.search;
+
+import cn.edu.nju.TomatoMall.enums.SuggestionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SuggestionResponse {
+    String text;
+    SuggestionType type;
+}
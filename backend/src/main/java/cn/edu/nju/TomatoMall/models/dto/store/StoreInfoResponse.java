@@ -15,6 +15,8 @@ public class StoreInfoResponse {
     String regTime;
     String status;
     BigDecimal score;
+    // 评分分布，下标 i 为 i+1 分的评论数，仅店铺详情返回
+    int[] ratingDistribution;
 
     public StoreInfoResponse(Store store) {
         this.id = store.getId();
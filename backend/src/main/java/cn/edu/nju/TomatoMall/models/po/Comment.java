@@ -6,22 +6,21 @@ import org.hibernate.annotations.Check;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = @Index(name = "idx_comments_path", columnList = "path"))
 @Getter
 @Setter
 @Builder
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @AllArgsConstructor(access = lombok.AccessLevel.PRIVATE)
 public class Comment {
+    public static final int MAX_PATH_LENGTH = 512;
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(nullable = false)
     private User user;
 
@@ -35,16 +34,20 @@ public class Comment {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Comment parent;  // 父评论，用于回复功能
 
+    // 物化路径：从顶层评论到本评论的ID序列，如 /12/45/78/，子树即以本路径为前缀的全部评论
+    @Column(length = MAX_PATH_LENGTH)
+    private String path;
+
     @Check(constraints = "rating IS NULL OR rating between 1 and 10")
     private Integer rating; // 评分1-10
 
-    @ElementCollection
-    @CollectionTable(name = "comment_likes", joinColumns = @JoinColumn(name = "comment_id"))
+    // 点赞数，只由 CommentRepository.addLikeCount 原子增减，保存实体时不写回，点赞记录见 CommentLike
+    @Column(nullable = false, updatable = false)
     @Builder.Default
-    private Set<Integer> likedUserIds = new HashSet<>(); // 点赞用户ID集合
+    private int likeCount = 0;
 
     @Column(nullable = false, updatable = false)
     @Builder.Default
@@ -54,19 +57,10 @@ public class Comment {
     @Builder.Default
     private LocalDateTime updateTime = LocalDateTime.now();
 
-    public int getLikes() {
-        return likedUserIds.size();
-    }
-
-    public boolean isLikedBy(int userId) {
-        return likedUserIds.contains(userId);
-    }
-
-    public void toggleLike(int userId) {
-        if (likedUserIds.contains(userId)) {
-            likedUserIds.remove(userId);
-        } else {
-            likedUserIds.add(userId);
-        }
+    /**
+     * 按父评论路径与本评论ID生成物化路径，需在插入取得ID后调用
+     */
+    public void assignPath() {
+        this.path = (parent == null ? "/" : parent.getPath()) + id + "/";
     }
-}
\ No newline at end of file
+}
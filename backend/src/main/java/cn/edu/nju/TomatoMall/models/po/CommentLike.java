@@ -0,0 +1,34 @@
+package cn.edu.nju.TomatoMall.models.po;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * 评论点赞记录，(comment_id, user_id) 为主键，同一用户对同一评论至多一条
+ * 点赞数另存于 Comment.likeCount，由点赞、取消点赞时原子增减
+ */
+@Entity
+@Table(name = "comment_likes")
+@IdClass(CommentLike.Key.class)
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class CommentLike {
+    @Id
+    @Column(name = "comment_id")
+    private int commentId;
+
+    @Id
+    @Column(name = "user_id")
+    private int userId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private int commentId;
+        private int userId;
+    }
+}
@@ -0,0 +1,44 @@
+package cn.edu.nju.TomatoMall.models.po;
+
+import cn.edu.nju.TomatoMall.enums.EntityType;
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 热门评论榜的持久化快照，entries 为 HotCommentRanking 的紧凑编码（每条评论 16 字节）
+ * 只用于重启或淘汰后恢复内存中的榜单，由 HotCommentRankings 定期写回
+ */
+@Entity
+@Table(name = "comment_rankings")
+@IdClass(CommentRanking.Key.class)
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@AllArgsConstructor
+public class CommentRanking {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", length = 32)
+    private EntityType entityType;
+
+    @Id
+    @Column(name = "entity_id")
+    private int entityId;
+
+    @Lob
+    @Column(nullable = false)
+    private byte[] entries;
+
+    @Column(nullable = false)
+    private LocalDateTime updateTime;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private EntityType entityType;
+        private int entityId;
+    }
+}
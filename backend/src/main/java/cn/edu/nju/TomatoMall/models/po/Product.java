@@ -19,6 +19,9 @@ import java.util.Map;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class Product {
+    // 列表摘要保留的最大字符数
+    public static final int SUMMARY_LENGTH = 100;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
@@ -33,6 +36,13 @@ public class Product {
     @Builder.Default
     private List<String> images = new ArrayList<>();
 
+    // 冗余列表字段：封面图与描述摘要，避免列表查询加载图片集合与完整描述
+    @Column(length = 1024)
+    private String coverUrl;
+
+    @Column(length = 255)
+    private String summary;
+
     @Column(nullable = false)
     private BigDecimal price;
 
@@ -40,11 +50,13 @@ public class Product {
     @Builder.Default
     private Map<String, String> specifications  = new HashMap<>();
 
-    @Column(nullable = false)
+    // 只由 ProductRepository.setRatingById 按评分聚合更新，保存实体时不写回
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private BigDecimal rating = BigDecimal.ZERO;
 
-    @Column(nullable = false)
+    // 只由 SalesCounterService 通过 ProductBatchRepository.applySalesDeltas 累加，保存实体时不写回
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private int sales = 0;
 
@@ -72,18 +84,34 @@ public class Product {
     @Builder.Default
     private List<ProductSnapshot> snapshots = new ArrayList<>();
 
-    public void createSnapshot() {
-        snapshots.add(ProductSnapshot.builder()
-                        .product(this)
-                        .name(name)
-                        .description(description)
-                        .images(images)
-                        .price(price)
-                        .specifications(specifications)
-                        .build());
+    /**
+     * 根据当前图片与描述刷新冗余列表字段，创建或修改商品后调用
+     */
+    public void refreshListing() {
+        coverUrl = images == null || images.isEmpty() ? null : images.get(0);
+        if (description == null) {
+            summary = null;
+        } else if (description.codePointCount(0, description.length()) <= SUMMARY_LENGTH) {
+            summary = description;
+        } else {
+            summary = description.substring(0, description.offsetByCodePoints(0, SUMMARY_LENGTH));
+        }
     }
 
-    public ProductSnapshot getSnapshot() {
-        return snapshots.get(snapshots.size() - 1);
+    /**
+     * 以当前名称、封面、价格及内容块创建新快照
+     */
+    public ProductSnapshot createSnapshot(SnapshotBlob description, SnapshotBlob images, SnapshotBlob specifications) {
+        ProductSnapshot snapshot = ProductSnapshot.builder()
+                .product(this)
+                .name(name)
+                .coverUrl(coverUrl)
+                .price(price)
+                .descriptionBlob(description)
+                .imagesBlob(images)
+                .specificationsBlob(specifications)
+                .build();
+        snapshots.add(snapshot);
+        return snapshot;
     }
-}
\ No newline at end of file
+}
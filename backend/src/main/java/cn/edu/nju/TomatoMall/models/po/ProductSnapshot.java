@@ -1,5 +1,6 @@
 package cn.edu.nju.TomatoMall.models.po;
 
+import cn.edu.nju.TomatoMall.util.JsonMapConverter;
 import lombok.*;
 import org.hibernate.annotations.Immutable;
 
@@ -8,7 +9,12 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
+/**
+ * 商品快照
+ * 行内只保存名称、封面与价格，描述、图片、规格以内容块引用，内容未变的部分在快照间共享
+ */
 @Entity
 @Table(name = "product_snapshots")
 @Getter
@@ -29,21 +35,50 @@ public class ProductSnapshot {
     @Column(nullable = false, updatable = false)
     private String name;
 
-    @Column(columnDefinition = "LONGTEXT", nullable = false, updatable = false)
-    private String description;
-
-    @ElementCollection
-    @Column(nullable = false, updatable = false)
-    private List<String> images;
+    @Column(length = 1024, updatable = false)
+    private String coverUrl;
 
     @Column(nullable = false, updatable = false)
     private BigDecimal price;
 
-    @ElementCollection
-    @Column(nullable = false, updatable = false)
-    private Map<String, String> specifications;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "description_hash", nullable = false, updatable = false)
+    private SnapshotBlob descriptionBlob;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "images_hash", nullable = false, updatable = false)
+    private SnapshotBlob imagesBlob;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "specifications_hash", nullable = false, updatable = false)
+    private SnapshotBlob specificationsBlob;
 
     @Column(nullable = false, updatable = false)
     @Builder.Default
     private LocalDateTime createTime = LocalDateTime.now();
+
+    public String getDescription() {
+        return descriptionBlob.getContent();
+    }
+
+    public List<String> getImages() {
+        return JsonMapConverter.jsonToStringList(imagesBlob.getContent());
+    }
+
+    public Map<String, String> getSpecifications() {
+        return JsonMapConverter.jsonToStringMap(specificationsBlob.getContent());
+    }
+
+    /**
+     * 判断快照内容是否与给定内容一致，内容块只比较哈希，不触发加载
+     */
+    public boolean hasSameContent(String name, String coverUrl, BigDecimal price,
+                                  SnapshotBlob description, SnapshotBlob images, SnapshotBlob specifications) {
+        return Objects.equals(this.name, name)
+                && Objects.equals(this.coverUrl, coverUrl)
+                && this.price.compareTo(price) == 0
+                && descriptionBlob.getHash().equals(description.getHash())
+                && imagesBlob.getHash().equals(images.getHash())
+                && specificationsBlob.getHash().equals(specifications.getHash());
+    }
 }
@@ -0,0 +1,103 @@
+package cn.edu.nju.TomatoMall.models.po;
+
+import cn.edu.nju.TomatoMall.enums.EntityType;
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * 店铺、商品的评分聚合：评分总和、评分数与 1-10 分各自的评论数
+ * 只由 RatingAggregateRepository 在评论创建、修改、删除时以增量原子更新，Product.rating、Store.rating 据此计算
+ */
+@Entity
+@Table(name = "rating_aggregates")
+@IdClass(RatingAggregate.Key.class)
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class RatingAggregate {
+    public static final int MIN_RATING = 1;
+    public static final int MAX_RATING = 10;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", length = 32)
+    private EntityType entityType;
+
+    @Id
+    @Column(name = "entity_id")
+    private int entityId;
+
+    @Column(name = "rating_sum", nullable = false)
+    private long ratingSum;
+
+    @Column(name = "rating_count", nullable = false)
+    private int ratingCount;
+
+    // 各分值的评论数，列名 count_1 ... count_10 与分值对应
+    @Column(name = "count_1", nullable = false)
+    private int count1;
+    @Column(name = "count_2", nullable = false)
+    private int count2;
+    @Column(name = "count_3", nullable = false)
+    private int count3;
+    @Column(name = "count_4", nullable = false)
+    private int count4;
+    @Column(name = "count_5", nullable = false)
+    private int count5;
+    @Column(name = "count_6", nullable = false)
+    private int count6;
+    @Column(name = "count_7", nullable = false)
+    private int count7;
+    @Column(name = "count_8", nullable = false)
+    private int count8;
+    @Column(name = "count_9", nullable = false)
+    private int count9;
+    @Column(name = "count_10", nullable = false)
+    private int count10;
+
+    /**
+     * @param histogram 长度为 10，下标 i 为 i+1 分的评论数
+     */
+    public RatingAggregate(EntityType entityType, int entityId, long ratingSum, int ratingCount, int[] histogram) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.ratingSum = ratingSum;
+        this.ratingCount = ratingCount;
+        this.count1 = histogram[0];
+        this.count2 = histogram[1];
+        this.count3 = histogram[2];
+        this.count4 = histogram[3];
+        this.count5 = histogram[4];
+        this.count6 = histogram[5];
+        this.count7 = histogram[6];
+        this.count8 = histogram[7];
+        this.count9 = histogram[8];
+        this.count10 = histogram[9];
+    }
+
+    /**
+     * 评分分布，下标 i 为 i+1 分的评论数
+     */
+    public int[] getHistogram() {
+        return new int[]{count1, count2, count3, count4, count5, count6, count7, count8, count9, count10};
+    }
+
+    /**
+     * 直方图中某一分值对应的列名
+     */
+    public static String countColumn(int rating) {
+        if (rating < MIN_RATING || rating > MAX_RATING) {
+            throw new IllegalArgumentException("rating: " + rating);
+        }
+        return "count_" + rating;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private EntityType entityType;
+        private int entityId;
+    }
+}
@@ -0,0 +1,89 @@
+package cn.edu.nju.TomatoMall.models.po;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+import cn.edu.nju.TomatoMall.util.JsonMapConverter;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 快照内容块，以内容的 SHA-256 作为主键，在多个商品快照间共享
+ * 描述、图片列表、规格均以规范化文本形式存储，内容相同的快照只保存一份
+ */
+@Entity
+@Table(name = "snapshot_blobs")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Immutable
+public class SnapshotBlob implements Persistable<String> {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    @Id
+    @Column(length = 64)
+    @Getter
+    private String hash;
+
+    @Column(columnDefinition = "LONGTEXT", nullable = false, updatable = false)
+    @Getter
+    private String content;
+
+    // 主键由内容决定，需自行标识是否为新对象，避免 save 时先 SELECT 再 INSERT
+    @Transient
+    private boolean fresh = true;
+
+    public static SnapshotBlob of(String content) {
+        SnapshotBlob blob = new SnapshotBlob();
+        blob.hash = sha256(content);
+        blob.content = content;
+        return blob;
+    }
+
+    public static SnapshotBlob ofImages(List<String> images) {
+        return of(JsonMapConverter.listToJson(images));
+    }
+
+    /**
+     * 规格按键排序后序列化，保证相同内容得到相同哈希
+     */
+    public static SnapshotBlob ofSpecifications(Map<String, String> specifications) {
+        return of(JsonMapConverter.mapToJson(specifications == null ? null : new TreeMap<>(specifications)));
+    }
+
+    public static String sha256(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            char[] chars = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                chars[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                chars[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String getId() {
+        return hash;
+    }
+
+    @Override
+    public boolean isNew() {
+        return fresh;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        fresh = false;
+    }
+}
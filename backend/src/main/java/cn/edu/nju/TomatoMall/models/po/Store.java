@@ -42,6 +42,8 @@ public class Store {
     @Column(nullable = false)
     private StoreStatus status;
 
+    // 只由 StoreRepository.setRatingById 按评分聚合更新，保存实体时不写回
+    @Column(updatable = false)
     @Builder.Default
     private BigDecimal rating = BigDecimal.ZERO;
 
@@ -0,0 +1,31 @@
+package cn.edu.nju.TomatoMall.models.po;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 已上传对象索引，以内容的 SHA-256 去重
+ * refCount 为引用该对象的业务记录数（商品、快照图片列表、广告、头像、店铺资料等），
+ * 归零后由 StoredObjectSweeper 在宽限期后删除实际对象
+ */
+@Entity
+@Table(name = "stored_objects", indexes = @Index(name = "idx_stored_objects_url", columnList = "url", unique = true))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class StoredObject {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(length = 512, nullable = false)
+    private String url;
+
+    private int refCount;
+
+    // 最后一次引用计数变化的时间，清理时据此留出宽限期
+    private LocalDateTime updateTime;
+}
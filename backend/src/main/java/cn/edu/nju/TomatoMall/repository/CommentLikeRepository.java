@@ -0,0 +1,43 @@
+package cn.edu.nju.TomatoMall.repository;
+
+import cn.edu.nju.TomatoMall.models.po.CommentLike;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CommentLikeRepository extends JpaRepository<CommentLike, CommentLike.Key> {
+
+    /**
+     * 插入点赞记录，已存在时忽略，返回 0 表示并发请求已先插入
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO comment_likes (comment_id, user_id) VALUES (:commentId, :userId)", nativeQuery = true)
+    int insertLike(@Param("commentId") int commentId, @Param("userId") int userId);
+
+    @Modifying
+    @Query("DELETE FROM CommentLike l WHERE l.commentId = :commentId AND l.userId = :userId")
+    int deleteLike(@Param("commentId") int commentId, @Param("userId") int userId);
+
+    /**
+     * 给定评论中用户点过赞的部分，一页评论只需一次查询
+     */
+    @Query("SELECT l.commentId FROM CommentLike l WHERE l.userId = :userId AND l.commentId IN :commentIds")
+    List<Integer> findLikedCommentIds(@Param("userId") int userId, @Param("commentIds") Collection<Integer> commentIds);
+
+    /**
+     * 删除物化路径前缀下全部评论的点赞记录
+     */
+    @Modifying
+    @Query("DELETE FROM CommentLike l WHERE l.commentId IN (SELECT c.id FROM Comment c WHERE c.path LIKE CONCAT(:path, '%'))")
+    void deleteAllBySubtree(@Param("path") String path);
+
+    @Modifying
+    @Query("DELETE FROM CommentLike l WHERE l.commentId IN :commentIds")
+    void deleteAllByCommentIdIn(@Param("commentIds") Collection<Integer> commentIds);
+}
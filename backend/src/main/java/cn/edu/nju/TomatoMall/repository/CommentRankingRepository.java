@@ -0,0 +1,9 @@
+package cn.edu.nju.TomatoMall.repository;
+
+import cn.edu.nju.TomatoMall.models.po.CommentRanking;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CommentRankingRepository extends JpaRepository<CommentRanking, CommentRanking.Key> {
+}
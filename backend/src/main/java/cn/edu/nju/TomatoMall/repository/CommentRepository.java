@@ -5,10 +5,12 @@ import cn.edu.nju.TomatoMall.models.po.Comment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,32 +18,23 @@ import java.util.Optional;
 public interface CommentRepository extends JpaRepository<Comment, Integer> {
 
     /**
-     * 根据实体类型和实体ID查找评论（不包括回复）
+     * 根据实体类型和实体ID分页查找评论ID（不包括回复），评论内容由 CommentPageAssembler 批量加载
      */
-    Page<Comment> findByEntityTypeAndEntityIdAndParentIsNull(
-            EntityType entityType, int entityId, Pageable pageable);
+    @Query("SELECT c.id FROM Comment c WHERE c.entityType = :entityType AND c.entityId = :entityId AND c.parent IS NULL")
+    Page<Integer> findIdsByEntity(@Param("entityType") EntityType entityType, @Param("entityId") int entityId,
+                                  Pageable pageable);
 
     /**
-     * 根据父评论ID查找回复
+     * 根据父评论ID分页查找回复ID
      */
-    Page<Comment> findByParentId(int parentId, Pageable pageable);
-
-    List<Comment> findListByParentId(int parentId);
+    @Query("SELECT c.id FROM Comment c WHERE c.parent.id = :parentId")
+    Page<Integer> findIdsByParentId(@Param("parentId") int parentId, Pageable pageable);
 
     /**
      * 根据实体类型和实体ID统计评论数量（不包括回复）
      */
     long countByEntityTypeAndEntityIdAndParentIsNull(EntityType entityType, int entityId);
 
-    /**
-     * 计算实体的平均评分
-     */
-    @Query("SELECT AVG(CAST(c.rating AS double)) FROM Comment c " +
-            "WHERE c.entityType = :entityType AND c.entityId = :entityId " +
-            "AND c.rating IS NOT NULL AND c.parent IS NULL")
-    Double calculateAverageRating(@Param("entityType") EntityType entityType,
-                                  @Param("entityId") int entityId);
-
     /**
      * 查找用户对特定实体的评论
      */
@@ -53,4 +46,58 @@ public interface CommentRepository extends JpaRepository<Comment, Integer> {
                                               @Param("entityId") int entityId);
 
     void deleteAllByParentId(int parentId);
-}
\ No newline at end of file
+
+    /**
+     * 各评论的直接回复数，一页评论一次分组查询，返回 [父评论ID, 回复数]
+     */
+    @Query("SELECT c.parent.id, COUNT(c) FROM Comment c WHERE c.parent.id IN :parentIds GROUP BY c.parent.id")
+    List<Object[]> countRepliesByParentIds(@Param("parentIds") Collection<Integer> parentIds);
+
+    /**
+     * 实体全部顶层评论的排序要素，用于重建热门评论榜，返回 [评论ID, 点赞数, 发表时间]
+     */
+    @Query("SELECT c.id, c.likeCount, c.createTime FROM Comment c " +
+            "WHERE c.entityType = :entityType AND c.entityId = :entityId AND c.parent IS NULL")
+    List<Object[]> findRankingCandidates(@Param("entityType") EntityType entityType, @Param("entityId") int entityId);
+
+    /**
+     * 解除子树内的父子外键引用，使整棵子树可以一条语句删除
+     */
+    @Modifying
+    @Query("UPDATE Comment c SET c.parent = NULL WHERE c.path LIKE CONCAT(:path, '%')")
+    int detachSubtree(@Param("path") String path);
+
+    /**
+     * 按物化路径前缀删除评论及其全部回复
+     */
+    @Modifying
+    @Query("DELETE FROM Comment c WHERE c.path LIKE CONCAT(:path, '%')")
+    int deleteSubtree(@Param("path") String path);
+
+    /**
+     * 给定评论的全部直接回复ID，用于沿父评论逐层遍历尚未回填物化路径的子树
+     */
+    @Query("SELECT c.id FROM Comment c WHERE c.parent.id IN :parentIds")
+    List<Integer> findIdsByParentIdIn(@Param("parentIds") Collection<Integer> parentIds);
+
+    @Modifying
+    @Query("UPDATE Comment c SET c.parent = NULL WHERE c.id IN :ids")
+    int detachByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Modifying
+    @Query("DELETE FROM Comment c WHERE c.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * 原子增减点赞数
+     */
+    @Modifying
+    @Query("UPDATE Comment c SET c.likeCount = c.likeCount + :delta WHERE c.id = :commentId")
+    int addLikeCount(@Param("commentId") int commentId, @Param("delta") int delta);
+
+    /**
+     * 读取当前点赞数，在 addLikeCount 之后调用可得到包含本次增减的最新值
+     */
+    @Query("SELECT c.likeCount FROM Comment c WHERE c.id = :commentId")
+    int findLikeCountById(@Param("commentId") int commentId);
+}
@@ -0,0 +1,80 @@
+package cn.edu.nju.TomatoMall.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * products 表上价格与分面筛选的 SQL 条件，供全文检索与数据库回退查询共用
+ * 各方法返回以 " AND" 开头的条件片段，参数按出现顺序追加到 args
+ */
+final class FacetConditions {
+
+    private FacetConditions() {
+    }
+
+    static String priceCondition(BigDecimal minPrice, BigDecimal maxPrice, List<Object> args) {
+        StringBuilder condition = new StringBuilder();
+        if (minPrice != null) {
+            condition.append(" AND price >= ?");
+            args.add(minPrice);
+        }
+        if (maxPrice != null) {
+            condition.append(" AND price <= ?");
+            args.add(maxPrice);
+        }
+        return condition.toString();
+    }
+
+    /**
+     * @param specFilters  规格键 -> 可选取值，同一键的取值为“或”，不同键之间为“与”
+     * @param priceBuckets 价格区间标签，形如 50-100（含下界不含上界）或 1000+，任一区间命中即可
+     */
+    static String facetCondition(Map<String, Set<String>> specFilters, Collection<String> priceBuckets,
+                                 List<Object> args) {
+        StringBuilder condition = new StringBuilder();
+        specFilters.forEach((key, values) -> {
+            condition.append(" AND EXISTS (SELECT 1 FROM product_specifications ps WHERE ps.product_id = products.id")
+                    .append(" AND ps.specifications_key = ? AND ps.specifications IN (")
+                    .append(String.join(", ", Collections.nCopies(values.size(), "?"))).append("))");
+            args.add(key);
+            args.addAll(values);
+        });
+        if (!priceBuckets.isEmpty()) {
+            List<String> ranges = new ArrayList<>();
+            for (String bucket : priceBuckets) {
+                String range = priceRange(bucket, args);
+                if (range != null) {
+                    ranges.add(range);
+                }
+            }
+            // 无法识别的区间视为空集，与索引后端一致
+            condition.append(ranges.isEmpty() ? " AND 1 = 0" : " AND (" + String.join(" OR ", ranges) + ")");
+        }
+        return condition.toString();
+    }
+
+    private static String priceRange(String bucket, List<Object> args) {
+        try {
+            if (bucket.endsWith("+")) {
+                args.add(new BigDecimal(bucket.substring(0, bucket.length() - 1)));
+                return "price >= ?";
+            }
+            int separator = bucket.indexOf('-');
+            if (separator <= 0) {
+                return null;
+            }
+            BigDecimal lower = new BigDecimal(bucket.substring(0, separator));
+            BigDecimal upper = new BigDecimal(bucket.substring(separator + 1));
+            args.add(lower);
+            args.add(upper);
+            return "(price >= ? AND price < ?)";
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
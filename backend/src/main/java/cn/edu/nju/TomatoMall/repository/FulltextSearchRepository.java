@@ -0,0 +1,201 @@
+package cn.edu.nju.TomatoMall.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 全文检索数据源，以 JDBC 查询商品与店铺的ID
+ * MySQL 上使用 FULLTEXT（ngram 分词）索引，以 MATCH ... AGAINST 自然语言模式检索并按其相关度排序，
+ * 索引由 db/migration/002_search_fulltext.sql 创建；其他数据库（测试用的 H2）以 LIKE 按词模拟，
+ * 任一词命中即可，名称命中计 2 分、其余字段计 1 分。规格与价格区间筛选以 EXISTS 子查询与价格范围条件附加
+ */
+@Slf4j
+@Repository
+public class FulltextSearchRepository {
+    private static final String[] PRODUCT_COLUMNS = {"name", "description"};
+    private static final String[] STORE_COLUMNS = {"name", "description", "address"};
+    private static final String PRODUCT_SCOPE = "FROM products WHERE on_sale = true AND ";
+    private static final String STORE_SCOPE = "FROM stores WHERE is_system_store = false AND status <> 'DELETED' AND ";
+    // LIKE 模拟时参与匹配的词数上限
+    private static final int MAX_LIKE_TERMS = 8;
+
+    private enum Mode {
+        FULLTEXT, LIKE, UNAVAILABLE
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Mode mode;
+
+    @Autowired
+    public FulltextSearchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * MySQL 缺少全文索引时不可用
+     */
+    public boolean isAvailable() {
+        return mode() != Mode.UNAVAILABLE;
+    }
+
+    /**
+     * @param specFilters  规格键 -> 可选取值，同一键的取值为“或”，不同键之间为“与”
+     * @param priceBuckets 价格区间标签，形如 50-100（含下界不含上界）或 1000+，任一区间命中即可
+     */
+    public long countProducts(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                              Map<String, Set<String>> specFilters, Collection<String> priceBuckets) {
+        Match match = match(keyword, PRODUCT_COLUMNS);
+        List<Object> args = new ArrayList<>(match.whereArgs);
+        String sql = "SELECT COUNT(*) " + PRODUCT_SCOPE + match.where
+                + FacetConditions.priceCondition(minPrice, maxPrice, args)
+                + FacetConditions.facetCondition(specFilters, priceBuckets, args);
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, args.toArray());
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @param sortColumn 排序列，null 表示按相关度、销量排序
+     */
+    public List<Integer> findProductIds(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                        Map<String, Set<String>> specFilters, Collection<String> priceBuckets,
+                                        String sortColumn, boolean ascending, int offset, int limit) {
+        Match match = match(keyword, PRODUCT_COLUMNS);
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT id ");
+        if (sortColumn == null) {
+            sql.append(", ").append(match.score).append(" AS score ");
+            args.addAll(match.scoreArgs);
+        }
+        sql.append(PRODUCT_SCOPE).append(match.where);
+        args.addAll(match.whereArgs);
+        sql.append(FacetConditions.priceCondition(minPrice, maxPrice, args));
+        sql.append(FacetConditions.facetCondition(specFilters, priceBuckets, args));
+        sql.append(sortColumn == null ? " ORDER BY score DESC, sales DESC, id DESC" : orderBy(sortColumn, ascending));
+        sql.append(" LIMIT ? OFFSET ?");
+        args.add(limit);
+        args.add(offset);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> rs.getInt("id"), args.toArray());
+    }
+
+    public long countStores(String keyword) {
+        Match match = match(keyword, STORE_COLUMNS);
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) " + STORE_SCOPE + match.where, Long.class,
+                match.whereArgs.toArray());
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @param sortColumn 排序列，null 表示按相关度、评分排序
+     */
+    public List<Integer> findStoreIds(String keyword, String sortColumn, boolean ascending, int offset, int limit) {
+        Match match = match(keyword, STORE_COLUMNS);
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT id ");
+        if (sortColumn == null) {
+            sql.append(", ").append(match.score).append(" AS score ");
+            args.addAll(match.scoreArgs);
+        }
+        sql.append(STORE_SCOPE).append(match.where);
+        args.addAll(match.whereArgs);
+        sql.append(sortColumn == null ? " ORDER BY score DESC, rating DESC, id DESC" : orderBy(sortColumn, ascending));
+        sql.append(" LIMIT ? OFFSET ?");
+        args.add(limit);
+        args.add(offset);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> rs.getInt("id"), args.toArray());
+    }
+
+    /**
+     * 检索条件与相关度表达式
+     */
+    private static final class Match {
+        final String where;
+        final List<Object> whereArgs;
+        final String score;
+        final List<Object> scoreArgs;
+
+        Match(String where, List<Object> whereArgs, String score, List<Object> scoreArgs) {
+            this.where = where;
+            this.whereArgs = whereArgs;
+            this.score = score;
+            this.scoreArgs = scoreArgs;
+        }
+    }
+
+    private Match match(String keyword, String[] columns) {
+        if (mode() == Mode.FULLTEXT) {
+            // 自然语言模式不解释布尔运算符，关键词原样传入
+            String against = "MATCH(" + String.join(", ", columns) + ") AGAINST (? IN NATURAL LANGUAGE MODE)";
+            return new Match(against, Arrays.asList(keyword), against, Arrays.asList(keyword));
+        }
+        List<String> patterns = Arrays.stream(keyword.toLowerCase(Locale.ROOT).trim().split("\\s+"))
+                .distinct()
+                .limit(MAX_LIKE_TERMS)
+                .map(term -> "%" + escapeLike(term) + "%")
+                .collect(Collectors.toList());
+        List<String> conditions = new ArrayList<>();
+        List<String> scores = new ArrayList<>();
+        List<Object> whereArgs = new ArrayList<>();
+        List<Object> scoreArgs = new ArrayList<>();
+        for (String pattern : patterns) {
+            for (int i = 0; i < columns.length; i++) {
+                conditions.add("LOWER(" + columns[i] + ") LIKE ?");
+                whereArgs.add(pattern);
+                scores.add("CASE WHEN LOWER(" + columns[i] + ") LIKE ? THEN " + (i == 0 ? 2 : 1) + " ELSE 0 END");
+                scoreArgs.add(pattern);
+            }
+        }
+        return new Match("(" + String.join(" OR ", conditions) + ")", whereArgs,
+                "(" + String.join(" + ", scores) + ")", scoreArgs);
+    }
+
+    // 排序列由调用方从白名单映射，不来自用户输入
+    private static String orderBy(String column, boolean ascending) {
+        String direction = ascending ? " ASC" : " DESC";
+        return " ORDER BY " + column + direction + ", id" + direction;
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private Mode mode() {
+        Mode current = mode;
+        if (current == null) {
+            current = detectMode();
+            mode = current;
+        }
+        return current;
+    }
+
+    private Mode detectMode() {
+        String database = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equalsIgnoreCase(database)) {
+            log.info("数据库 {} 不支持 FULLTEXT 索引，全文检索以 LIKE 模拟", database);
+            return Mode.LIKE;
+        }
+        Integer tables = jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT table_name) FROM information_schema.statistics " +
+                        "WHERE table_schema = DATABASE() AND index_type = 'FULLTEXT' " +
+                        "AND table_name IN ('products', 'stores')",
+                Integer.class);
+        if (tables == null || tables < 2) {
+            log.warn("products、stores 缺少 FULLTEXT 索引，请执行 db/migration/002_search_fulltext.sql，执行后重启生效，在此之前搜索回退为模糊查询");
+            return Mode.UNAVAILABLE;
+        }
+        return Mode.FULLTEXT;
+    }
+}
@@ -0,0 +1,192 @@
+package cn.edu.nju.TomatoMall.repository;
+
+import cn.edu.nju.TomatoMall.models.po.Product;
+import cn.edu.nju.TomatoMall.models.po.SnapshotBlob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 商品批量写入，绕过 JPA 逐条 persist，以 JDBC 批处理插入商品及其关联数据、批量更新销量
+ * 表结构与 Product、Inventory、ProductSnapshot、SnapshotBlob、StoredObject 的映射保持一致
+ */
+@Repository
+public class ProductBatchRepository {
+    private static final String INSERT_PRODUCT = "INSERT INTO products " +
+            "(name, description, price, rating, sales, create_time, store_id, on_sale, inventory_status, cover_url, summary) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_IMAGE = "INSERT INTO product_images (product_id, images) VALUES (?, ?)";
+    private static final String INSERT_SPECIFICATION =
+            "INSERT INTO product_specifications (product_id, specifications_key, specifications) VALUES (?, ?, ?)";
+    private static final String INSERT_INVENTORY = "INSERT INTO inventories " +
+            "(product_id, quantity, version, locked_quantity, threshold_quantity) VALUES (?, ?, 0, 0, ?)";
+    // 并发导入相同内容时忽略主键冲突
+    private static final String INSERT_BLOB = "INSERT IGNORE INTO snapshot_blobs (hash, content) VALUES (?, ?)";
+    private static final String INSERT_SNAPSHOT = "INSERT INTO product_snapshots " +
+            "(product_id, name, cover_url, price, description_hash, images_hash, specifications_hash, create_time) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String RETAIN_OBJECT =
+            "UPDATE stored_objects SET ref_count = ref_count + 1, update_time = ? WHERE url = ?";
+
+    private static final int SALES_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ProductBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 批量插入商品及其图片、规格、库存与首个快照，插入后回填商品ID
+     * 商品图片与新建的快照图片列表各自对图片对象增加一次引用，与 ProductServiceImpl 保持一致
+     * 调用方负责事务边界
+     *
+     * @param products 未持久化的商品，需已设置库存并刷新列表冗余字段
+     */
+    public void insertAll(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        insertProducts(products);
+
+        List<Object[]> images = new ArrayList<>();
+        List<Object[]> specifications = new ArrayList<>();
+        List<Object[]> inventories = new ArrayList<>();
+        List<Object[]> snapshots = new ArrayList<>();
+        Map<String, SnapshotBlob> blobs = new LinkedHashMap<>();
+        Map<String, List<String>> blobImages = new HashMap<>();
+        List<String> references = new ArrayList<>();
+        for (Product product : products) {
+            for (String image : product.getImages()) {
+                images.add(new Object[]{product.getId(), image});
+                references.add(image);
+            }
+            for (Map.Entry<String, String> entry : product.getSpecifications().entrySet()) {
+                specifications.add(new Object[]{product.getId(), entry.getKey(), entry.getValue()});
+            }
+            inventories.add(new Object[]{product.getId(), product.getInventory().getQuantity(),
+                    product.getInventory().getThresholdQuantity()});
+
+            SnapshotBlob description = SnapshotBlob.of(product.getDescription());
+            SnapshotBlob imageList = SnapshotBlob.ofImages(product.getImages());
+            SnapshotBlob specificationMap = SnapshotBlob.ofSpecifications(product.getSpecifications());
+            blobs.putIfAbsent(description.getHash(), description);
+            blobs.putIfAbsent(imageList.getHash(), imageList);
+            blobImages.putIfAbsent(imageList.getHash(), product.getImages());
+            blobs.putIfAbsent(specificationMap.getHash(), specificationMap);
+            snapshots.add(new Object[]{product.getId(), product.getName(), product.getCoverUrl(), product.getPrice(),
+                    description.getHash(), imageList.getHash(), specificationMap.getHash(),
+                    Timestamp.valueOf(product.getCreateTime())});
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_IMAGE, images);
+        jdbcTemplate.batchUpdate(INSERT_SPECIFICATION, specifications);
+        jdbcTemplate.batchUpdate(INSERT_INVENTORY, inventories);
+        for (String hash : insertMissingBlobs(blobs, blobImages.keySet())) {
+            references.addAll(blobImages.get(hash));
+        }
+        jdbcTemplate.batchUpdate(INSERT_SNAPSHOT, snapshots);
+
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(RETAIN_OBJECT, references.stream()
+                .map(url -> new Object[]{now, url})
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * 以 CASE 表达式批量累加商品销量，每条 UPDATE 处理一批商品，结果不小于 0
+     * 调用方负责事务边界
+     *
+     * @param deltas 商品ID -> 销量变化量
+     */
+    public void applySalesDeltas(Map<Integer, Long> deltas) {
+        List<Map.Entry<Integer, Long>> entries = new ArrayList<>(deltas.entrySet());
+        for (int from = 0; from < entries.size(); from += SALES_BATCH_SIZE) {
+            List<Map.Entry<Integer, Long>> chunk = entries.subList(from, Math.min(from + SALES_BATCH_SIZE, entries.size()));
+            StringBuilder sql = new StringBuilder("UPDATE products SET sales = GREATEST(sales + CASE id");
+            List<Object> args = new ArrayList<>(chunk.size() * 3);
+            for (Map.Entry<Integer, Long> entry : chunk) {
+                sql.append(" WHEN ? THEN ?");
+                args.add(entry.getKey());
+                args.add(entry.getValue());
+            }
+            sql.append(" ELSE 0 END, 0) WHERE id IN (")
+                    .append(String.join(",", Collections.nCopies(chunk.size(), "?")))
+                    .append(")");
+            for (Map.Entry<Integer, Long> entry : chunk) {
+                args.add(entry.getKey());
+            }
+            jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+    }
+
+    private void insertProducts(List<Product> products) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_PRODUCT, Statement.RETURN_GENERATED_KEYS)) {
+                for (Product product : products) {
+                    ps.setString(1, product.getName());
+                    ps.setString(2, product.getDescription());
+                    ps.setBigDecimal(3, product.getPrice());
+                    ps.setBigDecimal(4, product.getRating());
+                    ps.setInt(5, product.getSales());
+                    ps.setTimestamp(6, Timestamp.valueOf(product.getCreateTime()));
+                    ps.setInt(7, product.getStore().getId());
+                    ps.setBoolean(8, product.isOnSale());
+                    ps.setInt(9, product.getInventoryStatus().ordinal());
+                    ps.setString(10, product.getCoverUrl());
+                    ps.setString(11, product.getSummary());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < products.size()) {
+                        products.get(i++).setId(keys.getInt(1));
+                    }
+                    if (i != products.size()) {
+                        throw new IllegalStateException("批量插入商品返回的主键数量不匹配");
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 插入尚不存在的内容块。描述、规格内容块批量插入；图片列表内容块决定是否为图片增加引用，
+     * 需要准确的影响行数，而驱动改写批量插入（rewriteBatchedStatements）后不再返回逐行计数，因此逐条插入
+     *
+     * @param imageListHashes 图片列表内容块的哈希
+     * @return 本次新插入的图片列表内容块哈希，以插入的影响行数为准，并发导入插入的不计入
+     */
+    private List<String> insertMissingBlobs(Map<String, SnapshotBlob> blobs, Set<String> imageListHashes) {
+        String placeholders = String.join(",", Collections.nCopies(blobs.size(), "?"));
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT hash FROM snapshot_blobs WHERE hash IN (" + placeholders + ")",
+                String.class, blobs.keySet().toArray()));
+
+        List<Object[]> contents = new ArrayList<>();
+        List<String> inserted = new ArrayList<>();
+        for (SnapshotBlob blob : blobs.values()) {
+            if (existing.contains(blob.getHash())) {
+                continue;
+            }
+            if (!imageListHashes.contains(blob.getHash())) {
+                contents.add(new Object[]{blob.getHash(), blob.getContent()});
+            } else if (jdbcTemplate.update(INSERT_BLOB, blob.getHash(), blob.getContent()) > 0) {
+                inserted.add(blob.getHash());
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_BLOB, contents);
+        return inserted;
+    }
+}
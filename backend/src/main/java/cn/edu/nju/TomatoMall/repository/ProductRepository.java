@@ -1,22 +1,64 @@
 package cn.edu.nju.TomatoMall.repository;
 
 import cn.edu.nju.TomatoMall.enums.InventoryStatus;
+import cn.edu.nju.TomatoMall.models.dto.product.ProductBriefResponse;
+import cn.edu.nju.TomatoMall.models.dto.product.ProductExportRow;
 import cn.edu.nju.TomatoMall.models.po.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Integer> {
-    Page<Product> findByOnSaleIsTrue(Pageable pageable);
-    Page<Product> findByStoreIdAndOnSaleIsTrue(int storeId, Pageable pageable);
+    // 列表投影：只读取 products 单表的冗余列表字段，不加载图片集合与完整描述
+    String BRIEF_PROJECTION = "new cn.edu.nju.TomatoMall.models.dto.product.ProductBriefResponse(" +
+            "p.id, p.name, p.summary, p.coverUrl, p.price, p.rating, p.sales, p.inventoryStatus) ";
+
+    // 规格匹配使用 EXISTS 子查询，避免 LEFT JOIN 导致的重复行与 DISTINCT
+    String SEARCH_CONDITION = "FROM Product p " +
+            "WHERE p.onSale = true AND " +
+            "(:keyword IS NULL OR :keyword = '' OR " +
+            "LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "EXISTS (SELECT 1 FROM Product sp JOIN sp.specifications spec " +
+            "WHERE sp.id = p.id AND LOWER(spec) LIKE LOWER(CONCAT('%', :keyword, '%')))) AND " +
+            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.price <= :maxPrice) ";
+
+    @Query(value = "SELECT " + BRIEF_PROJECTION + "FROM Product p WHERE p.onSale = true",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.onSale = true")
+    Page<ProductBriefResponse> findBriefByOnSaleIsTrue(Pageable pageable);
+
+    @Query(value = "SELECT " + BRIEF_PROJECTION + "FROM Product p WHERE p.store.id = :storeId AND p.onSale = true",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.store.id = :storeId AND p.onSale = true")
+    Page<ProductBriefResponse> findBriefByStoreIdAndOnSaleIsTrue(@Param("storeId") int storeId, Pageable pageable);
+
+    /**
+     * 按ID批量读取在售商品的列表信息，结果顺序不保证与参数一致
+     */
+    @Query("SELECT " + BRIEF_PROJECTION + "FROM Product p WHERE p.id IN :ids AND p.onSale = true")
+    List<ProductBriefResponse> findBriefByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * 按ID顺序查询尚未生成冗余列表字段的商品（历史数据回填用）
+     */
+    @Query("SELECT p FROM Product p WHERE p.id > :afterId AND (p.coverUrl IS NULL OR p.summary IS NULL) ORDER BY p.id ASC")
+    List<Product> findWithoutListing(@Param("afterId") int afterId, Pageable pageable);
 
     @Query("SELECT store.id FROM Product WHERE id = ?1")
     Optional<Integer> getStoreIdById(int productId);
@@ -35,25 +77,28 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     void setInventoryStatusById(@Param("id") int id, @Param("inventoryStatus") InventoryStatus inventoryStatus);
 
     @Modifying
-    @Query("UPDATE Product p SET p.sales = p.sales + :increment WHERE p.id = :id")
-    void increaseSalesById(@Param("id") int id, @Param("increment") int increment);
-
-    @Modifying
-    @Query("UPDATE Product p SET p.sales = p.sales - :decrement WHERE p.id = :id AND p.sales >= :decrement")
-    void decreaseSalesById(@Param("id") int id, @Param("decrement") int decrement);
+    @Query("UPDATE Product p SET p.rating = :rating WHERE p.id = :id")
+    void setRatingById(@Param("id") int id, @Param("rating") BigDecimal rating);
 
     @Query("SELECT p.store.id FROM Product p WHERE p.id = :id")
     Optional<Integer> findStoreIdById(int id);
 
-    @Query("SELECT DISTINCT p FROM Product p " +
-            "LEFT JOIN p.specifications spec " +
-            "WHERE p.onSale = true AND " +
-            "(:keyword IS NULL OR :keyword = '' OR " +
-            "LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(spec) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND " +
-            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
-            "(:maxPrice IS NULL OR p.price <= :maxPrice) " +
+    /**
+     * 以游标方式流式读取在售商品导出行，调用方需处于事务中并在使用后关闭流
+     * storeId 为 null 时导出全部在售商品
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("SELECT new cn.edu.nju.TomatoMall.models.dto.product.ProductExportRow(" +
+            "p.id, p.store.id, p.name, p.price, p.rating, p.sales, p.inventoryStatus, p.createTime) " +
+            "FROM Product p " +
+            "WHERE p.onSale = true AND (:storeId IS NULL OR p.store.id = :storeId) " +
+            "ORDER BY p.id ASC")
+    Stream<ProductExportRow> streamExportRows(@Param("storeId") Integer storeId);
+
+    @Query(value = "SELECT " + BRIEF_PROJECTION + SEARCH_CONDITION +
             "ORDER BY " +
             "CASE " +
             // 商品名称完全匹配 - 最高优先级
@@ -68,23 +113,17 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
             "WHEN LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) THEN 5 " +
             // 规格信息匹配
             "ELSE 6 " +
-            "END ASC, p.sales DESC, p.rating DESC, p.createTime DESC")
-    Page<Product> searchProductsByRelevance(@Param("keyword") String keyword,
-                                 @Param("minPrice") BigDecimal minPrice,
-                                 @Param("maxPrice") BigDecimal maxPrice,
-                                 Pageable pageable);
-
-    @Query("SELECT DISTINCT p FROM Product p " +
-            "LEFT JOIN p.specifications spec " +
-            "WHERE p.onSale = true AND " +
-            "(:keyword IS NULL OR :keyword = '' OR " +
-            "LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(spec) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND " +
-            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
-            "(:maxPrice IS NULL OR p.price <= :maxPrice)")
-    Page<Product> searchProductsWithCustomSort(@Param("keyword") String keyword,
-                                               @Param("minPrice") BigDecimal minPrice,
-                                               @Param("maxPrice") BigDecimal maxPrice,
-                                               Pageable pageable);
+            "END ASC, p.sales DESC, p.rating DESC, p.createTime DESC",
+            countQuery = "SELECT COUNT(p) " + SEARCH_CONDITION)
+    Page<ProductBriefResponse> searchProductsByRelevance(@Param("keyword") String keyword,
+                                                         @Param("minPrice") BigDecimal minPrice,
+                                                         @Param("maxPrice") BigDecimal maxPrice,
+                                                         Pageable pageable);
+
+    @Query(value = "SELECT " + BRIEF_PROJECTION + SEARCH_CONDITION,
+            countQuery = "SELECT COUNT(p) " + SEARCH_CONDITION)
+    Page<ProductBriefResponse> searchProductsWithCustomSort(@Param("keyword") String keyword,
+                                                            @Param("minPrice") BigDecimal minPrice,
+                                                            @Param("maxPrice") BigDecimal maxPrice,
+                                                            Pageable pageable);
 }
\ No newline at end of file
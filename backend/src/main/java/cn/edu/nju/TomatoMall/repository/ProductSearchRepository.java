@@ -0,0 +1,183 @@
+package cn.edu.nju.TomatoMall.repository;
+
+import cn.edu.nju.TomatoMall.models.dto.search.ProductSearchDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * 商品搜索索引数据源，以 JDBC 按主键分批读取在售商品及其规格值，不经过 JPA 实体
+ */
+@Repository
+public class ProductSearchRepository {
+    private static final String SELECT_DOCUMENT =
+            "SELECT id, store_id, name, description, price, sales, rating, create_time FROM products ";
+    // 与 ProductRepository.SEARCH_CONDITION 相同的模糊匹配：名称、描述或任一规格值包含关键词
+    private static final String KEYWORD_CONDITION = " AND (LOWER(name) LIKE ? OR LOWER(description) LIKE ? OR " +
+            "EXISTS (SELECT 1 FROM product_specifications ps WHERE ps.product_id = products.id AND LOWER(ps.specifications) LIKE ?))";
+    // 与 ProductRepository.searchProductsByRelevance 相同的排序：名称完全匹配、名称开头、名称包含、描述开头、描述包含、仅规格
+    private static final String RELEVANCE_ORDER = " ORDER BY CASE WHEN LOWER(name) = ? THEN 1 WHEN LOWER(name) LIKE ? THEN 2 " +
+            "WHEN LOWER(name) LIKE ? THEN 3 WHEN LOWER(description) LIKE ? THEN 4 WHEN LOWER(description) LIKE ? THEN 5 " +
+            "ELSE 6 END ASC, sales DESC, rating DESC, create_time DESC";
+    private static final Map<String, String> SORT_COLUMNS;
+
+    static {
+        Map<String, String> columns = new HashMap<>();
+        columns.put("id", "id");
+        columns.put("price", "price");
+        columns.put("sales", "sales");
+        columns.put("rating", "rating");
+        columns.put("createTime", "create_time");
+        SORT_COLUMNS = Collections.unmodifiableMap(columns);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ProductSearchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 按主键顺序读取 afterId 之后的一批在售商品（键集分页）
+     */
+    public List<ProductSearchDocument> findOnSaleAfter(int afterId, int limit) {
+        List<ProductSearchDocument> documents = jdbcTemplate.query(
+                SELECT_DOCUMENT + "WHERE on_sale = true AND id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> mapDocument(rs), afterId, limit);
+        attachSpecifications(documents);
+        return documents;
+    }
+
+    /**
+     * 读取指定商品中仍在售的部分
+     */
+    public List<ProductSearchDocument> findOnSaleByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ProductSearchDocument> documents = jdbcTemplate.query(
+                SELECT_DOCUMENT + "WHERE on_sale = true AND id IN (" + placeholders(ids.size()) + ")",
+                (rs, rowNum) -> mapDocument(rs), ids.toArray());
+        attachSpecifications(documents);
+        return documents;
+    }
+
+    /**
+     * 正常营业店铺的名称及其在售商品总销量
+     */
+    public Map<String, Long> findStoreNameSales() {
+        Map<String, Long> result = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT s.name, COALESCE(SUM(p.sales), 0) FROM stores s " +
+                        "LEFT JOIN products p ON p.store_id = s.id AND p.on_sale = true " +
+                        "WHERE s.status = 'NORMAL' GROUP BY s.id, s.name",
+                rs -> {
+                    result.put(rs.getString(1), rs.getLong(2));
+                });
+        return result;
+    }
+
+    public static boolean isSortable(String sortField) {
+        return SORT_COLUMNS.containsKey(sortField);
+    }
+
+    /**
+     * 带规格与价格区间筛选的模糊查询，匹配条件与 ProductRepository.SEARCH_CONDITION 一致，
+     * 供搜索后端无法处理时回退，使筛选在回退时同样生效
+     *
+     * @param specFilters  规格键 -> 可选取值，同一键的取值为“或”，不同键之间为“与”
+     * @param priceBuckets 价格区间标签，形如 50-100 或 1000+
+     */
+    public long countFiltered(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                              Map<String, Set<String>> specFilters, Collection<String> priceBuckets) {
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM products WHERE on_sale = true"
+                + filterCondition(keyword, minPrice, maxPrice, specFilters, priceBuckets, args);
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, args.toArray());
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @param sortField 排序字段，须满足 isSortable；为空时按关键词匹配位置、销量、评分排序
+     */
+    public List<Integer> findFilteredIds(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                         Map<String, Set<String>> specFilters, Collection<String> priceBuckets,
+                                         String sortField, boolean ascending, int offset, int limit) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT id FROM products WHERE on_sale = true")
+                .append(filterCondition(keyword, minPrice, maxPrice, specFilters, priceBuckets, args));
+        if (sortField != null) {
+            String direction = ascending ? " ASC" : " DESC";
+            sql.append(" ORDER BY ").append(SORT_COLUMNS.get(sortField)).append(direction).append(", id").append(direction);
+        } else if (keyword != null && !keyword.isEmpty()) {
+            String lower = keyword.toLowerCase(Locale.ROOT);
+            sql.append(RELEVANCE_ORDER);
+            args.addAll(Arrays.asList(lower, lower + "%", "%" + lower + "%", lower + "%", "%" + lower + "%"));
+        } else {
+            sql.append(" ORDER BY sales DESC, rating DESC, create_time DESC");
+        }
+        sql.append(" LIMIT ? OFFSET ?");
+        args.add(limit);
+        args.add(offset);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> rs.getInt("id"), args.toArray());
+    }
+
+    private static String filterCondition(String keyword, BigDecimal minPrice, BigDecimal maxPrice,
+                                          Map<String, Set<String>> specFilters, Collection<String> priceBuckets,
+                                          List<Object> args) {
+        StringBuilder condition = new StringBuilder();
+        if (keyword != null && !keyword.isEmpty()) {
+            String pattern = "%" + keyword.toLowerCase(Locale.ROOT) + "%";
+            condition.append(KEYWORD_CONDITION);
+            args.addAll(Arrays.asList(pattern, pattern, pattern));
+        }
+        condition.append(FacetConditions.priceCondition(minPrice, maxPrice, args));
+        condition.append(FacetConditions.facetCondition(specFilters, priceBuckets, args));
+        return condition.toString();
+    }
+
+    private void attachSpecifications(List<ProductSearchDocument> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        Map<Integer, ProductSearchDocument> byId = new HashMap<>();
+        for (ProductSearchDocument document : documents) {
+            byId.put(document.getId(), document);
+        }
+        jdbcTemplate.query(
+                "SELECT product_id, specifications_key, specifications FROM product_specifications " +
+                        "WHERE product_id IN (" + placeholders(byId.size()) + ")",
+                rs -> {
+                    String value = rs.getString(3);
+                    if (value != null) {
+                        byId.get(rs.getInt(1)).getSpecifications().put(rs.getString(2), value);
+                    }
+                },
+                byId.keySet().toArray());
+    }
+
+    private static ProductSearchDocument mapDocument(ResultSet rs) throws SQLException {
+        ProductSearchDocument document = new ProductSearchDocument();
+        document.setId(rs.getInt("id"));
+        document.setStoreId(rs.getInt("store_id"));
+        document.setName(rs.getString("name"));
+        document.setDescription(rs.getString("description"));
+        document.setPrice(rs.getBigDecimal("price"));
+        document.setSales(rs.getInt("sales"));
+        document.setRating(rs.getBigDecimal("rating"));
+        Timestamp createTime = rs.getTimestamp("create_time");
+        document.setCreateTime(createTime == null ? null : createTime.toLocalDateTime());
+        return document;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
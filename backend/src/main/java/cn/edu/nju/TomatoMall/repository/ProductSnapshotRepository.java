@@ -2,9 +2,22 @@ package cn.edu.nju.TomatoMall.repository;
 
 import cn.edu.nju.TomatoMall.models.po.ProductSnapshot;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface ProductSnapshotRepository extends JpaRepository<ProductSnapshot, Integer> {
     ProductSnapshot findById(int id);
+
+    @Query("SELECT s FROM ProductSnapshot s " +
+            "JOIN FETCH s.descriptionBlob " +
+            "JOIN FETCH s.imagesBlob " +
+            "JOIN FETCH s.specificationsBlob " +
+            "WHERE s.id = :id")
+    Optional<ProductSnapshot> findWithContentById(@Param("id") int id);
+
+    Optional<ProductSnapshot> findTopByProductIdOrderByIdDesc(int productId);
 }
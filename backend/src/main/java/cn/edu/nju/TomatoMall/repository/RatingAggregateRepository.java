@@ -0,0 +1,86 @@
+package cn.edu.nju.TomatoMall.repository;
+
+import cn.edu.nju.TomatoMall.enums.EntityType;
+import cn.edu.nju.TomatoMall.models.po.RatingAggregate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 评分聚合的增量更新，每次评分变化只改动一行，不再对实体的全部评论求平均
+ * 直方图列随分值变化，以 JDBC 拼接经 RatingAggregate.countColumn 校验的列名
+ * 调用方负责事务边界
+ */
+@Repository
+public class RatingAggregateRepository {
+    private static final String WHERE_KEY = " WHERE entity_type = ? AND entity_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public RatingAggregateRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 新增一条评分，聚合行不存在时创建
+     */
+    public void add(EntityType entityType, int entityId, int rating) {
+        String column = RatingAggregate.countColumn(rating);
+        StringBuilder sql = new StringBuilder("INSERT INTO rating_aggregates (entity_type, entity_id, rating_sum, rating_count");
+        StringBuilder values = new StringBuilder(") VALUES (?, ?, ?, 1");
+        for (int i = RatingAggregate.MIN_RATING; i <= RatingAggregate.MAX_RATING; i++) {
+            sql.append(", ").append(RatingAggregate.countColumn(i));
+            values.append(i == rating ? ", 1" : ", 0");
+        }
+        sql.append(values).append(") ON DUPLICATE KEY UPDATE rating_sum = rating_sum + ?, rating_count = rating_count + 1, ")
+                .append(column).append(" = ").append(column).append(" + 1");
+        jdbcTemplate.update(sql.toString(), entityType.name(), entityId, rating, rating);
+    }
+
+    /**
+     * 撤销一条评分
+     */
+    public void remove(EntityType entityType, int entityId, int rating) {
+        String column = RatingAggregate.countColumn(rating);
+        jdbcTemplate.update("UPDATE rating_aggregates SET rating_sum = rating_sum - ?, rating_count = rating_count - 1, " +
+                        column + " = " + column + " - 1" + WHERE_KEY + " AND " + column + " > 0",
+                rating, entityType.name(), entityId);
+    }
+
+    /**
+     * 一条评分由 oldRating 改为 newRating，评分数不变
+     */
+    public void change(EntityType entityType, int entityId, int oldRating, int newRating) {
+        String oldColumn = RatingAggregate.countColumn(oldRating);
+        String newColumn = RatingAggregate.countColumn(newRating);
+        jdbcTemplate.update("UPDATE rating_aggregates SET rating_sum = rating_sum + ?, " +
+                        oldColumn + " = " + oldColumn + " - 1, " + newColumn + " = " + newColumn + " + 1" +
+                        WHERE_KEY + " AND " + oldColumn + " > 0",
+                newRating - oldRating, entityType.name(), entityId);
+    }
+
+    public Optional<RatingAggregate> find(EntityType entityType, int entityId) {
+        List<RatingAggregate> aggregates = jdbcTemplate.query("SELECT * FROM rating_aggregates" + WHERE_KEY,
+                (rs, rowNum) -> {
+                    int[] histogram = new int[RatingAggregate.MAX_RATING];
+                    for (int i = RatingAggregate.MIN_RATING; i <= RatingAggregate.MAX_RATING; i++) {
+                        histogram[i - 1] = rs.getInt(RatingAggregate.countColumn(i));
+                    }
+                    return new RatingAggregate(entityType, entityId, rs.getLong("rating_sum"),
+                            rs.getInt("rating_count"), histogram);
+                }, entityType.name(), entityId);
+        return aggregates.stream().findFirst();
+    }
+
+    /**
+     * 评分分布，下标 i 为 i+1 分的评论数，无评分时全为 0
+     */
+    public int[] findHistogram(EntityType entityType, int entityId) {
+        return find(entityType, entityId).map(RatingAggregate::getHistogram)
+                .orElseGet(() -> new int[RatingAggregate.MAX_RATING]);
+    }
+}
@@ -0,0 +1,21 @@
+package cn.edu.nju.TomatoMall.repository;
+
+import cn.edu.nju.TomatoMall.models.po.SnapshotBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SnapshotBlobRepository extends JpaRepository<SnapshotBlob, String> {
+
+    /**
+     * 插入内容块，主键已存在时忽略；并发写入相同内容不会因主键冲突失败
+     *
+     * @return 1 表示本次新插入，0 表示已存在
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO snapshot_blobs (hash, content) VALUES (:hash, :content)", nativeQuery = true)
+    int insertIfAbsent(@Param("hash") String hash, @Param("content") String content);
+}
@@ -6,15 +6,24 @@ import lombok.NonNull;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface StoreRepository extends JpaRepository<Store, Integer> {
+    // 与 StoreSearchRepository、FulltextSearchRepository 的检索范围一致：不含系统店铺与已删除店铺
+    String SEARCH_CONDITION = "FROM Store s " +
+            "WHERE s.isSystemStore = false AND s.status <> 'DELETED' AND " +
+            "(:keyword IS NULL OR :keyword = '' OR " +
+            "LOWER(s.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "LOWER(s.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+            "LOWER(s.address) LIKE LOWER(CONCAT('%', :keyword, '%'))) ";
 
     // Find store by name
     Store findByName(String name);
@@ -48,11 +57,7 @@ public interface StoreRepository extends JpaRepository<Store, Integer> {
     String findAddressById(int id);
 
     // 相关度排序查询
-    @Query("SELECT s FROM Store s " +
-            "WHERE (:keyword IS NULL OR :keyword = '' OR " +
-            "LOWER(s.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(s.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(s.address) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
+    @Query("SELECT s " + SEARCH_CONDITION +
             "ORDER BY " +
             "CASE " +
             // 商店名称完全匹配
@@ -69,10 +74,10 @@ public interface StoreRepository extends JpaRepository<Store, Integer> {
     Page<Store> searchStoresByRelevance(@Param("keyword") String keyword, Pageable pageable);
 
     // 自定义排序查询
-    @Query("SELECT s FROM Store s " +
-            "WHERE (:keyword IS NULL OR :keyword = '' OR " +
-            "LOWER(s.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(s.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(s.address) LIKE LOWER(CONCAT('%', :keyword, '%')))")
+    @Query("SELECT s " + SEARCH_CONDITION)
     Page<Store> searchStoresWithCustomSort(@Param("keyword") String keyword, Pageable pageable);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("UPDATE Store s SET s.rating = :rating WHERE s.id = :id")
+    void setRatingById(@Param("id") int id, @Param("rating") BigDecimal rating);
+}
@@ -0,0 +1,62 @@
+package cn.edu.nju.TomatoMall.repository;
+
+import cn.edu.nju.TomatoMall.models.dto.search.StoreSearchDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 店铺搜索索引数据源，以 JDBC 按主键分批读取可被搜索的店铺（排除系统店铺与已删除店铺）
+ */
+@Repository
+public class StoreSearchRepository {
+    private static final String SELECT_DOCUMENT =
+            "SELECT id, name, description, address, rating, create_time FROM stores " +
+                    "WHERE is_system_store = false AND status <> 'DELETED' ";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public StoreSearchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 按主键顺序读取 afterId 之后的一批店铺（键集分页）
+     */
+    public List<StoreSearchDocument> findSearchableAfter(int afterId, int limit) {
+        return jdbcTemplate.query(SELECT_DOCUMENT + "AND id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> mapDocument(rs), afterId, limit);
+    }
+
+    /**
+     * 读取指定店铺中仍可被搜索的部分
+     */
+    public List<StoreSearchDocument> findSearchableByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return jdbcTemplate.query(
+                SELECT_DOCUMENT + "AND id IN (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ")",
+                (rs, rowNum) -> mapDocument(rs), ids.toArray());
+    }
+
+    private static StoreSearchDocument mapDocument(ResultSet rs) throws SQLException {
+        StoreSearchDocument document = new StoreSearchDocument();
+        document.setId(rs.getInt("id"));
+        document.setName(rs.getString("name"));
+        document.setDescription(rs.getString("description"));
+        document.setAddress(rs.getString("address"));
+        document.setRating(rs.getBigDecimal("rating"));
+        Timestamp createTime = rs.getTimestamp("create_time");
+        document.setCreateTime(createTime == null ? null : createTime.toLocalDateTime());
+        return document;
+    }
+}
@@ -0,0 +1,49 @@
+package cn.edu.nju.TomatoMall.repository;
+
+import cn.edu.nju.TomatoMall.models.po.StoredObject;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredObjectRepository extends JpaRepository<StoredObject, String> {
+
+    @Query("SELECT o.url FROM StoredObject o WHERE o.hash = :hash")
+    Optional<String> findUrlByHash(@Param("hash") String hash);
+
+    /**
+     * 登记新对象；并发上传同一内容时主键冲突转为引用计数加一
+     */
+    @Modifying
+    @Query(value = "INSERT INTO stored_objects (hash, url, ref_count, update_time) VALUES (:hash, :url, 1, :now) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, update_time = :now", nativeQuery = true)
+    void insertOrRetain(@Param("hash") String hash, @Param("url") String url, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE StoredObject o SET o.refCount = o.refCount + 1, o.updateTime = :now WHERE o.hash = :hash")
+    int retainByHash(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE StoredObject o SET o.refCount = o.refCount + 1, o.updateTime = :now WHERE o.url = :url")
+    int retainByUrl(@Param("url") String url, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE StoredObject o SET o.refCount = o.refCount - 1, o.updateTime = :now WHERE o.url = :url AND o.refCount > 0")
+    int releaseByUrl(@Param("url") String url, @Param("now") LocalDateTime now);
+
+    @Query("SELECT o.hash FROM StoredObject o WHERE o.refCount = 0 AND o.updateTime < :before ORDER BY o.updateTime")
+    List<String> findUnreferenced(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM StoredObject o WHERE o.hash = :hash")
+    Optional<StoredObject> findByHashWithLock(@Param("hash") String hash);
+}
@@ -4,6 +4,8 @@ import cn.edu.nju.TomatoMall.enums.EntityType;
 import cn.edu.nju.TomatoMall.models.dto.comment.CommentResponse;
 import org.springframework.data.domain.Page;
 
+import java.util.List;
+
 /**
  * 评论服务接口
  */
@@ -62,6 +64,15 @@ public interface CommentService {
     Page<CommentResponse> getReplies(int parentId,
                                      int page, int size, String field, boolean order);
 
+    /**
+     * 获取热门评论：按点赞数与发表时间综合排序的顶层评论
+     * @param entityType 实体类型
+     * @param entityId 实体ID
+     * @param size 数量，不超过热门榜容量
+     * @return 热门评论列表
+     */
+    List<CommentResponse> getHotComments(EntityType entityType, int entityId, int size);
+
     /**
      * 点赞/取消点赞
      * @param commentId 评论ID
@@ -0,0 +1,25 @@
+package cn.edu.nju.TomatoMall.service;
+
+import cn.edu.nju.TomatoMall.models.dto.image.ImageDerivative;
+
+import java.nio.file.Path;
+
+public interface ImageService {
+    /**
+     * 解析并校验衍生图参数，不读取原图
+     *
+     * @param key    ImageUrls 生成的带签名的原图标识，签名不匹配时拒绝
+     * @param width  最大宽度，可为空；宽高须为 ImageUrls 中的预设组合
+     * @param height 最大高度，可为空
+     * @param format 输出格式 jpg/png，为空时按原图扩展名
+     */
+    ImageDerivative describe(String key, Integer width, Integer height, String format);
+
+    /**
+     * 获取衍生图文件，命中磁盘缓存直接返回，否则在工作线程池中生成
+     *
+     * @return 衍生图路径；原图无法解码、过大或线程池繁忙时返回 null
+     * @throws cn.edu.nju.TomatoMall.exception.TomatoMallException 原图不存在时
+     */
+    Path render(ImageDerivative derivative);
+}
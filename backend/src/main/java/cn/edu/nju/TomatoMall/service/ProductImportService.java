@@ -0,0 +1,18 @@
+package cn.edu.nju.TomatoMall.service;
+
+import cn.edu.nju.TomatoMall.models.dto.product.ProductImportResponse;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * 商品批量导入服务接口
+ */
+public interface ProductImportService {
+    /**
+     * 批量导入商品
+     * @param storeId 商店ID
+     * @param manifest 商品清单（CSV 或 JSON 数组），逐行流式解析
+     * @param images 图片压缩包，清单中按文件名引用
+     * @return 导入结果，包含逐行错误信息
+     */
+    ProductImportResponse importProducts(int storeId, MultipartFile manifest, MultipartFile images);
+}
@@ -1,5 +1,6 @@
 package cn.edu.nju.TomatoMall.service;
 
+import cn.edu.nju.TomatoMall.enums.ExportFormat;
 import cn.edu.nju.TomatoMall.models.dto.product.ProductBriefResponse;
 import cn.edu.nju.TomatoMall.models.dto.product.ProductDetailResponse;
 import cn.edu.nju.TomatoMall.models.dto.product.ProductInventoryResponse;
@@ -7,6 +8,7 @@ import cn.edu.nju.TomatoMall.models.dto.product.ProductSnapshotResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
@@ -71,6 +73,14 @@ public interface ProductService {
      */
     Page<ProductBriefResponse> getStoreProductList(int storeId, int page, int size, String field, boolean order);
 
+    /**
+     * 流式导出在售商品，逐行写出，内存占用与商品总量无关
+     * @param storeId 商店ID，为空时导出全部商品（仅系统管理员）
+     * @param format 导出格式
+     * @param outputStream 输出流
+     */
+    void exportProducts(Integer storeId, ExportFormat format, OutputStream outputStream);
+
     /**
      * 获取商品快照信息
      * @param snapshotId 快照ID
@@ -0,0 +1,23 @@
+package cn.edu.nju.TomatoMall.service;
+
+/**
+ * 商品销量计数服务
+ * 销量变化先在内存中按商品累加并写入本地日志，定期合并为批量 UPDATE 写回数据库，
+ * 避免发货事务逐条更新 products 热点行
+ */
+public interface SalesCounterService {
+    /**
+     * 增加销量，处于事务中时在事务提交后生效
+     */
+    void increase(int productId, int quantity);
+
+    /**
+     * 减少销量，写回时销量不小于 0
+     */
+    void decrease(int productId, int quantity);
+
+    /**
+     * 立即将累计的销量变化写回数据库
+     */
+    void flush();
+}
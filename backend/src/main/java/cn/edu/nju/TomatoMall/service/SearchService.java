@@ -5,6 +5,7 @@ import cn.edu.nju.TomatoMall.models.dto.store.StoreInfoResponse;
 import org.springframework.data.domain.Page;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 public interface SearchService {
     /**
@@ -17,7 +18,10 @@ public interface SearchService {
      * @param order      排序方式，true为升序，false为降序
      * @param minPrice   最小价格（可选）
      * @param maxPrice   最大价格（可选）
-     * @return 商品简要信息分页
+     * @param specs        规格筛选，形如 key:value，同一规格键的多个取值为“或”（可选）
+     * @param priceBuckets 价格区间筛选，如 50-100（可选）
+     * @param facets       需要返回计数的规格键，非空时同时返回各价格区间计数（可选）
+     * @return 商品简要信息分页；使用分面时为 FacetedPage
      */
     Page<ProductBriefResponse> searchProducts(
             String keyword,
@@ -26,7 +30,10 @@ public interface SearchService {
             String field,
             Boolean order,
             BigDecimal minPrice,
-            BigDecimal maxPrice
+            BigDecimal maxPrice,
+            List<String> specs,
+            List<String> priceBuckets,
+            List<String> facets
     );
 
     /**
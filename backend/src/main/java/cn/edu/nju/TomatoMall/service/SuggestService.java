@@ -0,0 +1,23 @@
+package cn.edu.nju.TomatoMall.service;
+
+import cn.edu.nju.TomatoMall.models.dto.search.SuggestionResponse;
+
+import java.util.List;
+
+public interface SuggestService {
+    /**
+     * 搜索框联想：按前缀补全商品名、店铺名与热门搜索词
+     *
+     * @param prefix 已输入的前缀
+     * @param size   返回条数
+     * @return 按权重降序的补全列表
+     */
+    List<SuggestionResponse> suggest(String prefix, int size);
+
+    /**
+     * 记录一次有结果的搜索，用于统计热门搜索词
+     *
+     * @param keyword 搜索关键词
+     */
+    void recordQuery(String keyword);
+}
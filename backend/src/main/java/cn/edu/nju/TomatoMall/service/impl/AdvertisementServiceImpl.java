@@ -136,7 +136,7 @@ public class AdvertisementServiceImpl implements AdvertisementService {
 
         Advertisement ad = Advertisement.builder()
                 .title(title)
-                .content(fileUtil.upload(securityUtil.getCurrentUser().getId(), content))
+                .content(fileUtil.upload(content))
                 .linkUrl(linkUrl)
                 .store(store)
                 .build();
@@ -169,8 +169,8 @@ public class AdvertisementServiceImpl implements AdvertisementService {
         }
 
         if (content != null && !content.isEmpty()) {
-            fileUtil.delete(ad.getContent());
-            String imageUrl = fileUtil.upload(securityUtil.getCurrentUser().getId(), content);
+            String imageUrl = fileUtil.upload(content);
+            fileUtil.release(ad.getContent());
             ad.setContent(imageUrl);
         }
 
@@ -193,7 +193,7 @@ public class AdvertisementServiceImpl implements AdvertisementService {
             throw TomatoMallException.invalidOperation("该广告仍有活跃的投放记录，无法删除");
         }
 
-        fileUtil.delete(ad.getContent());
+        fileUtil.release(ad.getContent());
 
         advertisementPlacementRepository.deleteAllByAdvertisementId(adId);
 
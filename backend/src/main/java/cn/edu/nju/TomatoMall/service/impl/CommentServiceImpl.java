@@ -6,15 +6,28 @@ import cn.edu.nju.TomatoMall.enums.StoreRole;
 import cn.edu.nju.TomatoMall.exception.TomatoMallException;
 import cn.edu.nju.TomatoMall.models.dto.comment.CommentResponse;
 import cn.edu.nju.TomatoMall.models.po.Comment;
+import cn.edu.nju.TomatoMall.models.po.RatingAggregate;
 import cn.edu.nju.TomatoMall.models.po.User;
+import cn.edu.nju.TomatoMall.repository.CommentLikeRepository;
 import cn.edu.nju.TomatoMall.repository.CommentRepository;
 import cn.edu.nju.TomatoMall.repository.ProductRepository;
+import cn.edu.nju.TomatoMall.repository.RatingAggregateRepository;
 import cn.edu.nju.TomatoMall.repository.StoreRepository;
 import cn.edu.nju.TomatoMall.service.CommentService;
 import cn.edu.nju.TomatoMall.service.PermissionService;
+import cn.edu.nju.TomatoMall.service.impl.comment.CommentPageAssembler;
+import cn.edu.nju.TomatoMall.service.impl.comment.HotCommentRankings;
+import cn.edu.nju.TomatoMall.service.impl.events.comment.CommentCreateEvent;
+import cn.edu.nju.TomatoMall.service.impl.events.comment.CommentDeleteEvent;
+import cn.edu.nju.TomatoMall.service.impl.events.comment.CommentLikeEvent;
+import cn.edu.nju.TomatoMall.service.impl.events.product.ProductChangeEvent;
+import cn.edu.nju.TomatoMall.service.impl.events.store.StoreChangeEvent;
+import cn.edu.nju.TomatoMall.util.PageUtil;
 import cn.edu.nju.TomatoMall.util.SecurityUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -24,6 +37,8 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Service
@@ -33,18 +48,33 @@ public class CommentServiceImpl implements CommentService {
     @Autowired
     private CommentRepository commentRepository;
 
+    @Autowired
+    private CommentLikeRepository commentLikeRepository;
+
+    @Autowired
+    private RatingAggregateRepository ratingAggregateRepository;
+
     @Autowired
     private StoreRepository storeRepository;
 
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CommentPageAssembler commentPageAssembler;
+
+    @Autowired
+    private HotCommentRankings hotCommentRankings;
+
     @Autowired
     private SecurityUtil securityUtil;
 
     @Autowired
     private PermissionService permissionService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     public void comment(EntityType entityType, Integer entityId, String content, Integer rating) {
         User currentUser = securityUtil.getCurrentUser();
@@ -67,9 +97,12 @@ public class CommentServiceImpl implements CommentService {
                 .build();
 
         commentRepository.save(comment);
+        comment.assignPath();
+        eventPublisher.publishEvent(new CommentCreateEvent(comment));
 
         // 更新实体评分
         if (rating != null) {
+            ratingAggregateRepository.add(entityType, entityId, rating);
             updateEntityRating(entityType, entityId);
         }
     }
@@ -82,6 +115,11 @@ public class CommentServiceImpl implements CommentService {
         Comment parentComment = commentRepository.findById(parentId)
                 .orElseThrow(TomatoMallException::commentNotFound);
 
+        // 路径末尾还需容纳一个ID与分隔符
+        if (parentComment.getPath() != null && parentComment.getPath().length() + String.valueOf(Integer.MAX_VALUE).length() + 1 > Comment.MAX_PATH_LENGTH) {
+            throw TomatoMallException.invalidParameter("回复层级过深");
+        }
+
         // 创建回复（回复不能有评分）
         Comment reply = Comment.builder()
                 .user(currentUser)
@@ -92,6 +130,11 @@ public class CommentServiceImpl implements CommentService {
                 .build();
 
         commentRepository.save(reply);
+        // 父评论尚未回填物化路径（见 db/migration/005_comment_path.sql）时回复也不设置，
+        // 保证有路径的评论其子树也都有路径，删除这类历史评论时沿父评论遍历
+        if (parentComment.getPath() != null) {
+            reply.assignPath();
+        }
     }
 
     @Override
@@ -116,13 +159,14 @@ public class CommentServiceImpl implements CommentService {
             throw TomatoMallException.invalidParameter("评分必须在1-10之间");
         }
 
+        Integer oldRating = comment.getRating();
         boolean ratingChanged = false;
         // 更新内容
         if (content != null) {
             comment.setContent(content);
         }
         // 更新评分
-        if (rating != null && !rating.equals(comment.getRating())) {
+        if (rating != null && !rating.equals(oldRating)) {
             comment.setRating(rating);
             ratingChanged = true;
         }
@@ -132,6 +176,11 @@ public class CommentServiceImpl implements CommentService {
 
         // 如果评分发生变化，更新实体评分
         if (ratingChanged && comment.getParent() == null) {
+            if (oldRating == null) {
+                ratingAggregateRepository.add(comment.getEntityType(), comment.getEntityId(), rating);
+            } else {
+                ratingAggregateRepository.change(comment.getEntityType(), comment.getEntityId(), oldRating, rating);
+            }
             updateEntityRating(comment.getEntityType(), comment.getEntityId());
         }
     }
@@ -149,29 +198,32 @@ public class CommentServiceImpl implements CommentService {
             throw TomatoMallException.permissionDenied();
         }
 
-        // 递归删除评论及其回复
-        deleteRecursively(comment);
-    }
-
-    private void deleteRecursively(Comment comment) {
-        // 记录是否需要更新评分
-        boolean shouldUpdateRating = comment.getRating() != null && comment.getParent() == null;
-        EntityType entityType = comment.getEntityType();
-        int entityId = comment.getEntityId();
-
-        List<Comment> replies = commentRepository.findListByParentId(comment.getId());
-
-        for (Comment reply : replies) {
-            // 递归删除回复
-            deleteRecursively(reply);
+        int deleted;
+        if (comment.getPath() != null) {
+            // 按物化路径一次删除评论、全部回复及其点赞记录
+            commentLikeRepository.deleteAllBySubtree(comment.getPath());
+            commentRepository.detachSubtree(comment.getPath());
+            deleted = commentRepository.deleteSubtree(comment.getPath());
+        } else {
+            // 尚未回填物化路径的历史评论，沿父评论逐层收集子树后按ID删除
+            List<Integer> subtree = collectSubtree(comment.getId());
+            commentLikeRepository.deleteAllByCommentIdIn(subtree);
+            commentRepository.detachByIdIn(subtree);
+            deleted = commentRepository.deleteByIdIn(subtree);
+        }
+        // 并发请求已先删除时，评分与事件已由该请求处理
+        if (deleted == 0) {
+            return;
         }
 
-        // 删除评论
-        commentRepository.delete(comment);
+        if (comment.getParent() == null) {
+            eventPublisher.publishEvent(new CommentDeleteEvent(comment));
+        }
 
-        // 删除后更新评分
-        if (shouldUpdateRating) {
-            updateEntityRating(entityType, entityId);
+        // 只有顶层评论带评分
+        if (comment.getRating() != null && comment.getParent() == null) {
+            ratingAggregateRepository.remove(comment.getEntityType(), comment.getEntityId(), comment.getRating());
+            updateEntityRating(comment.getEntityType(), comment.getEntityId());
         }
     }
 
@@ -182,14 +234,8 @@ public class CommentServiceImpl implements CommentService {
         Sort sort = order ? Sort.by(field).ascending() : Sort.by(field).descending();
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        Page<Comment> comments = commentRepository.findByEntityTypeAndEntityIdAndParentIsNull(
-                entityType, entityId, pageable);
-
-        return comments.map(comment -> {
-            User currentUser = securityUtil.getCurrentUser();
-            boolean liked = comment.isLikedBy(currentUser.getId());
-            return new CommentResponse(comment, liked);
-        });
+        Page<Integer> ids = commentRepository.findIdsByEntity(entityType, entityId, pageable);
+        return commentPageAssembler.assemble(ids, securityUtil.getCurrentUser());
     }
 
     @Override
@@ -202,13 +248,15 @@ public class CommentServiceImpl implements CommentService {
         Sort sort = order ? Sort.by(field).ascending() : Sort.by(field).descending();
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        Page<Comment> replies = commentRepository.findByParentId(parentId, pageable);
+        Page<Integer> ids = commentRepository.findIdsByParentId(parentId, pageable);
+        return commentPageAssembler.assemble(ids, securityUtil.getCurrentUser());
+    }
 
-        return replies.map(comment -> {
-            User currentUser = securityUtil.getCurrentUser();
-            boolean liked = comment.isLikedBy(currentUser.getId());
-            return new CommentResponse(comment, liked);
-        });
+    @Override
+    @Transactional(readOnly = true)
+    public List<CommentResponse> getHotComments(EntityType entityType, int entityId, int size) {
+        List<Integer> ids = hotCommentRankings.top(entityType, entityId, PageUtil.normalizeSize(size));
+        return commentPageAssembler.assemble(new PageImpl<>(ids), securityUtil.getCurrentUser()).getContent();
     }
 
     @Override
@@ -218,8 +266,22 @@ public class CommentServiceImpl implements CommentService {
         Comment comment = commentRepository.findById(commentId)
                 .orElseThrow(TomatoMallException::commentNotFound);
 
-        comment.toggleLike(currentUser.getId());
-        commentRepository.save(comment);
+        // 已点赞则删除记录，否则插入记录，点赞数随之原子增减；
+        // 重复点击的两个请求可能都删除不到记录，此时只有真正插入的一方增加点赞数
+        int delta;
+        if (commentLikeRepository.deleteLike(commentId, currentUser.getId()) > 0) {
+            delta = -1;
+        } else if (commentLikeRepository.insertLike(commentId, currentUser.getId()) > 0) {
+            delta = 1;
+        } else {
+            return;
+        }
+        commentRepository.addLikeCount(commentId, delta);
+
+        if (comment.getParent() == null) {
+            // 加载的点赞数可能已被并发点赞改变，更新后重新读取；UPDATE 持有行锁，读到的值不会被其他事务打乱
+            eventPublisher.publishEvent(new CommentLikeEvent(comment, commentRepository.findLikeCountById(commentId)));
+        }
     }
 
     private void validatePermission(EntityType entityType, int entityId, User currentUser) {
@@ -245,28 +307,41 @@ public class CommentServiceImpl implements CommentService {
         }
     }
 
+    /**
+     * 按评分聚合重新计算实体评分并以单条 UPDATE 写回，无评分时归零
+     */
+    /**
+     * 评论及其全部回复的ID，按父评论逐层查询
+     */
+    private List<Integer> collectSubtree(int commentId) {
+        List<Integer> subtree = new ArrayList<>();
+        List<Integer> level = Collections.singletonList(commentId);
+        while (!level.isEmpty()) {
+            subtree.addAll(level);
+            level = commentRepository.findIdsByParentIdIn(level);
+        }
+        return subtree;
+    }
+
     private void updateEntityRating(EntityType entityType, int entityId) {
-        Double avgRating = commentRepository.calculateAverageRating(entityType, entityId);
+        RatingAggregate aggregate = ratingAggregateRepository.find(entityType, entityId).orElse(null);
 
-        if (avgRating != null) {
+        BigDecimal rating = BigDecimal.ZERO;
+        if (aggregate != null && aggregate.getRatingCount() > 0) {
             // 保留一位小数，向上取整
-            BigDecimal rating = BigDecimal.valueOf(avgRating)
-                    .setScale(1, RoundingMode.CEILING);
-
-            switch (entityType) {
-                case STORE:
-                    storeRepository.findById(entityId).ifPresent(store -> {
-                        store.setRating(rating);
-                        storeRepository.save(store);
-                    });
-                    break;
-                case PRODUCT:
-                    productRepository.findById(entityId).ifPresent(product -> {
-                        product.setRating(rating);
-                        productRepository.save(product);
-                    });
-                    break;
-            }
+            rating = BigDecimal.valueOf(aggregate.getRatingSum())
+                    .divide(BigDecimal.valueOf(aggregate.getRatingCount()), 1, RoundingMode.CEILING);
+        }
+
+        switch (entityType) {
+            case STORE:
+                storeRepository.setRatingById(entityId, rating);
+                eventPublisher.publishEvent(new StoreChangeEvent(storeRepository.getOne(entityId)));
+                break;
+            case PRODUCT:
+                productRepository.setRatingById(entityId, rating);
+                eventPublisher.publishEvent(new ProductChangeEvent(productRepository.getOne(entityId)));
+                break;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,379 @@
+package cn.edu.nju.TomatoMall.service.impl;
+
+import cn.edu.nju.TomatoMall.exception.TomatoMallException;
+import cn.edu.nju.TomatoMall.models.dto.image.ImageDerivative;
+import cn.edu.nju.TomatoMall.service.ImageService;
+import cn.edu.nju.TomatoMall.util.FileUtil;
+import cn.edu.nju.TomatoMall.util.ImageUrls;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 图片衍生图服务
+ * 纯 Java（ImageIO + Java2D）缩放，在有界线程池中执行；结果按 (原图哈希, 参数) 写入磁盘缓存，按总大小 LRU 淘汰
+ */
+@Slf4j
+@Service
+public class ImageServiceImpl implements ImageService {
+    private static final String TEMP_PREFIX = ".render-";
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final FileUtil fileUtil;
+    private final ImageUrls imageUrls;
+    private final Path cacheRoot;
+    private final long cacheMaxBytes;
+    private final int workerThreads;
+    private final long maxSourcePixels;
+    private final long renderTimeoutMillis;
+
+    // 磁盘缓存索引：缓存键 -> 文件大小，按访问顺序排列
+    private final LinkedHashMap<String, Long> cacheIndex = new LinkedHashMap<>(256, 0.75f, true);
+    private long cacheBytes;
+
+    // 同一衍生图并发请求只生成一次
+    private final Map<String, CompletableFuture<Path>> rendering = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor renderExecutor;
+
+    @Autowired
+    public ImageServiceImpl(FileUtil fileUtil,
+                            ImageUrls imageUrls,
+                            @Value("${app.image.cache.root:${java.io.tmpdir}/tomatomall-image-cache}") String cacheRoot,
+                            @Value("${app.image.cache.max-size-mb:512}") long cacheMaxSizeMb,
+                            @Value("${app.image.worker-threads:0}") int workerThreads,
+                            @Value("${app.image.max-source-pixels:40000000}") long maxSourcePixels,
+                            @Value("${app.image.render-timeout-ms:10000}") long renderTimeoutMillis) {
+        this.fileUtil = fileUtil;
+        this.imageUrls = imageUrls;
+        this.cacheRoot = Paths.get(cacheRoot).toAbsolutePath().normalize();
+        this.cacheMaxBytes = cacheMaxSizeMb * 1024 * 1024;
+        this.workerThreads = workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+        this.maxSourcePixels = maxSourcePixels;
+        this.renderTimeoutMillis = renderTimeoutMillis;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        // 解码时不使用 ImageIO 的临时文件缓存
+        ImageIO.setUseCache(false);
+        Files.createDirectories(cacheRoot);
+        loadCacheIndex();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        renderExecutor = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workerThreads * 8),
+                r -> {
+                    Thread thread = new Thread(r, "image-render-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        renderExecutor.shutdown();
+        try {
+            if (!renderExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                renderExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            renderExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public ImageDerivative describe(String key, Integer width, Integer height, String format) {
+        String sourceUrl = imageUrls.decodeKey(key);
+        if (sourceUrl == null || sourceUrl.isEmpty()) {
+            throw TomatoMallException.invalidParameter("非法图片标识");
+        }
+        int w = width == null ? 0 : width;
+        int h = height == null ? 0 : height;
+        // 只允许预设尺寸，避免同一张图被请求出任意多种衍生图
+        if (!ImageUrls.isPreset(w, h)) {
+            throw TomatoMallException.invalidParameter("不支持的图片尺寸");
+        }
+        String fmt = normalizeFormat(format, sourceUrl);
+        String cacheKey = DigestUtils.md5DigestAsHex(sourceUrl.getBytes(StandardCharsets.UTF_8))
+                + "-" + w + "x" + h + "." + fmt;
+        return new ImageDerivative(sourceUrl, w, h, fmt, cacheKey);
+    }
+
+    @Override
+    public Path render(ImageDerivative derivative) {
+        String cacheKey = derivative.getCacheKey();
+        if (touch(cacheKey)) {
+            return cacheRoot.resolve(cacheKey);
+        }
+
+        CompletableFuture<Path> created = new CompletableFuture<>();
+        CompletableFuture<Path> future = rendering.putIfAbsent(cacheKey, created);
+        if (future == null) {
+            future = created;
+            try {
+                renderExecutor.execute(() -> {
+                    try {
+                        created.complete(generate(derivative));
+                    } catch (Throwable t) {
+                        created.completeExceptionally(t);
+                    } finally {
+                        rendering.remove(cacheKey, created);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rendering.remove(cacheKey, created);
+                log.warn("图片处理繁忙: {}", derivative.getSourceUrl());
+                return null;
+            }
+        }
+
+        try {
+            return future.get(renderTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 生成仍在后台继续，之后的请求可命中缓存
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TomatoMallException) {
+                throw (TomatoMallException) e.getCause();
+            }
+            log.warn("图片处理失败: {}, 错误: {}", derivative.getSourceUrl(), e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    private Path generate(ImageDerivative derivative) throws IOException {
+        BufferedImage source = read(derivative);
+        if (source == null) {
+            return null;
+        }
+        BufferedImage image = scale(source, derivative.getWidth(), derivative.getHeight(), !"png".equals(derivative.getFormat()));
+
+        Path target = cacheRoot.resolve(derivative.getCacheKey());
+        Path temp = Files.createTempFile(cacheRoot, TEMP_PREFIX, ".tmp");
+        try {
+            write(image, derivative.getFormat(), temp);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        record(derivative.getCacheKey(), Files.size(target));
+        return target;
+    }
+
+    /**
+     * 读取原图；大幅缩小时按整数倍抽样解码以降低内存占用
+     *
+     * @return 原图，无法解码或像素数超限时返回 null
+     */
+    private BufferedImage read(ImageDerivative derivative) throws IOException {
+        try (InputStream inputStream = fileUtil.get(derivative.getSourceUrl())) {
+            if (inputStream == null) {
+                throw TomatoMallException.fileNotFound("图片不存在");
+            }
+            try (ImageInputStream imageInput = ImageIO.createImageInputStream(inputStream)) {
+                Iterator<ImageReader> readers = imageInput == null ? null : ImageIO.getImageReaders(imageInput);
+                if (readers == null || !readers.hasNext()) {
+                    return null;
+                }
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(imageInput, true, true);
+                    int sourceWidth = reader.getWidth(0);
+                    int sourceHeight = reader.getHeight(0);
+                    if ((long) sourceWidth * sourceHeight > maxSourcePixels) {
+                        log.warn("原图尺寸过大: {} ({}x{})", derivative.getSourceUrl(), sourceWidth, sourceHeight);
+                        return null;
+                    }
+                    int[] size = targetSize(sourceWidth, sourceHeight, derivative.getWidth(), derivative.getHeight());
+                    // 保留至少 2 倍余量交给插值缩放，保证画质
+                    int subsampling = Math.max(1, Math.min(sourceWidth / size[0], sourceHeight / size[1]) / 2);
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    return reader.read(0, param);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+    }
+
+    /**
+     * 逐级减半的双线性缩放，避免一次性大比例缩小产生锯齿；只缩小不放大
+     *
+     * @param opaque 输出是否不透明（JPEG），透明区域以白色填充
+     */
+    private BufferedImage scale(BufferedImage source, int width, int height, boolean opaque) {
+        int[] size = targetSize(source.getWidth(), source.getHeight(), width, height);
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = Math.max(size[0], w / 2);
+            h = Math.max(size[1], h / 2);
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                if (opaque) {
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, w, h);
+                }
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (w != size[0] || h != size[1]);
+        return current;
+    }
+
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * 按比例适配到 width x height 框内，0 表示该方向不限
+     */
+    private static int[] targetSize(int sourceWidth, int sourceHeight, int width, int height) {
+        double ratio = 1.0;
+        if (width > 0) {
+            ratio = Math.min(ratio, (double) width / sourceWidth);
+        }
+        if (height > 0) {
+            ratio = Math.min(ratio, (double) height / sourceHeight);
+        }
+        return new int[]{
+                Math.max(1, (int) Math.round(sourceWidth * ratio)),
+                Math.max(1, (int) Math.round(sourceHeight * ratio))
+        };
+    }
+
+    private static String normalizeFormat(String format, String sourceUrl) {
+        if (format == null || format.isEmpty()) {
+            String lower = sourceUrl.toLowerCase();
+            return lower.endsWith(".png") || lower.endsWith(".gif") ? "png" : "jpg";
+        }
+        switch (format.toLowerCase()) {
+            case "jpg":
+            case "jpeg":
+                return "jpg";
+            case "png":
+                return "png";
+            default:
+                throw TomatoMallException.invalidParameter("不支持的图片格式: " + format);
+        }
+    }
+
+    // --------------------- 磁盘缓存索引 ---------------------
+
+    /**
+     * 启动时按最后修改时间重建 LRU 索引，并清理上次残留的临时文件
+     */
+    private void loadCacheIndex() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(cacheRoot)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        files.sort(Comparator.comparingLong(this::lastModified));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.startsWith(TEMP_PREFIX)) {
+                Files.deleteIfExists(file);
+            } else {
+                record(name, Files.size(file));
+            }
+        }
+        log.info("图片缓存已加载: {} 个文件, {} 字节", cacheIndex.size(), cacheBytes);
+    }
+
+    private synchronized boolean touch(String cacheKey) {
+        return cacheIndex.get(cacheKey) != null;
+    }
+
+    private synchronized void record(String cacheKey, long size) {
+        Long previous = cacheIndex.put(cacheKey, size);
+        cacheBytes += size - (previous == null ? 0 : previous);
+        Iterator<Map.Entry<String, Long>> iterator = cacheIndex.entrySet().iterator();
+        while (cacheBytes > cacheMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(cacheKey)) {
+                continue;
+            }
+            iterator.remove();
+            cacheBytes -= eldest.getValue();
+            try {
+                // 正在发送该文件的请求持有已打开的句柄，不受删除影响
+                Files.deleteIfExists(cacheRoot.resolve(eldest.getKey()));
+            } catch (IOException e) {
+                log.warn("图片缓存清理失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
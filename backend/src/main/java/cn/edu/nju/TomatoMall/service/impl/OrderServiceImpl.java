@@ -14,6 +14,7 @@ import cn.edu.nju.TomatoMall.models.po.*;
 import cn.edu.nju.TomatoMall.repository.*;
 import cn.edu.nju.TomatoMall.service.InventoryService;
 import cn.edu.nju.TomatoMall.service.OrderService;
+import cn.edu.nju.TomatoMall.service.SalesCounterService;
 import cn.edu.nju.TomatoMall.service.impl.events.order.OrderCancelEvent;
 import cn.edu.nju.TomatoMall.service.impl.events.order.OrderConfirmEvent;
 import cn.edu.nju.TomatoMall.service.impl.events.order.OrderDeliverEvent;
@@ -49,6 +50,8 @@ public class OrderServiceImpl implements OrderService {
     private final ApplicationEventPublisher eventPublisher;
     private final PaymentRepository paymentRepository;
     private final ShippingInfoRepository shippingInfoRepository;
+    private final ProductSnapshotRepository productSnapshotRepository;
+    private final SalesCounterService salesCounterService;
 
     @Autowired
     public OrderServiceImpl(ProductRepository productRepository,
@@ -60,7 +63,9 @@ public class OrderServiceImpl implements OrderService {
                             InventoryService inventoryService,
                             ApplicationEventPublisher eventPublisher,
                             PaymentRepository paymentRepository,
-                            ShippingInfoRepository shippingInfoRepository
+                            ShippingInfoRepository shippingInfoRepository,
+                            ProductSnapshotRepository productSnapshotRepository,
+                            SalesCounterService salesCounterService
     ) {
         this.productRepository = productRepository;
         this.cartItemRepository = cartItemRepository;
@@ -72,6 +77,8 @@ public class OrderServiceImpl implements OrderService {
         this.eventPublisher = eventPublisher;
         this.paymentRepository = paymentRepository;
         this.shippingInfoRepository = shippingInfoRepository;
+        this.productSnapshotRepository = productSnapshotRepository;
+        this.salesCounterService = salesCounterService;
     }
 
     //---------------------------
@@ -586,8 +593,8 @@ public class OrderServiceImpl implements OrderService {
 
         shippingInfoRepository.save(shippingInfo);
 
-        // 更新销量
-        order.getItems().forEach(item -> productRepository.increaseSalesById(item.getProductId(), item.getQuantity()));
+        // 更新销量，事务提交后计入销量计数并定期批量写回
+        order.getItems().forEach(item -> salesCounterService.increase(item.getProductId(), item.getQuantity()));
 
         order.setStatus(OrderStatus.IN_TRANSIT);
         order.getLogs().add(OrderLog.builder()
@@ -761,7 +768,8 @@ public class OrderServiceImpl implements OrderService {
         cartItemRepository.delete(cartItem);
         return OrderItem.builder()
                 .productId(productId)
-                .productSnapshot(cartItem.getProduct().getSnapshot())
+                .productSnapshot(productSnapshotRepository.findTopByProductIdOrderByIdDesc(productId)
+                        .orElseThrow(TomatoMallException::productNotFound))
                 .quantity(quantity)
                 .build();
     }
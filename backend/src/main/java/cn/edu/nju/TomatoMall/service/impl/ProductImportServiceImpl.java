@@ -0,0 +1,462 @@
+package cn.edu.nju.TomatoMall.service.impl;
+
+import cn.edu.nju.TomatoMall.enums.InventoryStatus;
+import cn.edu.nju.TomatoMall.enums.Role;
+import cn.edu.nju.TomatoMall.exception.TomatoMallException;
+import cn.edu.nju.TomatoMall.models.dto.product.ProductImportResponse;
+import cn.edu.nju.TomatoMall.models.dto.product.ProductImportRow;
+import cn.edu.nju.TomatoMall.models.po.Inventory;
+import cn.edu.nju.TomatoMall.models.po.Product;
+import cn.edu.nju.TomatoMall.models.po.Store;
+import cn.edu.nju.TomatoMall.models.po.User;
+import cn.edu.nju.TomatoMall.repository.EmploymentRepository;
+import cn.edu.nju.TomatoMall.repository.ProductBatchRepository;
+import cn.edu.nju.TomatoMall.repository.StoreRepository;
+import cn.edu.nju.TomatoMall.service.ProductImportService;
+import cn.edu.nju.TomatoMall.service.impl.events.product.ProductChangeEvent;
+import cn.edu.nju.TomatoMall.util.CsvReader;
+import cn.edu.nju.TomatoMall.util.FileUtil;
+import cn.edu.nju.TomatoMall.util.JsonMapConverter;
+import cn.edu.nju.TomatoMall.util.SecurityUtil;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+@Slf4j
+@Service
+public class ProductImportServiceImpl implements ProductImportService {
+    // 每批写入的商品数量，每批一个事务
+    private static final int BATCH_SIZE = 500;
+
+    private final ProductBatchRepository productBatchRepository;
+    private final StoreRepository storeRepository;
+    private final EmploymentRepository employmentRepository;
+    private final SecurityUtil securityUtil;
+    private final FileUtil fileUtil;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int uploadThreads;
+    // 单张图片与整个压缩包解压后的字节数上限，防止压缩炸弹耗尽内存
+    private final long maxImageBytes;
+    private final long maxTotalBytes;
+
+    // 图片上传线程池，有界队列 + 调用者执行，限制同时驻留内存的图片数量
+    private ThreadPoolExecutor uploadExecutor;
+
+    @Autowired
+    public ProductImportServiceImpl(ProductBatchRepository productBatchRepository,
+                                    StoreRepository storeRepository,
+                                    EmploymentRepository employmentRepository,
+                                    SecurityUtil securityUtil,
+                                    FileUtil fileUtil,
+                                    ObjectMapper objectMapper,
+                                    TransactionTemplate transactionTemplate,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${app.product.import.upload-threads:8}") int uploadThreads,
+                                    @Value("${app.product.import.max-image-size-mb:20}") long maxImageSizeMb,
+                                    @Value("${app.product.import.max-total-size-mb:1024}") long maxTotalSizeMb) {
+        this.productBatchRepository = productBatchRepository;
+        this.storeRepository = storeRepository;
+        this.employmentRepository = employmentRepository;
+        this.securityUtil = securityUtil;
+        this.fileUtil = fileUtil;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.uploadThreads = uploadThreads;
+        this.maxImageBytes = maxImageSizeMb * 1024 * 1024;
+        this.maxTotalBytes = maxTotalSizeMb * 1024 * 1024;
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        uploadExecutor = new ThreadPoolExecutor(uploadThreads, uploadThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(uploadThreads * 4),
+                r -> {
+                    Thread thread = new Thread(r, "product-import-upload-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        uploadExecutor.shutdown();
+        try {
+            if (!uploadExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                uploadExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            uploadExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public ProductImportResponse importProducts(int storeId, MultipartFile manifest, MultipartFile images) {
+        validatePermission(storeId);
+
+        // 先流式读取压缩包并提交上传任务，清单解析与上传并行进行
+        Map<String, Future<String>> uploads = uploadImages(images);
+        try {
+            return importManifest(storeId, manifest, uploads);
+        } finally {
+            // 上传时持有的引用在商品写入后释放，商品与快照各自持有引用；未被任何商品使用的图片随之被清理
+            releaseUploads(uploads);
+        }
+    }
+
+    private ProductImportResponse importManifest(int storeId, MultipartFile manifest, Map<String, Future<String>> uploads) {
+
+        Store store = storeRepository.getReferenceById(storeId);
+        ProductImportResponse response = new ProductImportResponse();
+        List<Product> batch = new ArrayList<>(BATCH_SIZE);
+        List<Integer> batchRows = new ArrayList<>(BATCH_SIZE);
+        int rowNumber = 0;
+
+        try (ManifestReader reader = openManifest(manifest)) {
+            while (true) {
+                ProductImportRow row;
+                try {
+                    row = reader.next();
+                } catch (IllegalArgumentException e) {
+                    rowNumber++;
+                    response.addError(rowNumber, e.getMessage());
+                    continue;
+                }
+                if (row == null) {
+                    break;
+                }
+                rowNumber++;
+                try {
+                    batch.add(buildProduct(row, store, uploads));
+                    batchRows.add(rowNumber);
+                } catch (IllegalArgumentException e) {
+                    response.addError(rowNumber, e.getMessage());
+                }
+                if (batch.size() >= BATCH_SIZE) {
+                    flushBatch(batch, batchRows, response);
+                }
+            }
+        } catch (IOException e) {
+            // 清单结构损坏时终止解析，已解析的行照常写入
+            response.addError(rowNumber + 1, "清单解析失败: " + e.getMessage());
+        }
+        flushBatch(batch, batchRows, response);
+
+        response.setTotal(rowNumber);
+        return response;
+    }
+
+    /**
+     * 清单按文件名引用图片，不同目录下的同名图片无法区分，直接拒绝；
+     * 解压字节数按实际读取计算（不信任压缩包中记录的大小），超出上限时拒绝整个压缩包
+     */
+    private Map<String, Future<String>> uploadImages(MultipartFile images) {
+        Map<String, Future<String>> uploads = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(images.getInputStream())) {
+            long totalBytes = 0;
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory() || entry.getName().startsWith("__MACOSX/")) {
+                    continue;
+                }
+                String name = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+                if (uploads.containsKey(name)) {
+                    throw TomatoMallException.invalidParameter("压缩包中存在重名图片: " + name);
+                }
+                byte[] content = readEntry(zip, name, Math.min(maxImageBytes, maxTotalBytes - totalBytes));
+                totalBytes += content.length;
+                uploads.put(name, uploadExecutor.submit(() ->
+                        fileUtil.upload(name, content)));
+            }
+        } catch (TomatoMallException e) {
+            // 已提交的上传持有引用，拒绝时一并释放
+            releaseUploads(uploads);
+            throw e;
+        } catch (IOException | IllegalArgumentException e) {
+            releaseUploads(uploads);
+            throw TomatoMallException.invalidParameter("图片压缩包解析失败");
+        }
+        return uploads;
+    }
+
+    private byte[] readEntry(ZipInputStream zip, String name, long limit) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = zip.read(buffer)) != -1) {
+            if (content.size() + read > limit) {
+                throw TomatoMallException.invalidParameter(content.size() + read > maxImageBytes
+                        ? "图片过大: " + name
+                        : "图片压缩包解压后超过 " + maxTotalBytes / (1024 * 1024) + "MB");
+            }
+            content.write(buffer, 0, read);
+        }
+        return content.toByteArray();
+    }
+
+    private void releaseUploads(Map<String, Future<String>> uploads) {
+        for (Future<String> upload : uploads.values()) {
+            try {
+                fileUtil.release(upload.get());
+            } catch (ExecutionException e) {
+                // 上传失败，没有需要释放的引用
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Product buildProduct(ProductImportRow row, Store store, Map<String, Future<String>> uploads) {
+        validateRow(row);
+
+        List<String> imageUrls = new ArrayList<>();
+        for (String name : row.getImages()) {
+            Future<String> upload = uploads.get(name);
+            if (upload == null) {
+                throw new IllegalArgumentException("压缩包中不存在图片: " + name);
+            }
+            try {
+                imageUrls.add(upload.get());
+            } catch (ExecutionException e) {
+                throw new IllegalArgumentException("图片上传失败: " + name);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalArgumentException("图片上传被中断: " + name);
+            }
+        }
+
+        int stock = row.getStock() == null ? 0 : row.getStock();
+        Product product = Product.builder()
+                .name(row.getTitle())
+                .description(row.getDescription())
+                .price(row.getPrice())
+                .images(imageUrls)
+                .specifications(row.getSpecifications())
+                .store(store)
+                .build();
+        Inventory inventory = Inventory.builder().product(product).quantity(stock).build();
+        product.setInventory(inventory);
+        product.setInventoryStatus(InventoryStatus.getInventoryStatus(stock, inventory.getThresholdQuantity()));
+        product.refreshListing();
+        return product;
+    }
+
+    private void flushBatch(List<Product> batch, List<Integer> batchRows, ProductImportResponse response) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.execute(status -> {
+                productBatchRepository.insertAll(batch);
+                batch.forEach(product -> eventPublisher.publishEvent(new ProductChangeEvent(product)));
+                return null;
+            });
+            response.setSucceeded(response.getSucceeded() + batch.size());
+        } catch (DataAccessException | IllegalStateException e) {
+            log.warn("批量导入商品写入失败: {}", e.getMessage());
+            for (Integer row : batchRows) {
+                response.addError(row, "写入失败: " + e.getMessage());
+            }
+        }
+        batch.clear();
+        batchRows.clear();
+    }
+
+    private ManifestReader openManifest(MultipartFile manifest) {
+        String filename = manifest.getOriginalFilename();
+        try {
+            if (filename != null && filename.toLowerCase().endsWith(".json")) {
+                return new JsonManifestReader(objectMapper, objectMapper.getFactory().createParser(manifest.getInputStream()));
+            }
+            return new CsvManifestReader(new CsvReader(new InputStreamReader(manifest.getInputStream(), StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw TomatoMallException.invalidParameter("商品清单读取失败");
+        }
+    }
+
+    private void validateRow(ProductImportRow row) {
+        if (row.getTitle() == null || row.getTitle().isEmpty()) {
+            throw new IllegalArgumentException("商品名称不能为空");
+        }
+        if (row.getPrice() == null || row.getPrice().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("商品价格必须大于0");
+        }
+        if (row.getDescription() == null || row.getDescription().isEmpty()) {
+            throw new IllegalArgumentException("商品描述不能为空");
+        }
+        if (row.getImages() == null || row.getImages().isEmpty()) {
+            throw new IllegalArgumentException("商品图片不能为空");
+        }
+        if (row.getSpecifications() == null || row.getSpecifications().isEmpty()) {
+            throw new IllegalArgumentException("商品规格不能为空");
+        }
+        for (Map.Entry<String, String> entry : row.getSpecifications().entrySet()) {
+            if (entry.getKey() == null || entry.getKey().isEmpty()) {
+                throw new IllegalArgumentException("商品规格名称不能为空");
+            }
+            if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                throw new IllegalArgumentException("商品规格值不能为空");
+            }
+        }
+        if (row.getStock() != null && row.getStock() < 0) {
+            throw new IllegalArgumentException("商品库存不能为负数");
+        }
+    }
+
+    private void validatePermission(int storeId) {
+        User currentUser = securityUtil.getCurrentUser();
+        // 系统默认店铺，只有系统管理员具有权限
+        if (storeId == 1) {
+            if (!currentUser.getRole().equals(Role.ADMIN)) {
+                throw TomatoMallException.permissionDenied();
+            }
+            return;
+        }
+
+        if (!storeRepository.existsByIdAndManagerId(storeId, currentUser.getId())
+                && !employmentRepository.existsByStoreIdAndEmployeeId(storeId, currentUser.getId())) {
+            throw TomatoMallException.permissionDenied();
+        }
+    }
+
+    /**
+     * 清单逐行读取器
+     * next 在当前行格式错误时抛出 IllegalArgumentException（该行已被消费，可继续读取），
+     * 清单结构损坏时抛出 IOException
+     */
+    private interface ManifestReader extends Closeable {
+        ProductImportRow next() throws IOException;
+    }
+
+    private static class CsvManifestReader implements ManifestReader {
+        private final CsvReader csvReader;
+        private Map<String, Integer> columns;
+
+        CsvManifestReader(CsvReader csvReader) {
+            this.csvReader = csvReader;
+        }
+
+        @Override
+        public ProductImportRow next() throws IOException {
+            if (columns == null) {
+                List<String> header = csvReader.readRecord();
+                if (header == null) {
+                    return null;
+                }
+                columns = new HashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    columns.put(header.get(i).trim().toLowerCase(), i);
+                }
+            }
+            List<String> record = csvReader.readRecord();
+            if (record == null) {
+                return null;
+            }
+
+            ProductImportRow row = new ProductImportRow();
+            row.setTitle(column(record, "title"));
+            row.setDescription(column(record, "description"));
+            String price = column(record, "price");
+            String stock = column(record, "stock");
+            try {
+                row.setPrice(price == null ? null : new BigDecimal(price));
+                row.setStock(stock == null ? null : Integer.valueOf(stock));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("价格或库存格式错误");
+            }
+            String images = column(record, "images");
+            if (images != null) {
+                List<String> names = new ArrayList<>();
+                for (String name : images.split("\\|")) {
+                    if (!name.trim().isEmpty()) {
+                        names.add(name.trim());
+                    }
+                }
+                row.setImages(names);
+            }
+            row.setSpecifications(JsonMapConverter.jsonToStringMap(column(record, "specifications")));
+            return row;
+        }
+
+        private String column(List<String> record, String name) {
+            Integer index = columns.get(name);
+            if (index == null || index >= record.size()) {
+                return null;
+            }
+            String value = record.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            csvReader.close();
+        }
+    }
+
+    private static class JsonManifestReader implements ManifestReader {
+        private final ObjectMapper objectMapper;
+        private final JsonParser parser;
+        private boolean started;
+
+        JsonManifestReader(ObjectMapper objectMapper, JsonParser parser) {
+            this.objectMapper = objectMapper;
+            this.parser = parser;
+        }
+
+        @Override
+        public ProductImportRow next() throws IOException {
+            if (!started) {
+                started = true;
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("JSON 清单应为数组");
+                }
+            }
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            // 先完整读取当前元素，再转换为行对象，转换失败不影响后续元素
+            JsonNode node = parser.readValueAsTree();
+            try {
+                return objectMapper.treeToValue(node, ProductImportRow.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("行格式错误: " + e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+}
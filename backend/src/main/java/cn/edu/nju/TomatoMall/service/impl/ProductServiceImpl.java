@@ -1,23 +1,39 @@
 package cn.edu.nju.TomatoMall.service.impl;
 
+import cn.edu.nju.TomatoMall.enums.EntityType;
+import cn.edu.nju.TomatoMall.enums.ExportFormat;
 import cn.edu.nju.TomatoMall.enums.Role;
 import cn.edu.nju.TomatoMall.exception.TomatoMallException;
 import cn.edu.nju.TomatoMall.models.dto.product.ProductBriefResponse;
 import cn.edu.nju.TomatoMall.models.dto.product.ProductDetailResponse;
+import cn.edu.nju.TomatoMall.models.dto.product.ProductExportRow;
 import cn.edu.nju.TomatoMall.models.dto.product.ProductInventoryResponse;
 import cn.edu.nju.TomatoMall.models.dto.product.ProductSnapshotResponse;
 import cn.edu.nju.TomatoMall.models.po.Inventory;
 import cn.edu.nju.TomatoMall.models.po.Product;
+import cn.edu.nju.TomatoMall.models.po.ProductSnapshot;
+import cn.edu.nju.TomatoMall.models.po.SnapshotBlob;
 import cn.edu.nju.TomatoMall.models.po.User;
 import cn.edu.nju.TomatoMall.repository.EmploymentRepository;
 import cn.edu.nju.TomatoMall.repository.ProductRepository;
 import cn.edu.nju.TomatoMall.repository.ProductSnapshotRepository;
+import cn.edu.nju.TomatoMall.repository.RatingAggregateRepository;
+import cn.edu.nju.TomatoMall.repository.SnapshotBlobRepository;
 import cn.edu.nju.TomatoMall.repository.StoreRepository;
 import cn.edu.nju.TomatoMall.service.InventoryService;
 import cn.edu.nju.TomatoMall.service.ProductService;
+import cn.edu.nju.TomatoMall.service.impl.events.product.ProductChangeEvent;
 import cn.edu.nju.TomatoMall.util.FileUtil;
+import cn.edu.nju.TomatoMall.util.LruCache;
+import cn.edu.nju.TomatoMall.util.PageUtil;
 import cn.edu.nju.TomatoMall.util.SecurityUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -26,20 +42,37 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 @Service
 public class ProductServiceImpl implements ProductService {
+    // 导出时每写出多少行刷新一次输出缓冲
+    private static final int EXPORT_FLUSH_ROWS = 500;
+
     private final ProductRepository productRepository;
     private final InventoryService inventoryService;
     private final StoreRepository storeRepository;
     private final EmploymentRepository employmentRepository;
     private final ProductSnapshotRepository productSnapshotRepository;
+    private final SnapshotBlobRepository snapshotBlobRepository;
+    private final RatingAggregateRepository ratingAggregateRepository;
     private final SecurityUtil securityUtil;
     private final FileUtil fileUtil;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    // 快照不可变，响应永久缓存，仅按容量淘汰
+    private final LruCache<Integer, ProductSnapshotResponse> snapshotCache;
 
     @Autowired
     public ProductServiceImpl(ProductRepository productRepository,
@@ -47,37 +80,43 @@ public class ProductServiceImpl implements ProductService {
                               StoreRepository storeRepository,
                               EmploymentRepository employmentRepository,
                               ProductSnapshotRepository productSnapshotRepository,
+                              SnapshotBlobRepository snapshotBlobRepository,
+                              RatingAggregateRepository ratingAggregateRepository,
                               SecurityUtil securityUtil,
-                              FileUtil fileUtil) {
+                              FileUtil fileUtil,
+                              ObjectMapper objectMapper,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${app.product.snapshot-cache-size:10000}") int snapshotCacheSize) {
         this.productRepository = productRepository;
         this.inventoryService = inventoryService;
         this.storeRepository = storeRepository;
         this.employmentRepository = employmentRepository;
         this.productSnapshotRepository = productSnapshotRepository;
+        this.snapshotBlobRepository = snapshotBlobRepository;
+        this.ratingAggregateRepository = ratingAggregateRepository;
         this.securityUtil = securityUtil;
         this.fileUtil = fileUtil;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.snapshotCache = new LruCache<>(snapshotCacheSize);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductBriefResponse> getProductList(int page, int size, String field, boolean order) {
         Sort.Direction direction = order ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, size > 0 ? size : Integer.MAX_VALUE, Sort.by(direction, field));
+        Pageable pageable = PageRequest.of(page, PageUtil.normalizeSize(size), Sort.by(direction, field));
 
-        return productRepository
-                .findByOnSaleIsTrue(pageable)
-                .map(ProductBriefResponse::new);
+        return productRepository.findBriefByOnSaleIsTrue(pageable);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductBriefResponse> getStoreProductList(int storeId, int page, int size, String field, boolean order) {
         Sort.Direction direction = order ? Sort.Direction.ASC : Sort.Direction.DESC;
-        Pageable pageable = PageRequest.of(page, size > 0 ? size : Integer.MAX_VALUE, Sort.by(direction, field));
+        Pageable pageable = PageRequest.of(page, PageUtil.normalizeSize(size), Sort.by(direction, field));
 
-        return productRepository
-                .findByStoreIdAndOnSaleIsTrue(storeId, pageable)
-                .map(ProductBriefResponse::new);
+        return productRepository.findBriefByStoreIdAndOnSaleIsTrue(storeId, pageable);
     }
 
     @Override
@@ -100,11 +139,13 @@ public class ProductServiceImpl implements ProductService {
                 .store(storeRepository.getReferenceById(storeId))
                 .build();
 
-        product.createSnapshot();
+        product.refreshListing();
+        createSnapshot(product);
 
         product.setInventory(Inventory.builder().product(product).build());
 
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangeEvent(product));
     }
 
     @Override
@@ -128,16 +169,21 @@ public class ProductServiceImpl implements ProductService {
         }
         if (images != null) {
             validateImages(images);
+            List<String> oldImages = new ArrayList<>(product.getImages());
             product.setImages(uploadImages(images));
+            // 旧图片可能仍被历史快照或其他商品引用，只释放本商品持有的引用
+            oldImages.forEach(fileUtil::release);
         }
         if (specifications != null) {
             validateSpecifications(specifications);
             product.setSpecifications(specifications);
         }
 
-        product.createSnapshot();
+        product.refreshListing();
+        createSnapshot(product);
 
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangeEvent(product));
     }
 
     @Override
@@ -151,17 +197,56 @@ public class ProductServiceImpl implements ProductService {
         product.setInventory(null);
 
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangeEvent(product));
     }
 
     @Override
     public ProductDetailResponse getProductDetail(int productId) {
-        return new ProductDetailResponse(productRepository.findByIdAndOnSaleIsTrue(productId)
+        ProductDetailResponse response = new ProductDetailResponse(productRepository.findByIdAndOnSaleIsTrue(productId)
                 .orElseThrow(TomatoMallException::productNotFound));
+        response.setRatingDistribution(ratingAggregateRepository.findHistogram(EntityType.PRODUCT, productId));
+        return response;
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public void exportProducts(Integer storeId, ExportFormat format, OutputStream outputStream) {
+        if (storeId == null) {
+            if (!securityUtil.getCurrentUser().getRole().equals(Role.ADMIN)) {
+                throw TomatoMallException.permissionDenied();
+            }
+        } else {
+            validatePermission(storeId);
+        }
+
+        // 构造器投影不进入持久化上下文，游标逐批读取，无需定期 clear
+        try (Stream<ProductExportRow> rows = productRepository.streamExportRows(storeId)) {
+            switch (format) {
+                case CSV:
+                    writeCsv(rows.iterator(), outputStream);
+                    break;
+                case NDJSON:
+                    writeNdjson(rows.iterator(), outputStream);
+                    break;
+                default:
+                    throw TomatoMallException.invalidParameter("不支持的导出格式");
+            }
+        } catch (IOException e) {
+            throw TomatoMallException.operationFail("商品导出失败");
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public ProductSnapshotResponse getSnapshot(int snapshotId) {
-        return new ProductSnapshotResponse(productSnapshotRepository.findById(snapshotId));
+        ProductSnapshotResponse response = snapshotCache.computeIfAbsent(snapshotId, id ->
+                productSnapshotRepository.findWithContentById(id)
+                        .map(ProductSnapshotResponse::new)
+                        .orElse(null));
+        if (response == null) {
+            throw TomatoMallException.productNotFound("商品快照不存在");
+        }
+        return response;
     }
 
     @Override
@@ -189,15 +274,100 @@ public class ProductServiceImpl implements ProductService {
         return inventoryService.getProductInventoryInfo(productId);
     }
 
+    /**
+     * 为商品创建快照，内容块按哈希复用；与最新快照内容一致时不重复创建
+     */
+    private void createSnapshot(Product product) {
+        SnapshotBlob description = internBlob(SnapshotBlob.of(product.getDescription()));
+        SnapshotBlob imageList = SnapshotBlob.ofImages(product.getImages());
+        if (!snapshotBlobRepository.existsById(imageList.getHash())
+                && snapshotBlobRepository.insertIfAbsent(imageList.getHash(), imageList.getContent()) > 0) {
+            // 新的图片列表由快照持有一次引用，订单中的历史快照不会因商品换图而失效
+            product.getImages().forEach(fileUtil::retain);
+        }
+        SnapshotBlob images = snapshotBlobRepository.getOne(imageList.getHash());
+        SnapshotBlob specifications = internBlob(SnapshotBlob.ofSpecifications(product.getSpecifications()));
+
+        if (product.getId() != 0) {
+            ProductSnapshot latest = productSnapshotRepository.findTopByProductIdOrderByIdDesc(product.getId()).orElse(null);
+            if (latest != null && latest.hasSameContent(product.getName(), product.getCoverUrl(), product.getPrice(),
+                    description, images, specifications)) {
+                return;
+            }
+        }
+
+        product.createSnapshot(description, images, specifications);
+    }
+
+    /**
+     * 已存在的内容块只引用不读取；不存在时插入，并发插入相同内容由 INSERT IGNORE 去重
+     */
+    private SnapshotBlob internBlob(SnapshotBlob blob) {
+        if (!snapshotBlobRepository.existsById(blob.getHash())) {
+            snapshotBlobRepository.insertIfAbsent(blob.getHash(), blob.getContent());
+        }
+        return snapshotBlobRepository.getOne(blob.getHash());
+    }
+
     private List<String> uploadImages(List<MultipartFile> images) {
         List<String> imageUrls = new ArrayList<>();
         for (MultipartFile image : images) {
-            String imageUrl = fileUtil.upload(securityUtil.getCurrentUser().getId(), image);
+            String imageUrl = fileUtil.upload(image);
             imageUrls.add(imageUrl);
         }
         return imageUrls;
     }
 
+    private void writeCsv(Iterator<ProductExportRow> rows, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write("id,storeId,name,price,rating,sales,inventoryStatus,createTime\n");
+        int count = 0;
+        while (rows.hasNext()) {
+            ProductExportRow row = rows.next();
+            writer.write(String.valueOf(row.getId()));
+            writer.write(',');
+            writer.write(String.valueOf(row.getStoreId()));
+            writer.write(',');
+            writer.write(escapeCsv(row.getName()));
+            writer.write(',');
+            writer.write(row.getPrice().toPlainString());
+            writer.write(',');
+            writer.write(row.getRating().toPlainString());
+            writer.write(',');
+            writer.write(String.valueOf(row.getSales()));
+            writer.write(',');
+            writer.write(row.getInventoryStatus().name());
+            writer.write(',');
+            writer.write(String.valueOf(row.getCreateTime()));
+            writer.write('\n');
+            if (++count % EXPORT_FLUSH_ROWS == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeNdjson(Iterator<ProductExportRow> rows, OutputStream outputStream) throws IOException {
+        ObjectWriter objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        int count = 0;
+        while (rows.hasNext()) {
+            objectWriter.writeValue(generator, rows.next());
+            generator.writeRaw('\n');
+            if (++count % EXPORT_FLUSH_ROWS == 0) {
+                generator.flush();
+            }
+        }
+        generator.flush();
+    }
+
+    private String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
     private void validatePermission(Integer storeId) {
         User currentUser = securityUtil.getCurrentUser();
         // 系统默认店铺，只有系统管理员具有权限
@@ -0,0 +1,282 @@
+package cn.edu.nju.TomatoMall.service.impl;
+
+import cn.edu.nju.TomatoMall.repository.ProductBatchRepository;
+import cn.edu.nju.TomatoMall.service.SalesCounterService;
+import cn.edu.nju.TomatoMall.service.impl.events.product.ProductSalesFlushEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 写后合并的销量计数
+ * <p>
+ * 每个商品一个 LongAdder，高并发累加时分散到多个 cell，不争用同一计数器。
+ * 每次变化先追加到当前日志段再计入内存；写回时在写锁下同时切换计数表与日志段，
+ * 保证日志段与计数表一一对应，该段计数写回数据库提交后再删除日志段，写回失败时增量重新记入当前日志段。
+ * 进程崩溃后启动时重放残留日志段，写回提交与删除日志段之间崩溃会导致该段重复计入（至少一次）。
+ */
+@Slf4j
+@Service
+public class SalesCounterServiceImpl implements SalesCounterService {
+    private static final String SEGMENT_PREFIX = "sales-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final ProductBatchRepository productBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path journalDir;
+    private final long flushIntervalMillis;
+
+    // 累加时持读锁，切换计数表与日志段时持写锁
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private ConcurrentHashMap<Integer, LongAdder> counters = new ConcurrentHashMap<>();
+    private FileChannel journal;
+    private Path journalSegment;
+    private long segmentSequence;
+
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public SalesCounterServiceImpl(ProductBatchRepository productBatchRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${app.product.sales.journal-dir:${java.io.tmpdir}/tomatomall-sales-journal}") String journalDir,
+                                   @Value("${app.product.sales.flush-interval-ms:3000}") long flushIntervalMillis) {
+        this.productBatchRepository = productBatchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.journalDir = Paths.get(journalDir).toAbsolutePath().normalize();
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(journalDir);
+        recover();
+        openSegment();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sales-counter-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Exception e) {
+                log.warn("销量写回失败，将在下次重试: {}", e.getMessage());
+            }
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("关闭时销量写回失败，已保留日志待下次启动重放: {}", e.getMessage());
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("销量日志关闭失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void increase(int productId, int quantity) {
+        recordAfterCommit(productId, quantity);
+    }
+
+    @Override
+    public void decrease(int productId, int quantity) {
+        recordAfterCommit(productId, -quantity);
+    }
+
+    /**
+     * 切换计数表与日志段，将旧计数合并为批量 UPDATE 写回
+     */
+    @Override
+    public synchronized void flush() {
+        Map<Integer, LongAdder> snapshot;
+        FileChannel oldJournal;
+        Path oldSegment;
+        lock.writeLock().lock();
+        try {
+            if (counters.isEmpty()) {
+                return;
+            }
+            snapshot = counters;
+            counters = new ConcurrentHashMap<>();
+            oldJournal = journal;
+            oldSegment = journalSegment;
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Integer, Long> deltas = new HashMap<>();
+        snapshot.forEach((productId, adder) -> {
+            long delta = adder.sum();
+            if (delta != 0) {
+                deltas.put(productId, delta);
+            }
+        });
+        try {
+            oldJournal.force(false);
+            oldJournal.close();
+            if (!deltas.isEmpty()) {
+                transactionTemplate.execute(status -> {
+                    productBatchRepository.applySalesDeltas(deltas);
+                    return null;
+                });
+            }
+        } catch (IOException | RuntimeException e) {
+            // 写回失败：增量重新记入当前计数表与日志段，旧日志段随后删除，避免重启时重复重放
+            deltas.forEach(this::record);
+            deleteSegment(oldSegment);
+            throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+        }
+        deleteSegment(oldSegment);
+        if (!deltas.isEmpty()) {
+            eventPublisher.publishEvent(new ProductSalesFlushEvent(new HashSet<>(deltas.keySet())));
+        }
+    }
+
+    private void recordAfterCommit(int productId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(productId, delta);
+                }
+            });
+        } else {
+            record(productId, delta);
+        }
+    }
+
+    private void record(int productId, long delta) {
+        ByteBuffer entry = ByteBuffer.wrap((productId + " " + delta + "\n").getBytes(StandardCharsets.US_ASCII));
+        lock.readLock().lock();
+        try {
+            // 追加写入页缓存即返回，进程崩溃不丢失；落盘在每次写回时统一 force
+            while (entry.hasRemaining()) {
+                journal.write(entry);
+            }
+            counters.computeIfAbsent(productId, id -> new LongAdder()).add(delta);
+        } catch (IOException e) {
+            log.warn("销量日志写入失败，仅计入内存: {}", e.getMessage());
+            counters.computeIfAbsent(productId, id -> new LongAdder()).add(delta);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        journalSegment = journalDir.resolve(SEGMENT_PREFIX + (++segmentSequence) + SEGMENT_SUFFIX);
+        journal = FileChannel.open(journalSegment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 重放上次运行残留的日志段，成功写回后删除
+     */
+    private void recover() throws IOException {
+        List<Path> segments;
+        try (Stream<Path> stream = Files.list(journalDir)) {
+            segments = stream.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).collect(Collectors.toList());
+        }
+        Map<Integer, Long> deltas = new HashMap<>();
+        for (Path segment : segments) {
+            segmentSequence = Math.max(segmentSequence, sequenceOf(segment));
+            try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.US_ASCII)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(" ");
+                    if (parts.length != 2) {
+                        // 崩溃时写了一半的最后一行
+                        continue;
+                    }
+                    try {
+                        deltas.merge(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Long::sum);
+                    } catch (NumberFormatException e) {
+                        // 同上
+                    }
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            return;
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (!deltas.isEmpty()) {
+            transactionTemplate.execute(status -> {
+                productBatchRepository.applySalesDeltas(deltas);
+                return null;
+            });
+        }
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+        log.info("已重放 {} 个销量日志段，涉及 {} 个商品", segments.size(), deltas.size());
+    }
+
+    private void deleteSegment(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            log.warn("销量日志段删除失败，重启时将被重复重放: {}", segment);
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -1,66 +1,325 @@
 package cn.edu.nju.TomatoMall.service.impl;
 
+import cn.edu.nju.TomatoMall.exception.TomatoMallException;
 import cn.edu.nju.TomatoMall.models.dto.product.ProductBriefResponse;
+import cn.edu.nju.TomatoMall.models.dto.search.FacetedPage;
 import cn.edu.nju.TomatoMall.models.dto.store.StoreInfoResponse;
+import cn.edu.nju.TomatoMall.models.po.Store;
 import cn.edu.nju.TomatoMall.repository.ProductRepository;
+import cn.edu.nju.TomatoMall.repository.ProductSearchRepository;
 import cn.edu.nju.TomatoMall.repository.StoreRepository;
 import cn.edu.nju.TomatoMall.service.SearchService;
+import cn.edu.nju.TomatoMall.service.SuggestService;
+import cn.edu.nju.TomatoMall.service.impl.search.FacetQuery;
+import cn.edu.nju.TomatoMall.service.impl.search.SearchBackend;
+import cn.edu.nju.TomatoMall.service.impl.search.SearchHits;
+import cn.edu.nju.TomatoMall.service.impl.search.SearchResultCache;
+import cn.edu.nju.TomatoMall.service.impl.search.analysis.CharNormalizer;
+import cn.edu.nju.TomatoMall.util.PageUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyReferenceException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class SearchServiceImpl implements SearchService {
+    // 搜索后端按相关度排序需为 offset + size 个候选打分，过深的翻页交给数据库
+    private static final int MAX_BACKEND_WINDOW = 10000;
+
     private final ProductRepository productRepository;
+    private final ProductSearchRepository productSearchRepository;
     private final StoreRepository storeRepository;
+    private final SearchBackend searchBackend;
+    private final SuggestService suggestService;
+    private final SearchResultCache searchResultCache;
 
     @Autowired
-    public SearchServiceImpl(ProductRepository productRepository, StoreRepository storeRepository) {
+    public SearchServiceImpl(ProductRepository productRepository, ProductSearchRepository productSearchRepository,
+                             StoreRepository storeRepository, SearchBackend searchBackend,
+                             SuggestService suggestService, SearchResultCache searchResultCache) {
         this.productRepository = productRepository;
+        this.productSearchRepository = productSearchRepository;
         this.storeRepository = storeRepository;
+        this.searchBackend = searchBackend;
+        this.suggestService = suggestService;
+        this.searchResultCache = searchResultCache;
     }
 
     @Override
     public Page<ProductBriefResponse> searchProducts(String keyword, int page, int size,
+                                                     String field, Boolean order,
+                                                     BigDecimal minPrice, BigDecimal maxPrice,
+                                                     List<String> specs, List<String> priceBuckets,
+                                                     List<String> facets) {
+        FacetQuery facetQuery = FacetQuery.of(specs, priceBuckets, facets);
+        Page<ProductBriefResponse> result = searchProductsByBackend(keyword, page, size, field, order, minPrice, maxPrice,
+                facetQuery);
+        if (result == null) {
+            // 索引未就绪、翻页过深或关键词切不出词时回退数据库查询，规格与价格区间筛选同样生效；
+            // 分面计数只由搜索后端提供，此时返回空的分面
+            result = facetQuery.hasFilters()
+                    ? searchFilteredProductsByDatabase(keyword, page, size, field, order, minPrice, maxPrice, facetQuery)
+                    : searchProductsByDatabase(keyword, page, size, field, order, minPrice, maxPrice);
+            if (facetQuery.hasFacets()) {
+                result = new FacetedPage<>(result.getContent(), result.getPageable(), result.getTotalElements(),
+                        Collections.emptyList(), Collections.emptyList());
+            }
+        }
+        // 只统计首页且有结果的搜索，作为搜索联想的热门词
+        if (page == 0 && result.getTotalElements() > 0) {
+            suggestService.recordQuery(keyword);
+        }
+        return result;
+    }
+
+    /**
+     * 搜索后端无法处理时回退数据库查询，结果按商品数据代数缓存
+     */
+    private Page<ProductBriefResponse> searchProductsByDatabase(String keyword, int page, int size,
+                                                              String field, Boolean order,
+                                                              BigDecimal minPrice, BigDecimal maxPrice) {
+        // 数据库按 LOWER 比较，关键词只做大小写规范化
+        String key = cacheKey("product-db", keyword == null ? "" : keyword.toLowerCase(Locale.ROOT),
+                toKey(minPrice), toKey(maxPrice), sortKey(field, order), page, PageUtil.normalizeSize(size));
+        long generation = searchResultCache.getProductGeneration();
+        SearchHits cached = searchResultCache.get(key, generation);
+        if (cached != null) {
+            return new PageImpl<>(hydrateProducts(cached.getIds()), PageRequest.of(page, PageUtil.normalizeSize(size)),
+                    cached.getTotal());
+        }
+        long start = System.nanoTime();
+        Page<ProductBriefResponse> result = queryProducts(keyword, page, size, field, order, minPrice, maxPrice);
+        searchResultCache.put(key, generation, new SearchHits(result.getTotalElements(),
+                result.getContent().stream().map(ProductBriefResponse::getId).collect(Collectors.toList())),
+                System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * 带分面筛选的数据库回退查询，以 JDBC 附加规格与价格区间条件，结果按商品数据代数缓存
+     */
+    private Page<ProductBriefResponse> searchFilteredProductsByDatabase(String keyword, int page, int size,
+                                                                      String field, Boolean order,
+                                                                      BigDecimal minPrice, BigDecimal maxPrice,
+                                                                      FacetQuery facets) {
+        String sortField = field == null || field.trim().isEmpty() ? null : field;
+        if (sortField != null && !ProductSearchRepository.isSortable(sortField)) {
+            throw TomatoMallException.invalidParameter("不支持的排序字段: " + field);
+        }
+        int pageSize = PageUtil.normalizeSize(size);
+        String normalizedKeyword = keyword == null ? "" : keyword.toLowerCase(Locale.ROOT);
+        String key = cacheKey("product-db-facet", normalizedKeyword, toKey(minPrice), toKey(maxPrice), facets.toKey(),
+                sortKey(field, order), page, pageSize);
+        long generation = searchResultCache.getProductGeneration();
+        SearchHits hits = searchResultCache.get(key, generation);
+        if (hits == null) {
+            long start = System.nanoTime();
+            long total = productSearchRepository.countFiltered(normalizedKeyword, minPrice, maxPrice,
+                    facets.getSpecFilters(), facets.getPriceBuckets());
+            List<Integer> ids = total == 0 ? Collections.emptyList() : productSearchRepository.findFilteredIds(
+                    normalizedKeyword, minPrice, maxPrice, facets.getSpecFilters(), facets.getPriceBuckets(),
+                    sortField, order != null && order, page * pageSize, pageSize);
+            hits = new SearchHits(total, ids);
+            searchResultCache.put(key, generation, hits, System.nanoTime() - start);
+        }
+        return new PageImpl<>(hydrateProducts(hits.getIds()), PageRequest.of(page, pageSize), hits.getTotal());
+    }
+
+    private Page<ProductBriefResponse> queryProducts(String keyword, int page, int size,
                                                      String field, Boolean order,
                                                      BigDecimal minPrice, BigDecimal maxPrice) {
         // 根据是否指定排序字段来决定排序策略
         if (field == null || field.trim().isEmpty()) {
             // 未指定排序字段：使用相关度排序
-            Pageable pageable = PageRequest.of(page, size);
+            Pageable pageable = PageRequest.of(page, PageUtil.normalizeSize(size));
             return productRepository.searchProductsByRelevance(
-                    keyword, minPrice, maxPrice, pageable)
-                    .map(ProductBriefResponse::new);
+                    keyword, minPrice, maxPrice, pageable);
         } else {
             // 指定了排序字段：使用自定义排序
-            Pageable pageable = PageRequest.of(page, size,
+            Pageable pageable = PageRequest.of(page, PageUtil.normalizeSize(size),
                     Sort.by((order == null || !order) ? Sort.Direction.DESC : Sort.Direction.ASC, field));
-            return productRepository.searchProductsWithCustomSort(
-                    keyword, minPrice, maxPrice, pageable)
-                    .map(ProductBriefResponse::new);
+            try {
+                return productRepository.searchProductsWithCustomSort(
+                        keyword, minPrice, maxPrice, pageable);
+            } catch (PropertyReferenceException | InvalidDataAccessApiUsageException e) {
+                // 排序字段不是商品属性
+                throw TomatoMallException.invalidParameter("不支持的排序字段: " + field);
+            }
+        }
+    }
+
+    /**
+     * 由搜索后端给出当前页的商品ID，再按ID读取列表信息，保证价格、库存状态等展示数据为最新
+     * 检索结果按后端的数据代数缓存，数据变化后旧结果自然失效
+     */
+    private Page<ProductBriefResponse> searchProductsByBackend(String keyword, int page, int size,
+                                                             String field, Boolean order,
+                                                             BigDecimal minPrice, BigDecimal maxPrice,
+                                                             FacetQuery facets) {
+        boolean relevance = field == null || field.trim().isEmpty();
+        int pageSize = PageUtil.normalizeSize(size);
+        if ((long) page * pageSize + pageSize > MAX_BACKEND_WINDOW) {
+            return null;
+        }
+        String key = cacheKey("product-" + searchBackend.getName(), CharNormalizer.normalize(keyword),
+                toKey(minPrice), toKey(maxPrice), facets.toKey(), sortKey(field, order), page, pageSize);
+        long generation = searchBackend.getProductGeneration();
+        SearchHits hits = searchResultCache.get(key, generation);
+        if (hits == null) {
+            long start = System.nanoTime();
+            hits = searchBackend.searchProducts(keyword, minPrice, maxPrice, facets,
+                    relevance ? null : field, order != null && order, page * pageSize, pageSize);
+            if (hits == null) {
+                return null;
+            }
+            searchResultCache.put(key, generation, hits, System.nanoTime() - start);
         }
+        return toPage(hydrateProducts(hits.getIds()), PageRequest.of(page, pageSize), hits, facets);
+    }
+
+    /**
+     * 按ID读取列表信息并保持ID顺序；索引刷新与缓存失效有短暂延迟，期间下架的商品直接跳过
+     */
+    private List<ProductBriefResponse> hydrateProducts(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, ProductBriefResponse> briefs = new HashMap<>();
+        for (ProductBriefResponse brief : productRepository.findBriefByIdIn(ids)) {
+            briefs.put(brief.getId(), brief);
+        }
+        List<ProductBriefResponse> content = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            ProductBriefResponse brief = briefs.get(id);
+            if (brief != null) {
+                content.add(brief);
+            }
+        }
+        return content;
+    }
+
+    private static Page<ProductBriefResponse> toPage(List<ProductBriefResponse> content, Pageable pageable,
+                                                     SearchHits hits, FacetQuery facets) {
+        if (!facets.hasFacets()) {
+            return new PageImpl<>(content, pageable, hits.getTotal());
+        }
+        return new FacetedPage<>(content, pageable, hits.getTotal(), hits.getFacets(), hits.getPriceBuckets());
     }
 
     @Override
     public Page<StoreInfoResponse> searchStores(String keyword, int page, int size,
                                                 String field, Boolean order) {
+        Page<StoreInfoResponse> result = searchStoresByBackend(keyword, page, size, field, order);
+        return result != null ? result : searchStoresByDatabase(keyword, page, size, field, order);
+    }
+
+    /**
+     * 由搜索后端给出当前页的店铺ID，结果按后端的数据代数缓存
+     */
+    private Page<StoreInfoResponse> searchStoresByBackend(String keyword, int page, int size,
+                                                          String field, Boolean order) {
+        boolean relevance = field == null || field.trim().isEmpty();
+        int pageSize = PageUtil.normalizeSize(size);
+        if ((long) page * pageSize + pageSize > MAX_BACKEND_WINDOW) {
+            return null;
+        }
+        String key = cacheKey("store-" + searchBackend.getName(), CharNormalizer.normalize(keyword),
+                sortKey(field, order), page, pageSize);
+        long generation = searchBackend.getStoreGeneration();
+        SearchHits hits = searchResultCache.get(key, generation);
+        if (hits == null) {
+            long start = System.nanoTime();
+            hits = searchBackend.searchStores(keyword, relevance ? null : field, order != null && order,
+                    page * pageSize, pageSize);
+            if (hits == null) {
+                return null;
+            }
+            searchResultCache.put(key, generation, hits, System.nanoTime() - start);
+        }
+        return new PageImpl<>(hydrateStores(hits.getIds()), PageRequest.of(page, pageSize), hits.getTotal());
+    }
+
+    /**
+     * 搜索后端无法处理时回退数据库查询，结果按店铺数据代数缓存
+     */
+    private Page<StoreInfoResponse> searchStoresByDatabase(String keyword, int page, int size,
+                                                           String field, Boolean order) {
+        int pageSize = PageUtil.normalizeSize(size);
+        String key = cacheKey("store-db", keyword == null ? "" : keyword.toLowerCase(Locale.ROOT),
+                sortKey(field, order), page, pageSize);
+        long generation = searchResultCache.getStoreGeneration();
+        SearchHits cached = searchResultCache.get(key, generation);
+        if (cached != null) {
+            return new PageImpl<>(hydrateStores(cached.getIds()), PageRequest.of(page, pageSize), cached.getTotal());
+        }
+        long start = System.nanoTime();
+        Page<StoreInfoResponse> result = queryStores(keyword, page, size, field, order);
+        searchResultCache.put(key, generation, new SearchHits(result.getTotalElements(),
+                result.getContent().stream().map(StoreInfoResponse::getId).collect(Collectors.toList())),
+                System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * 按ID读取店铺并保持ID顺序
+     */
+    private List<StoreInfoResponse> hydrateStores(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Store> stores = storeRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Store::getId, Function.identity()));
+        return ids.stream()
+                .filter(stores::containsKey)
+                .map(id -> new StoreInfoResponse(stores.get(id)))
+                .collect(Collectors.toList());
+    }
+
+    private Page<StoreInfoResponse> queryStores(String keyword, int page, int size,
+                                                String field, Boolean order) {
         // 根据是否指定排序字段来决定排序策略
         if (field == null || field.trim().isEmpty()) {
             // 未指定排序字段：使用相关度排序
-            Pageable pageable = PageRequest.of(page, size);
+            Pageable pageable = PageRequest.of(page, PageUtil.normalizeSize(size));
             return storeRepository.searchStoresByRelevance(keyword, pageable)
                     .map(StoreInfoResponse::new);
         } else {
             // 指定了排序字段：使用自定义排序
-            Pageable pageable = PageRequest.of(page, size,
+            Pageable pageable = PageRequest.of(page, PageUtil.normalizeSize(size),
                     Sort.by((order == null || !order) ? Sort.Direction.DESC : Sort.Direction.ASC, field));
             return storeRepository.searchStoresWithCustomSort(keyword, pageable)
                     .map(StoreInfoResponse::new);
         }
     }
-}
\ No newline at end of file
+
+    private static String sortKey(String field, Boolean order) {
+        return field == null || field.trim().isEmpty() ? "" : field + (order != null && order ? ":asc" : ":desc");
+    }
+
+    private static String toKey(BigDecimal price) {
+        return price == null ? "" : price.stripTrailingZeros().toPlainString();
+    }
+
+    private static String cacheKey(Object... parts) {
+        StringBuilder key = new StringBuilder();
+        for (Object part : parts) {
+            key.append(part).append('\u0000');
+        }
+        return key.toString();
+    }
+}
@@ -1,5 +1,6 @@
 package cn.edu.nju.TomatoMall.service.impl;
 
+import cn.edu.nju.TomatoMall.enums.EntityType;
 import cn.edu.nju.TomatoMall.enums.PaymentMethod;
 import cn.edu.nju.TomatoMall.enums.Role;
 import cn.edu.nju.TomatoMall.enums.StoreStatus;
@@ -8,11 +9,14 @@ import cn.edu.nju.TomatoMall.models.dto.store.StoreInfoResponse;
 import cn.edu.nju.TomatoMall.models.po.Store;
 import cn.edu.nju.TomatoMall.models.po.User;
 import cn.edu.nju.TomatoMall.repository.EmploymentRepository;
+import cn.edu.nju.TomatoMall.repository.RatingAggregateRepository;
 import cn.edu.nju.TomatoMall.repository.StoreRepository;
 import cn.edu.nju.TomatoMall.service.StoreService;
+import cn.edu.nju.TomatoMall.service.impl.events.store.StoreChangeEvent;
 import cn.edu.nju.TomatoMall.service.impl.events.store.StoreReviewEvent;
 import cn.edu.nju.TomatoMall.service.impl.events.store.StoreStatusChangeEvent;
 import cn.edu.nju.TomatoMall.util.FileUtil;
+import cn.edu.nju.TomatoMall.util.PageUtil;
 import cn.edu.nju.TomatoMall.util.SecurityUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
@@ -24,6 +28,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -37,24 +42,27 @@ public class StoreServiceImpl implements StoreService {
     private static final List<StoreStatus> AWAITING_REVIEW_STATUS = Arrays.asList(StoreStatus.PENDING, StoreStatus.UPDATING);
     private final EmploymentRepository employmentRepository;
     private final ApplicationEventPublisher eventPublisher;
+    private final RatingAggregateRepository ratingAggregateRepository;
 
     @Autowired
     public StoreServiceImpl(StoreRepository storeRepository,
                             SecurityUtil securityUtil,
                             FileUtil fileUtil,
                             EmploymentRepository employmentRepository,
-                            ApplicationEventPublisher eventPublisher) {
+                            ApplicationEventPublisher eventPublisher,
+                            RatingAggregateRepository ratingAggregateRepository) {
         this.storeRepository = storeRepository;
         this.securityUtil = securityUtil;
         this.fileUtil = fileUtil;
         this.employmentRepository = employmentRepository;
         this.eventPublisher = eventPublisher;
+        this.ratingAggregateRepository = ratingAggregateRepository;
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<StoreInfoResponse> getStoreList(int page, int size, String field, boolean order) {
-        Pageable pageable = PageRequest.of(page, size > 0 ? size : Integer.MAX_VALUE,
+        Pageable pageable = PageRequest.of(page, PageUtil.normalizeSize(size),
                 Sort.by(order ? Sort.Direction.ASC : Sort.Direction.DESC, field));
 
         return storeRepository.findAllNormal(pageable).map(StoreInfoResponse::new);
@@ -85,7 +93,9 @@ public class StoreServiceImpl implements StoreService {
             throw TomatoMallException.storeNotFound();
         }
 
-        return new StoreInfoResponse(store);
+        StoreInfoResponse response = new StoreInfoResponse(store);
+        response.setRatingDistribution(ratingAggregateRepository.findHistogram(EntityType.STORE, storeId));
+        return response;
     }
 
     @Override
@@ -112,11 +122,11 @@ public class StoreServiceImpl implements StoreService {
                 .name(name)
                 .manager(user)
                 .status(StoreStatus.PENDING)
-                .logoUrl(fileUtil.upload(user.getId(), logo))
+                .logoUrl(fileUtil.upload(logo))
                 .address(address)
                 .description(description)
                 .qualifications(qualifications.stream()
-                        .map(qualification -> fileUtil.upload(user.getId(), qualification))
+                        .map(fileUtil::upload)
                         .collect(Collectors.toList()))
                 .merchantAccounts(merchantAccounts)
                 .build();
@@ -148,10 +158,9 @@ public class StoreServiceImpl implements StoreService {
         }
         if (logo != null) {
             validateLogo(logo);
-            if(store.getLogoUrl() != null){
-                fileUtil.delete(store.getLogoUrl());
-            }
-            store.setLogoUrl(fileUtil.upload(store.getManager().getId(), logo));
+            String oldLogo = store.getLogoUrl();
+            store.setLogoUrl(fileUtil.upload(logo));
+            fileUtil.release(oldLogo);
             needReview = true;
         }
         if (address != null) {
@@ -165,11 +174,12 @@ public class StoreServiceImpl implements StoreService {
         }
         if (qualifications != null && !qualifications.isEmpty()) {
             validateQualifications(qualifications);
-            store.getQualifications().forEach(fileUtil::delete);
+            List<String> oldQualifications = new ArrayList<>(store.getQualifications());
             store.setQualifications(qualifications.stream()
-                    .map(qualification -> fileUtil.upload(store.getManager().getId(), qualification))
+                    .map(fileUtil::upload)
                     .collect(Collectors.toList())
             );
+            oldQualifications.forEach(fileUtil::release);
             needReview = true;
         }
         if (merchantAccounts != null) {
@@ -181,6 +191,8 @@ public class StoreServiceImpl implements StoreService {
             store.setStatus(StoreStatus.UPDATING);
             // 发布店铺更新事件
             eventPublisher.publishEvent(new StoreStatusChangeEvent(store));
+        } else {
+            eventPublisher.publishEvent(new StoreChangeEvent(store));
         }
 
         storeRepository.save(store);
@@ -195,14 +207,13 @@ public class StoreServiceImpl implements StoreService {
         store.setStatus(StoreStatus.DELETING);
 
         storeRepository.save(store);
+        eventPublisher.publishEvent(new StoreChangeEvent(store));
     }
 
     private void deleteStore(Store store){
-        if(store.getLogoUrl() != null){
-            fileUtil.delete(store.getLogoUrl());
-        }
+        fileUtil.release(store.getLogoUrl());
         if(store.getQualifications() != null){
-            store.getQualifications().forEach(fileUtil::delete);
+            store.getQualifications().forEach(fileUtil::release);
         }
 
         store.setStatus(StoreStatus.DELETED);
@@ -249,7 +260,7 @@ public class StoreServiceImpl implements StoreService {
     @Override
     @Transactional(readOnly = true)
     public Page<StoreInfoResponse> getAwaitingReviewStoreList(int page, int size, String field, boolean order) {
-        Pageable pageable = PageRequest.of(page, size > 0 ? size : Integer.MAX_VALUE,
+        Pageable pageable = PageRequest.of(page, PageUtil.normalizeSize(size),
                 Sort.by(order ? Sort.Direction.ASC : Sort.Direction.DESC, field));
 
         Page<Store> storePage = storeRepository.findByStatusIn(AWAITING_REVIEW_STATUS, pageable);
@@ -260,7 +271,7 @@ public class StoreServiceImpl implements StoreService {
     @Override
     @Transactional(readOnly = true)
     public Page<StoreInfoResponse> getSuspendedStoreList(int page, int size, String field, boolean order) {
-        Pageable pageable = PageRequest.of(page, size > 0 ? size : Integer.MAX_VALUE,
+        Pageable pageable = PageRequest.of(page, PageUtil.normalizeSize(size),
                 Sort.by(order ? Sort.Direction.ASC : Sort.Direction.DESC, field));
 
         Page<Store> storePage = storeRepository.findByStatus(StoreStatus.SUSPENDED, pageable);
@@ -0,0 +1,229 @@
+package cn.edu.nju.TomatoMall.service.impl;
+
+import cn.edu.nju.TomatoMall.enums.SuggestionType;
+import cn.edu.nju.TomatoMall.models.dto.search.SuggestionResponse;
+import cn.edu.nju.TomatoMall.repository.ProductSearchRepository;
+import cn.edu.nju.TomatoMall.service.SuggestService;
+import cn.edu.nju.TomatoMall.service.impl.events.store.StoreEvent;
+import cn.edu.nju.TomatoMall.service.impl.search.PrefixCompletions;
+import cn.edu.nju.TomatoMall.service.impl.search.ProductSearchIndex;
+import cn.edu.nju.TomatoMall.service.impl.search.analysis.CharNormalizer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 搜索联想
+ * 补全表由后台线程从商品搜索索引（内存，增量维护）、店铺名称与热门搜索词构建，构建完成后整体替换，查询无锁；
+ * 店铺名称与销量需要聚合查询，只在店铺变更后或全量刷新时重新读取，其余重建复用上次的结果；
+ * 商品名称有变化（上下架、改名）时才因商品重建，销量写回只改变权重，留待全量刷新时更新
+ */
+@Slf4j
+@Service
+public class SuggestServiceImpl implements SuggestService {
+    // 匹配键只保留前若干个字符，限制补全表内存；更长的前缀按截断后匹配
+    private static final int MAX_KEY_LENGTH = 32;
+    private static final int MAX_SUGGESTIONS = 20;
+
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSearchRepository productSearchRepository;
+    private final int maxEntries;
+    private final int maxQueries;
+    private final long queryWeight;
+    private final long rebuildIntervalMillis;
+    private final long fullRefreshMillis;
+
+    private final Map<String, LongAdder> queryCounts = new ConcurrentHashMap<>();
+    private volatile PrefixCompletions completions = PrefixCompletions.empty();
+    private volatile boolean queriesChanged;
+    private volatile boolean storesChanged = true;
+    private List<PrefixCompletions.Candidate> storeCandidates = Collections.emptyList();
+    private long builtNameVersion = -1;
+    private long lastBuildTime;
+    private long lastFullRefreshTime;
+    private ScheduledExecutorService builder;
+
+    @Autowired
+    public SuggestServiceImpl(ProductSearchIndex productSearchIndex,
+                              ProductSearchRepository productSearchRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.search.suggest.max-entries:200000}") int maxEntries,
+                              @Value("${app.search.suggest.max-queries:20000}") int maxQueries,
+                              @Value("${app.search.suggest.query-weight:10}") long queryWeight,
+                              @Value("${app.search.suggest.rebuild-interval-ms:5000}") long rebuildIntervalMillis,
+                              @Value("${app.search.suggest.full-refresh-ms:300000}") long fullRefreshMillis) {
+        this.productSearchIndex = productSearchIndex;
+        this.productSearchRepository = productSearchRepository;
+        this.maxEntries = maxEntries;
+        this.maxQueries = maxQueries;
+        this.queryWeight = queryWeight;
+        this.rebuildIntervalMillis = rebuildIntervalMillis;
+        this.fullRefreshMillis = fullRefreshMillis;
+
+        Gauge.builder("search.suggest.entries", this, service -> service.completions.size())
+                .description("搜索联想补全表词条数")
+                .register(meterRegistry);
+        Gauge.builder("search.suggest.memory", this, service -> service.completions.estimatedBytes())
+                .description("搜索联想补全表估算内存")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("search.suggest.queries", queryCounts, Map::size)
+                .description("统计中的搜索词数量")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        builder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "search-suggest-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        builder.scheduleWithFixedDelay(() -> {
+            try {
+                rebuildIfStale();
+            } catch (RuntimeException e) {
+                log.warn("搜索联想补全表构建失败: {}", e.getMessage());
+            }
+        }, 0, rebuildIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (builder != null) {
+            builder.shutdownNow();
+        }
+    }
+
+    @Override
+    public List<SuggestionResponse> suggest(String prefix, int size) {
+        String key = toKey(prefix);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int limit = size > 0 && size <= MAX_SUGGESTIONS ? size : MAX_SUGGESTIONS;
+        return completions.complete(key, limit).stream()
+                .map(completion -> new SuggestionResponse(completion.getText(), completion.getType()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void recordQuery(String keyword) {
+        String query = CharNormalizer.normalize(keyword);
+        if (query.isEmpty() || query.length() > MAX_KEY_LENGTH) {
+            return;
+        }
+        // 统计表在重建时裁剪，两次重建之间最多容纳两倍上限
+        LongAdder counter = queryCounts.get(query);
+        if (counter == null) {
+            if (queryCounts.size() >= maxQueries * 2) {
+                return;
+            }
+            counter = queryCounts.computeIfAbsent(query, q -> new LongAdder());
+        }
+        counter.increment();
+        queriesChanged = true;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleStoreEvent(StoreEvent event) {
+        storesChanged = true;
+    }
+
+    /**
+     * 商品名称有变化、搜索词有变化、店铺有变化或距上次全量刷新超过间隔时重建
+     */
+    public synchronized void rebuildIfStale() {
+        if (System.currentTimeMillis() - lastFullRefreshTime >= fullRefreshMillis) {
+            rebuild();
+        } else if (productSearchIndex.getNameVersion() != builtNameVersion || queriesChanged || storesChanged) {
+            build(storesChanged);
+        }
+    }
+
+    /**
+     * 全量重建，重新读取店铺名称与销量，并按当前销量更新商品权重
+     */
+    public synchronized void rebuild() {
+        build(true);
+        lastFullRefreshTime = lastBuildTime;
+    }
+
+    private void build(boolean reloadStores) {
+        long start = System.currentTimeMillis();
+        long nameVersion = productSearchIndex.getNameVersion();
+        queriesChanged = false;
+        if (reloadStores) {
+            // 先清除标记，读取期间的店铺变更留待下次重建
+            storesChanged = false;
+            List<PrefixCompletions.Candidate> stores = new ArrayList<>();
+            productSearchRepository.findStoreNameSales().forEach((name, sales) ->
+                    stores.add(candidate(name, SuggestionType.STORE, sales + 1)));
+            storeCandidates = stores;
+        }
+
+        List<PrefixCompletions.Candidate> candidates = new ArrayList<>(storeCandidates);
+        productSearchIndex.forEachProduct((name, sales) ->
+                candidates.add(candidate(name, SuggestionType.PRODUCT, sales + 1L)));
+        trimQueries();
+        queryCounts.forEach((query, count) ->
+                candidates.add(new PrefixCompletions.Candidate(query, query, SuggestionType.QUERY, count.sum() * queryWeight)));
+
+        PrefixCompletions built = PrefixCompletions.build(candidates, maxEntries);
+        completions = built;
+        builtNameVersion = nameVersion;
+        lastBuildTime = System.currentTimeMillis();
+        log.debug("搜索联想补全表构建完成: {} 条, 约 {} KB, 耗时 {}ms",
+                built.size(), built.estimatedBytes() / 1024, lastBuildTime - start);
+    }
+
+    /**
+     * 搜索词超过上限时只保留次数最多的部分
+     */
+    private void trimQueries() {
+        if (queryCounts.size() <= maxQueries) {
+            return;
+        }
+        List<Map.Entry<String, Long>> counts = queryCounts.entrySet().stream()
+                .map(entry -> new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .collect(Collectors.toList());
+        for (int i = maxQueries; i < counts.size(); i++) {
+            queryCounts.remove(counts.get(i).getKey());
+        }
+    }
+
+    private static PrefixCompletions.Candidate candidate(String text, SuggestionType type, long weight) {
+        return new PrefixCompletions.Candidate(toKey(text), text, type, weight);
+    }
+
+    private static String toKey(String text) {
+        String key = CharNormalizer.normalize(text);
+        if (key.length() <= MAX_KEY_LENGTH) {
+            // 与原文相同时复用原对象，补全表不重复保存
+            return key.equals(text) ? text : key;
+        }
+        int end = Character.isHighSurrogate(key.charAt(MAX_KEY_LENGTH - 1)) ? MAX_KEY_LENGTH - 1 : MAX_KEY_LENGTH;
+        return key.substring(0, end);
+    }
+}
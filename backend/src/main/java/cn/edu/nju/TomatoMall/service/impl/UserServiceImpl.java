@@ -65,7 +65,7 @@ public class UserServiceImpl implements UserService {
         userRepository.save(user);
 
         if(avatar != null && !avatar.isEmpty()){
-            user.setAvatarUrl(fileUtil.upload(user.getId(), avatar));
+            user.setAvatarUrl(fileUtil.upload(avatar));
         }
     }
 
@@ -144,10 +144,8 @@ public class UserServiceImpl implements UserService {
         }
         if(avatar != null){
             String oldAvatar = user.getAvatarUrl();
-            if (oldAvatar != null) {
-                fileUtil.delete(oldAvatar);
-            }
-            user.setAvatarUrl(fileUtil.upload(user.getId(), avatar));
+            user.setAvatarUrl(fileUtil.upload(avatar));
+            fileUtil.release(oldAvatar);
         }
 
         userRepository.save(user);
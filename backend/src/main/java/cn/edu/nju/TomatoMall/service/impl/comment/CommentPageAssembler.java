@@ -0,0 +1,80 @@
+package cn.edu.nju.TomatoMall.service.impl.comment;
+
+import cn.edu.nju.TomatoMall.models.dto.comment.CommentResponse;
+import cn.edu.nju.TomatoMall.models.po.Comment;
+import cn.edu.nju.TomatoMall.models.po.User;
+import cn.edu.nju.TomatoMall.repository.CommentLikeRepository;
+import cn.edu.nju.TomatoMall.repository.CommentRepository;
+import cn.edu.nju.TomatoMall.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 评论分页组装：先查一页评论ID，再以固定几次 IN 查询取评论、作者、当前用户点赞状态与回复数，
+ * 每页查询次数与页内评论数无关；点赞数冗余在评论行中，随评论一并取得
+ * 调用方负责事务边界
+ */
+@Component
+public class CommentPageAssembler {
+    private final CommentRepository commentRepository;
+    private final CommentLikeRepository commentLikeRepository;
+    private final UserRepository userRepository;
+
+    @Autowired
+    public CommentPageAssembler(CommentRepository commentRepository,
+                                CommentLikeRepository commentLikeRepository,
+                                UserRepository userRepository) {
+        this.commentRepository = commentRepository;
+        this.commentLikeRepository = commentLikeRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * @param ids         一页评论ID，顺序即返回顺序
+     * @param currentUser 当前用户，为 null 时点赞状态均为 false
+     */
+    public Page<CommentResponse> assemble(Page<Integer> ids, User currentUser) {
+        if (ids.isEmpty()) {
+            return new PageImpl<>(Collections.emptyList(), ids.getPageable(), ids.getTotalElements());
+        }
+        List<Integer> commentIds = ids.getContent();
+
+        Map<Integer, Comment> comments = commentRepository.findAllById(commentIds).stream()
+                .collect(Collectors.toMap(Comment::getId, Function.identity()));
+
+        // 作者为懒加载代理，取ID不会触发加载
+        Set<Integer> authorIds = comments.values().stream()
+                .map(comment -> comment.getUser().getId())
+                .collect(Collectors.toSet());
+        Map<Integer, User> authors = userRepository.findAllById(authorIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        Set<Integer> liked = currentUser == null ? Collections.emptySet()
+                : new HashSet<>(commentLikeRepository.findLikedCommentIds(currentUser.getId(), commentIds));
+
+        Map<Integer, Integer> replyCounts = new HashMap<>();
+        for (Object[] row : commentRepository.countRepliesByParentIds(commentIds)) {
+            replyCounts.put((Integer) row[0], ((Number) row[1]).intValue());
+        }
+
+        // 查询期间被删除的评论不再返回
+        List<CommentResponse> responses = commentIds.stream()
+                .map(comments::get)
+                .filter(comment -> comment != null)
+                .map(comment -> new CommentResponse(comment, authors.get(comment.getUser().getId()),
+                        liked.contains(comment.getId()), replyCounts.getOrDefault(comment.getId(), 0)))
+                .collect(Collectors.toList());
+        return new PageImpl<>(responses, ids.getPageable(), ids.getTotalElements());
+    }
+}
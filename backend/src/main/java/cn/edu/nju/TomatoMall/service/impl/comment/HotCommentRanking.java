@@ -0,0 +1,201 @@
+package cn.edu.nju.TomatoMall.service.impl.comment;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 单个实体的热门评论榜：有界小顶堆，只保留得分最高的 capacity 条顶层评论，堆顶为当前最差者
+ * <p>
+ * 得分为按半衰期衰减的点赞数 (点赞数 + 1) * 2^(-(now - 发表时间) / 半衰期)，
+ * 取对数后为 log2(点赞数 + 1) + 发表时间 / 半衰期 - now / 半衰期，最后一项对所有评论相同，
+ * 因此堆中以前两项为排序键，排序键不随时间变化，衰减不会改变已有条目的相对顺序。
+ * 点赞数只增时堆始终精确；点赞减少或评论删除时若榜已满，榜外评论可能反超，此时标记为不完整，由定期任务从数据库重建。
+ * <p>
+ * 非线程安全，由调用方加锁
+ */
+public final class HotCommentRanking {
+    // 每条记录：评论ID、点赞数、发表时间（epoch 秒）
+    private static final int ENTRY_BYTES = Integer.BYTES * 2 + Long.BYTES;
+
+    private static final class Entry {
+        final int commentId;
+        int likeCount;
+        final long createdAt;
+        double key;
+        int index;
+
+        Entry(int commentId, int likeCount, long createdAt) {
+            this.commentId = commentId;
+            this.likeCount = likeCount;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private final int capacity;
+    private final double halfLifeSeconds;
+    private final Entry[] heap;
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private int size;
+    private boolean incomplete;
+    // 最近访问时间（毫秒），供 HotCommentRankings 淘汰，无需加锁
+    private volatile long lastAccess;
+
+    public HotCommentRanking(int capacity, double halfLifeSeconds) {
+        this.capacity = capacity;
+        this.halfLifeSeconds = halfLifeSeconds;
+        this.heap = new Entry[capacity];
+    }
+
+    void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    long lastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * 新增评论或更新已在榜评论的点赞数
+     */
+    public void offer(int commentId, int likeCount, long createdAt) {
+        Entry entry = entries.get(commentId);
+        if (entry != null) {
+            double oldKey = entry.key;
+            entry.likeCount = likeCount;
+            entry.key = key(likeCount, createdAt);
+            if (entry.key < oldKey) {
+                incomplete |= size == capacity;
+                siftUp(entry.index);
+            } else {
+                siftDown(entry.index);
+            }
+            return;
+        }
+        if (capacity == 0) {
+            return;
+        }
+        entry = new Entry(commentId, likeCount, createdAt);
+        entry.key = key(likeCount, createdAt);
+        if (size < capacity) {
+            entries.put(commentId, entry);
+            place(entry, size++);
+            siftUp(entry.index);
+        } else if (entry.key > heap[0].key) {
+            entries.remove(heap[0].commentId);
+            entries.put(commentId, entry);
+            place(entry, 0);
+            siftDown(0);
+        }
+    }
+
+    public void remove(int commentId) {
+        Entry entry = entries.remove(commentId);
+        if (entry == null) {
+            return;
+        }
+        incomplete |= size == capacity;
+        int index = entry.index;
+        Entry last = heap[--size];
+        heap[size] = null;
+        if (index < size) {
+            place(last, index);
+            siftDown(index);
+            siftUp(last.index);
+        }
+    }
+
+    /**
+     * 得分从高到低的前 limit 条评论ID
+     */
+    public List<Integer> top(int limit) {
+        return Arrays.stream(heap, 0, size)
+                .sorted(Comparator.comparingDouble((Entry e) -> e.key).reversed()
+                        .thenComparing(Comparator.comparingInt((Entry e) -> e.commentId).reversed()))
+                .limit(limit)
+                .map(e -> e.commentId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 榜外评论可能反超在榜评论，需要从数据库重建
+     */
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 紧凑编码：每条记录 16 字节，不含排序键，解码时按半衰期重新计算
+     */
+    public byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(size * ENTRY_BYTES);
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(heap[i].commentId).putInt(heap[i].likeCount).putLong(heap[i].createdAt);
+        }
+        return buffer.array();
+    }
+
+    public static HotCommentRanking decode(byte[] data, int capacity, double halfLifeSeconds) {
+        HotCommentRanking ranking = new HotCommentRanking(capacity, halfLifeSeconds);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        List<Entry> decoded = new ArrayList<>(data.length / ENTRY_BYTES);
+        while (buffer.remaining() >= ENTRY_BYTES) {
+            decoded.add(new Entry(buffer.getInt(), buffer.getInt(), buffer.getLong()));
+        }
+        decoded.forEach(e -> ranking.offer(e.commentId, e.likeCount, e.createdAt));
+        return ranking;
+    }
+
+    private double key(int likeCount, long createdAt) {
+        return Math.log(likeCount + 1.0) / Math.log(2) + createdAt / halfLifeSeconds;
+    }
+
+    private void place(Entry entry, int index) {
+        heap[index] = entry;
+        entry.index = index;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[i].key >= heap[parent].key) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int smallest = left;
+            if (left + 1 < size && heap[left + 1].key < heap[left].key) {
+                smallest = left + 1;
+            }
+            if (heap[i].key <= heap[smallest].key) {
+                break;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        Entry tmp = heap[a];
+        place(heap[b], a);
+        place(tmp, b);
+    }
+}
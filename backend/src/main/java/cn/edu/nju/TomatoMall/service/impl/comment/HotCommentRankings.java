@@ -0,0 +1,240 @@
+package cn.edu.nju.TomatoMall.service.impl.comment;
+
+import cn.edu.nju.TomatoMall.enums.EntityType;
+import cn.edu.nju.TomatoMall.models.po.Comment;
+import cn.edu.nju.TomatoMall.models.po.CommentRanking;
+import cn.edu.nju.TomatoMall.repository.CommentRankingRepository;
+import cn.edu.nju.TomatoMall.repository.CommentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 各店铺、商品的热门评论榜，按时间衰减的点赞数排序（见 HotCommentRanking）
+ * <p>
+ * 榜单常驻内存（超出上限时淘汰最久未访问者），评论新增、点赞变化、删除时增量更新；首次访问时从 comment_rankings 的快照恢复，
+ * 没有快照则从评论表重建。有变化的榜单由定期任务写回快照，写回前先从数据库重建被标记为不完整的榜单，
+ * 已被淘汰但有未写回变化的榜单同样重建后写回。
+ */
+@Slf4j
+@Component
+public class HotCommentRankings {
+    private final CommentRepository commentRepository;
+    private final CommentRankingRepository commentRankingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int capacity;
+    private final double halfLifeSeconds;
+    private final long flushIntervalMinutes;
+    private final int cacheSize;
+    // 榜单是可变对象，只通过 putIfAbsent / replace 放入，并发加载时以先放入者为准，避免覆盖已在其上做出的修改
+    private final ConcurrentHashMap<CommentRanking.Key, HotCommentRanking> rankings = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+    // 有未写回变化的榜单
+    private final Set<CommentRanking.Key> dirty = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public HotCommentRankings(CommentRepository commentRepository,
+                              CommentRankingRepository commentRankingRepository,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${app.comment.hot.size:50}") int capacity,
+                              @Value("${app.comment.hot.half-life-hours:168}") double halfLifeHours,
+                              @Value("${app.comment.hot.flush-interval-minutes:5}") long flushIntervalMinutes,
+                              @Value("${app.comment.hot.cache-size:10000}") int cacheSize) {
+        this.commentRepository = commentRepository;
+        this.commentRankingRepository = commentRankingRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.capacity = capacity;
+        this.halfLifeSeconds = halfLifeHours * 3600;
+        this.flushIntervalMinutes = flushIntervalMinutes;
+        this.cacheSize = cacheSize;
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hot-comment-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushSafely, flushIntervalMinutes, flushIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        scheduler.shutdownNow();
+        flushSafely();
+    }
+
+    /**
+     * 得分从高到低的前 limit 条评论ID，最多为榜单容量
+     */
+    public List<Integer> top(EntityType entityType, int entityId, int limit) {
+        HotCommentRanking ranking = get(new CommentRanking.Key(entityType, entityId));
+        synchronized (ranking) {
+            return ranking.top(limit);
+        }
+    }
+
+    /**
+     * 新增评论或点赞数变化
+     */
+    public void offer(Comment comment, int likeCount) {
+        long createdAt = epochSecond(comment.getCreateTime());
+        update(comment, ranking -> ranking.offer(comment.getId(), likeCount, createdAt));
+    }
+
+    public void remove(Comment comment) {
+        update(comment, ranking -> ranking.remove(comment.getId()));
+    }
+
+    /**
+     * 写回全部有变化的榜单快照，返回写回的榜单数
+     */
+    public int flush() {
+        List<CommentRanking.Key> keys = new ArrayList<>(dirty);
+        int flushed = 0;
+        for (CommentRanking.Key key : keys) {
+            dirty.remove(key);
+            try {
+                byte[] entries = snapshot(key);
+                transactionTemplate.execute(status -> commentRankingRepository.save(new CommentRanking(
+                        key.getEntityType(), key.getEntityId(), entries, LocalDateTime.now())));
+                flushed++;
+            } catch (RuntimeException e) {
+                dirty.add(key);
+                throw e;
+            }
+        }
+        return flushed;
+    }
+
+    private void update(Comment comment, Consumer<HotCommentRanking> change) {
+        CommentRanking.Key key = new CommentRanking.Key(comment.getEntityType(), comment.getEntityId());
+        while (true) {
+            HotCommentRanking ranking = get(key);
+            synchronized (ranking) {
+                // 加锁期间榜单可能已被重建替换，需在新榜单上重做
+                if (rankings.get(key) != ranking) {
+                    continue;
+                }
+                change.accept(ranking);
+                dirty.add(key);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 未命中时在锁外加载，再以 putIfAbsent 放入；其他线程已先放入时丢弃本次加载的结果
+     */
+    private HotCommentRanking get(CommentRanking.Key key) {
+        HotCommentRanking ranking = rankings.get(key);
+        if (ranking == null) {
+            HotCommentRanking loaded = load(key);
+            ranking = rankings.putIfAbsent(key, loaded);
+            if (ranking == null) {
+                ranking = loaded;
+                evictIfFull();
+            }
+        }
+        ranking.touch();
+        return ranking;
+    }
+
+    /**
+     * 超出上限时淘汰最久未访问的约十分之一，被淘汰榜单上未写回的变化由写回任务重建
+     */
+    private void evictIfFull() {
+        if (rankings.size() <= cacheSize) {
+            return;
+        }
+        synchronized (evictionLock) {
+            int excess = rankings.size() - cacheSize;
+            if (excess <= 0) {
+                return;
+            }
+            List<Map.Entry<CommentRanking.Key, HotCommentRanking>> entries = new ArrayList<>(rankings.entrySet());
+            entries.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess()));
+            int evict = Math.min(entries.size(), excess + cacheSize / 10);
+            for (int i = 0; i < evict; i++) {
+                rankings.remove(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+        }
+    }
+
+    /**
+     * 有快照且没有未写回的变化时从快照恢复，否则从评论表重建
+     */
+    private HotCommentRanking load(CommentRanking.Key key) {
+        if (!dirty.contains(key)) {
+            CommentRanking snapshot = commentRankingRepository.findById(key).orElse(null);
+            if (snapshot != null) {
+                return HotCommentRanking.decode(snapshot.getEntries(), capacity, halfLifeSeconds);
+            }
+        }
+        dirty.add(key);
+        return rebuild(key);
+    }
+
+    private HotCommentRanking rebuild(CommentRanking.Key key) {
+        HotCommentRanking ranking = new HotCommentRanking(capacity, halfLifeSeconds);
+        for (Object[] row : commentRepository.findRankingCandidates(key.getEntityType(), key.getEntityId())) {
+            ranking.offer((Integer) row[0], (Integer) row[1], epochSecond((LocalDateTime) row[2]));
+        }
+        return ranking;
+    }
+
+    /**
+     * 取得待写回的编码，不完整或已被淘汰的榜单先重建
+     */
+    private byte[] snapshot(CommentRanking.Key key) {
+        HotCommentRanking ranking = rankings.get(key);
+        if (ranking == null) {
+            return rebuild(key).encode();
+        }
+        synchronized (ranking) {
+            if (ranking.isIncomplete()) {
+                HotCommentRanking rebuilt = rebuild(key);
+                rebuilt.touch();
+                // 期间已被淘汰则不再放回
+                rankings.replace(key, ranking, rebuilt);
+                return rebuilt.encode();
+            }
+            return ranking.encode();
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            int flushed = flush();
+            if (flushed > 0) {
+                log.debug("已写回 {} 个热门评论榜", flushed);
+            }
+        } catch (Exception e) {
+            log.warn("热门评论榜写回失败: {}", e.getMessage());
+        }
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+}
@@ -0,0 +1,13 @@
+package cn.edu.nju.TomatoMall.service.impl.events.comment;
+
+import cn.edu.nju.TomatoMall.models.po.Comment;
+
+/**
+ * 新增顶层评论（不含回复）
+ */
+public class CommentCreateEvent extends CommentEvent {
+
+    public CommentCreateEvent(Comment comment) {
+        super(comment);
+    }
+}
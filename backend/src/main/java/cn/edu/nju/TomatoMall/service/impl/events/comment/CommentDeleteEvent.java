@@ -0,0 +1,13 @@
+package cn.edu.nju.TomatoMall.service.impl.events.comment;
+
+import cn.edu.nju.TomatoMall.models.po.Comment;
+
+/**
+ * 删除顶层评论（连同其回复）
+ */
+public class CommentDeleteEvent extends CommentEvent {
+
+    public CommentDeleteEvent(Comment comment) {
+        super(comment);
+    }
+}
@@ -0,0 +1,13 @@
+package cn.edu.nju.TomatoMall.service.impl.events.comment;
+
+import cn.edu.nju.TomatoMall.models.po.Comment;
+import lombok.Getter;
+
+@Getter
+public abstract class CommentEvent {
+    private final Comment comment;
+
+    public CommentEvent(Comment comment) {
+        this.comment = comment;
+    }
+}
@@ -0,0 +1,17 @@
+package cn.edu.nju.TomatoMall.service.impl.events.comment;
+
+import cn.edu.nju.TomatoMall.models.po.Comment;
+import lombok.Getter;
+
+/**
+ * 点赞或取消点赞，likeCount 为变化后的点赞数（Comment.likeCount 由原子更新维护，实体中的值未随之刷新）
+ */
+@Getter
+public class CommentLikeEvent extends CommentEvent {
+    private final int likeCount;
+
+    public CommentLikeEvent(Comment comment, int likeCount) {
+        super(comment);
+        this.likeCount = likeCount;
+    }
+}
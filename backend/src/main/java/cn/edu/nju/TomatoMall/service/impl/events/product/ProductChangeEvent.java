@@ -0,0 +1,13 @@
+package cn.edu.nju.TomatoMall.service.impl.events.product;
+
+import cn.edu.nju.TomatoMall.models.po.Product;
+
+/**
+ * 商品的可检索内容（名称、描述、规格、价格、评分、上下架）发生变化
+ */
+public class ProductChangeEvent extends ProductEvent {
+
+    public ProductChangeEvent(Product product) {
+        super(product);
+    }
+}
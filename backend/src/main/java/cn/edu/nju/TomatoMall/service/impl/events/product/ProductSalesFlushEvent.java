@@ -0,0 +1,17 @@
+package cn.edu.nju.TomatoMall.service.impl.events.product;
+
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * 一批商品的销量增量已写回数据库
+ */
+@Getter
+public class ProductSalesFlushEvent {
+    private final Set<Integer> productIds;
+
+    public ProductSalesFlushEvent(Set<Integer> productIds) {
+        this.productIds = productIds;
+    }
+}
@@ -0,0 +1,13 @@
+package cn.edu.nju.TomatoMall.service.impl.events.store;
+
+import cn.edu.nju.TomatoMall.models.po.Store;
+
+/**
+ * 店铺的可检索内容（名称、描述、地址、评分、状态）发生变化，且不涉及审核流程
+ */
+public class StoreChangeEvent extends StoreEvent {
+
+    public StoreChangeEvent(Store store) {
+        super(store);
+    }
+}
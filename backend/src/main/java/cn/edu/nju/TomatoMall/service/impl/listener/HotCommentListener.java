@@ -0,0 +1,38 @@
+package cn.edu.nju.TomatoMall.service.impl.listener;
+
+import cn.edu.nju.TomatoMall.service.impl.comment.HotCommentRankings;
+import cn.edu.nju.TomatoMall.service.impl.events.comment.CommentCreateEvent;
+import cn.edu.nju.TomatoMall.service.impl.events.comment.CommentDeleteEvent;
+import cn.edu.nju.TomatoMall.service.impl.events.comment.CommentLikeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 事务提交后增量更新热门评论榜，回滚的变更不会进入榜单
+ */
+@Component
+public class HotCommentListener {
+    private final HotCommentRankings hotCommentRankings;
+
+    @Autowired
+    public HotCommentListener(HotCommentRankings hotCommentRankings) {
+        this.hotCommentRankings = hotCommentRankings;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleCommentCreateEvent(CommentCreateEvent event) {
+        hotCommentRankings.offer(event.getComment(), event.getComment().getLikeCount());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleCommentLikeEvent(CommentLikeEvent event) {
+        hotCommentRankings.offer(event.getComment(), event.getLikeCount());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleCommentDeleteEvent(CommentDeleteEvent event) {
+        hotCommentRankings.remove(event.getComment());
+    }
+}
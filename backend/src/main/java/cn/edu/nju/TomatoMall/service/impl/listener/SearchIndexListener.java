@@ -0,0 +1,48 @@
+package cn.edu.nju.TomatoMall.service.impl.listener;
+
+import cn.edu.nju.TomatoMall.service.impl.events.product.ProductChangeEvent;
+import cn.edu.nju.TomatoMall.service.impl.events.product.ProductSalesFlushEvent;
+import cn.edu.nju.TomatoMall.service.impl.events.store.StoreEvent;
+import cn.edu.nju.TomatoMall.service.impl.search.ProductSearchIndex;
+import cn.edu.nju.TomatoMall.service.impl.search.SearchResultCache;
+import cn.edu.nju.TomatoMall.service.impl.search.StoreSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 事务提交后登记商品、店铺刷新并使搜索结果缓存失效，回滚的变更不会进入索引
+ */
+@Component
+public class SearchIndexListener {
+    private final ProductSearchIndex productSearchIndex;
+    private final StoreSearchIndex storeSearchIndex;
+    private final SearchResultCache searchResultCache;
+
+    @Autowired
+    public SearchIndexListener(ProductSearchIndex productSearchIndex, StoreSearchIndex storeSearchIndex,
+                               SearchResultCache searchResultCache) {
+        this.productSearchIndex = productSearchIndex;
+        this.storeSearchIndex = storeSearchIndex;
+        this.searchResultCache = searchResultCache;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleProductChangeEvent(ProductChangeEvent event) {
+        productSearchIndex.refresh(event.getProduct().getId());
+        searchResultCache.invalidateProducts();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleProductSalesFlushEvent(ProductSalesFlushEvent event) {
+        event.getProductIds().forEach(productSearchIndex::refresh);
+        searchResultCache.invalidateProducts();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleStoreEvent(StoreEvent event) {
+        storeSearchIndex.refresh(event.getStore().getId());
+        searchResultCache.invalidateStores();
+    }
+}
@@ -0,0 +1,209 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import cn.edu.nju.TomatoMall.service.impl.search.analysis.Analyzer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内搜索索引的公共维护流程
+ * 启动后由后台线程按主键分批全量构建，之后按登记的ID分批增量刷新；构建完成前 isReady() 为 false，调用方应回退数据库查询
+ * 删除比例超过阈值时在锁外全量构建新索引并整体替换；子类提供数据读取与索引结构，检索时持读锁访问 data
+ *
+ * @param <D> 索引文档
+ * @param <T> 一份完整的索引数据
+ */
+@Slf4j
+abstract class AbstractSearchIndex<D, T extends AbstractSearchIndex.IndexData<D>> {
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int REFRESH_BATCH_SIZE = 500;
+
+    /**
+     * 索引数据：文档只追加，更新即删除旧文档再追加新文档
+     */
+    interface IndexData<D> {
+        void add(D document, Analyzer analyzer);
+
+        void remove(int id);
+
+        int docCount();
+
+        int deletedCount();
+    }
+
+    protected final Analyzer analyzer;
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // 当前索引数据，读写均需持有 lock；子类在构造时赋初值
+    protected T data;
+
+    private final boolean enabled;
+    private final long refreshIntervalMillis;
+    private final double compactRatio;
+    private final String threadName;
+    // 日志中的索引名称
+    private final String displayName;
+    // 待刷新的ID，同一文档多次变更只刷新一次
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+    // 每次索引内容变化递增，供派生结构（如搜索结果缓存）判断是否过期
+    private volatile long version;
+    private ScheduledExecutorService indexer;
+
+    protected AbstractSearchIndex(Analyzer analyzer, boolean enabled, long refreshIntervalMillis, double compactRatio,
+                                  String threadName, String displayName) {
+        this.analyzer = analyzer;
+        this.enabled = enabled;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.compactRatio = compactRatio;
+        this.threadName = threadName;
+        this.displayName = displayName;
+    }
+
+    /**
+     * 按主键顺序读取 afterId 之后的一批文档
+     */
+    protected abstract List<D> loadAfter(int afterId, int limit);
+
+    /**
+     * 读取指定ID中仍应被索引的文档，其余视为已删除
+     */
+    protected abstract List<D> loadByIds(List<Integer> ids);
+
+    protected abstract int idOf(D document);
+
+    protected abstract T newData();
+
+    /**
+     * 全量构建并替换完成后调用，位于锁外
+     */
+    protected abstract void onRebuilt(T fresh, long elapsedMillis);
+
+    /**
+     * 在写锁内应用一批刷新：先删除这些ID的旧文档，再追加仍应被索引的新文档
+     */
+    protected void apply(T index, List<Integer> ids, List<D> documents) {
+        for (Integer id : ids) {
+            index.remove(id);
+        }
+        for (D document : documents) {
+            index.add(document, analyzer);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        indexer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        indexer.scheduleWithFixedDelay(() -> {
+            try {
+                refreshPending();
+            } catch (RuntimeException e) {
+                log.warn("{}刷新失败: {}", displayName, e.getMessage());
+            }
+        }, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (indexer != null) {
+            indexer.shutdownNow();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 登记变更，由索引线程异步重新读取
+     */
+    public void refresh(int id) {
+        if (enabled) {
+            pending.add(id);
+        }
+    }
+
+    /**
+     * 处理全部待刷新ID；尚未构建时先全量构建
+     */
+    public synchronized void refreshPending() {
+        if (!ready) {
+            rebuild();
+        }
+        while (!pending.isEmpty()) {
+            List<Integer> batch = new ArrayList<>(REFRESH_BATCH_SIZE);
+            Iterator<Integer> iterator = pending.iterator();
+            while (iterator.hasNext() && batch.size() < REFRESH_BATCH_SIZE) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            List<D> documents;
+            try {
+                documents = loadByIds(batch);
+            } catch (RuntimeException e) {
+                pending.addAll(batch);
+                throw e;
+            }
+            lock.writeLock().lock();
+            try {
+                apply(data, batch, documents);
+                version++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (data.deletedCount() > LOAD_BATCH_SIZE && data.deletedCount() > data.docCount() * compactRatio) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 在锁外按主键分批构建新索引，完成后整体替换
+     * 构建期间到达的变更仍留在待刷新集合中，替换后再补上
+     */
+    private synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        T fresh = newData();
+        int lastId = 0;
+        while (true) {
+            List<D> documents = loadAfter(lastId, LOAD_BATCH_SIZE);
+            for (D document : documents) {
+                fresh.add(document, analyzer);
+                lastId = idOf(document);
+            }
+            if (documents.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            data = fresh;
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready = true;
+        onRebuilt(fresh, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,71 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 相关度打分：按字段加权的 BM25（BM25F）文本分，叠加对数缩放的销量与评分
+ * score = Σ idf(t) · tf'(t) / (k1 + tf'(t)) + salesWeight · ln(1 + sales) + ratingWeight · rating / 5 [+ nameExactBoost]
+ * 其中 tf'(t) = Σ weight(f) · tf(t, f) / (1 - b + b · len(f) / avgLen(f))
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.search.ranking")
+public class Bm25Scorer {
+    private double k1 = 1.2;
+    private double b = 0.75;
+    private double nameWeight = 3.0;
+    private double descriptionWeight = 1.0;
+    private double specificationWeight = 0.5;
+    private double salesWeight = 0.1;
+    private double ratingWeight = 0.5;
+    // 商品名称与关键词完全一致时的额外加分
+    private double nameExactBoost = 2.0;
+
+    public double idf(int documentFrequency, int documentCount) {
+        return Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * 单个词项在一个文档中的得分
+     *
+     * @param packedFreqs 按字段打包的词频，见 Postings
+     * @param lengths     该文档各字段长度
+     * @param avgLengths  各字段平均长度
+     */
+    public double termScore(double idf, int packedFreqs, int[] lengths, int lengthOffset, double[] avgLengths) {
+        double tf = weightedFreq(packedFreqs, ProductSearchIndex.NAME, nameWeight, lengths, lengthOffset, avgLengths)
+                + weightedFreq(packedFreqs, ProductSearchIndex.DESCRIPTION, descriptionWeight, lengths, lengthOffset, avgLengths)
+                + weightedFreq(packedFreqs, ProductSearchIndex.SPECIFICATIONS, specificationWeight, lengths, lengthOffset, avgLengths);
+        return idf * tf / (k1 + tf);
+    }
+
+    /**
+     * 词项得分上界：tf' 趋于无穷时饱和项趋于 1
+     */
+    public double termUpperBound(double idf) {
+        return idf;
+    }
+
+    /**
+     * 与查询无关的商品质量分
+     *
+     * @param ratingTenths 评分乘以 10
+     */
+    public double staticScore(int sales, int ratingTenths) {
+        return salesWeight * Math.log1p(Math.max(sales, 0)) + ratingWeight * ratingTenths / 50.0;
+    }
+
+    private double weightedFreq(int packedFreqs, int field, double weight, int[] lengths, int lengthOffset,
+                                double[] avgLengths) {
+        int freq = Postings.freq(packedFreqs, field);
+        if (freq == 0 || weight == 0) {
+            return 0;
+        }
+        double avgLength = avgLengths[field] > 0 ? avgLengths[field] : 1;
+        return weight * freq / (1 - b + b * lengths[lengthOffset + field] / avgLength);
+    }
+}
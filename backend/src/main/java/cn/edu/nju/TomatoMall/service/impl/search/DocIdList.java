@@ -0,0 +1,39 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 分面取值对应的文档号集合：文档号只追加，天然有序，以基本类型数组紧凑存放
+ * 参与运算时按需展开为 BitSet（或运算），计数时逐个探测目标位图（与运算后的基数）
+ */
+final class DocIdList {
+    int[] docs = new int[4];
+    int size;
+
+    void add(int doc) {
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size + (size >> 1) + 1);
+        }
+        docs[size++] = doc;
+    }
+
+    void orInto(BitSet target) {
+        for (int i = 0; i < size; i++) {
+            target.set(docs[i]);
+        }
+    }
+
+    /**
+     * 与 filter 的交集基数
+     */
+    int countIn(BitSet filter) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.get(docs[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,85 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 分面筛选与统计条件
+ * 同一规格键的多个取值为“或”，不同规格键之间及与价格区间之间为“与”
+ */
+@Getter
+public class FacetQuery {
+    // 规格键 -> 选中的取值
+    private final Map<String, Set<String>> specFilters;
+    // 选中的价格区间标签
+    private final Set<String> priceBuckets;
+    // 需要统计的规格键；非空时同时统计价格区间
+    private final List<String> facetKeys;
+
+    public FacetQuery(Map<String, Set<String>> specFilters, Set<String> priceBuckets, List<String> facetKeys) {
+        this.specFilters = specFilters;
+        this.priceBuckets = priceBuckets;
+        this.facetKeys = facetKeys;
+    }
+
+    /**
+     * @param specs        形如 key:value 的规格筛选
+     * @param priceBuckets 价格区间标签
+     * @param facetKeys    需要统计的规格键
+     */
+    public static FacetQuery of(Collection<String> specs, Collection<String> priceBuckets, Collection<String> facetKeys) {
+        Map<String, Set<String>> specFilters = new LinkedHashMap<>();
+        if (specs != null) {
+            for (String spec : specs) {
+                int separator = spec.indexOf(':');
+                if (separator <= 0) {
+                    continue;
+                }
+                specFilters.computeIfAbsent(spec.substring(0, separator).trim(), k -> new LinkedHashSet<>())
+                        .add(spec.substring(separator + 1).trim());
+            }
+        }
+        return new FacetQuery(specFilters,
+                priceBuckets == null ? Collections.emptySet() : new LinkedHashSet<>(priceBuckets),
+                facetKeys == null ? Collections.emptyList() : new ArrayList<>(new LinkedHashSet<>(facetKeys)));
+    }
+
+    public boolean hasFilters() {
+        return !specFilters.isEmpty() || !priceBuckets.isEmpty();
+    }
+
+    public boolean hasFacets() {
+        return !facetKeys.isEmpty();
+    }
+
+    public boolean isActive() {
+        return hasFilters() || hasFacets();
+    }
+
+    /**
+     * 与筛选取值顺序无关的规范化表示，用于结果缓存的键；统计的规格键决定响应顺序，保持原序
+     */
+    public String toKey() {
+        StringBuilder key = new StringBuilder();
+        new TreeMap<>(specFilters).forEach((specKey, values) -> {
+            key.append(specKey).append('\u0001');
+            new TreeSet<>(values).forEach(value -> key.append(value).append('\u0001'));
+            key.append('\u0002');
+        });
+        key.append('\u0003');
+        new TreeSet<>(priceBuckets).forEach(bucket -> key.append(bucket).append('\u0001'));
+        key.append('\u0003');
+        facetKeys.forEach(facetKey -> key.append(facetKey).append('\u0001'));
+        return key.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import cn.edu.nju.TomatoMall.repository.FulltextSearchRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据库全文索引搜索后端，不占用进程内存，数据代数由结果缓存维护
+ * 规格与价格区间筛选在 SQL 中完成，不提供分面计数（请求分面时返回空的分面）；
+ * 空关键词、短于 ngram 分词长度的关键词与白名单外的排序字段返回 null，交给数据库模糊查询
+ */
+@Component
+@ConditionalOnProperty(name = "app.search.backend", havingValue = "fulltext")
+public class FulltextSearchBackend implements SearchBackend {
+    // 与 MySQL 默认的 ngram_token_size 一致，更短的关键词切不出词
+    private static final int MIN_KEYWORD_LENGTH = 2;
+    private static final Map<String, String> PRODUCT_SORT_COLUMNS;
+    private static final Map<String, String> STORE_SORT_COLUMNS;
+
+    static {
+        Map<String, String> productColumns = new HashMap<>();
+        productColumns.put("id", "id");
+        productColumns.put("price", "price");
+        productColumns.put("sales", "sales");
+        productColumns.put("rating", "rating");
+        productColumns.put("createTime", "create_time");
+        PRODUCT_SORT_COLUMNS = Collections.unmodifiableMap(productColumns);
+
+        Map<String, String> storeColumns = new HashMap<>();
+        storeColumns.put("id", "id");
+        storeColumns.put("rating", "rating");
+        storeColumns.put("createTime", "create_time");
+        STORE_SORT_COLUMNS = Collections.unmodifiableMap(storeColumns);
+    }
+
+    private final FulltextSearchRepository fulltextSearchRepository;
+    private final SearchResultCache searchResultCache;
+
+    @Autowired
+    public FulltextSearchBackend(FulltextSearchRepository fulltextSearchRepository,
+                                 SearchResultCache searchResultCache) {
+        this.fulltextSearchRepository = fulltextSearchRepository;
+        this.searchResultCache = searchResultCache;
+    }
+
+    @Override
+    public String getName() {
+        return "fulltext";
+    }
+
+    @Override
+    public long getProductGeneration() {
+        return searchResultCache.getProductGeneration();
+    }
+
+    @Override
+    public long getStoreGeneration() {
+        return searchResultCache.getStoreGeneration();
+    }
+
+    @Override
+    public SearchHits searchProducts(String keyword, BigDecimal minPrice, BigDecimal maxPrice, FacetQuery facets,
+                                     String sortField, boolean ascending, int offset, int limit) {
+        String sortColumn = sortField == null ? null : PRODUCT_SORT_COLUMNS.get(sortField);
+        if (!searchable(keyword) || (sortField != null && sortColumn == null)) {
+            return null;
+        }
+        long total = fulltextSearchRepository.countProducts(keyword, minPrice, maxPrice,
+                facets.getSpecFilters(), facets.getPriceBuckets());
+        List<Integer> ids = total <= offset ? Collections.emptyList()
+                : fulltextSearchRepository.findProductIds(keyword, minPrice, maxPrice, facets.getSpecFilters(),
+                facets.getPriceBuckets(), sortColumn, ascending, offset, limit);
+        return new SearchHits(total, ids);
+    }
+
+    @Override
+    public SearchHits searchStores(String keyword, String sortField, boolean ascending, int offset, int limit) {
+        String sortColumn = sortField == null ? null : STORE_SORT_COLUMNS.get(sortField);
+        if (!searchable(keyword) || (sortField != null && sortColumn == null)) {
+            return null;
+        }
+        long total = fulltextSearchRepository.countStores(keyword);
+        List<Integer> ids = total <= offset ? Collections.emptyList()
+                : fulltextSearchRepository.findStoreIds(keyword, sortColumn, ascending, offset, limit);
+        return new SearchHits(total, ids);
+    }
+
+    private boolean searchable(String keyword) {
+        if (keyword == null) {
+            return false;
+        }
+        String trimmed = keyword.trim();
+        return trimmed.codePointCount(0, trimmed.length()) >= MIN_KEYWORD_LENGTH
+                && fulltextSearchRepository.isAvailable();
+    }
+}
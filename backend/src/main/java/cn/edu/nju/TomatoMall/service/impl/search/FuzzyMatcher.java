@@ -0,0 +1,206 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import cn.edu.nju.TomatoMall.service.impl.search.analysis.PinyinTable;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 模糊匹配：精确检索无结果时使用
+ * 拼音：索引时为商品名称生成全拼与首字母词项，查询为纯字母时按拼音切分后检索；
+ * 错字：按 SymSpell 思路为词项预先生成删除变体，查询词项的删除变体与之相交即为候选，再以编辑距离校验，
+ * 每个查询词项最多扩展 maxExpansions 个候选，保证模糊查询的耗时有上界
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties("app.search.fuzzy")
+public class FuzzyMatcher {
+    // 拼音词项的前缀，不会与分词器输出的词项冲突
+    static final char PINYIN = '\u0001';
+    static final char INITIALS = '\u0002';
+
+    private final PinyinTable pinyinTable;
+
+    private boolean enabled = true;
+    // 最大编辑距离，只对较长的字母词生效，中文词项与较短的字母词最多 1
+    private int maxEdits = 1;
+    private int maxExpansions = 8;
+    // 字母词长度不足时不做错字匹配，避免过多误匹配
+    private int minWordLength = 4;
+
+    @Autowired
+    public FuzzyMatcher(PinyinTable pinyinTable) {
+        this.pinyinTable = pinyinTable;
+    }
+
+    /**
+     * 名称的拼音词项：每个汉字的全拼，相邻两个汉字的全拼与首字母；多音字的每个读音都生成词项，
+     * 如“番茄”同时生成 fan qie 与 fan jia
+     *
+     * @param normalizedName 规范化后的名称
+     */
+    public List<String> pinyinTerms(String normalizedName) {
+        List<String> terms = new ArrayList<>();
+        List<String> previous = Collections.emptyList();
+        for (int i = 0; i < normalizedName.length(); ) {
+            int cp = normalizedName.codePointAt(i);
+            i += Character.charCount(cp);
+            List<String> readings = pinyinTable.syllables(cp);
+            // 不同读音的首字母可能相同，同一位置只计一次
+            Set<String> positionTerms = new LinkedHashSet<>();
+            for (String syllable : readings) {
+                positionTerms.add(PINYIN + syllable);
+                for (String before : previous) {
+                    positionTerms.add(PINYIN + before + ' ' + syllable);
+                    positionTerms.add(new String(new char[]{INITIALS, before.charAt(0), syllable.charAt(0)}));
+                }
+            }
+            terms.addAll(positionTerms);
+            previous = readings;
+        }
+        return terms;
+    }
+
+    /**
+     * 按全拼解释查询，如 biancheng -> bian cheng
+     *
+     * @return 查询词项；查询不是纯字母或无法切分为音节时返回 null
+     */
+    public List<String> pinyinQueryTerms(String normalized) {
+        String letters = letters(normalized);
+        List<String> syllables = letters == null ? null : pinyinTable.segment(letters);
+        if (syllables == null) {
+            return null;
+        }
+        if (syllables.size() == 1) {
+            return Collections.singletonList(PINYIN + syllables.get(0));
+        }
+        List<String> terms = new ArrayList<>(syllables.size() - 1);
+        for (int i = 0; i + 1 < syllables.size(); i++) {
+            terms.add(PINYIN + syllables.get(i) + ' ' + syllables.get(i + 1));
+        }
+        return terms;
+    }
+
+    /**
+     * 按拼音首字母解释查询，如 bc -> 编程
+     *
+     * @return 查询词项；查询不是纯字母或不足两个字母时返回 null
+     */
+    public List<String> initialsQueryTerms(String normalized) {
+        String letters = letters(normalized);
+        if (letters == null || letters.length() < 2) {
+            return null;
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        for (int i = 0; i + 1 < letters.length(); i++) {
+            terms.add(new String(new char[]{INITIALS, letters.charAt(i), letters.charAt(i + 1)}));
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * 词项允许的编辑距离；拼音词项与纯数字不做错字匹配
+     */
+    int allowedEdits(String term) {
+        if (term.isEmpty() || term.charAt(0) == PINYIN || term.charAt(0) == INITIALS) {
+            return 0;
+        }
+        int length = term.codePointCount(0, term.length());
+        if (isCjk(term)) {
+            return length >= 2 ? Math.min(1, maxEdits) : 0;
+        }
+        if (length < minWordLength || term.chars().allMatch(Character::isDigit)) {
+            return 0;
+        }
+        return length >= 2 * minWordLength ? maxEdits : Math.min(1, maxEdits);
+    }
+
+    /**
+     * 删除至多 edits 个字符得到的全部变体，不含词项本身
+     */
+    Set<String> deletes(String term, int edits) {
+        Set<String> result = new LinkedHashSet<>();
+        List<String> frontier = Collections.singletonList(term);
+        for (int round = 0; round < edits; round++) {
+            List<String> next = new ArrayList<>();
+            for (String word : frontier) {
+                int[] codePoints = word.codePoints().toArray();
+                if (codePoints.length <= 1) {
+                    continue;
+                }
+                for (int i = 0; i < codePoints.length; i++) {
+                    int[] deleted = new int[codePoints.length - 1];
+                    System.arraycopy(codePoints, 0, deleted, 0, i);
+                    System.arraycopy(codePoints, i + 1, deleted, i, codePoints.length - i - 1);
+                    String variant = new String(deleted, 0, deleted.length);
+                    if (result.add(variant)) {
+                        next.add(variant);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return result;
+    }
+
+    /**
+     * 候选词项与查询词项的编辑距离（含相邻交换），超过 max 时返回 max + 1
+     * 中文词项只接受等长替换，避免单字词项命中过多商品
+     */
+    int distance(String query, String candidate, int max) {
+        int[] a = query.codePoints().toArray();
+        int[] b = candidate.codePoints().toArray();
+        if (Math.abs(a.length - b.length) > max || (isCjk(query) && a.length != b.length)) {
+            return max + 1;
+        }
+        int[][] d = new int[a.length + 1][b.length + 1];
+        for (int i = 0; i <= a.length; i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length; j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length; i++) {
+            int rowMin = Integer.MAX_VALUE;
+            for (int j = 1; j <= b.length; j++) {
+                int cost = a[i - 1] == b[j - 1] ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a[i - 1] == b[j - 2] && a[i - 2] == b[j - 1]) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, d[i][j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+        }
+        return Math.min(d[a.length][b.length], max + 1);
+    }
+
+    private static boolean isCjk(String term) {
+        return term.codePointAt(0) >= 0x2E80;
+    }
+
+    private static String letters(String normalized) {
+        StringBuilder letters = new StringBuilder(normalized.length());
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                letters.append(c);
+            } else if (c != ' ') {
+                return null;
+            }
+        }
+        return letters.length() == 0 ? null : letters.toString();
+    }
+}
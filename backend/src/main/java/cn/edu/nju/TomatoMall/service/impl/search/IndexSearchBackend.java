@@ -0,0 +1,56 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * 进程内倒排索引搜索后端，数据代数即索引版本
+ * 索引未就绪或不支持该排序字段时返回 null
+ */
+@Component
+@ConditionalOnProperty(name = "app.search.backend", havingValue = "index", matchIfMissing = true)
+public class IndexSearchBackend implements SearchBackend {
+    private final ProductSearchIndex productSearchIndex;
+    private final StoreSearchIndex storeSearchIndex;
+
+    @Autowired
+    public IndexSearchBackend(ProductSearchIndex productSearchIndex, StoreSearchIndex storeSearchIndex) {
+        this.productSearchIndex = productSearchIndex;
+        this.storeSearchIndex = storeSearchIndex;
+    }
+
+    @Override
+    public String getName() {
+        return "index";
+    }
+
+    @Override
+    public long getProductGeneration() {
+        return productSearchIndex.getVersion();
+    }
+
+    @Override
+    public long getStoreGeneration() {
+        return storeSearchIndex.getVersion();
+    }
+
+    @Override
+    public SearchHits searchProducts(String keyword, BigDecimal minPrice, BigDecimal maxPrice, FacetQuery facets,
+                                     String sortField, boolean ascending, int offset, int limit) {
+        if (!productSearchIndex.isReady() || (sortField != null && !productSearchIndex.supportsSort(sortField))) {
+            return null;
+        }
+        return productSearchIndex.search(keyword, minPrice, maxPrice, facets, sortField, ascending, offset, limit);
+    }
+
+    @Override
+    public SearchHits searchStores(String keyword, String sortField, boolean ascending, int offset, int limit) {
+        if (!storeSearchIndex.isReady() || (sortField != null && !storeSearchIndex.supportsSort(sortField))) {
+            return null;
+        }
+        return storeSearchIndex.search(keyword, sortField, ascending, offset, limit);
+    }
+}
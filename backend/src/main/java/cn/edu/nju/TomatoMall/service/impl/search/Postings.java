@@ -0,0 +1,110 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单个词项的倒排表：文档号升序排列的基本类型数组，不装箱
+ * 每个文档的词频按字段打包在一个 int 中，每个字段占 10 位（上限 1023）
+ */
+final class Postings {
+    static final int FIELD_BITS = 10;
+    static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+
+    int[] docs = new int[2];
+    int[] freqs = new int[2];
+    int size;
+
+    /**
+     * 追加文档，文档号必须大于已有文档号
+     */
+    void add(int doc, int packedFreqs) {
+        if (size == docs.length) {
+            int capacity = size + (size >> 1) + 1;
+            docs = Arrays.copyOf(docs, capacity);
+            freqs = Arrays.copyOf(freqs, capacity);
+        }
+        docs[size] = doc;
+        freqs[size] = packedFreqs;
+        size++;
+    }
+
+    /**
+     * 从 from 开始查找第一个文档号不小于 target 的位置，先倍增步长再二分
+     *
+     * @return 位置，不存在时返回 size
+     */
+    int advance(int from, int target) {
+        if (from >= size || docs[from] >= target) {
+            return from;
+        }
+        int step = 1;
+        int low = from;
+        int high = from + step;
+        while (high < size && docs[high] < target) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        if (high > size) {
+            high = size;
+        }
+        // docs[low] < target，结果位于 (low, high]
+        while (low + 1 < high) {
+            int mid = (low + high) >>> 1;
+            if (docs[mid] < target) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+
+    static int freq(int packedFreqs, int field) {
+        return (packedFreqs >>> (field * FIELD_BITS)) & FIELD_MASK;
+    }
+
+    static int addFreq(int packedFreqs, int field) {
+        return freq(packedFreqs, field) == FIELD_MASK ? packedFreqs : packedFreqs + (1 << (field * FIELD_BITS));
+    }
+
+    /**
+     * 多个倒排表的并集，同一文档的词频按字段取较大值
+     */
+    static Postings union(List<Postings> lists) {
+        if (lists.size() == 1) {
+            return lists.get(0);
+        }
+        Postings result = new Postings();
+        int[] cursors = new int[lists.size()];
+        while (true) {
+            int doc = Integer.MAX_VALUE;
+            for (int i = 0; i < cursors.length; i++) {
+                Postings list = lists.get(i);
+                if (cursors[i] < list.size) {
+                    doc = Math.min(doc, list.docs[cursors[i]]);
+                }
+            }
+            if (doc == Integer.MAX_VALUE) {
+                return result;
+            }
+            int packed = 0;
+            for (int i = 0; i < cursors.length; i++) {
+                Postings list = lists.get(i);
+                if (cursors[i] < list.size && list.docs[cursors[i]] == doc) {
+                    packed = maxFreqs(packed, list.freqs[cursors[i]++]);
+                }
+            }
+            result.add(doc, packed);
+        }
+    }
+
+    private static int maxFreqs(int a, int b) {
+        int result = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += FIELD_BITS) {
+            result |= Math.max((a >>> shift) & FIELD_MASK, (b >>> shift) & FIELD_MASK) << shift;
+        }
+        return result;
+    }
+}
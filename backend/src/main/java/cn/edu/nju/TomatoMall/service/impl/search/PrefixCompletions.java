@@ -0,0 +1,211 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import cn.edu.nju.TomatoMall.enums.SuggestionType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 不可变的前缀补全表
+ * 词条按规范化键排序存放在并行数组中，前缀对应一段连续区间（两次二分查找）；
+ * 区间内按权重取前 k 个使用区间最大值线段树：每次取出区间最大者后把区间一分为二，复杂度 O(k log n)
+ * 构建后只读，可被多个线程无锁并发查询，由调用方整体替换
+ */
+public final class PrefixCompletions {
+    private static final PrefixCompletions EMPTY = new PrefixCompletions(new String[0], new String[0], new byte[0], new long[0]);
+    private static final SuggestionType[] TYPES = SuggestionType.values();
+
+    private final String[] keys;
+    private final String[] texts;
+    private final byte[] types;
+    private final long[] weights;
+    // 迭代式线段树，叶子位于 [n, 2n)，节点存放区间内权重最大的词条下标
+    private final int[] tree;
+
+    private PrefixCompletions(String[] keys, String[] texts, byte[] types, long[] weights) {
+        this.keys = keys;
+        this.texts = texts;
+        this.types = types;
+        this.weights = weights;
+        int n = keys.length;
+        this.tree = new int[2 * n];
+        for (int i = 0; i < n; i++) {
+            tree[n + i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+        }
+    }
+
+    public static PrefixCompletions empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 词条，key 为规范化后的匹配键
+     */
+    public static final class Candidate {
+        final String key;
+        final String text;
+        final SuggestionType type;
+        final long weight;
+
+        public Candidate(String key, String text, SuggestionType type, long weight) {
+            this.key = key;
+            this.text = text;
+            this.type = type;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 补全结果
+     */
+    public static final class Completion {
+        private final String text;
+        private final SuggestionType type;
+
+        Completion(String text, SuggestionType type) {
+            this.text = text;
+            this.type = type;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public SuggestionType getType() {
+            return type;
+        }
+    }
+
+    /**
+     * 合并相同键的词条（权重相加，展示文本与类型取权重最大的来源），保留权重最高的 maxEntries 条后构建
+     */
+    public static PrefixCompletions build(List<Candidate> candidates, int maxEntries) {
+        Map<String, Candidate> merged = new HashMap<>(candidates.size() * 2);
+        for (Candidate candidate : candidates) {
+            if (candidate.key.isEmpty()) {
+                continue;
+            }
+            merged.merge(candidate.key, candidate, (a, b) -> {
+                Candidate top = a.weight >= b.weight ? a : b;
+                return new Candidate(top.key, top.text, top.type, a.weight + b.weight);
+            });
+        }
+        List<Candidate> entries = new ArrayList<>(merged.values());
+        if (entries.size() > maxEntries) {
+            entries.sort(Comparator.comparingLong((Candidate c) -> c.weight).reversed());
+            entries = new ArrayList<>(entries.subList(0, maxEntries));
+        }
+        entries.sort(Comparator.comparing(c -> c.key));
+
+        int n = entries.size();
+        String[] keys = new String[n];
+        String[] texts = new String[n];
+        byte[] types = new byte[n];
+        long[] weights = new long[n];
+        for (int i = 0; i < n; i++) {
+            Candidate candidate = entries.get(i);
+            keys[i] = candidate.key;
+            texts[i] = candidate.text;
+            types[i] = (byte) candidate.type.ordinal();
+            weights[i] = candidate.weight;
+        }
+        return new PrefixCompletions(keys, texts, types, weights);
+    }
+
+    /**
+     * @param prefix 已规范化的前缀
+     * @return 按权重降序的至多 limit 条补全
+     */
+    public List<Completion> complete(String prefix, int limit) {
+        if (prefix.isEmpty() || keys.length == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+        List<Completion> result = new ArrayList<>(Math.min(limit, to - from));
+        // 队列元素为 {最大者下标, 区间起点, 区间终点}
+        PriorityQueue<int[]> ranges = new PriorityQueue<>(
+                (a, b) -> a[0] == b[0] ? 0 : (better(a[0], b[0]) == a[0] ? -1 : 1));
+        ranges.add(new int[]{argmax(from, to), from, to});
+        while (!ranges.isEmpty() && result.size() < limit) {
+            int[] range = ranges.poll();
+            int best = range[0];
+            result.add(new Completion(texts[best], TYPES[types[best]]));
+            if (range[1] < best) {
+                ranges.add(new int[]{argmax(range[1], best), range[1], best});
+            }
+            if (best + 1 < range[2]) {
+                ranges.add(new int[]{argmax(best + 1, range[2]), best + 1, range[2]});
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * 估算占用的堆内存字节数（字符串按 UTF-16 加对象头估算，与 texts 共用的 key 不重复计算）
+     */
+    public long estimatedBytes() {
+        long bytes = 16L * 5 + keys.length * (4L + 4 + 1 + 8) + tree.length * 4L;
+        for (int i = 0; i < keys.length; i++) {
+            bytes += 40 + 2L * keys[i].length();
+            if (texts[i] != keys[i]) {
+                bytes += 40 + 2L * texts[i].length();
+            }
+        }
+        return bytes;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * [from, to) 内权重最大的词条下标
+     */
+    private int argmax(int from, int to) {
+        int n = keys.length;
+        int best = from;
+        for (int l = from + n, r = to + n; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                best = better(best, tree[l++]);
+            }
+            if ((r & 1) == 1) {
+                best = better(best, tree[--r]);
+            }
+        }
+        return best;
+    }
+
+    // 权重相同时取字典序较小者，前缀相同的词条中较短者优先
+    private int better(int a, int b) {
+        if (weights[a] != weights[b]) {
+            return weights[a] > weights[b] ? a : b;
+        }
+        return Math.min(a, b);
+    }
+}
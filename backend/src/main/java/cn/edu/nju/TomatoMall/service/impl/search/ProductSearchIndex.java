@@ -0,0 +1,736 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import cn.edu.nju.TomatoMall.models.dto.search.FacetResponse;
+import cn.edu.nju.TomatoMall.models.dto.search.FacetValueResponse;
+import cn.edu.nju.TomatoMall.models.dto.search.ProductSearchDocument;
+import cn.edu.nju.TomatoMall.repository.ProductSearchRepository;
+import cn.edu.nju.TomatoMall.service.impl.search.analysis.Analyzer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * 在售商品的进程内倒排索引
+ * 维护流程见 AbstractSearchIndex：启动后后台全量构建，之后根据商品变更事件增量刷新，删除比例超过阈值时全量重建
+ * 同时为每个规格取值与价格区间维护文档号集合，用于分面筛选与计数；精确检索无结果时按拼音与错字模糊匹配
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex extends AbstractSearchIndex<ProductSearchDocument, ProductSearchIndex.IndexData> {
+    static final int NAME = 0;
+    static final int DESCRIPTION = 1;
+    static final int SPECIFICATIONS = 2;
+    static final int FIELD_COUNT = 3;
+
+    // 每个规格键最多返回的取值数
+    private static final int MAX_FACET_VALUES = 50;
+    // 筛选集合中价格区间所用的键，不会与规格键冲突
+    private static final String PRICE_FILTER = "\u0000price";
+    private static final Set<String> SORT_FIELDS =
+            new HashSet<>(Arrays.asList("id", "price", "sales", "rating", "createTime"));
+
+    private final ProductSearchRepository productSearchRepository;
+    private final Bm25Scorer scorer;
+    private final FuzzyMatcher fuzzyMatcher;
+    // 价格区间边界（分），升序；n 个边界划分出 n + 1 个区间
+    private final long[] priceBoundaries;
+    private final List<String> priceBucketLabels;
+
+    // 在售商品名称集合变化（上下架、改名）时递增，仅销量、价格等变化时不变
+    private volatile long nameVersion;
+
+    @Autowired
+    public ProductSearchIndex(ProductSearchRepository productSearchRepository,
+                              Analyzer analyzer,
+                              Bm25Scorer scorer,
+                              FuzzyMatcher fuzzyMatcher,
+                              @Value("${app.search.index.enabled:true}") boolean enabled,
+                              @Value("${app.search.index.refresh-interval-ms:500}") long refreshIntervalMillis,
+                              @Value("${app.search.index.compact-ratio:0.25}") double compactRatio,
+                              @Value("${app.search.facet.price-buckets:50,100,200,500,1000}") BigDecimal[] priceBuckets) {
+        super(analyzer, enabled, refreshIntervalMillis, compactRatio, "product-search-indexer", "商品搜索索引");
+        this.productSearchRepository = productSearchRepository;
+        this.scorer = scorer;
+        this.fuzzyMatcher = fuzzyMatcher;
+
+        BigDecimal[] boundaries = Arrays.stream(priceBuckets).distinct().sorted().toArray(BigDecimal[]::new);
+        this.priceBoundaries = new long[boundaries.length];
+        List<String> labels = new ArrayList<>(boundaries.length + 1);
+        String lower = "0";
+        for (int i = 0; i < boundaries.length; i++) {
+            priceBoundaries[i] = toCents(boundaries[i], RoundingMode.HALF_UP);
+            String upper = boundaries[i].stripTrailingZeros().toPlainString();
+            labels.add(lower + "-" + upper);
+            lower = upper;
+        }
+        labels.add(lower + "+");
+        this.priceBucketLabels = Collections.unmodifiableList(labels);
+        this.data = newData();
+    }
+
+    public long getNameVersion() {
+        return nameVersion;
+    }
+
+    /**
+     * 遍历全部在售商品的原始名称与销量，持有读锁，回调中不要做耗时操作
+     */
+    public void forEachProduct(ObjIntConsumer<String> consumer) {
+        lock.readLock().lock();
+        try {
+            IndexData index = data;
+            for (int doc = 0; doc < index.docCount; doc++) {
+                if (!index.deleted.get(doc)) {
+                    consumer.accept(index.displayNames[doc], index.sales[doc]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean supportsSort(String field) {
+        return SORT_FIELDS.contains(field);
+    }
+
+    /**
+     * 价格区间标签，如 0-50、50-100、1000+，区间含下界不含上界
+     */
+    public List<String> getPriceBucketLabels() {
+        return priceBucketLabels;
+    }
+
+    @Override
+    protected List<ProductSearchDocument> loadAfter(int afterId, int limit) {
+        return productSearchRepository.findOnSaleAfter(afterId, limit);
+    }
+
+    @Override
+    protected List<ProductSearchDocument> loadByIds(List<Integer> ids) {
+        return productSearchRepository.findOnSaleByIds(ids);
+    }
+
+    @Override
+    protected int idOf(ProductSearchDocument document) {
+        return document.getId();
+    }
+
+    @Override
+    protected IndexData newData() {
+        return new IndexData(priceBoundaries, fuzzyMatcher);
+    }
+
+    @Override
+    protected void apply(IndexData index, List<Integer> ids, List<ProductSearchDocument> documents) {
+        Map<Integer, String> oldNames = new HashMap<>();
+        for (Integer productId : ids) {
+            String name = index.displayName(productId);
+            if (name != null) {
+                oldNames.put(productId, name);
+            }
+        }
+        super.apply(index, ids, documents);
+        Map<Integer, String> newNames = new HashMap<>();
+        for (ProductSearchDocument document : documents) {
+            newNames.put(document.getId(), index.displayName(document.getId()));
+        }
+        // 销量写回每隔几秒刷新一批商品，名称未变时不打扰依赖名称的派生结构
+        if (!oldNames.equals(newNames)) {
+            nameVersion++;
+        }
+    }
+
+    @Override
+    protected void onRebuilt(IndexData fresh, long elapsedMillis) {
+        nameVersion++;
+        log.info("商品搜索索引构建完成: {} 个商品, {} 个词项, 耗时 {}ms", fresh.docCount, fresh.terms.size(), elapsedMillis);
+    }
+
+    /**
+     * 检索在售商品
+     *
+     * @param keyword   关键词，为空时匹配全部
+     * @param sortField 排序字段，为空时按相关度（BM25 文本分叠加销量、评分）排序
+     * @param facets    分面筛选与计数条件
+     * @return 命中结果；索引未就绪或关键词无法切分时返回 null
+     */
+    public SearchHits search(String keyword, BigDecimal minPrice, BigDecimal maxPrice, FacetQuery facets,
+                             String sortField, boolean ascending, int offset, int limit) {
+        if (!isReady()) {
+            return null;
+        }
+        String normalized = analyzer.normalize(keyword);
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(analyzer.queryTerms(normalized)));
+        if (!normalized.isEmpty() && queryTerms.isEmpty()) {
+            return null;
+        }
+        long minCents = minPrice == null ? Long.MIN_VALUE : toCents(minPrice, RoundingMode.CEILING);
+        long maxCents = maxPrice == null ? Long.MAX_VALUE : toCents(maxPrice, RoundingMode.FLOOR);
+
+        lock.readLock().lock();
+        try {
+            IndexData index = data;
+            boolean relevance = sortField == null || sortField.trim().isEmpty();
+            TopK topK = new TopK(offset + limit, relevance
+                    ? index.relevanceComparator()
+                    : index.fieldComparator(sortField, ascending));
+            long total = 0;
+            // 各筛选条件的文档集合，结果须同时落在全部集合中；计数时通过文本与价格条件的文档另记一份
+            Map<String, BitSet> filters = facets.hasFilters() ? index.filterSets(facets, priceBucketLabels) : Collections.emptyMap();
+            BitSet filter = intersect(filters, null);
+            BitSet matched = facets.hasFacets() ? new BitSet(index.docCount) : null;
+
+            if (normalized.isEmpty()) {
+                for (int doc = 0; doc < index.docCount; doc++) {
+                    if (index.accept(doc, minCents, maxCents)) {
+                        if (matched != null) {
+                            matched.set(doc);
+                        }
+                        if (filter != null && !filter.get(doc)) {
+                            continue;
+                        }
+                        topK.offer(relevance ? scored(doc, scorer.staticScore(index.sales[doc], index.ratings[doc])) : doc);
+                        total++;
+                    }
+                }
+            } else {
+                TermMatcher matcher = new TermMatcher(index, normalized, relevance, topK, minCents, maxCents,
+                        filter, matched);
+                // 精确检索没有任何文本命中时，依次按全拼、拼音首字母、错字扩展重试
+                if (!matcher.match(index.lookup(queryTerms)) && fuzzyMatcher.isEnabled()
+                        && !matcher.match(index.lookup(fuzzyMatcher.pinyinQueryTerms(normalized)))
+                        && !matcher.match(index.lookup(fuzzyMatcher.initialsQueryTerms(normalized)))) {
+                    matcher.match(index.expand(queryTerms, fuzzyMatcher));
+                }
+                total = matcher.total;
+            }
+
+            long[] entries = topK.drainSorted();
+            List<Integer> ids = new ArrayList<>(Math.max(entries.length - offset, 0));
+            for (int i = offset; i < entries.length; i++) {
+                ids.add(index.productIds[(int) entries[i]]);
+            }
+            if (matched == null) {
+                return new SearchHits(total, ids);
+            }
+            return new SearchHits(total, ids,
+                    facetCounts(index, facets, filters, matched), priceCounts(index, facets, filters, matched));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 各规格键的取值计数；统计某个键时不应用该键自身的筛选，已选取值的同级选项仍有计数
+     */
+    private List<FacetResponse> facetCounts(IndexData index, FacetQuery facets, Map<String, BitSet> filters,
+                                            BitSet matched) {
+        if (!facets.hasFacets()) {
+            return Collections.emptyList();
+        }
+        List<FacetResponse> result = new ArrayList<>(facets.getFacetKeys().size());
+        for (String key : facets.getFacetKeys()) {
+            BitSet scope = intersect(filters, key);
+            if (scope == null) {
+                scope = matched;
+            } else {
+                scope.and(matched);
+            }
+            List<FacetValueResponse> values = new ArrayList<>();
+            Map<String, DocIdList> docsByValue = index.specFacets.get(key);
+            if (docsByValue != null && !scope.isEmpty()) {
+                for (Map.Entry<String, DocIdList> entry : docsByValue.entrySet()) {
+                    int count = entry.getValue().countIn(scope);
+                    if (count > 0) {
+                        values.add(new FacetValueResponse(entry.getKey(), count));
+                    }
+                }
+                values.sort(Comparator.comparingLong(FacetValueResponse::getCount).reversed()
+                        .thenComparing(FacetValueResponse::getValue));
+                if (values.size() > MAX_FACET_VALUES) {
+                    values = new ArrayList<>(values.subList(0, MAX_FACET_VALUES));
+                }
+            }
+            result.add(new FacetResponse(key, values));
+        }
+        return result;
+    }
+
+    /**
+     * 各价格区间的计数，同样不应用价格区间自身的筛选
+     */
+    private List<FacetValueResponse> priceCounts(IndexData index, FacetQuery facets, Map<String, BitSet> filters,
+                                                 BitSet matched) {
+        if (!facets.hasFacets()) {
+            return Collections.emptyList();
+        }
+        BitSet scope = intersect(filters, PRICE_FILTER);
+        if (scope == null) {
+            scope = matched;
+        } else {
+            scope.and(matched);
+        }
+        List<FacetValueResponse> result = new ArrayList<>(priceBucketLabels.size());
+        for (int bucket = 0; bucket < priceBucketLabels.size(); bucket++) {
+            result.add(new FacetValueResponse(priceBucketLabels.get(bucket), index.priceBuckets[bucket].countIn(scope)));
+        }
+        return result;
+    }
+
+    /**
+     * 除 excluded 外全部筛选集合的交集，没有筛选条件时返回 null
+     */
+    private static BitSet intersect(Map<String, BitSet> filters, String excluded) {
+        BitSet result = null;
+        for (Map.Entry<String, BitSet> entry : filters.entrySet()) {
+            if (entry.getKey().equals(excluded)) {
+                continue;
+            }
+            if (result == null) {
+                result = (BitSet) entry.getValue().clone();
+            } else {
+                result.and(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 对一组查询词项的倒排表求交集，命中文档经价格、分面筛选后打分放入 topK
+     */
+    private final class TermMatcher {
+        private final IndexData index;
+        private final String normalized;
+        private final boolean relevance;
+        private final TopK topK;
+        private final long minCents;
+        private final long maxCents;
+        private final BitSet filter;
+        private final BitSet matched;
+        long total;
+
+        TermMatcher(IndexData index, String normalized, boolean relevance, TopK topK,
+                    long minCents, long maxCents, BitSet filter, BitSet matched) {
+            this.index = index;
+            this.normalized = normalized;
+            this.relevance = relevance;
+            this.topK = topK;
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+            this.filter = filter;
+            this.matched = matched;
+        }
+
+        /**
+         * @param lists 各查询词项的倒排表，null 表示有词项不存在
+         * @return 是否有未删除的文档同时包含全部词项（不论价格与分面筛选）
+         */
+        boolean match(Postings[] lists) {
+            if (lists == null) {
+                return false;
+            }
+            // 从最短的倒排表出发求交集，其余倒排表按文档号跳跃前进
+            Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+            int liveCount = index.liveCount();
+            double[] avgLengths = index.averageFieldLengths();
+            double[] idfs = new double[lists.length];
+            double textUpperBound = 0;
+            for (int i = 0; i < lists.length; i++) {
+                idfs[i] = scorer.idf(lists[i].size, liveCount);
+                textUpperBound += scorer.termUpperBound(idfs[i]);
+            }
+            boolean found = false;
+            int[] cursors = new int[lists.length];
+            int[] freqs = new int[lists.length];
+            Postings lead = lists[0];
+            candidates:
+            for (int i = 0; i < lead.size; i++) {
+                int doc = lead.docs[i];
+                freqs[0] = lead.freqs[i];
+                for (int j = 1; j < lists.length; j++) {
+                    cursors[j] = lists[j].advance(cursors[j], doc);
+                    if (cursors[j] == lists[j].size) {
+                        break candidates;
+                    }
+                    if (lists[j].docs[cursors[j]] != doc) {
+                        continue candidates;
+                    }
+                    freqs[j] = lists[j].freqs[cursors[j]];
+                }
+                if (index.deleted.get(doc)) {
+                    continue;
+                }
+                found = true;
+                if (!index.accept(doc, minCents, maxCents)) {
+                    continue;
+                }
+                if (matched != null) {
+                    matched.set(doc);
+                }
+                if (filter != null && !filter.get(doc)) {
+                    continue;
+                }
+                total++;
+                if (!relevance) {
+                    topK.offer(doc);
+                    continue;
+                }
+                double score = scorer.staticScore(index.sales[doc], index.ratings[doc]);
+                if (index.names[doc].equals(normalized)) {
+                    score += scorer.getNameExactBoost();
+                }
+                // 上界剪枝：堆已满且文本分取上界也进不了前 k 时，跳过逐词项打分
+                if (topK.isFull() && score + textUpperBound < scoreOf(topK.peekWorst())) {
+                    continue;
+                }
+                for (int j = 0; j < lists.length; j++) {
+                    score += scorer.termScore(idfs[j], freqs[j], index.fieldLengths, doc * FIELD_COUNT, avgLengths);
+                }
+                topK.offer(scored(doc, score));
+            }
+            return found;
+        }
+    }
+
+    /**
+     * 高 32 位存放得分的 float 位模式，非负 float 的位模式与数值同序
+     */
+    private static long scored(int doc, double score) {
+        return ((long) Float.floatToIntBits((float) Math.max(score, 0)) << 32) | doc;
+    }
+
+    private static float scoreOf(long entry) {
+        return Float.intBitsToFloat((int) (entry >>> 32));
+    }
+
+    private static long toCents(BigDecimal price, RoundingMode roundingMode) {
+        return price.movePointRight(2).setScale(0, roundingMode).longValue();
+    }
+
+    /**
+     * 一份完整的索引数据，文档号从 0 连续分配，各属性按文档号存放在并行数组中
+     */
+    static final class IndexData implements AbstractSearchIndex.IndexData<ProductSearchDocument> {
+        final Map<String, Postings> terms = new HashMap<>();
+        // 规格键 -> 规格值 -> 文档号集合；删除的文档不从集合中移除，由 deleted 过滤
+        final Map<String, Map<String, DocIdList>> specFacets = new HashMap<>();
+        final long[] priceBoundaries;
+        final DocIdList[] priceBuckets;
+        final FuzzyMatcher fuzzyMatcher;
+        // 删除变体 -> 词项（词项本身也作为键），用于错字匹配
+        final Map<String, List<String>> deletes = new HashMap<>();
+        final BitSet deleted = new BitSet();
+        int[] productIds = new int[16];
+        long[] prices = new long[16];
+        int[] sales = new int[16];
+        int[] ratings = new int[16];
+        long[] createTimes = new long[16];
+        // 规范化后的名称用于匹配，原始名称用于展示；两者相同时共用同一对象
+        String[] names = new String[16];
+        String[] displayNames = new String[16];
+        // 各字段词项数，按 doc * FIELD_COUNT + field 存放
+        int[] fieldLengths = new int[16 * FIELD_COUNT];
+        // 未删除文档的字段长度之和，用于计算平均长度
+        final long[] totalFieldLengths = new long[FIELD_COUNT];
+        // 商品ID -> 文档号，-1 表示不在索引中
+        int[] docByProduct = new int[0];
+        int docCount;
+        int deletedCount;
+
+        IndexData(long[] priceBoundaries, FuzzyMatcher fuzzyMatcher) {
+            this.priceBoundaries = priceBoundaries;
+            this.fuzzyMatcher = fuzzyMatcher;
+            this.priceBuckets = new DocIdList[priceBoundaries.length + 1];
+            for (int i = 0; i < priceBuckets.length; i++) {
+                priceBuckets[i] = new DocIdList();
+            }
+        }
+
+        @Override
+        public void add(ProductSearchDocument document, Analyzer analyzer) {
+            int doc = docCount++;
+            ensureCapacity(docCount);
+            productIds[doc] = document.getId();
+            prices[doc] = document.getPrice() == null ? 0 : toCents(document.getPrice(), RoundingMode.HALF_UP);
+            sales[doc] = document.getSales();
+            ratings[doc] = document.getRating() == null ? 0 : document.getRating().movePointRight(1).intValue();
+            LocalDateTime createTime = document.getCreateTime();
+            createTimes[doc] = createTime == null ? 0 : createTime.toEpochSecond(ZoneOffset.UTC);
+            String name = document.getName() == null ? "" : document.getName();
+            String normalizedName = analyzer.normalize(name);
+            displayNames[doc] = name;
+            names[doc] = normalizedName.equals(name) ? name : normalizedName;
+
+            Map<String, Integer> termFreqs = new HashMap<>();
+            collect(doc, termFreqs, analyzer.indexTerms(document.getName()), NAME);
+            collect(doc, termFreqs, analyzer.indexTerms(document.getDescription()), DESCRIPTION);
+            document.getSpecifications().forEach((key, value) -> {
+                collect(doc, termFreqs, analyzer.indexTerms(value), SPECIFICATIONS);
+                if (key != null && value != null) {
+                    specFacets.computeIfAbsent(key.trim(), k -> new HashMap<>())
+                            .computeIfAbsent(value.trim(), v -> new DocIdList()).add(doc);
+                }
+            });
+            priceBuckets[priceBucket(prices[doc])].add(doc);
+            if (fuzzyMatcher.isEnabled()) {
+                // 拼音词项计入名称字段的词频，但不计入字段长度
+                for (String term : fuzzyMatcher.pinyinTerms(normalizedName)) {
+                    termFreqs.merge(term, Postings.addFreq(0, NAME), (old, one) -> Postings.addFreq(old, NAME));
+                }
+            }
+            termFreqs.forEach((term, packed) -> terms.computeIfAbsent(term, this::newPostings).add(doc, packed));
+
+            int productId = document.getId();
+            if (productId >= docByProduct.length) {
+                int oldLength = docByProduct.length;
+                docByProduct = Arrays.copyOf(docByProduct, Math.max(productId + 1, oldLength * 2));
+                Arrays.fill(docByProduct, oldLength, docByProduct.length, -1);
+            }
+            docByProduct[productId] = doc;
+        }
+
+        /**
+         * @return 商品的原始名称，不在索引中时返回 null
+         */
+        String displayName(int productId) {
+            if (productId < 0 || productId >= docByProduct.length || docByProduct[productId] < 0) {
+                return null;
+            }
+            return displayNames[docByProduct[productId]];
+        }
+
+        @Override
+        public void remove(int productId) {
+            if (productId < 0 || productId >= docByProduct.length || docByProduct[productId] < 0) {
+                return;
+            }
+            int doc = docByProduct[productId];
+            deleted.set(doc);
+            docByProduct[productId] = -1;
+            deletedCount++;
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                totalFieldLengths[field] -= fieldLengths[doc * FIELD_COUNT + field];
+            }
+        }
+
+        @Override
+        public int docCount() {
+            return docCount;
+        }
+
+        @Override
+        public int deletedCount() {
+            return deletedCount;
+        }
+
+        int liveCount() {
+            return docCount - deletedCount;
+        }
+
+        double[] averageFieldLengths() {
+            double[] averages = new double[FIELD_COUNT];
+            int live = liveCount();
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                averages[field] = live == 0 ? 0 : (double) totalFieldLengths[field] / live;
+            }
+            return averages;
+        }
+
+        /**
+         * 新词项登记删除变体
+         */
+        private Postings newPostings(String term) {
+            int edits = fuzzyMatcher.isEnabled() ? fuzzyMatcher.allowedEdits(term) : 0;
+            if (edits > 0) {
+                deletes.computeIfAbsent(term, key -> new ArrayList<>(1)).add(term);
+                for (String variant : fuzzyMatcher.deletes(term, edits)) {
+                    deletes.computeIfAbsent(variant, key -> new ArrayList<>(2)).add(term);
+                }
+            }
+            return new Postings();
+        }
+
+        /**
+         * @return 各词项的倒排表；词项列表为 null 或有词项不存在时返回 null
+         */
+        Postings[] lookup(List<String> queryTerms) {
+            if (queryTerms == null || queryTerms.isEmpty()) {
+                return null;
+            }
+            Postings[] lists = new Postings[queryTerms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = terms.get(queryTerms.get(i));
+                if (lists[i] == null) {
+                    return null;
+                }
+            }
+            return lists;
+        }
+
+        /**
+         * 把每个查询词项扩展为自身及编辑距离内的词项（距离近、文档多者优先，最多 maxExpansions 个），取倒排表并集
+         *
+         * @return 各词项扩展后的倒排表；有词项没有任何候选时返回 null
+         */
+        Postings[] expand(List<String> queryTerms, FuzzyMatcher fuzzy) {
+            Postings[] groups = new Postings[queryTerms.size()];
+            for (int i = 0; i < groups.length; i++) {
+                String term = queryTerms.get(i);
+                int edits = fuzzy.allowedEdits(term);
+                List<String> candidates = new ArrayList<>();
+                Map<String, Integer> distances = new HashMap<>();
+                if (edits > 0) {
+                    Set<String> keys = fuzzy.deletes(term, edits);
+                    keys.add(term);
+                    for (String key : keys) {
+                        for (String candidate : deletes.getOrDefault(key, Collections.emptyList())) {
+                            if (!candidate.equals(term) && !distances.containsKey(candidate)) {
+                                int distance = fuzzy.distance(term, candidate, edits);
+                                distances.put(candidate, distance);
+                                if (distance <= edits) {
+                                    candidates.add(candidate);
+                                }
+                            }
+                        }
+                    }
+                }
+                candidates.sort(Comparator.<String>comparingInt(distances::get)
+                        .thenComparing(candidate -> -terms.get(candidate).size));
+                List<Postings> lists = new ArrayList<>();
+                Postings exact = terms.get(term);
+                if (exact != null) {
+                    lists.add(exact);
+                }
+                for (int j = 0; j < candidates.size() && j < fuzzy.getMaxExpansions(); j++) {
+                    lists.add(terms.get(candidates.get(j)));
+                }
+                if (lists.isEmpty()) {
+                    return null;
+                }
+                groups[i] = Postings.union(lists);
+            }
+            return groups;
+        }
+
+        int priceBucket(long cents) {
+            int bucket = Arrays.binarySearch(priceBoundaries, cents);
+            // 恰好等于边界时归入以该边界为下界的区间
+            return bucket >= 0 ? bucket + 1 : -bucket - 1;
+        }
+
+        /**
+         * 按规格键（或价格区间）分组的筛选集合：同组取值求并集，不存在的取值视为空集
+         */
+        Map<String, BitSet> filterSets(FacetQuery facets, List<String> priceBucketLabels) {
+            Map<String, BitSet> filters = new LinkedHashMap<>();
+            facets.getSpecFilters().forEach((key, values) -> {
+                BitSet set = new BitSet(docCount);
+                Map<String, DocIdList> docsByValue = specFacets.getOrDefault(key, Collections.emptyMap());
+                for (String value : values) {
+                    DocIdList docs = docsByValue.get(value);
+                    if (docs != null) {
+                        docs.orInto(set);
+                    }
+                }
+                filters.put(key, set);
+            });
+            if (!facets.getPriceBuckets().isEmpty()) {
+                BitSet set = new BitSet(docCount);
+                for (String label : facets.getPriceBuckets()) {
+                    int bucket = priceBucketLabels.indexOf(label);
+                    if (bucket >= 0) {
+                        priceBuckets[bucket].orInto(set);
+                    }
+                }
+                filters.put(PRICE_FILTER, set);
+            }
+            return filters;
+        }
+
+        boolean accept(int doc, long minCents, long maxCents) {
+            return !deleted.get(doc) && prices[doc] >= minCents && prices[doc] <= maxCents;
+        }
+
+        TopK.EntryComparator relevanceComparator() {
+            return (a, b) -> {
+                int result = Float.compare(scoreOf(b), scoreOf(a));
+                if (result != 0) {
+                    return result;
+                }
+                int docA = (int) a;
+                int docB = (int) b;
+                result = Integer.compare(sales[docB], sales[docA]);
+                if (result == 0) {
+                    result = Integer.compare(ratings[docB], ratings[docA]);
+                }
+                if (result == 0) {
+                    result = Long.compare(createTimes[docB], createTimes[docA]);
+                }
+                return result != 0 ? result : Integer.compare(productIds[docA], productIds[docB]);
+            };
+        }
+
+        TopK.EntryComparator fieldComparator(String field, boolean ascending) {
+            return (a, b) -> {
+                int docA = (int) a;
+                int docB = (int) b;
+                int result;
+                switch (field) {
+                    case "price":
+                        result = Long.compare(prices[docA], prices[docB]);
+                        break;
+                    case "sales":
+                        result = Integer.compare(sales[docA], sales[docB]);
+                        break;
+                    case "rating":
+                        result = Integer.compare(ratings[docA], ratings[docB]);
+                        break;
+                    case "createTime":
+                        result = Long.compare(createTimes[docA], createTimes[docB]);
+                        break;
+                    default:
+                        result = 0;
+                }
+                if (!ascending) {
+                    result = -result;
+                }
+                if (result != 0) {
+                    return result;
+                }
+                int byId = Integer.compare(productIds[docA], productIds[docB]);
+                return "id".equals(field) && !ascending ? -byId : byId;
+            };
+        }
+
+        private void collect(int doc, Map<String, Integer> termFreqs, List<String> tokens, int field) {
+            fieldLengths[doc * FIELD_COUNT + field] += tokens.size();
+            totalFieldLengths[field] += tokens.size();
+            for (String token : tokens) {
+                termFreqs.merge(token, Postings.addFreq(0, field), (old, one) -> Postings.addFreq(old, field));
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= productIds.length) {
+                return;
+            }
+            int newLength = Math.max(capacity, productIds.length + (productIds.length >> 1));
+            productIds = Arrays.copyOf(productIds, newLength);
+            prices = Arrays.copyOf(prices, newLength);
+            sales = Arrays.copyOf(sales, newLength);
+            ratings = Arrays.copyOf(ratings, newLength);
+            createTimes = Arrays.copyOf(createTimes, newLength);
+            names = Arrays.copyOf(names, newLength);
+            displayNames = Arrays.copyOf(displayNames, newLength);
+            fieldLengths = Arrays.copyOf(fieldLengths, newLength * FIELD_COUNT);
+        }
+    }
+}
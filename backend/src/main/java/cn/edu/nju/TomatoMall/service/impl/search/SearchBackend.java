@@ -0,0 +1,38 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import java.math.BigDecimal;
+
+/**
+ * 搜索后端，给出命中总数与当前页的ID，列表信息由调用方按ID读取
+ * 由 app.search.backend 选择实现：index（默认，进程内倒排索引）或 fulltext（MySQL FULLTEXT 索引）
+ * 后端无法处理的查询返回 null，由调用方回退数据库模糊查询
+ */
+public interface SearchBackend {
+    /**
+     * @return 后端名称，用于区分结果缓存
+     */
+    String getName();
+
+    /**
+     * @return 商品数据代数，变化后按旧代数缓存的商品检索结果失效
+     */
+    long getProductGeneration();
+
+    /**
+     * @return 店铺数据代数，变化后按旧代数缓存的店铺检索结果失效
+     */
+    long getStoreGeneration();
+
+    /**
+     * @param sortField 排序字段，null 表示按相关度排序
+     * @return 检索结果；无法处理时返回 null
+     */
+    SearchHits searchProducts(String keyword, BigDecimal minPrice, BigDecimal maxPrice, FacetQuery facets,
+                              String sortField, boolean ascending, int offset, int limit);
+
+    /**
+     * @param sortField 排序字段，null 表示按相关度排序
+     * @return 检索结果；无法处理时返回 null
+     */
+    SearchHits searchStores(String keyword, String sortField, boolean ascending, int offset, int limit);
+}
@@ -0,0 +1,25 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import cn.edu.nju.TomatoMall.models.dto.search.FacetResponse;
+import cn.edu.nju.TomatoMall.models.dto.search.FacetValueResponse;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 搜索后端的检索结果：命中总数与当前页的ID（按排序先后），以及请求了分面时的计数
+ */
+@Getter
+@AllArgsConstructor
+public class SearchHits {
+    private long total;
+    private List<Integer> ids;
+    private List<FacetResponse> facets;
+    private List<FacetValueResponse> priceBuckets;
+
+    public SearchHits(long total, List<Integer> ids) {
+        this(total, ids, Collections.emptyList(), Collections.emptyList());
+    }
+}
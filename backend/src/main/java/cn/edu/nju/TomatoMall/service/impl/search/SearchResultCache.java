@@ -0,0 +1,122 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import cn.edu.nju.TomatoMall.util.LruCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 搜索结果缓存：以规范化后的查询条件为键，只保存命中总数与当前页ID，展示数据由调用方按ID读取
+ * 条目不设过期时间，而是记录计算时的数据代数；商品、店铺发生变更时代数递增，旧代数的条目在读取时视为未命中
+ */
+@Component
+public class SearchResultCache {
+    private final boolean enabled;
+    private final LruCache<String, Entry> entries;
+    // 商品、店铺的数据代数，事务提交后由监听器递增
+    private final AtomicLong productGeneration = new AtomicLong();
+    private final AtomicLong storeGeneration = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    // 命中时按条目首次计算的耗时累计，近似为节省的查询时间
+    private final LongAdder savedNanos = new LongAdder();
+
+    @Autowired
+    public SearchResultCache(MeterRegistry meterRegistry,
+                             @Value("${app.search.cache.enabled:true}") boolean enabled,
+                             @Value("${app.search.cache.max-entries:10000}") int maxEntries) {
+        this.enabled = enabled;
+        this.entries = new LruCache<>(maxEntries);
+
+        this.hits = Counter.builder("search.cache.requests")
+                .tag("result", "hit")
+                .description("搜索结果缓存请求数")
+                .register(meterRegistry);
+        this.misses = Counter.builder("search.cache.requests")
+                .tag("result", "miss")
+                .description("搜索结果缓存请求数")
+                .register(meterRegistry);
+        Gauge.builder("search.cache.hit.ratio", this, SearchResultCache::hitRatio)
+                .description("搜索结果缓存命中率")
+                .register(meterRegistry);
+        FunctionCounter.builder("search.cache.saved.time", savedNanos,
+                        adder -> adder.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1))
+                .description("缓存命中节省的查询耗时")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("search.cache.entries", entries, LruCache::size)
+                .description("搜索结果缓存条目数")
+                .register(meterRegistry);
+    }
+
+    public long getProductGeneration() {
+        return productGeneration.get();
+    }
+
+    public long getStoreGeneration() {
+        return storeGeneration.get();
+    }
+
+    public void invalidateProducts() {
+        productGeneration.incrementAndGet();
+    }
+
+    public void invalidateStores() {
+        storeGeneration.incrementAndGet();
+    }
+
+    /**
+     * @param generation 结果所依赖数据的当前代数
+     * @return 缓存的结果；未命中或条目代数不一致时返回 null
+     */
+    public SearchHits get(String key, long generation) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null || entry.generation != generation) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        savedNanos.add(entry.costNanos);
+        return entry.hits;
+    }
+
+    /**
+     * 写入缓存；代数须在计算前读取，计算期间发生的变更会使本次写入的条目立即过期
+     *
+     * @param costNanos 计算结果的耗时，命中时计入节省的查询时间
+     */
+    public void put(String key, long generation, SearchHits hits, long costNanos) {
+        if (enabled) {
+            entries.put(key, new Entry(generation, hits, costNanos));
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private static final class Entry {
+        final long generation;
+        final SearchHits hits;
+        final long costNanos;
+
+        Entry(long generation, SearchHits hits, long costNanos) {
+            this.generation = generation;
+            this.hits = hits;
+            this.costNanos = costNanos;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+import cn.edu.nju.TomatoMall.models.dto.search.StoreSearchDocument;
+import cn.edu.nju.TomatoMall.repository.StoreSearchRepository;
+import cn.edu.nju.TomatoMall.service.impl.search.analysis.Analyzer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * 店铺的进程内搜索索引，不包含系统店铺与已删除店铺
+ * 名称按规范化文本有序存放用于前缀匹配，名称、描述、地址切分后建立倒排表；
+ * 维护流程见 AbstractSearchIndex：启动后后台全量构建，之后根据店铺事件增量刷新，删除比例超过阈值时全量重建
+ */
+@Slf4j
+@Component
+public class StoreSearchIndex extends AbstractSearchIndex<StoreSearchDocument, StoreSearchIndex.IndexData> {
+    static final int NAME = 0;
+    static final int DESCRIPTION = 1;
+    static final int ADDRESS = 2;
+
+    private static final Set<String> SORT_FIELDS = new HashSet<>(Arrays.asList("id", "rating", "createTime"));
+    // 名称完全一致、名称前缀匹配时的匹配分；其余按各查询词项出现的最佳字段取平均
+    private static final double NAME_EXACT_SCORE = 3.0;
+    private static final double NAME_PREFIX_SCORE = 2.0;
+    private static final double[] FIELD_SCORES = {1.0, 0.5, 0.25};
+
+    private final StoreSearchRepository storeSearchRepository;
+    private final double ratingWeight;
+
+    @Autowired
+    public StoreSearchIndex(StoreSearchRepository storeSearchRepository,
+                            Analyzer analyzer,
+                            @Value("${app.search.index.enabled:true}") boolean enabled,
+                            @Value("${app.search.index.refresh-interval-ms:500}") long refreshIntervalMillis,
+                            @Value("${app.search.index.compact-ratio:0.25}") double compactRatio,
+                            @Value("${app.search.store.rating-weight:0.5}") double ratingWeight) {
+        super(analyzer, enabled, refreshIntervalMillis, compactRatio, "store-search-indexer", "店铺搜索索引");
+        this.storeSearchRepository = storeSearchRepository;
+        this.ratingWeight = ratingWeight;
+        this.data = newData();
+    }
+
+    public boolean supportsSort(String field) {
+        return SORT_FIELDS.contains(field);
+    }
+
+    @Override
+    protected List<StoreSearchDocument> loadAfter(int afterId, int limit) {
+        return storeSearchRepository.findSearchableAfter(afterId, limit);
+    }
+
+    @Override
+    protected List<StoreSearchDocument> loadByIds(List<Integer> ids) {
+        return storeSearchRepository.findSearchableByIds(ids);
+    }
+
+    @Override
+    protected int idOf(StoreSearchDocument document) {
+        return document.getId();
+    }
+
+    @Override
+    protected IndexData newData() {
+        return new IndexData();
+    }
+
+    @Override
+    protected void onRebuilt(IndexData fresh, long elapsedMillis) {
+        log.info("店铺搜索索引构建完成: {} 个店铺, 耗时 {}ms", fresh.docCount, elapsedMillis);
+    }
+
+    /**
+     * 检索店铺：名称以关键词开头，或名称、描述、地址共同包含全部查询词项
+     *
+     * @param sortField 排序字段，为空时按匹配程度叠加评分排序
+     * @return 命中结果；索引未就绪或关键词无法切分时返回 null
+     */
+    public SearchHits search(String keyword, String sortField, boolean ascending, int offset, int limit) {
+        if (!isReady()) {
+            return null;
+        }
+        String normalized = analyzer.normalize(keyword);
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(analyzer.queryTerms(normalized)));
+        if (!normalized.isEmpty() && queryTerms.isEmpty()) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            IndexData index = data;
+            boolean relevance = sortField == null || sortField.trim().isEmpty();
+            TopK topK = new TopK(offset + limit, relevance
+                    ? index.relevanceComparator()
+                    : index.fieldComparator(sortField, ascending));
+            long total = 0;
+
+            if (normalized.isEmpty()) {
+                for (int doc = 0; doc < index.docCount; doc++) {
+                    if (!index.deleted.get(doc)) {
+                        topK.offer(relevance ? scored(doc, ratingScore(index, doc)) : doc);
+                        total++;
+                    }
+                }
+            } else {
+                // 候选为名称前缀匹配与词项匹配的并集；termScores 记录词项匹配文档中每个词项所在最佳字段的匹配分
+                BitSet candidates = new BitSet(index.docCount);
+                index.namesWithPrefix(normalized).forEach(docs -> docs.orInto(candidates));
+                Map<Integer, double[]> termScores = index.matchAll(queryTerms);
+                termScores.keySet().forEach(candidates::set);
+
+                for (int doc = candidates.nextSetBit(0); doc >= 0; doc = candidates.nextSetBit(doc + 1)) {
+                    if (index.deleted.get(doc)) {
+                        continue;
+                    }
+                    total++;
+                    if (!relevance) {
+                        topK.offer(doc);
+                        continue;
+                    }
+                    double score;
+                    if (index.names[doc].equals(normalized)) {
+                        score = NAME_EXACT_SCORE;
+                    } else if (index.names[doc].startsWith(normalized)) {
+                        score = NAME_PREFIX_SCORE;
+                    } else {
+                        score = average(termScores.get(doc));
+                    }
+                    topK.offer(scored(doc, score + ratingScore(index, doc)));
+                }
+            }
+
+            long[] entries = topK.drainSorted();
+            List<Integer> ids = new ArrayList<>(Math.max(entries.length - offset, 0));
+            for (int i = offset; i < entries.length; i++) {
+                ids.add(index.storeIds[(int) entries[i]]);
+            }
+            return new SearchHits(total, ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private double ratingScore(IndexData index, int doc) {
+        return ratingWeight * index.ratings[doc] / 50.0;
+    }
+
+    private static double average(double[] scores) {
+        if (scores == null || scores.length == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (double score : scores) {
+            sum += score;
+        }
+        return sum / scores.length;
+    }
+
+    /**
+     * 高 32 位存放得分的 float 位模式，非负 float 的位模式与数值同序
+     */
+    private static long scored(int doc, double score) {
+        return ((long) Float.floatToIntBits((float) Math.max(score, 0)) << 32) | doc;
+    }
+
+    private static float scoreOf(long entry) {
+        return Float.intBitsToFloat((int) (entry >>> 32));
+    }
+
+    /**
+     * 一份完整的索引数据，文档号从 0 连续分配，各属性按文档号存放在并行数组中
+     */
+    static final class IndexData implements AbstractSearchIndex.IndexData<StoreSearchDocument> {
+        final Map<String, Postings> terms = new HashMap<>();
+        // 规范化名称 -> 文档号，按名称有序，前缀匹配为一段连续区间；删除的文档由 deleted 过滤
+        final TreeMap<String, DocIdList> namePrefixes = new TreeMap<>();
+        final BitSet deleted = new BitSet();
+        int[] storeIds = new int[16];
+        int[] ratings = new int[16];
+        long[] createTimes = new long[16];
+        String[] names = new String[16];
+        // 店铺ID -> 文档号
+        final Map<Integer, Integer> docByStore = new HashMap<>();
+        int docCount;
+        int deletedCount;
+
+        @Override
+        public void add(StoreSearchDocument document, Analyzer analyzer) {
+            int doc = docCount++;
+            ensureCapacity(docCount);
+            storeIds[doc] = document.getId();
+            ratings[doc] = document.getRating() == null ? 0 : document.getRating().movePointRight(1).intValue();
+            LocalDateTime createTime = document.getCreateTime();
+            createTimes[doc] = createTime == null ? 0 : createTime.toEpochSecond(ZoneOffset.UTC);
+            names[doc] = analyzer.normalize(document.getName());
+            namePrefixes.computeIfAbsent(names[doc], name -> new DocIdList()).add(doc);
+
+            Map<String, Integer> termFreqs = new HashMap<>();
+            collect(termFreqs, analyzer.indexTerms(document.getName()), NAME);
+            collect(termFreqs, analyzer.indexTerms(document.getDescription()), DESCRIPTION);
+            collect(termFreqs, analyzer.indexTerms(document.getAddress()), ADDRESS);
+            termFreqs.forEach((term, packed) -> terms.computeIfAbsent(term, t -> new Postings()).add(doc, packed));
+
+            docByStore.put(document.getId(), doc);
+        }
+
+        @Override
+        public void remove(int storeId) {
+            Integer doc = docByStore.remove(storeId);
+            if (doc != null) {
+                deleted.set(doc);
+                deletedCount++;
+            }
+        }
+
+        @Override
+        public int docCount() {
+            return docCount;
+        }
+
+        @Override
+        public int deletedCount() {
+            return deletedCount;
+        }
+
+        Collection<DocIdList> namesWithPrefix(String prefix) {
+            return namePrefixes.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+        }
+
+        /**
+         * 包含全部词项的文档，及每个词项所在最佳字段的匹配分
+         */
+        Map<Integer, double[]> matchAll(List<String> queryTerms) {
+            Postings[] lists = new Postings[queryTerms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = terms.get(queryTerms.get(i));
+                if (lists[i] == null) {
+                    return Collections.emptyMap();
+                }
+            }
+            Map<Integer, double[]> result = new HashMap<>();
+            int[] cursors = new int[lists.length];
+            Postings lead = lists[0];
+            candidates:
+            for (int i = 0; i < lead.size; i++) {
+                int doc = lead.docs[i];
+                double[] scores = new double[lists.length];
+                scores[0] = bestFieldScore(lead.freqs[i]);
+                for (int j = 1; j < lists.length; j++) {
+                    cursors[j] = lists[j].advance(cursors[j], doc);
+                    if (cursors[j] == lists[j].size) {
+                        break candidates;
+                    }
+                    if (lists[j].docs[cursors[j]] != doc) {
+                        continue candidates;
+                    }
+                    scores[j] = bestFieldScore(lists[j].freqs[cursors[j]]);
+                }
+                result.put(doc, scores);
+            }
+            return result;
+        }
+
+        TopK.EntryComparator relevanceComparator() {
+            return (a, b) -> {
+                int result = Float.compare(scoreOf(b), scoreOf(a));
+                if (result != 0) {
+                    return result;
+                }
+                int docA = (int) a;
+                int docB = (int) b;
+                result = Integer.compare(ratings[docB], ratings[docA]);
+                if (result == 0) {
+                    result = Long.compare(createTimes[docB], createTimes[docA]);
+                }
+                return result != 0 ? result : Integer.compare(storeIds[docA], storeIds[docB]);
+            };
+        }
+
+        TopK.EntryComparator fieldComparator(String field, boolean ascending) {
+            return (a, b) -> {
+                int docA = (int) a;
+                int docB = (int) b;
+                int result;
+                switch (field) {
+                    case "rating":
+                        result = Integer.compare(ratings[docA], ratings[docB]);
+                        break;
+                    case "createTime":
+                        result = Long.compare(createTimes[docA], createTimes[docB]);
+                        break;
+                    default:
+                        result = 0;
+                }
+                if (!ascending) {
+                    result = -result;
+                }
+                if (result != 0) {
+                    return result;
+                }
+                int byId = Integer.compare(storeIds[docA], storeIds[docB]);
+                return "id".equals(field) && !ascending ? -byId : byId;
+            };
+        }
+
+        private static double bestFieldScore(int packedFreqs) {
+            for (int field = NAME; field <= ADDRESS; field++) {
+                if (Postings.freq(packedFreqs, field) > 0) {
+                    return FIELD_SCORES[field];
+                }
+            }
+            return 0;
+        }
+
+        private static void collect(Map<String, Integer> termFreqs, List<String> tokens, int field) {
+            for (String token : tokens) {
+                termFreqs.merge(token, Postings.addFreq(0, field), (old, one) -> Postings.addFreq(old, field));
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= storeIds.length) {
+                return;
+            }
+            int newLength = Math.max(capacity, storeIds.length + (storeIds.length >> 1));
+            storeIds = Arrays.copyOf(storeIds, newLength);
+            ratings = Arrays.copyOf(ratings, newLength);
+            createTimes = Arrays.copyOf(createTimes, newLength);
+            names = Arrays.copyOf(names, newLength);
+        }
+    }
+}
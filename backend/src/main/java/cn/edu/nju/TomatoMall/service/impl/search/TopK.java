@@ -0,0 +1,102 @@
+package cn.edu.nju.TomatoMall.service.impl.search;
+
+/**
+ * 有界堆：只保留排序最靠前的 k 个条目，堆顶为当前最差者
+ * 检索分页时 k = offset + limit，避免对全部命中结果排序
+ * 条目为 long，低 32 位是文档号，高 32 位可由调用方携带排序键（如相关度档位）
+ */
+final class TopK {
+
+    /**
+     * 条目比较器，返回负数表示 a 排在 b 之前
+     */
+    interface EntryComparator {
+        int compare(long a, long b);
+    }
+
+    private final long[] heap;
+    private final EntryComparator comparator;
+    private int size;
+
+    TopK(int k, EntryComparator comparator) {
+        this.heap = new long[Math.max(k, 0)];
+        this.comparator = comparator;
+    }
+
+    void offer(long entry) {
+        if (heap.length == 0) {
+            return;
+        }
+        if (size < heap.length) {
+            heap[size] = entry;
+            siftUp(size++);
+        } else if (comparator.compare(entry, heap[0]) < 0) {
+            heap[0] = entry;
+            siftDown(0);
+        }
+    }
+
+    boolean isFull() {
+        return size == heap.length && size > 0;
+    }
+
+    /**
+     * 当前第 k 名（最差者），仅在 isFull() 时有意义
+     */
+    long peekWorst() {
+        return heap[0];
+    }
+
+    /**
+     * 按排序先后输出并清空堆
+     */
+    long[] drainSorted() {
+        long[] sorted = new long[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(0);
+        }
+        return sorted;
+    }
+
+    // 堆序：父节点比子节点“更差”
+    private boolean worse(int a, int b) {
+        return comparator.compare(heap[a], heap[b]) > 0;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(i, parent)) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int worst = left;
+            if (left + 1 < size && worse(left + 1, left)) {
+                worst = left + 1;
+            }
+            if (!worse(worst, i)) {
+                break;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+}
@@ -0,0 +1,23 @@
+package cn.edu.nju.TomatoMall.service.impl.search.analysis;
+
+import java.util.List;
+
+/**
+ * 文本分析器，索引与查询使用同一实现，保证词项一致
+ */
+public interface Analyzer {
+    /**
+     * 规范化文本（大小写等），用于名称匹配等直接比较
+     */
+    String normalize(String text);
+
+    /**
+     * 生成索引词项，同一词项可重复出现，出现次数即词频
+     */
+    List<String> indexTerms(String text);
+
+    /**
+     * 生成查询词项，文档需包含全部查询词项才算命中
+     */
+    List<String> queryTerms(String text);
+}
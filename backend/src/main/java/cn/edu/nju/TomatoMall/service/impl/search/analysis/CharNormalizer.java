@@ -0,0 +1,32 @@
+package cn.edu.nju.TomatoMall.service.impl.search.analysis;
+
+/**
+ * 字符规范化：全角字母数字与标点折叠为半角，全角空格折叠为空格，统一小写
+ * 单遍扫描，不做 Unicode NFKC 的完整分解
+ */
+public final class CharNormalizer {
+    private static final char FULL_WIDTH_START = '！';
+    private static final char FULL_WIDTH_END = '～';
+    private static final int FULL_WIDTH_OFFSET = 0xFEE0;
+    private static final char IDEOGRAPHIC_SPACE = '　';
+
+    private CharNormalizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= FULL_WIDTH_START && c <= FULL_WIDTH_END) {
+                c = (char) (c - FULL_WIDTH_OFFSET);
+            } else if (c == IDEOGRAPHIC_SPACE) {
+                c = ' ';
+            }
+            builder.append(Character.toLowerCase(c));
+        }
+        return builder.toString().trim();
+    }
+}
@@ -0,0 +1,67 @@
+package cn.edu.nju.TomatoMall.service.impl.search.analysis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 中文商品文本分析链：CharNormalizer（全角折叠、小写） -> Tokenizer（拉丁词 + 中文二字组 + 用户词典）
+ * 多个查询词之间为“与”关系，“番茄 有机”命中同时包含两者的商品而不要求原样相连
+ */
+@Slf4j
+@Component
+public class ChineseAnalyzer implements Analyzer {
+    private final Tokenizer tokenizer;
+
+    @Autowired
+    public ChineseAnalyzer(ResourceLoader resourceLoader,
+                           @Value("${app.search.analysis.user-dictionary:}") String userDictionary) {
+        this(loadDictionary(resourceLoader, userDictionary));
+    }
+
+    public ChineseAnalyzer(UserDictionary dictionary) {
+        this.tokenizer = new Tokenizer(dictionary);
+    }
+
+    @Override
+    public String normalize(String text) {
+        return CharNormalizer.normalize(text);
+    }
+
+    @Override
+    public List<String> indexTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        tokenizer.tokenize(normalize(text), false, terms);
+        return terms;
+    }
+
+    @Override
+    public List<String> queryTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        tokenizer.tokenize(normalize(text), true, terms);
+        return terms;
+    }
+
+    private static UserDictionary loadDictionary(ResourceLoader resourceLoader, String location) {
+        if (location == null || location.trim().isEmpty()) {
+            return UserDictionary.empty();
+        }
+        Resource resource = resourceLoader.getResource(location.trim());
+        try (InputStream inputStream = resource.getInputStream()) {
+            UserDictionary dictionary = UserDictionary.load(inputStream);
+            log.info("已加载搜索用户词典 {}: {} 个词", location, dictionary.size());
+            return dictionary;
+        } catch (IOException e) {
+            log.warn("搜索用户词典加载失败 {}: {}", location, e.getMessage());
+            return UserDictionary.empty();
+        }
+    }
+}
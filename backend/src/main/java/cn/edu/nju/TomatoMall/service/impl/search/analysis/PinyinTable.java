@@ -0,0 +1,128 @@
+package cn.edu.nju.TomatoMall.service.impl.search.analysis;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 汉字拼音表，数据来自随应用打包的 search/pinyin.txt
+ * 只覆盖基本区汉字，常用多音字收录全部读音；拼音不带声调，ü 记作 v
+ */
+@Component
+public class PinyinTable {
+    private static final String RESOURCE = "search/pinyin.txt";
+    private static final int FIRST = 0x4E00;
+    private static final int LAST = 0x9FFF;
+    // 最长音节 zhuang 的字母数
+    private static final int MAX_SYLLABLE_LENGTH = 6;
+
+    private final String[] syllables = new String[LAST - FIRST + 1];
+    // 多音字除首选读音外的其他读音
+    private final Map<Integer, String[]> alternatives = new HashMap<>();
+    private final Set<String> syllableSet = new HashSet<>();
+
+    public PinyinTable() {
+        try (InputStream inputStream = new ClassPathResource(RESOURCE).getInputStream()) {
+            load(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("拼音表加载失败: " + RESOURCE, e);
+        }
+    }
+
+    private void load(InputStream inputStream) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (line.startsWith("#") || tab <= 0) {
+                    continue;
+                }
+                String syllable = line.substring(0, tab).intern();
+                syllableSet.add(syllable);
+                line.codePoints().skip(tab + 1).forEach(cp -> {
+                    if (cp < FIRST || cp > LAST) {
+                        return;
+                    }
+                    String primary = syllables[cp - FIRST];
+                    if (primary == null) {
+                        syllables[cp - FIRST] = syllable;
+                    } else if (!primary.equals(syllable)) {
+                        alternatives.merge(cp, new String[]{syllable}, PinyinTable::concat);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * @return 汉字的全部读音，首选读音在前；不在表中时返回空列表
+     */
+    public List<String> syllables(int codePoint) {
+        if (codePoint < FIRST || codePoint > LAST || syllables[codePoint - FIRST] == null) {
+            return Collections.emptyList();
+        }
+        String primary = syllables[codePoint - FIRST];
+        String[] others = alternatives.get(codePoint);
+        if (others == null) {
+            return Collections.singletonList(primary);
+        }
+        List<String> result = new ArrayList<>(others.length + 1);
+        result.add(primary);
+        result.addAll(Arrays.asList(others));
+        return result;
+    }
+
+    private static String[] concat(String[] a, String[] b) {
+        if (Arrays.asList(a).contains(b[0])) {
+            return a;
+        }
+        String[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * 把连续的拼音字母切分为音节，取音节数最少的切分
+     *
+     * @param letters 小写字母
+     * @return 音节序列，无法完整切分时返回 null
+     */
+    public List<String> segment(String letters) {
+        int n = letters.length();
+        // counts[i] 为 [0, i) 的最少音节数，from[i] 为最后一个音节的起点
+        int[] counts = new int[n + 1];
+        int[] from = new int[n + 1];
+        for (int i = 1; i <= n; i++) {
+            counts[i] = Integer.MAX_VALUE;
+            for (int j = Math.max(0, i - MAX_SYLLABLE_LENGTH); j < i; j++) {
+                if (counts[j] != Integer.MAX_VALUE && counts[j] + 1 < counts[i]
+                        && syllableSet.contains(letters.substring(j, i))) {
+                    counts[i] = counts[j] + 1;
+                    from[i] = j;
+                }
+            }
+        }
+        if (n == 0 || counts[n] == Integer.MAX_VALUE) {
+            return null;
+        }
+        List<String> result = new ArrayList<>(counts[n]);
+        for (int i = n; i > 0; i = from[i]) {
+            result.add(0, letters.substring(from[i], i));
+        }
+        return result;
+    }
+}
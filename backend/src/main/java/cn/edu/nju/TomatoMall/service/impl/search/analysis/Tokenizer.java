@@ -0,0 +1,125 @@
+package cn.edu.nju.TomatoMall.service.impl.search.analysis;
+
+import java.lang.Character.UnicodeScript;
+import java.util.List;
+
+/**
+ * 分词器，输入须已经过 CharNormalizer 规范化
+ * 拉丁字母与数字按词切分（字母与数字交界处也切开），中日韩文字按连续片段输出二字组，其余字符视为分隔符
+ * 索引时中文片段额外输出单字与命中词典的全部词；查询时先按词典正向最大匹配，未命中部分输出二字组，
+ * 因此查询词项一定是索引词项的子集
+ */
+public class Tokenizer {
+    private final UserDictionary dictionary;
+
+    public Tokenizer(UserDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @param query true 生成查询词项，false 生成索引词项
+     * @return 输出的词项数
+     */
+    public int tokenize(String text, boolean query, List<String> out) {
+        int before = out.size();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int cp = text.codePointAt(i);
+            if (isCjk(cp)) {
+                int start = i;
+                do {
+                    i += Character.charCount(cp);
+                } while (i < length && isCjk(cp = text.codePointAt(i)));
+                int[] run = text.substring(start, i).codePoints().toArray();
+                if (query) {
+                    queryCjk(run, out);
+                } else {
+                    indexCjk(run, out);
+                }
+            } else if (Character.isLetter(cp) || Character.isDigit(cp)) {
+                boolean digit = Character.isDigit(cp);
+                int start = i;
+                do {
+                    i += Character.charCount(cp);
+                } while (i < length && !isCjk(cp = text.codePointAt(i))
+                        && (digit ? Character.isDigit(cp) : Character.isLetter(cp)));
+                out.add(text.substring(start, i));
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+        return out.size() - before;
+    }
+
+    private void indexCjk(int[] run, List<String> out) {
+        for (int i = 0; i < run.length; i++) {
+            out.add(new String(run, i, 1));
+            if (i + 1 < run.length) {
+                out.add(new String(run, i, 2));
+            }
+        }
+        if (dictionary.isEmpty()) {
+            return;
+        }
+        int maxLength = dictionary.getMaxWordLength();
+        // 二字词已作为二字组输出，只需查找三字及以上的词
+        for (int i = 0; i < run.length; i++) {
+            for (int len = 3; len <= maxLength && i + len <= run.length; len++) {
+                String word = new String(run, i, len);
+                if (dictionary.contains(word)) {
+                    out.add(word);
+                }
+            }
+        }
+    }
+
+    private void queryCjk(int[] run, List<String> out) {
+        if (dictionary.isEmpty()) {
+            bigrams(run, 0, run.length, out);
+            return;
+        }
+        int maxLength = dictionary.getMaxWordLength();
+        int pending = 0;
+        int i = 0;
+        while (i < run.length) {
+            int matched = 0;
+            for (int len = Math.min(maxLength, run.length - i); len >= 2; len--) {
+                if (dictionary.contains(new String(run, i, len))) {
+                    matched = len;
+                    break;
+                }
+            }
+            if (matched == 0) {
+                i++;
+                continue;
+            }
+            bigrams(run, pending, i, out);
+            out.add(new String(run, i, matched));
+            i += matched;
+            pending = i;
+        }
+        bigrams(run, pending, run.length, out);
+    }
+
+    /**
+     * 输出 [from, to) 的二字组，只有一个字时输出单字
+     */
+    private static void bigrams(int[] run, int from, int to, List<String> out) {
+        if (to - from == 1) {
+            out.add(new String(run, from, 1));
+        }
+        for (int i = from; i + 1 < to; i++) {
+            out.add(new String(run, i, 2));
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        if (codePoint < 0x2E80) {
+            return false;
+        }
+        UnicodeScript script = UnicodeScript.of(codePoint);
+        return script == UnicodeScript.HAN || script == UnicodeScript.HIRAGANA
+                || script == UnicodeScript.KATAKANA || script == UnicodeScript.HANGUL;
+    }
+}
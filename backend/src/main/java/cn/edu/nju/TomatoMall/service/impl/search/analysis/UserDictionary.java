@@ -0,0 +1,72 @@
+package cn.edu.nju.TomatoMall.service.impl.search.analysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 用户词典：每行一个词，# 开头为注释
+ * 命中词典的中文片段作为整词输出，比二字组更精确
+ */
+public class UserDictionary {
+    private static final UserDictionary EMPTY = new UserDictionary(Collections.emptySet());
+
+    private final Set<String> words;
+    // 最长词的字数（码点数）
+    private final int maxWordLength;
+
+    public UserDictionary(Collection<String> words) {
+        this.words = new HashSet<>();
+        int maxLength = 0;
+        for (String word : words) {
+            String normalized = CharNormalizer.normalize(word);
+            // 单字已作为单字词项索引，词典只收录两个字及以上的词
+            int length = normalized.codePointCount(0, normalized.length());
+            if (length >= 2) {
+                this.words.add(normalized);
+                maxLength = Math.max(maxLength, length);
+            }
+        }
+        this.maxWordLength = maxLength;
+    }
+
+    public static UserDictionary empty() {
+        return EMPTY;
+    }
+
+    public static UserDictionary load(InputStream inputStream) throws IOException {
+        Set<String> words = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    words.add(line);
+                }
+            }
+        }
+        return new UserDictionary(words);
+    }
+
+    public boolean isEmpty() {
+        return words.isEmpty();
+    }
+
+    public int getMaxWordLength() {
+        return maxWordLength;
+    }
+
+    public boolean contains(String word) {
+        return words.contains(word);
+    }
+
+    public int size() {
+        return words.size();
+    }
+}
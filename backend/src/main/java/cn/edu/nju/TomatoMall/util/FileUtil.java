@@ -1,72 +1,161 @@
 package cn.edu.nju.TomatoMall.util;
 
 import cn.edu.nju.TomatoMall.exception.TomatoMallException;
-import com.aliyun.oss.OSS;
-import com.aliyun.oss.OSSClientBuilder;
-import com.aliyun.oss.model.PutObjectRequest;
-import lombok.Getter;
-import lombok.NoArgsConstructor;
-import lombok.Setter;
-import org.springframework.boot.context.properties.ConfigurationProperties;
+import cn.edu.nju.TomatoMall.repository.StoredObjectRepository;
+import cn.edu.nju.TomatoMall.util.storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
-import java.util.UUID;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
 
+/**
+ * 文件上传工具，实际存储委托给 StorageBackend
+ * 上传内容按 SHA-256 去重：相同内容只存一份，对象名由哈希决定，引用计数记录在 stored_objects 中。
+ * 业务记录不再引用某个文件时调用 release，不直接删除对象；计数归零的对象由 StoredObjectSweeper 清理
+ */
 @Component
-@Getter
-@Setter
-@NoArgsConstructor
-@ConfigurationProperties("aliyun.oss")
 public class FileUtil {
-    private String endpoint;
-    private String accessKeyId;
-    private String accessKeySecret;
-    private String bucketName;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
 
-    public String upload(int userId, MultipartFile file) {
+    private final StorageBackend storageBackend;
+    private final StoredObjectRepository storedObjectRepository;
+
+    @Autowired
+    public FileUtil(StorageBackend storageBackend, StoredObjectRepository storedObjectRepository) {
+        this.storageBackend = storageBackend;
+        this.storedObjectRepository = storedObjectRepository;
+    }
+
+    /**
+     * 上传文件，内容已存在时直接复用已有对象
+     * multipart 内容已在内存或本地临时文件中，先流式计算哈希，命中时无需再次上传
+     *
+     * @return 对象URL，调用方持有一次引用
+     */
+    @Transactional
+    public String upload(MultipartFile file) {
         if (file.isEmpty()) {
             return null;
         }
-        String objectName = userId + "/" + UUID.randomUUID().toString() + '.' + file.getOriginalFilename().split("\\.")[1];
-        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
         try {
-            PutObjectRequest putObjectRequest = new PutObjectRequest(bucketName, objectName, file.getInputStream());
-            ossClient.putObject(putObjectRequest);
-        } catch (Exception e) {
+            String hash;
+            try (InputStream inputStream = file.getInputStream()) {
+                hash = sha256(inputStream);
+            }
+            String existing = retainExisting(hash);
+            if (existing != null) {
+                return existing;
+            }
+            String url;
+            try (InputStream inputStream = file.getInputStream()) {
+                url = storageBackend.put(objectName(hash, file.getOriginalFilename()), inputStream,
+                        file.getSize(), file.getContentType());
+            }
+            return register(hash, url);
+        } catch (IOException e) {
             throw TomatoMallException.fileUploadFail();
-        } finally {
-            ossClient.shutdown();
         }
-        return "https://" + bucketName + "." + endpoint + "/" + objectName;
     }
 
-    public InputStream get(String url) {
-        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
+    /**
+     * 上传内存中的数据，用于非 multipart 来源（如批量导入时 ZIP 包中的图片）
+     */
+    @Transactional
+    public String upload(String filename, byte[] content) {
+        String hash;
         try {
-            URI uri = new URI(url);
-            String objectName = uri.getPath().substring(1);
-            return ossClient.getObject(bucketName, objectName).getObjectContent();
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            ossClient.shutdown();
+            hash = sha256(new ByteArrayInputStream(content));
+        } catch (IOException e) {
+            throw TomatoMallException.fileUploadFail();
+        }
+        String existing = retainExisting(hash);
+        if (existing != null) {
+            return existing;
+        }
+        String url = storageBackend.put(objectName(hash, filename), new ByteArrayInputStream(content), content.length, null);
+        return register(hash, url);
+    }
+
+    /**
+     * 为已上传的对象增加一次引用，如快照图片列表引用商品图片
+     * 不在索引中的历史对象忽略
+     */
+    @Transactional
+    public void retain(String url) {
+        if (url != null) {
+            storedObjectRepository.retainByUrl(url, LocalDateTime.now());
         }
-        return null;
     }
 
-    public void delete(String url) {
-        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
+    /**
+     * 释放一次引用。对象可能被其他记录共享，不立即删除
+     * 不在索引中的历史对象忽略，宁可遗留也不误删
+     */
+    @Transactional
+    public void release(String url) {
+        if (url != null) {
+            storedObjectRepository.releaseByUrl(url, LocalDateTime.now());
+        }
+    }
+
+    public InputStream get(String url) {
+        return storageBackend.get(url);
+    }
+
+    private String retainExisting(String hash) {
+        if (storedObjectRepository.retainByHash(hash, LocalDateTime.now()) == 0) {
+            return null;
+        }
+        return storedObjectRepository.findUrlByHash(hash).orElse(null);
+    }
+
+    /**
+     * 登记新上传的对象。并发上传同一内容时以先登记的URL为准，
+     * 扩展名不同导致对象名不同时删除本次写入的副本
+     */
+    private String register(String hash, String url) {
+        storedObjectRepository.insertOrRetain(hash, url, LocalDateTime.now());
+        String registered = storedObjectRepository.findUrlByHash(hash).orElse(url);
+        if (!registered.equals(url)) {
+            storageBackend.delete(url);
+        }
+        return registered;
+    }
+
+    private static String objectName(String hash, String filename) {
+        int dot = filename == null ? -1 : filename.lastIndexOf('.');
+        String extension = dot >= 0 ? filename.substring(dot).toLowerCase() : "";
+        if (!extension.matches("\\.[a-z0-9]{1,10}")) {
+            extension = "";
+        }
+        return "objects/" + hash.substring(0, 2) + "/" + hash + extension;
+    }
+
+    private static String sha256(InputStream inputStream) throws IOException {
+        MessageDigest digest;
         try {
-            URI uri = new URI(url);
-            String objectName = uri.getPath().substring(1);
-            ossClient.deleteObject(bucketName, objectName);
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            ossClient.shutdown();
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        byte[] bytes = digest.digest();
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
         }
+        return new String(chars);
     }
 }
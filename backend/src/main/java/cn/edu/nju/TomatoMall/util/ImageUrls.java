@@ -0,0 +1,128 @@
+package cn.edu.nju.TomatoMall.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 图片衍生图URL工具
+ * 衍生图地址形如 /img/{key}?w=&h=，key 为原图URL的 base64url 编码加 HMAC 签名，只有本服务生成的地址才能通过校验；
+ * 尺寸只允许预设的几种，由 ImageController 按需缩放。
+ * 签名密钥取自 app.image.signing-key，各实例须配置相同的值，重启后旧地址仍然有效；
+ * 仅 dev、test 环境允许留空，此时使用固定的开发密钥，其余环境未配置时启动失败
+ */
+@Component
+public class ImageUrls {
+    public static final String PATH_PREFIX = "/img/";
+
+    // 商品列表封面
+    public static final int LIST_COVER_SIZE = 360;
+    // 广告横幅宽度，高度按比例
+    public static final int AD_BANNER_WIDTH = 750;
+
+    // 允许的 (宽, 高) 组合，0 表示不限
+    private static final int[][] PRESETS = {
+            {LIST_COVER_SIZE, LIST_COVER_SIZE},
+            {AD_BANNER_WIDTH, 0}
+    };
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    // 签名截取的字节数
+    private static final int SIGNATURE_BYTES = 16;
+
+    private static final String DEVELOPMENT_KEY = "tomatomall-development-image-signing-key";
+
+    private final SecretKeySpec signingKey;
+
+    @Autowired
+    public ImageUrls(@Value("${app.image.signing-key:}") String secret, Environment environment) {
+        if (secret == null || secret.trim().isEmpty()) {
+            if (!environment.acceptsProfiles(Profiles.of("dev", "test"))) {
+                throw new IllegalStateException("未配置 app.image.signing-key，衍生图地址无法在重启后或多实例间保持有效");
+            }
+            secret = DEVELOPMENT_KEY;
+        }
+        this.signingKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+    }
+
+    /**
+     * 生成缩略图URL
+     *
+     * @param url    原图URL，为空时原样返回
+     * @param width  最大宽度，0 表示不限
+     * @param height 最大高度，0 表示不限；宽高须为预设组合
+     */
+    public String thumbnail(String url, int width, int height) {
+        if (url == null || url.isEmpty() || url.startsWith(PATH_PREFIX)) {
+            return url;
+        }
+        if (!isPreset(width, height)) {
+            throw new IllegalArgumentException("未预设的缩略图尺寸: " + width + "x" + height);
+        }
+        StringBuilder builder = new StringBuilder(PATH_PREFIX).append(encodeKey(url));
+        char separator = '?';
+        if (width > 0) {
+            builder.append(separator).append("w=").append(width);
+            separator = '&';
+        }
+        if (height > 0) {
+            builder.append(separator).append("h=").append(height);
+        }
+        return builder.toString();
+    }
+
+    public static boolean isPreset(int width, int height) {
+        for (int[] preset : PRESETS) {
+            if (preset[0] == width && preset[1] == height) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String encodeKey(String url) {
+        byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(bytes) + "." + encoder.encodeToString(sign(bytes));
+    }
+
+    /**
+     * @return 原图URL，key 非法或签名不匹配时返回 null
+     */
+    public String decodeKey(String key) {
+        int dot = key.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(key.substring(0, dot));
+            byte[] signature = Base64.getUrlDecoder().decode(key.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(bytes), signature)) {
+                return null;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(byte[] bytes) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return Arrays.copyOf(mac.doFinal(bytes), SIGNATURE_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
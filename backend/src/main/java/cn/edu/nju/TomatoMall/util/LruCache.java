@@ -0,0 +1,53 @@
+package cn.edu.nju.TomatoMall.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 线程安全的定容 LRU 缓存，超出容量时淘汰最久未访问的条目
+ * 适用于不可变数据（如商品快照），条目不会过期
+ */
+public class LruCache<K, V> {
+    private final LinkedHashMap<K, V> map;
+
+    public LruCache(int capacity) {
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        return map.get(key);
+    }
+
+    public synchronized void put(K key, V value) {
+        map.put(key, value);
+    }
+
+    public synchronized void remove(K key) {
+        map.remove(key);
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * 命中则返回缓存值，否则在锁外加载并写入，加载结果为 null 时不缓存
+     */
+    public V computeIfAbsent(K key, Function<K, V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        value = loader.apply(key);
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,26 @@
+package cn.edu.nju.TomatoMall.util;
+
+/**
+ * 分页参数工具类
+ * 统一限制单页大小，避免 size=0 或超大 size 一次性加载整张表
+ */
+public class PageUtil {
+
+    /**
+     * 单页最大条数，需要全量数据时请使用导出接口
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private PageUtil() {
+    }
+
+    /**
+     * 规范化每页大小：未指定（<=0）或超过上限时返回上限
+     *
+     * @param size 请求的每页大小
+     * @return 实际使用的每页大小
+     */
+    public static int normalizeSize(int size) {
+        return size > 0 && size <= MAX_PAGE_SIZE ? size : MAX_PAGE_SIZE;
+    }
+}
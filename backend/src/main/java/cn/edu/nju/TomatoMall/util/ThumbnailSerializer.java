@@ -0,0 +1,47 @@
+package cn.edu.nju.TomatoMall.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * 输出 JSON 时将原图URL替换为签名的缩略图URL
+ * DTO 中保存原图URL（列表投影由 JPQL 构造器创建，无法注入 ImageUrls），
+ * 序列化器由 Spring 的 Jackson 配置实例化并注入签名密钥
+ */
+public abstract class ThumbnailSerializer extends JsonSerializer<String> {
+    private final ImageUrls imageUrls;
+    private final int width;
+    private final int height;
+
+    protected ThumbnailSerializer(ImageUrls imageUrls, int width, int height) {
+        this.imageUrls = imageUrls;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public void serialize(String url, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeString(imageUrls.thumbnail(url, width, height));
+    }
+
+    /**
+     * 商品列表封面
+     */
+    public static class ListCover extends ThumbnailSerializer {
+        public ListCover(ImageUrls imageUrls) {
+            super(imageUrls, ImageUrls.LIST_COVER_SIZE, ImageUrls.LIST_COVER_SIZE);
+        }
+    }
+
+    /**
+     * 广告横幅
+     */
+    public static class AdBanner extends ThumbnailSerializer {
+        public AdBanner(ImageUrls imageUrls) {
+            super(imageUrls, ImageUrls.AD_BANNER_WIDTH, 0);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package cn.edu.nju.TomatoMall.util.storage;
+
+import cn.edu.nju.TomatoMall.exception.TomatoMallException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 本地文件系统存储后端，用于本地运行与压测，无需云账号
+ * 文件由 FileController 在 {publicPath}/** 下提供访问
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+    private final Path root;
+    private final String publicPath;
+
+    public LocalStorageBackend(@Value("${app.storage.local.root:${java.io.tmpdir}/tomatomall-storage}") String root,
+                               @Value("${app.storage.local.public-path:/files}") String publicPath) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.publicPath = publicPath;
+        Files.createDirectories(this.root);
+    }
+
+    @Override
+    public String put(String objectName, InputStream inputStream, long contentLength, String contentType) {
+        Path target = resolve(objectName);
+        try {
+            Files.createDirectories(target.getParent());
+            // 先写临时文件再原子改名，避免读到写了一半的文件
+            Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+            try {
+                Files.copy(inputStream, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.warn("本地存储写入失败: {}", e.getMessage());
+            throw TomatoMallException.fileUploadFail();
+        }
+        return publicPath + "/" + objectName;
+    }
+
+    @Override
+    public InputStream get(String url) {
+        Path path = resolveUrl(url);
+        try {
+            return path == null ? null : Files.newInputStream(path);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void delete(String url) {
+        Path path = resolveUrl(url);
+        try {
+            if (path != null) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            log.warn("本地存储删除失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 将对象名解析为本地路径，拒绝越出根目录的路径
+     *
+     * @return 本地路径，非法对象名返回 null
+     */
+    public Path resolveObject(String objectName) {
+        Path path = root.resolve(objectName).normalize();
+        return path.startsWith(root) && !path.equals(root) ? path : null;
+    }
+
+    public String getPublicPath() {
+        return publicPath;
+    }
+
+    private Path resolve(String objectName) {
+        Path path = resolveObject(objectName);
+        if (path == null) {
+            throw TomatoMallException.invalidParameter("非法文件名");
+        }
+        return path;
+    }
+
+    private Path resolveUrl(String url) {
+        if (url == null || !url.startsWith(publicPath + "/")) {
+            return null;
+        }
+        return resolveObject(url.substring(publicPath.length() + 1));
+    }
+}
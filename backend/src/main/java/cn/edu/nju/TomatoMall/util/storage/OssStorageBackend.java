@@ -0,0 +1,104 @@
+package cn.edu.nju.TomatoMall.util.storage;
+
+import cn.edu.nju.TomatoMall.exception.TomatoMallException;
+import com.aliyun.oss.ClientBuilderConfiguration;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.OSSClientBuilder;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PutObjectRequest;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * 阿里云 OSS 存储后端
+ * 整个应用共享一个长连接客户端（内部维护 HTTP 连接池），首次使用时创建，应用关闭时释放
+ */
+@Slf4j
+@Component
+@Getter
+@Setter
+@ConfigurationProperties("aliyun.oss")
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "oss", matchIfMissing = true)
+public class OssStorageBackend implements StorageBackend {
+    private String endpoint;
+    private String accessKeyId;
+    private String accessKeySecret;
+    private String bucketName;
+    // 客户端连接池大小
+    private int maxConnections = 128;
+
+    private volatile OSS ossClient;
+
+    @Override
+    public String put(String objectName, InputStream inputStream, long contentLength, String contentType) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        if (contentLength >= 0) {
+            // 指定长度后 SDK 直接按长度流式发送，不再缓冲整个对象
+            metadata.setContentLength(contentLength);
+        }
+        if (contentType != null) {
+            metadata.setContentType(contentType);
+        }
+        try {
+            client().putObject(new PutObjectRequest(bucketName, objectName, inputStream, metadata));
+        } catch (Exception e) {
+            log.warn("OSS 上传失败: {}", e.getMessage());
+            throw TomatoMallException.fileUploadFail();
+        }
+        return "https://" + bucketName + "." + endpoint + "/" + objectName;
+    }
+
+    @Override
+    public InputStream get(String url) {
+        try {
+            return client().getObject(bucketName, objectName(url)).getObjectContent();
+        } catch (Exception e) {
+            log.warn("OSS 读取失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void delete(String url) {
+        try {
+            client().deleteObject(bucketName, objectName(url));
+        } catch (Exception e) {
+            log.warn("OSS 删除失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ossClient != null) {
+            ossClient.shutdown();
+        }
+    }
+
+    private OSS client() {
+        OSS client = ossClient;
+        if (client == null) {
+            synchronized (this) {
+                client = ossClient;
+                if (client == null) {
+                    ClientBuilderConfiguration configuration = new ClientBuilderConfiguration();
+                    configuration.setMaxConnections(maxConnections);
+                    client = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret, configuration);
+                    ossClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private String objectName(String url) throws Exception {
+        return new URI(url).getPath().substring(1);
+    }
+}
@@ -0,0 +1,35 @@
+package cn.edu.nju.TomatoMall.util.storage;
+
+import java.io.InputStream;
+
+/**
+ * 对象存储后端
+ * 由 app.storage.type 选择实现：oss（默认，阿里云 OSS）或 local（本地文件系统）
+ */
+public interface StorageBackend {
+    /**
+     * 流式写入对象
+     *
+     * @param objectName    对象名（相对路径）
+     * @param inputStream   数据流，由调用方关闭
+     * @param contentLength 数据长度，未知时传 -1
+     * @param contentType   内容类型，可为 null
+     * @return 对象的访问URL
+     */
+    String put(String objectName, InputStream inputStream, long contentLength, String contentType);
+
+    /**
+     * 打开对象数据流，调用方负责关闭
+     *
+     * @param url 对象的访问URL
+     * @return 数据流
+     */
+    InputStream get(String url);
+
+    /**
+     * 删除对象，对象不存在时忽略
+     *
+     * @param url 对象的访问URL
+     */
+    void delete(String url);
+}
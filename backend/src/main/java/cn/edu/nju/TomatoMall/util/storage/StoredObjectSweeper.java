@@ -0,0 +1,106 @@
+package cn.edu.nju.TomatoMall.util.storage;
+
+import cn.edu.nju.TomatoMall.models.po.StoredObject;
+import cn.edu.nju.TomatoMall.repository.StoredObjectRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定期删除引用计数归零的存储对象
+ * 计数归零后保留一段宽限期，期间重新上传相同内容可直接复用
+ */
+@Slf4j
+@Component
+public class StoredObjectSweeper {
+    private static final int BATCH_SIZE = 100;
+
+    private final StoredObjectRepository storedObjectRepository;
+    private final StorageBackend storageBackend;
+    private final TransactionTemplate transactionTemplate;
+    private final long intervalMinutes;
+    private final long graceMinutes;
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public StoredObjectSweeper(StoredObjectRepository storedObjectRepository,
+                               StorageBackend storageBackend,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${app.storage.sweep.interval-minutes:10}") long intervalMinutes,
+                               @Value("${app.storage.sweep.grace-minutes:30}") long graceMinutes) {
+        this.storedObjectRepository = storedObjectRepository;
+        this.storageBackend = storageBackend;
+        this.transactionTemplate = transactionTemplate;
+        this.intervalMinutes = intervalMinutes;
+        this.graceMinutes = graceMinutes;
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stored-object-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweepSafely, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 清理一轮，返回删除的对象数
+     */
+    public int sweep() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(graceMinutes);
+        int deleted = 0;
+        List<String> hashes;
+        do {
+            hashes = storedObjectRepository.findUnreferenced(before, PageRequest.of(0, BATCH_SIZE));
+            for (String hash : hashes) {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> delete(hash)))) {
+                    deleted++;
+                }
+            }
+        } while (hashes.size() == BATCH_SIZE);
+        return deleted;
+    }
+
+    /**
+     * 锁定索引行后再删除对象：并发的上传会在该行上等待，提交后发现索引已不存在而重新上传
+     */
+    private boolean delete(String hash) {
+        StoredObject object = storedObjectRepository.findByHashWithLock(hash).orElse(null);
+        if (object == null || object.getRefCount() > 0) {
+            return false;
+        }
+        storageBackend.delete(object.getUrl());
+        storedObjectRepository.delete(object);
+        return true;
+    }
+
+    private void sweepSafely() {
+        try {
+            int deleted = sweep();
+            if (deleted > 0) {
+                log.info("已清理 {} 个无引用的存储对象", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("存储对象清理失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package cn.edu.nju.TomatoMall.websocket;
+
+import cn.edu.nju.TomatoMall.websocket.type.OverflowPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * 单个 WebSocket 会话的有界发送队列
+ * 调用方只入队、不等待网络写出，由 I/O 线程池逐个会话发送；同一会话同时至多有一个发送任务，
+ * 既保证消息顺序，也无需再对会话加锁。队列满时按 OverflowPolicy 丢弃最早的消息或断开连接
+ */
+final class SessionSender {
+    // 一次发送任务最多连续发送的消息数，之后重新排队，避免积压的会话长期占用线程
+    private static final int MAX_BATCH = 64;
+
+    private static final class Outbound {
+        final TextMessage message;
+        // 非 null 表示发送完此前的消息后以该状态关闭连接
+        final CloseStatus closeStatus;
+        final long enqueuedAt = System.nanoTime();
+
+        Outbound(TextMessage message, CloseStatus closeStatus) {
+            this.message = message;
+            this.closeStatus = closeStatus;
+        }
+    }
+
+    private final WebSocketSession session;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Executor executor;
+    private final Timer sendLatency;
+    private final Counter dropped;
+    private final BiConsumer<WebSocketSession, Exception> onFailure;
+
+    private final ArrayDeque<Outbound> queue = new ArrayDeque<>();
+    private boolean draining;
+    private boolean closed;
+
+    SessionSender(WebSocketSession session, int capacity, OverflowPolicy overflowPolicy, Executor executor,
+                  Timer sendLatency, Counter dropped, BiConsumer<WebSocketSession, Exception> onFailure) {
+        this.session = session;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.executor = executor;
+        this.sendLatency = sendLatency;
+        this.dropped = dropped;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * 消息入队，返回 false 表示连接已关闭或因消费过慢被断开
+     */
+    boolean send(TextMessage message) {
+        if (!session.isOpen()) {
+            return false;
+        }
+        return enqueue(new Outbound(message, null));
+    }
+
+    /**
+     * 发送完已入队的消息后关闭连接，此后不再接受新消息
+     */
+    void close(CloseStatus closeStatus) {
+        enqueue(new Outbound(null, closeStatus));
+    }
+
+    synchronized int depth() {
+        return queue.size();
+    }
+
+    private boolean enqueue(Outbound outbound) {
+        boolean accepted = true;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            if (outbound.closeStatus != null) {
+                closed = true;
+            } else if (queue.size() >= capacity) {
+                dropped.increment();
+                if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                    queue.pollFirst();
+                } else {
+                    // 积压的消息已无意义，清空后只保留关闭动作
+                    dropped.increment(queue.size());
+                    queue.clear();
+                    closed = true;
+                    accepted = false;
+                    outbound = new Outbound(null, CloseStatus.SESSION_NOT_RELIABLE.withReason("消息消费过慢"));
+                }
+            }
+            queue.addLast(outbound);
+            if (draining) {
+                return accepted;
+            }
+            draining = true;
+        }
+        schedule();
+        return accepted;
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // 线程池已关闭
+            synchronized (this) {
+                queue.clear();
+                draining = false;
+                closed = true;
+            }
+        }
+    }
+
+    private void drain() {
+        for (int i = 0; i < MAX_BATCH; i++) {
+            Outbound next;
+            synchronized (this) {
+                next = queue.pollFirst();
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                if (next.closeStatus != null) {
+                    session.close(next.closeStatus);
+                } else if (session.isOpen()) {
+                    session.sendMessage(next.message);
+                    sendLatency.record(System.nanoTime() - next.enqueuedAt, TimeUnit.NANOSECONDS);
+                }
+            } catch (Exception e) {
+                synchronized (this) {
+                    queue.clear();
+                    draining = false;
+                    closed = true;
+                }
+                onFailure.accept(session, e);
+                return;
+            }
+        }
+        schedule();
+    }
+}
@@ -2,10 +2,16 @@ package cn.edu.nju.TomatoMall.websocket;
 
 import cn.edu.nju.TomatoMall.models.po.User;
 import cn.edu.nju.TomatoMall.util.SecurityUtil;
+import cn.edu.nju.TomatoMall.websocket.type.BroadcastResult;
 import cn.edu.nju.TomatoMall.websocket.type.ConnectionInfo;
 import cn.edu.nju.TomatoMall.websocket.type.DisconnectReason;
+import cn.edu.nju.TomatoMall.websocket.type.OverflowPolicy;
 import cn.edu.nju.TomatoMall.websocket.type.TomatoMallWebSocketMessage;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,16 +19,26 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.net.URI;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 @Slf4j
 public class TomatoMallWebSocketHandler implements WebSocketHandler {
 
+    // 并行广播时单个子任务负责的连接数上限
+    private static final int BROADCAST_BATCH_SIZE = 2048;
+
     // 存储用户连接：userId -> Set<WebSocketSession>
     private static final ConcurrentHashMap<Integer, Set<WebSocketSession>> userSessions = new ConcurrentHashMap<>();
 
@@ -32,12 +48,18 @@ public class TomatoMallWebSocketHandler implements WebSocketHandler {
     // 存储连接信息：WebSocketSession -> ConnectionInfo（心跳管理）
     private static final ConcurrentHashMap<WebSocketSession, ConnectionInfo> connectionInfoMap = new ConcurrentHashMap<>();
 
+    // 存储发送队列：WebSocketSession -> SessionSender（异步发送）
+    private static final ConcurrentHashMap<WebSocketSession, SessionSender> sessionSenders = new ConcurrentHashMap<>();
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @Autowired
     private SecurityUtil securityUtil;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     // 配置参数
     @Value("${websocket.max-connections-per-user:5}")
     private int maxConnectionsPerUser;
@@ -48,6 +70,46 @@ public class TomatoMallWebSocketHandler implements WebSocketHandler {
     @Value("${websocket.heartbeat.max-miss:3}")
     private int maxHeartbeatMiss; // 最大心跳丢失次数
 
+    @Value("${websocket.send.queue-capacity:256}")
+    private int sendQueueCapacity; // 每个连接最多积压的未发送消息数
+
+    @Value("${websocket.send.overflow-policy:DROP_OLDEST}")
+    private OverflowPolicy overflowPolicy; // 队列满时的处理策略
+
+    @Value("${websocket.send.io-threads:4}")
+    private int sendThreads; // 写出消息的线程数
+
+    private ExecutorService sendExecutor;
+    private Timer sendLatency;
+    private Counter droppedMessages;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        sendExecutor = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "websocket-send-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        sendLatency = Timer.builder("websocket.send.latency")
+                .description("消息从入队到写出完成的耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        droppedMessages = Counter.builder("websocket.send.dropped")
+                .description("因发送队列已满被丢弃的消息数")
+                .tag("policy", overflowPolicy.name())
+                .register(meterRegistry);
+        Gauge.builder("websocket.send.queue.depth", sessionSenders,
+                        senders -> senders.values().stream().mapToInt(SessionSender::depth).sum())
+                .description("所有连接积压的未发送消息总数")
+                .register(meterRegistry);
+        Gauge.builder("websocket.send.queue.max", sessionSenders,
+                        senders -> senders.values().stream().mapToInt(SessionSender::depth).max().orElse(0))
+                .description("单个连接积压的未发送消息数最大值")
+                .register(meterRegistry);
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         try {
@@ -56,6 +118,8 @@ public class TomatoMallWebSocketHandler implements WebSocketHandler {
             if (user != null) {
                 // 检查连接数限制
                 if (checkConnectionLimit(user, session)) {
+                    sessionSenders.put(session, new SessionSender(session, sendQueueCapacity, overflowPolicy,
+                            sendExecutor, sendLatency, droppedMessages, this::handleSendFailure));
                     addUserSession(user, session);
 
                     // 创建连接信息用于心跳管理
@@ -159,15 +223,17 @@ public class TomatoMallWebSocketHandler implements WebSocketHandler {
     @Scheduled(fixedRate = 25000)
     public void sendHeartbeat() {
         int heartbeatCount = 0;
-        TomatoMallWebSocketMessage pingMessage = TomatoMallWebSocketMessage.ping();
+        TextMessage pingMessage = encodeQuietly(TomatoMallWebSocketMessage.ping());
+        if (pingMessage == null) {
+            return;
+        }
 
         for (WebSocketSession session : sessionUserMap.keySet()) {
             if (session.isOpen()) {
-                try {
-                    sendToSession(session, pingMessage);
+                if (enqueue(session, pingMessage)) {
                     heartbeatCount++;
-                } catch (Exception e) {
-                    log.warn("发送心跳失败: {}", e.getMessage());
+                } else {
+                    log.warn("发送心跳失败，会话: {}", session.getId());
                     // 标记心跳失败
                     ConnectionInfo info = connectionInfoMap.get(session);
                     if (info != null) {
@@ -206,19 +272,31 @@ public class TomatoMallWebSocketHandler implements WebSocketHandler {
         log.info("开始关闭WebSocket服务...");
 
         // 通知所有客户端服务即将关闭
-        TomatoMallWebSocketMessage shutdownMessage =
-                TomatoMallWebSocketMessage.serverShutdown("服务器即将重启，请稍后重连");
+        TextMessage shutdownMessage =
+                encodeQuietly(TomatoMallWebSocketMessage.serverShutdown("服务器即将重启，请稍后重连"));
 
         sessionUserMap.keySet().forEach(session -> {
             try {
-                sendToSession(session, shutdownMessage);
-                Thread.sleep(50); // 给客户端处理时间
-                session.close(CloseStatus.GOING_AWAY.withReason("服务器关闭"));
+                // 关闭动作排在通知之后，由发送线程依次执行
+                if (shutdownMessage != null) {
+                    enqueue(session, shutdownMessage);
+                }
+                closeSession(session, CloseStatus.GOING_AWAY.withReason("服务器关闭"));
             } catch (Exception e) {
                 log.error("关闭连接失败", e);
             }
         });
 
+        sendExecutor.shutdown();
+        try {
+            if (!sendExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                sendExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            sendExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
         log.info("WebSocket服务关闭完成");
     }
 
@@ -226,6 +304,44 @@ public class TomatoMallWebSocketHandler implements WebSocketHandler {
      * 发送消息给指定用户的所有连接
      */
     public int sendToUser(Integer userId, TomatoMallWebSocketMessage message) {
+        TextMessage encoded = encodeQuietly(message);
+        return encoded == null ? 0 : sendToUser(userId, encoded);
+    }
+
+    /**
+     * 批量发送消息给多个用户，消息只序列化一次
+     */
+    public int sendToUsers(List<Integer> userIds, TomatoMallWebSocketMessage message) {
+        TextMessage encoded = encodeQuietly(message);
+        if (encoded == null) {
+            return 0;
+        }
+        int totalSuccessCount = 0;
+        for (Integer userId : userIds) {
+            totalSuccessCount += sendToUser(userId, encoded);
+        }
+        log.debug("批量发送消息给 {} 个用户，成功发送到 {} 个连接", userIds.size(), totalSuccessCount);
+        return totalSuccessCount;
+    }
+
+    /**
+     * 广播消息给所有在线连接：消息只序列化一次，连接按批拆分后在 ForkJoin 线程池中并行入队
+     */
+    public BroadcastResult broadcastToAll(TomatoMallWebSocketMessage message) {
+        SessionSender[] senders = sessionSenders.values().toArray(new SessionSender[0]);
+        TextMessage encoded = encodeQuietly(message);
+        if (encoded == null) {
+            return new BroadcastResult(0, senders.length);
+        }
+        BroadcastResult result = ForkJoinPool.commonPool().invoke(new BroadcastTask(senders, 0, senders.length, encoded));
+        log.debug("广播消息完成，入队 {} 个连接，失败 {} 个", result.getDelivered(), result.getFailed());
+        return result;
+    }
+
+    /**
+     * 发送已序列化的消息给指定用户的所有连接
+     */
+    private int sendToUser(Integer userId, TextMessage message) {
         Set<WebSocketSession> sessions = userSessions.get(userId);
         if (sessions == null || sessions.isEmpty()) {
             log.debug("用户 {} 没有活跃连接", userId);
@@ -238,14 +354,8 @@ public class TomatoMallWebSocketHandler implements WebSocketHandler {
         while (iterator.hasNext()) {
             WebSocketSession session = iterator.next();
             if (session.isOpen()) {
-                try {
-                    sendToSession(session, message);
+                if (enqueue(session, message)) {
                     successCount++;
-                } catch (Exception e) {
-                    log.error("发送消息到会话失败，用户ID: {}", userId, e);
-                    // 移除失效连接
-                    iterator.remove();
-                    cleanupConnection(session);
                 }
             } else {
                 // 移除已关闭连接
@@ -263,25 +373,6 @@ public class TomatoMallWebSocketHandler implements WebSocketHandler {
         return successCount;
     }
 
-    /**
-     * 批量发送消息给多个用户
-     */
-    public int sendToUsers(List<Integer> userIds, TomatoMallWebSocketMessage message) {
-        int totalSuccessCount = 0;
-        for (Integer userId : userIds) {
-            totalSuccessCount += sendToUser(userId, message);
-        }
-        log.debug("批量发送消息给 {} 个用户，成功发送到 {} 个连接", userIds.size(), totalSuccessCount);
-        return totalSuccessCount;
-    }
-
-    /**
-     * 广播消息给所有在线用户
-     */
-    public int broadcastToAll(TomatoMallWebSocketMessage message) {
-        return sendToUsers(getOnlineUserIds(), message);
-    }
-
     /**
      * 检查用户是否在线
      */
@@ -336,7 +427,7 @@ public class TomatoMallWebSocketHandler implements WebSocketHandler {
             // 关闭最老的连接
             WebSocketSession oldestSession = existingSessions.iterator().next();
             sendToSession(oldestSession, TomatoMallWebSocketMessage.connectionLimit("连接数超限，已断开旧连接"));
-            oldestSession.close(CloseStatus.NORMAL.withReason("连接数超限"));
+            closeSession(oldestSession, CloseStatus.NORMAL.withReason("连接数超限"));
             cleanupConnection(oldestSession);
         }
         return true;
@@ -368,6 +459,7 @@ public class TomatoMallWebSocketHandler implements WebSocketHandler {
     private void cleanupConnection(WebSocketSession session) {
         User user = sessionUserMap.remove(session);
         connectionInfoMap.remove(session);
+        sessionSenders.remove(session);
 
         if (user != null) {
             Set<WebSocketSession> sessions = userSessions.get(user.getId());
@@ -391,14 +483,60 @@ public class TomatoMallWebSocketHandler implements WebSocketHandler {
     }
 
     /**
-     * 发送消息到指定会话
+     * 发送消息到指定会话：序列化后放入该会话的发送队列，不等待写出
+     *
+     * @return 是否已入队，连接已关闭或因消费过慢被断开时返回 false
      */
-    private void sendToSession(WebSocketSession session, Object message) throws IOException {
-        String jsonMessage = objectMapper.writeValueAsString(message);
-        synchronized (session) {
-            if (session.isOpen()) {
-                session.sendMessage(new TextMessage(jsonMessage));
-            }
+    private boolean sendToSession(WebSocketSession session, Object message) throws IOException {
+        return enqueue(session, encode(message));
+    }
+
+    /**
+     * 已序列化的消息放入指定会话的发送队列
+     */
+    private boolean enqueue(WebSocketSession session, TextMessage message) {
+        SessionSender sender = sessionSenders.get(session);
+        return sender != null && sender.send(message);
+    }
+
+    /**
+     * 序列化为 UTF-8 字节后构造 TextMessage，字符串与字节形式均已就绪，可在多个会话间共享
+     */
+    private TextMessage encode(Object message) throws IOException {
+        return new TextMessage(objectMapper.writeValueAsBytes(message));
+    }
+
+    private TextMessage encodeQuietly(Object message) {
+        try {
+            return encode(message);
+        } catch (IOException e) {
+            log.error("序列化WebSocket消息失败", e);
+            return null;
+        }
+    }
+
+    /**
+     * 发送完已入队的消息后关闭会话
+     */
+    private void closeSession(WebSocketSession session, CloseStatus closeStatus) throws IOException {
+        SessionSender sender = sessionSenders.get(session);
+        if (sender != null) {
+            sender.close(closeStatus);
+        } else {
+            session.close(closeStatus);
+        }
+    }
+
+    /**
+     * 发送线程写出失败时清理连接
+     */
+    private void handleSendFailure(WebSocketSession session, Exception e) {
+        log.warn("发送消息到会话失败: {}", e.getMessage());
+        handleDisconnect(session, DisconnectReason.CONNECTION_ERROR);
+        try {
+            session.close(CloseStatus.SERVER_ERROR);
+        } catch (IOException ignored) {
+            // 连接已不可用
         }
     }
 
@@ -488,4 +626,39 @@ public class TomatoMallWebSocketHandler implements WebSocketHandler {
                 break;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 广播子任务：连接数超过批大小时二分拆分，否则逐个入队并统计结果
+     */
+    private static final class BroadcastTask extends RecursiveTask<BroadcastResult> {
+        private final SessionSender[] senders;
+        private final int from;
+        private final int to;
+        private final TextMessage message;
+
+        BroadcastTask(SessionSender[] senders, int from, int to, TextMessage message) {
+            this.senders = senders;
+            this.from = from;
+            this.to = to;
+            this.message = message;
+        }
+
+        @Override
+        protected BroadcastResult compute() {
+            if (to - from > BROADCAST_BATCH_SIZE) {
+                int middle = (from + to) >>> 1;
+                BroadcastTask left = new BroadcastTask(senders, from, middle, message);
+                left.fork();
+                BroadcastResult right = new BroadcastTask(senders, middle, to, message).compute();
+                return left.join().merge(right);
+            }
+            int delivered = 0;
+            for (int i = from; i < to; i++) {
+                if (senders[i].send(message)) {
+                    delivered++;
+                }
+            }
+            return new BroadcastResult(delivered, to - from - delivered);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package cn.edu.nju.TomatoMall.websocket.type;
+
+import lombok.Getter;
+
+/**
+ * 一次广播的结果：delivered 为已放入发送队列的连接数，failed 为连接已关闭或因消费过慢被断开的连接数
+ */
+@Getter
+public class BroadcastResult {
+    private final int delivered;
+    private final int failed;
+
+    public BroadcastResult(int delivered, int failed) {
+        this.delivered = delivered;
+        this.failed = failed;
+    }
+
+    public BroadcastResult merge(BroadcastResult other) {
+        return new BroadcastResult(delivered + other.delivered, failed + other.failed);
+    }
+
+}
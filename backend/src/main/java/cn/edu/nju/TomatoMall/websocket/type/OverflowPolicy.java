@@ -0,0 +1,18 @@
+package cn.edu.nju.TomatoMall.websocket.type;
+
+import lombok.Getter;
+
+/**
+ * 会话发送队列已满时的处理方式
+ */
+@Getter
+public enum OverflowPolicy {
+    DROP_OLDEST("丢弃最早的未发送消息"),
+    DISCONNECT("断开消费过慢的连接");
+
+    private final String description;
+
+    OverflowPolicy(String description) {
+        this.description = description;
+    }
+}
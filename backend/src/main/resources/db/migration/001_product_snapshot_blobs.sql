@@ -0,0 +1,66 @@
+-- 商品快照内容块化迁移（MySQL 8）
+-- 需在部署新版本前执行：将快照的描述、图片、规格迁移为按 SHA-256 共享的内容块
+-- 旧列与旧集合表在确认迁移结果后可手动删除（见文件末尾）
+
+CREATE TABLE IF NOT EXISTS snapshot_blobs (
+    hash    VARCHAR(64) NOT NULL PRIMARY KEY,
+    content LONGTEXT    NOT NULL
+);
+
+ALTER TABLE product_snapshots
+    ADD COLUMN cover_url           VARCHAR(1024) NULL,
+    ADD COLUMN description_hash    VARCHAR(64)   NULL,
+    ADD COLUMN images_hash         VARCHAR(64)   NULL,
+    ADD COLUMN specifications_hash VARCHAR(64)   NULL;
+
+-- 描述
+INSERT IGNORE INTO snapshot_blobs (hash, content)
+SELECT SHA2(description, 256), description FROM product_snapshots;
+
+UPDATE product_snapshots SET description_hash = SHA2(description, 256);
+
+-- 图片列表（JSON 数组）
+CREATE TEMPORARY TABLE tmp_snapshot_images AS
+SELECT s.id AS snapshot_id,
+       COALESCE((SELECT JSON_ARRAYAGG(i.images) FROM product_snapshot_images i WHERE i.product_snapshot_id = s.id),
+                JSON_ARRAY()) AS content
+FROM product_snapshots s;
+
+INSERT IGNORE INTO snapshot_blobs (hash, content)
+SELECT SHA2(CAST(content AS CHAR), 256), CAST(content AS CHAR) FROM tmp_snapshot_images;
+
+UPDATE product_snapshots s JOIN tmp_snapshot_images t ON t.snapshot_id = s.id
+SET s.images_hash = SHA2(CAST(t.content AS CHAR), 256),
+    s.cover_url   = JSON_UNQUOTE(JSON_EXTRACT(t.content, '$[0]'));
+
+DROP TEMPORARY TABLE tmp_snapshot_images;
+
+-- 规格（JSON 对象，MySQL 按键排序存储）
+CREATE TEMPORARY TABLE tmp_snapshot_specifications AS
+SELECT s.id AS snapshot_id,
+       COALESCE((SELECT JSON_OBJECTAGG(sp.specifications_key, sp.specifications)
+                 FROM product_snapshot_specifications sp WHERE sp.product_snapshot_id = s.id),
+                JSON_OBJECT()) AS content
+FROM product_snapshots s;
+
+INSERT IGNORE INTO snapshot_blobs (hash, content)
+SELECT SHA2(CAST(content AS CHAR), 256), CAST(content AS CHAR) FROM tmp_snapshot_specifications;
+
+UPDATE product_snapshots s JOIN tmp_snapshot_specifications t ON t.snapshot_id = s.id
+SET s.specifications_hash = SHA2(CAST(t.content AS CHAR), 256);
+
+DROP TEMPORARY TABLE tmp_snapshot_specifications;
+
+ALTER TABLE product_snapshots
+    MODIFY description_hash    VARCHAR(64) NOT NULL,
+    MODIFY images_hash         VARCHAR(64) NOT NULL,
+    MODIFY specifications_hash VARCHAR(64) NOT NULL,
+    MODIFY description         LONGTEXT    NULL,
+    ADD CONSTRAINT fk_product_snapshots_description    FOREIGN KEY (description_hash)    REFERENCES snapshot_blobs (hash),
+    ADD CONSTRAINT fk_product_snapshots_images         FOREIGN KEY (images_hash)         REFERENCES snapshot_blobs (hash),
+    ADD CONSTRAINT fk_product_snapshots_specifications FOREIGN KEY (specifications_hash) REFERENCES snapshot_blobs (hash);
+
+-- 确认无误后清理旧数据：
+-- ALTER TABLE product_snapshots DROP COLUMN description;
+-- DROP TABLE product_snapshot_images;
+-- DROP TABLE product_snapshot_specifications;
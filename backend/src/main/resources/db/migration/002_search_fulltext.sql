@@ -0,0 +1,14 @@
+-- 全文检索搜索后端所需的 FULLTEXT 索引（MySQL 8，ngram 分词）
+-- 仅在 app.search.backend=fulltext 时需要执行；索引缺失时搜索回退为 LIKE 模糊查询
+-- ngram 分词长度由服务端参数 ngram_token_size 决定（默认 2），短于该长度的关键词无法通过全文索引检索
+-- 大表建索引耗时较长，建议在低峰期执行
+
+ALTER TABLE products
+    ADD FULLTEXT INDEX ft_products_name_description (name, description) WITH PARSER ngram;
+
+ALTER TABLE stores
+    ADD FULLTEXT INDEX ft_stores_name_description_address (name, description, address) WITH PARSER ngram;
+
+-- 回滚
+-- ALTER TABLE products DROP INDEX ft_products_name_description;
+-- ALTER TABLE stores DROP INDEX ft_stores_name_description_address;
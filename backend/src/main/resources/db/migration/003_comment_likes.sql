@@ -0,0 +1,16 @@
+-- 评论点赞改为 (comment_id, user_id) 主键的独立表，点赞数冗余到 comments.like_count
+-- 原 comment_likes 表由 @ElementCollection 生成，列名为 liked_user_ids，主键已是 (comment_id, liked_user_ids)
+-- 需在新版本启动前执行，否则 Hibernate 会先以 ddl-auto 补建空的 user_id 列
+
+ALTER TABLE comments
+    ADD COLUMN like_count INT NOT NULL DEFAULT 0;
+
+ALTER TABLE comment_likes
+    CHANGE liked_user_ids user_id INT NOT NULL;
+
+UPDATE comments c
+SET like_count = (SELECT COUNT(*) FROM comment_likes l WHERE l.comment_id = c.id);
+
+-- 回滚
+-- ALTER TABLE comment_likes CHANGE user_id liked_user_ids INT NOT NULL;
+-- ALTER TABLE comments DROP COLUMN like_count;
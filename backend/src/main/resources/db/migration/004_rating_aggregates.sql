@@ -0,0 +1,41 @@
+-- 店铺、商品评分聚合表，评论创建、修改、删除时以增量更新，不再对全部评论求 AVG
+-- 需在新版本启动前执行并回填，否则已有评分不会计入聚合
+
+CREATE TABLE rating_aggregates
+(
+    entity_type  VARCHAR(32) NOT NULL,
+    entity_id    INT         NOT NULL,
+    rating_sum   BIGINT      NOT NULL DEFAULT 0,
+    rating_count INT         NOT NULL DEFAULT 0,
+    count_1      INT         NOT NULL DEFAULT 0,
+    count_2      INT         NOT NULL DEFAULT 0,
+    count_3      INT         NOT NULL DEFAULT 0,
+    count_4      INT         NOT NULL DEFAULT 0,
+    count_5      INT         NOT NULL DEFAULT 0,
+    count_6      INT         NOT NULL DEFAULT 0,
+    count_7      INT         NOT NULL DEFAULT 0,
+    count_8      INT         NOT NULL DEFAULT 0,
+    count_9      INT         NOT NULL DEFAULT 0,
+    count_10     INT         NOT NULL DEFAULT 0,
+    PRIMARY KEY (entity_type, entity_id)
+);
+
+-- 以现有顶层评论的评分回填
+INSERT INTO rating_aggregates (entity_type, entity_id, rating_sum, rating_count, count_1, count_2, count_3, count_4, count_5, count_6, count_7, count_8, count_9, count_10)
+SELECT entity_type, entity_id, SUM(rating), COUNT(*),
+       SUM(rating = 1),
+       SUM(rating = 2),
+       SUM(rating = 3),
+       SUM(rating = 4),
+       SUM(rating = 5),
+       SUM(rating = 6),
+       SUM(rating = 7),
+       SUM(rating = 8),
+       SUM(rating = 9),
+       SUM(rating = 10)
+FROM comments
+WHERE rating IS NOT NULL AND parent_id IS NULL
+GROUP BY entity_type, entity_id;
+
+-- 回滚
+-- DROP TABLE rating_aggregates;
@@ -0,0 +1,23 @@
+-- 评论物化路径：从顶层评论到本评论的ID序列（如 /12/45/78/），删除时按前缀一次取得整棵子树
+-- 需在新版本启动前执行并回填，路径为空的评论删除时不会连带其回复
+
+ALTER TABLE comments
+    ADD COLUMN path VARCHAR(512) NULL,
+    ADD INDEX idx_comments_path (path);
+
+-- 自顶层评论递归回填
+WITH RECURSIVE tree (id, path) AS (
+    SELECT id, CAST(CONCAT('/', id, '/') AS CHAR(512))
+    FROM comments
+    WHERE parent_id IS NULL
+    UNION ALL
+    SELECT c.id, CONCAT(t.path, c.id, '/')
+    FROM comments c
+             JOIN tree t ON c.parent_id = t.id
+)
+UPDATE comments c
+    JOIN tree t ON c.id = t.id
+SET c.path = t.path;
+
+-- 回滚
+-- ALTER TABLE comments DROP INDEX idx_comments_path, DROP COLUMN path;
@@ -0,0 +1,14 @@
+-- 热门评论榜快照，entries 为每条评论 16 字节的紧凑编码（评论ID、点赞数、发表时间）
+-- 表为空时榜单在首次访问时从 comments 重建，无需回填
+
+CREATE TABLE comment_rankings
+(
+    entity_type VARCHAR(32) NOT NULL,
+    entity_id   INT         NOT NULL,
+    entries     LONGBLOB    NOT NULL,
+    update_time DATETIME(6) NOT NULL,
+    PRIMARY KEY (entity_type, entity_id)
+);
+
+-- 回滚
+-- DROP TABLE comment_rankings;
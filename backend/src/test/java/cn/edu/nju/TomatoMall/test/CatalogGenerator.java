@@ -0,0 +1,353 @@
+package cn.edu.nju.TomatoMall.test;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 合成商品目录生成器，用于搜索性能基准
+ * 按类目生成带品牌、型号的中文商品名称、描述与规格，价格服从对数正态分布，销量服从 Zipf 分布（少数爆款占大部分销量），
+ * 以 JDBC 批处理写入店铺、商品、规格与库存，绕过业务接口
+ * 同一随机种子生成的目录相同，便于对比不同搜索后端
+ */
+public class CatalogGenerator {
+    private static final String[] CITIES = {"北京", "上海", "广州", "深圳", "杭州", "南京", "成都", "武汉", "西安", "苏州"};
+    private static final String[] DISTRICTS = {"朝阳区", "浦东新区", "天河区", "南山区", "西湖区", "鼓楼区", "锦江区", "洪山区"};
+    private static final String[] STORE_WORDS = {"优选", "旗舰", "专营", "百货", "精品", "严选", "直营", "工厂"};
+    private static final String[] SELLING_POINTS = {
+            "正品保障", "七天无理由退换", "顺丰包邮", "限时特惠", "品质之选", "官方授权", "新品上市", "爆款热卖"
+    };
+
+    private static final Category[] CATEGORIES = {
+            new Category("图书", 60,
+                    new String[]{"人民文学", "机械工业", "清华大学", "中信", "商务印书馆"},
+                    new String[]{"Java编程思想", "算法导论", "深入理解计算机系统", "三体", "红楼梦", "活着",
+                            "百年孤独", "数据结构", "机器学习", "Python编程从入门到实践", "经济学原理", "人类简史"},
+                    new String[]{"精装", "平装", "第2版", "典藏版", "中文版"},
+                    spec("装帧", "精装", "平装"), spec("语言", "中文", "英文")),
+            new Category("手机数码", 1800,
+                    new String[]{"华为", "小米", "苹果", "OPPO", "vivo", "荣耀"},
+                    new String[]{"智能手机", "平板电脑", "蓝牙耳机", "智能手表", "充电宝", "数据线", "移动硬盘"},
+                    new String[]{"Pro", "Max", "5G", "旗舰版", "青春版", "256GB"},
+                    spec("颜色", "黑色", "白色", "蓝色", "金色"), spec("存储", "128GB", "256GB", "512GB")),
+            new Category("家用电器", 900,
+                    new String[]{"美的", "格力", "海尔", "九阳", "戴森", "苏泊尔"},
+                    new String[]{"电饭煲", "空气炸锅", "吸尘器", "电风扇", "空调", "冰箱", "洗衣机", "豆浆机"},
+                    new String[]{"家用", "变频", "智能", "静音", "大容量", "迷你"},
+                    spec("功率", "800W", "1200W", "2000W"), spec("颜色", "白色", "灰色")),
+            new Category("服装鞋包", 150,
+                    new String[]{"优衣库", "李宁", "安踏", "耐克", "阿迪达斯", "波司登"},
+                    new String[]{"T恤", "衬衫", "羽绒服", "牛仔裤", "运动鞋", "双肩包", "卫衣", "连衣裙"},
+                    new String[]{"男款", "女款", "纯棉", "宽松", "修身", "加厚"},
+                    spec("尺码", "S", "M", "L", "XL"), spec("颜色", "黑色", "白色", "红色", "藏青")),
+            new Category("食品生鲜", 40,
+                    new String[]{"三只松鼠", "良品铺子", "蒙牛", "伊利", "农夫山泉", "褚橙"},
+                    new String[]{"番茄", "苹果", "坚果礼盒", "牛奶", "大米", "食用油", "茶叶", "咖啡", "橙子"},
+                    new String[]{"有机", "新鲜", "进口", "家庭装", "礼盒装", "500g"},
+                    spec("重量", "500g", "1kg", "2.5kg"), spec("产地", "云南", "新疆", "东北", "进口")),
+            new Category("美妆个护", 120,
+                    new String[]{"兰蔻", "雅诗兰黛", "欧莱雅", "百雀羚", "资生堂", "飞利浦"},
+                    new String[]{"面霜", "精华液", "洗发水", "沐浴露", "口红", "电动牙刷", "防晒霜"},
+                    new String[]{"保湿", "补水", "控油", "温和", "旅行装", "套装"},
+                    spec("容量", "50ml", "100ml", "400ml"), spec("肤质", "干性", "油性", "混合")),
+            new Category("运动户外", 260,
+                    new String[]{"迪卡侬", "凯乐石", "探路者", "斯伯丁", "李宁", "Keep"},
+                    new String[]{"瑜伽垫", "登山包", "帐篷", "篮球", "跑步机", "哑铃", "冲锋衣", "骑行头盔"},
+                    new String[]{"专业", "轻量", "防水", "加厚", "便携", "户外"},
+                    spec("颜色", "黑色", "绿色", "橙色"), spec("尺寸", "小号", "中号", "大号")),
+            new Category("母婴玩具", 180,
+                    new String[]{"乐高", "费雪", "好孩子", "花王", "贝亲", "巴拉巴拉"},
+                    new String[]{"积木", "纸尿裤", "婴儿推车", "奶瓶", "毛绒玩具", "遥控汽车", "拼图"},
+                    new String[]{"儿童", "益智", "安全", "大颗粒", "新生儿", "礼物"},
+                    spec("适用年龄", "0-1岁", "1-3岁", "3-6岁", "6岁以上"), spec("材质", "塑料", "棉", "木质"))
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random;
+    private final int batchSize;
+
+    public CatalogGenerator(JdbcTemplate jdbcTemplate, long seed, int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.random = new Random(seed);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 生成结果：新店铺与新商品的ID
+     */
+    public static final class Catalog {
+        private final List<Integer> storeIds;
+        private final List<Integer> productIds;
+
+        Catalog(List<Integer> storeIds, List<Integer> productIds) {
+            this.storeIds = storeIds;
+            this.productIds = productIds;
+        }
+
+        public List<Integer> getStoreIds() {
+            return storeIds;
+        }
+
+        public List<Integer> getProductIds() {
+            return productIds;
+        }
+    }
+
+    /**
+     * 生成 stores 个店铺与 products 个在售商品，商品均匀分布到各店铺
+     *
+     * @param managerId 店铺负责人，需为已存在的用户
+     */
+    public Catalog generate(int stores, int products, int managerId) {
+        List<Integer> storeIds = insertStores(stores, managerId);
+        List<Integer> productIds = new ArrayList<>(products);
+        int[] ranks = shuffledRanks(products);
+        for (int from = 0; from < products; from += batchSize) {
+            int to = Math.min(from + batchSize, products);
+            List<GeneratedProduct> batch = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                batch.add(randomProduct(storeIds.get(i % storeIds.size()), ranks[i]));
+            }
+            productIds.addAll(insertProducts(batch));
+        }
+        return new Catalog(storeIds, productIds);
+    }
+
+    /**
+     * 全部品名、品牌、修饰词与类目名，供查询负载按 Zipf 分布抽取关键词，排在前面的词被抽到的概率更高
+     */
+    public static List<String> vocabulary() {
+        List<String> words = new ArrayList<>();
+        for (Category category : CATEGORIES) {
+            words.addAll(Arrays.asList(category.nouns));
+        }
+        for (Category category : CATEGORIES) {
+            words.addAll(Arrays.asList(category.brands));
+        }
+        for (Category category : CATEGORIES) {
+            words.addAll(Arrays.asList(category.modifiers));
+        }
+        for (Category category : CATEGORIES) {
+            words.add(category.name);
+        }
+        return new ArrayList<>(new LinkedHashSet<>(words));
+    }
+
+    /**
+     * 品牌 + 品名的组合，供多词查询使用
+     */
+    public static List<String> brandedNouns() {
+        List<String> phrases = new ArrayList<>();
+        for (Category category : CATEGORIES) {
+            for (String brand : category.brands) {
+                phrases.add(brand + " " + category.nouns[0]);
+            }
+        }
+        return phrases;
+    }
+
+    /**
+     * 店铺名称与地址中使用的词
+     */
+    public static List<String> storeVocabulary() {
+        List<String> words = new ArrayList<>(Arrays.asList(CITIES));
+        words.addAll(Arrays.asList(STORE_WORDS));
+        words.addAll(Arrays.asList(DISTRICTS));
+        return words;
+    }
+
+    /**
+     * 可用于分面统计的规格键
+     */
+    public static List<String> specificationKeys() {
+        List<String> keys = new ArrayList<>();
+        for (Category category : CATEGORIES) {
+            for (Spec spec : category.specs) {
+                if (!keys.contains(spec.key)) {
+                    keys.add(spec.key);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private List<Integer> insertStores(int count, int managerId) {
+        String sql = "INSERT INTO stores (name, description, address, logo_url, create_time, status, rating, " +
+                "manager_id, is_system_store) VALUES (?, ?, ?, ?, ?, 'NORMAL', ?, ?, false)";
+        // 名称唯一，附加批次随机后缀避免与已有店铺或上次生成的店铺冲突
+        String suffix = Integer.toString(random.nextInt(Integer.MAX_VALUE), 36);
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Category category = pick(CATEGORIES);
+            String city = pick(CITIES);
+            String name = city + pick(category.brands) + pick(STORE_WORDS) + "店" + suffix + "-" + i;
+            String description = "主营" + category.name + "，" + pick(SELLING_POINTS) + "，" + pick(SELLING_POINTS);
+            String address = city + "市" + pick(DISTRICTS) + (1 + random.nextInt(999)) + "号";
+            rows.add(new Object[]{name, description, address, "", Timestamp.valueOf(randomTime()),
+                    BigDecimal.valueOf(30 + random.nextInt(21), 1), managerId});
+        }
+        return insertReturningKeys(sql, rows);
+    }
+
+    private List<Integer> insertProducts(List<GeneratedProduct> batch) {
+        String sql = "INSERT INTO products (name, description, price, rating, sales, create_time, store_id, on_sale, " +
+                "inventory_status, cover_url, summary) VALUES (?, ?, ?, ?, ?, ?, ?, true, 0, '', ?)";
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (GeneratedProduct product : batch) {
+            rows.add(new Object[]{product.name, product.description, product.price, product.rating, product.sales,
+                    Timestamp.valueOf(product.createTime), product.storeId,
+                    product.description.substring(0, Math.min(product.description.length(), 50))});
+        }
+        List<Integer> ids = insertReturningKeys(sql, rows);
+
+        List<Object[]> specifications = new ArrayList<>();
+        List<Object[]> inventories = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            for (Map.Entry<String, String> entry : batch.get(i).specifications.entrySet()) {
+                specifications.add(new Object[]{ids.get(i), entry.getKey(), entry.getValue()});
+            }
+            inventories.add(new Object[]{ids.get(i), 100 + random.nextInt(900), 10});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO product_specifications (product_id, specifications_key, specifications) " +
+                "VALUES (?, ?, ?)", specifications);
+        jdbcTemplate.batchUpdate("INSERT INTO inventories (product_id, quantity, version, locked_quantity, " +
+                "threshold_quantity) VALUES (?, ?, 0, 0, ?)", inventories);
+        return ids;
+    }
+
+    private List<Integer> insertReturningKeys(String sql, List<Object[]> rows) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+            List<Integer> ids = new ArrayList<>(rows.size());
+            try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (Object[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        ps.setObject(i + 1, row[i]);
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getInt(1));
+                    }
+                }
+            }
+            if (ids.size() != rows.size()) {
+                throw new IllegalStateException("批量插入返回的主键数量不匹配");
+            }
+            return ids;
+        });
+    }
+
+    private GeneratedProduct randomProduct(int storeId, int salesRank) {
+        Category category = pick(CATEGORIES);
+        String brand = pick(category.brands);
+        String noun = pick(category.nouns);
+        String modifier = pick(category.modifiers);
+        GeneratedProduct product = new GeneratedProduct();
+        product.storeId = storeId;
+        product.name = brand + " " + modifier + noun + (random.nextInt(3) == 0 ? " " + randomModel() : "");
+        product.description = category.name + "类商品，" + brand + "出品的" + modifier + noun + "。"
+                + pick(SELLING_POINTS) + "，" + pick(SELLING_POINTS) + "。"
+                + pick(category.modifiers) + "设计，适合" + pick(CITIES) + "等地用户。";
+        // 价格服从以类目基准价为中位数的对数正态分布
+        double price = category.basePrice * Math.exp(random.nextGaussian() * 0.6);
+        product.price = BigDecimal.valueOf(Math.max(price, 0.99)).setScale(2, RoundingMode.HALF_UP);
+        product.rating = BigDecimal.valueOf(30 + random.nextInt(21), 1);
+        // Zipf 分布：第 k 名的销量约为首名的 1/k
+        product.sales = (int) (100000 / Math.pow(salesRank, 1.07));
+        product.createTime = randomTime();
+        product.specifications = new LinkedHashMap<>();
+        for (Spec spec : category.specs) {
+            product.specifications.put(spec.key, pick(spec.values));
+        }
+        return product;
+    }
+
+    private String randomModel() {
+        return (char) ('A' + random.nextInt(26)) + Integer.toString(100 + random.nextInt(900));
+    }
+
+    private LocalDateTime randomTime() {
+        return LocalDateTime.now().minusMinutes(random.nextInt(365 * 24 * 60));
+    }
+
+    /**
+     * 1..n 的随机排列，作为各商品的销量排名
+     */
+    private int[] shuffledRanks(int n) {
+        int[] ranks = new int[n];
+        for (int i = 0; i < n; i++) {
+            ranks[i] = i + 1;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ranks[i];
+            ranks[i] = ranks[j];
+            ranks[j] = swap;
+        }
+        return ranks;
+    }
+
+    private <T> T pick(T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static Spec spec(String key, String... values) {
+        return new Spec(key, values);
+    }
+
+    private static final class Category {
+        final String name;
+        final double basePrice;
+        final String[] brands;
+        final String[] nouns;
+        final String[] modifiers;
+        final List<Spec> specs;
+
+        Category(String name, double basePrice, String[] brands, String[] nouns, String[] modifiers, Spec... specs) {
+            this.name = name;
+            this.basePrice = basePrice;
+            this.brands = brands;
+            this.nouns = nouns;
+            this.modifiers = modifiers;
+            this.specs = Collections.unmodifiableList(Arrays.asList(specs));
+        }
+    }
+
+    private static final class Spec {
+        final String key;
+        final String[] values;
+
+        Spec(String key, String[] values) {
+            this.key = key;
+            this.values = values;
+        }
+    }
+
+    private static final class GeneratedProduct {
+        int storeId;
+        String name;
+        String description;
+        BigDecimal price;
+        BigDecimal rating;
+        int sales;
+        LocalDateTime createTime;
+        Map<String, String> specifications;
+    }
+}
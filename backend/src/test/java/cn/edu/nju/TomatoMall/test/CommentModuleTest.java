@@ -2,12 +2,18 @@ package cn.edu.nju.TomatoMall.test;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.var;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.annotation.Commit;
 import org.springframework.test.web.servlet.MvcResult;
 
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.Statement;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -24,6 +30,9 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class CommentModuleTest extends BaseIntegrationTest {
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private Long testStoreId;
     private Long testProductId;
     private String storeManagerToken;
@@ -648,6 +657,8 @@ public class CommentModuleTest extends BaseIntegrationTest {
 
         assertNotNullWithDebug(likedComment, "被点赞的评论", "点赞评论查找验证");
         assertEqualsWithDebug(1, likedComment.get("likes").asInt(), "点赞数", "点赞数量验证");
+        assertTrueWithDebug(likedComment.get("liked").asBoolean(), "当前用户已点赞", "点赞状态验证");
+        assertEqualsWithDebug(1, likedComment.get("replyCount").asInt(), "回复数", "回复数量验证");
 
         // 再次点赞应该取消点赞
         logInfo("再次点赞取消点赞");
@@ -846,6 +857,13 @@ public class CommentModuleTest extends BaseIntegrationTest {
         assertTrueWithDebug(finalRating >= 8.0 && finalRating <= 9.0,
                 "商品最终平均评分应在8.0-9.0之间", "最终平均评分验证");
 
+        // 验证评分分布（9、6、10 分各一条）
+        JsonNode distribution = finalProductData.get("ratingDistribution");
+        assertEqualsWithDebug(10, distribution.size(), "评分分布长度", "评分分布格式验证");
+        assertEqualsWithDebug(1, distribution.get(5).asInt(), "6分评论数", "评分分布验证");
+        assertEqualsWithDebug(1, distribution.get(8).asInt(), "9分评论数", "评分分布验证");
+        assertEqualsWithDebug(1, distribution.get(9).asInt(), "10分评论数", "评分分布验证");
+
         logTestEnd("测试评分计算", true);
     }
 
@@ -936,6 +954,9 @@ public class CommentModuleTest extends BaseIntegrationTest {
 
         // 验证二级回复
         verifyRecordCountWithDebug("comments", "parent_id = " + replyCommentId, 1, "二级回复记录验证");
+        verifyRecordCountWithDebug("comments",
+                "parent_id = " + replyCommentId + " AND path LIKE '/" + commentId + "/" + replyCommentId + "/%'",
+                1, "二级回复物化路径验证");
 
         logTestEnd("测试回复评论的回复", true);
     }
@@ -1000,6 +1021,7 @@ public class CommentModuleTest extends BaseIntegrationTest {
 
         // 验证评论已删除
         verifyRecordCountWithDebug("comments", "id = " + commentId, 0, "评论删除验证");
+        verifyRecordCountWithDebug("comments", "path LIKE '/" + commentId + "/%'", 0, "评论回复连带删除验证");
 
         // 验证商品评分重新计算（删除9分评论后，剩余6分和10分，平均8分）
         waitFor(1000); // 等待评分重新计算
@@ -1016,6 +1038,8 @@ public class CommentModuleTest extends BaseIntegrationTest {
         logInfo("删除评论后重新计算的评分: " + recalculatedRating);
         assertTrueWithDebug(recalculatedRating >= 7.0 && recalculatedRating <= 9.0,
                 "删除评论后商品评分应重新计算", "删除后评分重新计算验证");
+        assertEqualsWithDebug(0, productData.get("ratingDistribution").get(8).asInt(),
+                "删除后9分评论数", "删除后评分分布验证");
 
         logTestEnd("测试评论删除权限", true);
     }
@@ -1083,6 +1107,91 @@ public class CommentModuleTest extends BaseIntegrationTest {
         logTestEnd("测试评论参数验证", true);
     }
 
+    @Test
+    @Order(17)
+    @DisplayName("评论分页查询次数与页内评论数无关")
+    @Commit
+    void testCommentPageQueryCount() throws Exception {
+        logTestStart("评论分页查询次数", "比较只含一条评论与含多条评论的分页所执行的SQL语句数");
+
+        checkPreconditions("评论分页查询次数",
+                "customerToken", customerToken,
+                "testProductId", testProductId);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            // 预热，排除登录用户缓存等一次性查询
+            countCommentPageStatements(statistics, 10);
+
+            long singleStatements = countCommentPageStatements(statistics, 1);
+            long fullStatements = countCommentPageStatements(statistics, 10);
+            logInfo("一条评论的分页执行 " + singleStatements + " 条语句，多条评论的分页执行 " + fullStatements + " 条语句");
+
+            assertEqualsWithDebug(singleStatements, fullStatements, "每页SQL语句数", "评论分页批量加载验证");
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        logTestEnd("评论分页查询次数", true);
+    }
+
+    @Test
+    @Order(18)
+    @DisplayName("热门评论按点赞数与发表时间排序")
+    @Commit
+    void testHotComments() throws Exception {
+        logTestStart("热门评论", "点赞后评论应进入热门评论榜首位");
+
+        checkPreconditions("热门评论",
+                "anotherCustomerToken", anotherCustomerToken,
+                "testProductId", testProductId);
+
+        JsonNode hotComments = getHotComments();
+        assertTrueWithDebug(hotComments.size() > 1, "热门评论应含多条评论", "热门评论数量验证");
+
+        // 未点赞时按发表时间排序，给排在最后的评论点赞后应升至首位
+        long lastCommentId = hotComments.get(hotComments.size() - 1).get("id").asLong();
+        logInfo("点赞热门评论榜末位评论ID: " + lastCommentId);
+        executeRequest(
+                authenticatedPost("/api/comments/" + lastCommentId + "/like", anotherCustomerToken),
+                200, "点赞榜末评论"
+        );
+
+        hotComments = getHotComments();
+        assertEqualsWithDebug(lastCommentId, hotComments.get(0).get("id").asLong(), "热门评论首位", "点赞后排序验证");
+        assertTrueWithDebug(hotComments.get(0).get("liked").asBoolean(), "当前用户已点赞", "热门评论点赞状态验证");
+
+        logTestEnd("热门评论", true);
+    }
+
+    private JsonNode getHotComments() throws Exception {
+        MvcResult result = executeRequest(
+                authenticatedGet("/api/comments/product/" + testProductId + "/hot", anotherCustomerToken)
+                        .param("size", "10"),
+                200, "获取热门评论"
+        );
+        return extractDataFromResponse(verifyApiSuccessResponse(result, "获取热门评论响应验证"), "获取热门评论");
+    }
+
+    private long countCommentPageStatements(Statistics statistics, int size) throws Exception {
+        statistics.clear();
+        MvcResult result = executeRequest(
+                authenticatedGet("/api/comments/product/" + testProductId, customerToken)
+                        .param("page", "0")
+                        .param("size", String.valueOf(size))
+                        .param("field", "createTime")
+                        .param("order", "false"),
+                200, "获取评论分页（size=" + size + "）"
+        );
+        JsonNode data = extractDataFromResponse(verifyApiSuccessResponse(result, "评论分页响应验证"), "评论分页");
+        JsonNode comments = verifyPageResponse(data, "评论分页验证");
+        if (size > 1) {
+            assertTrueWithDebug(comments.size() > 1, "分页应含多条评论", "评论分页数据验证");
+        }
+        return statistics.getPrepareStatementCount();
+    }
+
     @Test
     @Order(19)
     @DisplayName("测试管理员删除不当评论")
@@ -1182,6 +1291,71 @@ public class CommentModuleTest extends BaseIntegrationTest {
         logTestEnd("测试重复评论限制", true);
     }
 
+    @Test
+    @Order(21)
+    @DisplayName("测试删除未回填路径的历史评论")
+    @Commit
+    void testDeleteLegacyCommentWithoutPath() throws Exception {
+        logTestStart("测试删除未回填路径的历史评论", "物化路径为空的评论可以回复，删除时连带回复并只扣减一次评分");
+
+        checkPreconditions("测试删除未回填路径的历史评论",
+                "customerToken", customerToken,
+                "testProductId", testProductId);
+
+        MvcResult commentsResult = executeRequest(
+                authenticatedGet("/api/comments/product/" + testProductId, customerToken)
+                        .param("page", "0")
+                        .param("size", "20")
+                        .param("field", "createTime")
+                        .param("order", "false"),
+                200, "获取评论列表查找待删除评论"
+        );
+        JsonNode comments = verifyPageResponse(extractDataFromResponse(
+                verifyApiSuccessResponse(commentsResult, "获取评论列表响应验证"), "获取评论列表"), "评论列表分页验证");
+        Long legacyCommentId = null;
+        for (JsonNode comment : comments) {
+            if ("第一次评论，应该成功".equals(comment.get("content").asText())) {
+                legacyCommentId = comment.get("id").asLong();
+                break;
+            }
+        }
+        assertNotNullWithDebug(legacyCommentId, "待删除评论ID", "历史评论查找验证");
+
+        // 模拟迁移脚本执行前写入的评论
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE comments SET path = NULL WHERE id = " + legacyCommentId);
+            connection.commit();
+        }
+
+        executeRequest(
+                authenticatedPost("/api/comments/" + legacyCommentId + "/reply", customerToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(TestDataBuilder.createCommentRequest("补充说明", null))),
+                200, "回复历史评论"
+        );
+        verifyRecordCountWithDebug("comments", "parent_id = " + legacyCommentId, 1, "历史评论回复验证");
+
+        JsonNode before = extractDataFromResponse(verifyApiSuccessResponse(
+                executeRequest(get("/api/products/" + testProductId), 200, "删除前商品评分"), "删除前商品评分"), "删除前商品评分");
+        int sevenBefore = before.get("ratingDistribution").get(6).asInt();
+
+        executeRequest(authenticatedDelete("/api/comments/" + legacyCommentId, customerToken), 200, "删除历史评论");
+        waitFor(200);
+        verifyRecordCountWithDebug("comments", "id = " + legacyCommentId, 0, "历史评论删除验证");
+        verifyRecordCountWithDebug("comments", "parent_id = " + legacyCommentId, 0, "历史评论回复连带删除验证");
+
+        JsonNode after = extractDataFromResponse(verifyApiSuccessResponse(
+                executeRequest(get("/api/products/" + testProductId), 200, "删除后商品评分"), "删除后商品评分"), "删除后商品评分");
+        assertEqualsWithDebug(sevenBefore - 1, after.get("ratingDistribution").get(6).asInt(),
+                "删除后7分评论数", "历史评论评分扣减验证");
+
+        // 已删除的评论再次删除返回不存在，评分不再变化
+        executeRequest(authenticatedDelete("/api/comments/" + legacyCommentId, customerToken), 404, "重复删除历史评论");
+
+        logTestEnd("测试删除未回填路径的历史评论", true);
+    }
+
     @Test
     @Order(24)
     @DisplayName("测试清理资源")
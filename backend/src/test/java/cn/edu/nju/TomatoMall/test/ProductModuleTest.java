@@ -1,15 +1,50 @@
 package cn.edu.nju.TomatoMall.test;
 
+import cn.edu.nju.TomatoMall.models.dto.product.ProductBriefResponse;
+import cn.edu.nju.TomatoMall.models.dto.search.FacetedPage;
+import cn.edu.nju.TomatoMall.repository.FulltextSearchRepository;
+import cn.edu.nju.TomatoMall.repository.ProductRepository;
+import cn.edu.nju.TomatoMall.repository.ProductSearchRepository;
+import cn.edu.nju.TomatoMall.repository.StoreRepository;
+import cn.edu.nju.TomatoMall.service.impl.SearchServiceImpl;
+import cn.edu.nju.TomatoMall.service.impl.SuggestServiceImpl;
+import cn.edu.nju.TomatoMall.service.impl.search.FacetQuery;
+import cn.edu.nju.TomatoMall.service.impl.search.FulltextSearchBackend;
+import cn.edu.nju.TomatoMall.service.impl.search.ProductSearchIndex;
+import cn.edu.nju.TomatoMall.service.impl.search.SearchHits;
+import cn.edu.nju.TomatoMall.service.impl.search.SearchResultCache;
+import cn.edu.nju.TomatoMall.service.impl.search.StoreSearchIndex;
+import cn.edu.nju.TomatoMall.util.ImageUrls;
 import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.var;
 import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.annotation.Commit;
 import org.springframework.test.web.servlet.MvcResult;
-
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 
@@ -18,6 +53,33 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class ProductModuleTest extends BaseIntegrationTest {
 
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private StoreSearchIndex storeSearchIndex;
+
+    @Autowired
+    private SuggestServiceImpl suggestService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductSearchRepository productSearchRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private ImageUrls imageUrls;
+
     private Long testStoreId;
     private Long testStoreId2;
     private Long testProductId;
@@ -81,6 +143,14 @@ public class ProductModuleTest extends BaseIntegrationTest {
         testProductDetail();
         testProductSorting();
         testProductPagination();
+        testProductExport();
+        testImageRangeRequest();
+        testImageDerivative();
+        testUploadDeduplication();
+        testProductSearch();
+        testSearchSuggest();
+        testStoreSearch();
+        testFulltextBackend();
 
         logTestEnd("商品查询测试", true);
     }
@@ -165,6 +235,7 @@ public class ProductModuleTest extends BaseIntegrationTest {
         testProductSnapshot(testProductId2);
         updateProduct(testProductId2, "title", "Spring Boot实战(更新版)", storeManagerToken);
         verifySnapshotCreated(testProductId2);
+        verifyUnchangedUpdateReusesSnapshot(testProductId2);
 
         logTestEnd("快照功能测试", true);
     }
@@ -183,8 +254,126 @@ public class ProductModuleTest extends BaseIntegrationTest {
         logTestEnd("性能测试", true);
     }
 
+    @Test
+    @Order(11)
+    @DisplayName("批量导入测试")
+    @Commit
+    void testBulkImport() throws Exception {
+        logTestStart("批量导入测试", "测试清单与图片压缩包批量导入");
+
+        String manifest = "title,description,price,images,specifications,stock\n" +
+                "\"深入理解Java虚拟机\",\"JVM经典著作, 第3版\",109.00,jvm.jpg,\"{\"\"category\"\":\"\"图书\"\"}\",30\n" +
+                "价格错误商品,描述,abc,jvm.jpg,\"{\"\"category\"\":\"\"图书\"\"}\",1\n" +
+                "缺图商品,描述,10.00,missing.jpg,\"{\"\"category\"\":\"\"图书\"\"}\",1\n";
+        int before = countRecords("products", "store_id = " + testStoreId2);
+
+        MvcResult result = executeRequest(
+                createMultipartRequest("/api/products/import", "POST")
+                        .file(new MockMultipartFile("manifest", "products.csv", "text/csv",
+                                manifest.getBytes(StandardCharsets.UTF_8)))
+                        .file(new MockMultipartFile("images", "images.zip", "application/zip",
+                                createZip("jvm.jpg", "image".getBytes())))
+                        .param("storeId", testStoreId2.toString())
+                        .header("Authorization", "Bearer " + storeManager2Token),
+                200, "批量导入商品"
+        );
+        JsonNode data = extractDataFromResponse(verifyApiSuccessResponse(result, "批量导入响应"), "批量导入");
+        assertTrueWithDebug(data.get("total").asInt() == 3, "应解析3行", "批量导入验证");
+        assertTrueWithDebug(data.get("succeeded").asInt() == 1, "应成功导入1行", "批量导入验证");
+        assertTrueWithDebug(data.get("failed").asInt() == 2, "应有2行失败", "批量导入验证");
+        assertTrueWithDebug(data.get("errors").get(0).get("row").asInt() == 2, "错误行号应为2", "批量导入验证");
+
+        int after = countRecords("products", "store_id = " + testStoreId2);
+        assertTrueWithDebug(after == before + 1, "应新增1件商品", "批量导入验证");
+        verifyRecordCountWithDebug("product_snapshots", "product_id = (SELECT MAX(id) FROM products)", 1, "导入商品快照验证");
+        verifyRecordCountWithDebug("inventories", "product_id = (SELECT MAX(id) FROM products) AND quantity = 30", 1, "导入商品库存验证");
+
+        executeRequest(
+                createMultipartRequest("/api/products/import", "POST")
+                        .file(new MockMultipartFile("manifest", "products.csv", "text/csv", manifest.getBytes(StandardCharsets.UTF_8)))
+                        .file(new MockMultipartFile("images", "images.zip", "application/zip", createZip("jvm.jpg", "image".getBytes())))
+                        .param("storeId", testStoreId2.toString())
+                        .header("Authorization", "Bearer " + customerToken),
+                403, "普通用户批量导入"
+        );
+
+        // 不同目录下的同名图片无法按清单区分，整个压缩包被拒绝
+        int beforeRejected = countRecords("products", "store_id = " + testStoreId2);
+        executeRequest(
+                createMultipartRequest("/api/products/import", "POST")
+                        .file(new MockMultipartFile("manifest", "products.csv", "text/csv", manifest.getBytes(StandardCharsets.UTF_8)))
+                        .file(new MockMultipartFile("images", "images.zip", "application/zip",
+                                createZip(new String[]{"a/jvm.jpg", "b/jvm.jpg"}, "image".getBytes(), "other".getBytes())))
+                        .param("storeId", testStoreId2.toString())
+                        .header("Authorization", "Bearer " + storeManager2Token),
+                400, "压缩包含重名图片"
+        );
+        // 解压后超过单张图片上限（压缩前只有几十KB）
+        executeRequest(
+                createMultipartRequest("/api/products/import", "POST")
+                        .file(new MockMultipartFile("manifest", "products.csv", "text/csv", manifest.getBytes(StandardCharsets.UTF_8)))
+                        .file(new MockMultipartFile("images", "images.zip", "application/zip",
+                                createZip("jvm.jpg", new byte[21 * 1024 * 1024])))
+                        .param("storeId", testStoreId2.toString())
+                        .header("Authorization", "Bearer " + storeManager2Token),
+                400, "压缩包图片解压后过大"
+        );
+        assertTrueWithDebug(countRecords("products", "store_id = " + testStoreId2) == beforeRejected,
+                "被拒绝的压缩包不应导入商品", "批量导入验证");
+
+        logTestEnd("批量导入测试", true);
+    }
+
+    @Test
+    @Order(12)
+    @DisplayName("搜索相关度排序测试")
+    @Commit
+    void testSearchRanking() throws Exception {
+        logTestStart("搜索相关度排序测试", "测试名称命中与多关键词命中的相关度排序");
+
+        // 名称命中的权重高于只在描述中命中
+        Long byName = createProduct("手工番茄酱", "测试商品描述", "19.90", storeManager2Token, testStoreId2);
+        Long byDescription = createProduct("调味礼盒", "内含手工番茄酱与辣酱", "59.90", storeManager2Token, testStoreId2);
+        // 多个关键词须全部命中，名称同时包含两个词的排在前面
+        Long bothInName = createProduct("有机大米", "测试商品描述", "39.90", storeManager2Token, testStoreId2);
+        Long splitFields = createProduct("东北大米", "有机种植", "29.90", storeManager2Token, testStoreId2);
+        Long singleTerm = createProduct("有机燕麦片", "测试商品描述", "25.90", storeManager2Token, testStoreId2);
+        productSearchIndex.refreshPending();
+
+        JsonNode sauce = searchProducts(get("/api/search/products").param("keyword", "番茄酱"), "名称与描述命中排序");
+        assertEqualsWithDebug(2, sauce.get("totalElements").asInt(), "命中数量", "名称命中排序验证");
+        assertEqualsWithDebug(byName.intValue(), sauce.get("content").get(0).get("id").asInt(), "名称命中商品", "名称命中排序验证");
+        assertEqualsWithDebug(byDescription.intValue(), sauce.get("content").get(1).get("id").asInt(), "描述命中商品", "名称命中排序验证");
+
+        JsonNode rice = searchProducts(get("/api/search/products").param("keyword", "有机 大米"), "多关键词排序");
+        assertEqualsWithDebug(2, rice.get("totalElements").asInt(), "命中数量", "多关键词排序验证");
+        assertEqualsWithDebug(bothInName.intValue(), rice.get("content").get(0).get("id").asInt(), "名称包含全部关键词的商品", "多关键词排序验证");
+        assertEqualsWithDebug(splitFields.intValue(), rice.get("content").get(1).get("id").asInt(), "关键词分布在名称与描述的商品", "多关键词排序验证");
+        for (JsonNode product : rice.get("content")) {
+            assertTrueWithDebug(product.get("id").asInt() != singleTerm.intValue(), "只含一个关键词的商品不应命中", "多关键词排序验证");
+        }
+
+        logTestEnd("搜索相关度排序测试", true);
+    }
+
     // ============ 核心辅助方法 ============
 
+    private byte[] createZip(String name, byte[] content) throws Exception {
+        return createZip(new String[]{name}, content);
+    }
+
+    private byte[] createZip(String[] names, byte[]... contents) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < names.length; i++) {
+                zip.putNextEntry(new ZipEntry(names[i]));
+                zip.write(contents[i]);
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
     private String createUser(String prefix, String name, String location) throws Exception {
         String id = generateUniqueId();
         String username = prefix + id;
@@ -287,13 +476,17 @@ public class ProductModuleTest extends BaseIntegrationTest {
     }
 
     private Long createProduct(String title, String price, String token, Long storeId) throws Exception {
+        return createProduct(title, "测试商品描述", price, token, storeId);
+    }
+
+    private Long createProduct(String title, String description, String price, String token, Long storeId) throws Exception {
         MockMultipartFile imageFile = new MockMultipartFile("images", "image.jpg", "image/jpeg", "image".getBytes());
 
         executeRequest(
                 multipart("/api/products")
                         .file(imageFile)
                         .param("title", title)
-                        .param("description", "测试商品描述")
+                        .param("description", description)
                         .param("price", price)
                         .param("storeId", storeId.toString())
                         .param("specifications", objectMapper.writeValueAsString(new HashMap<String, String>() {{
@@ -376,6 +569,11 @@ public class ProductModuleTest extends BaseIntegrationTest {
         JsonNode data = extractDataFromResponse(response, "商品列表");
         JsonNode products = verifyPageResponse(data, "商品列表分页");
         assertListNotEmptyWithDebug(products, "商品列表", "商品列表验证");
+        for (JsonNode product : products) {
+            assertNotNullWithDebug(product.get("cover"), "商品封面", "列表冗余字段验证");
+            String summary = product.get("description").asText();
+            assertTrueWithDebug(summary.codePointCount(0, summary.length()) <= 100, "列表描述应为摘要", "列表冗余字段验证");
+        }
     }
 
     private void testStoreProductList() throws Exception {
@@ -415,6 +613,319 @@ public class ProductModuleTest extends BaseIntegrationTest {
         );
     }
 
+    private void testImageRangeRequest() throws Exception {
+        MvcResult detailResult = executeRequest(get("/api/products/" + testProductId), 200, "获取商品图片地址");
+        JsonNode detail = extractDataFromResponse(verifyApiSuccessResponse(detailResult, "商品详情响应"), "商品详情");
+        String cover = detail.get("cover").asText();
+
+        MvcResult full = executeRequest(get(cover), 200, "获取完整图片");
+        assertEqualsWithDebug("image", full.getResponse().getContentAsString(), "图片内容", "本地存储读取验证");
+
+        MvcResult partial = executeRequest(get(cover).header("Range", "bytes=1-3"), 206, "获取图片区间");
+        assertEqualsWithDebug("mag", partial.getResponse().getContentAsString(), "区间内容", "Range请求验证");
+        assertEqualsWithDebug("bytes 1-3/5", partial.getResponse().getHeader("Content-Range"), "Content-Range", "Range请求验证");
+
+        executeRequest(get(cover).header("Range", "bytes=10-"), 416, "超出范围的区间");
+    }
+
+    private void testImageDerivative() throws Exception {
+        // 直接写入本地存储根目录，构造一张 800x400 的原图
+        Path source = Paths.get(System.getProperty("java.io.tmpdir"), "tomatomall-test", "storage", "test", "derivative.png");
+        Files.createDirectories(source.getParent());
+        ImageIO.write(new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB), "png", source.toFile());
+        String thumbnail = imageUrls.thumbnail("/files/test/derivative.png", 360, 360);
+
+        MvcResult result = executeRequest(get(thumbnail), 200, "获取缩略图");
+        assertEqualsWithDebug("image/png", result.getResponse().getContentType(), "缩略图类型", "衍生图验证");
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertEqualsWithDebug(360, image.getWidth(), "缩略图宽度", "衍生图验证");
+        assertEqualsWithDebug(180, image.getHeight(), "缩略图高度", "衍生图验证");
+
+        String etag = result.getResponse().getHeader("ETag");
+        assertNotNullWithDebug(etag, "ETag", "衍生图验证");
+        executeRequest(get(thumbnail).header("If-None-Match", etag), 304, "缩略图协商缓存");
+        executeRequest(get(thumbnail + "&fmt=webp"), 400, "不支持的缩略图格式");
+        executeRequest(get(thumbnail.replace("w=360", "w=361")), 400, "未预设的缩略图尺寸");
+
+        // 签名不匹配的标识不读取原图
+        String key = thumbnail.substring(ImageUrls.PATH_PREFIX.length(), thumbnail.indexOf('?'));
+        String forged = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("/files/test/other.png".getBytes(StandardCharsets.UTF_8))
+                + key.substring(key.indexOf('.'));
+        executeRequest(get(ImageUrls.PATH_PREFIX + forged + "?w=360&h=360"), 400, "伪造的图片标识");
+        executeRequest(get(ImageUrls.PATH_PREFIX + key.substring(0, key.indexOf('.')) + "?w=360&h=360"), 400, "缺少签名的图片标识");
+
+        // 无法解码的原图返回 404，不重定向
+        MvcResult detailResult = executeRequest(get("/api/products/" + testProductId), 200, "获取商品图片地址");
+        String cover = extractDataFromResponse(verifyApiSuccessResponse(detailResult, "商品详情响应"), "商品详情").get("cover").asText();
+        MvcResult fallback = executeRequest(get(imageUrls.thumbnail(cover, 360, 360)), 404, "无法解码的原图");
+        assertTrueWithDebug(fallback.getResponse().getRedirectedUrl() == null, "不应重定向到原图", "衍生图验证");
+
+        // 密钥相同的实例（重启或多实例）签出相同的地址；非 dev、test 环境未配置密钥时启动失败
+        MockEnvironment production = new MockEnvironment();
+        assertEqualsWithDebug(new ImageUrls("shared-key", production).thumbnail("/files/test/derivative.png", 360, 360),
+                new ImageUrls("shared-key", production).thumbnail("/files/test/derivative.png", 360, 360),
+                "相同密钥的缩略图地址", "签名密钥验证");
+        boolean rejected = false;
+        try {
+            new ImageUrls("", production);
+        } catch (IllegalStateException e) {
+            rejected = true;
+        }
+        assertTrueWithDebug(rejected, "未配置签名密钥应启动失败", "签名密钥验证");
+    }
+
+    private void testUploadDeduplication() throws Exception {
+        // 两个商品上传了相同内容的图片，应复用同一对象
+        String cover1 = getProductCover(testProductId);
+        String cover2 = getProductCover(testProductId2);
+        assertEqualsWithDebug(cover1, cover2, "图片地址", "上传去重验证");
+        verifyRecordCountWithDebug("stored_objects", "url = '" + cover1 + "' AND ref_count >= 2", 1, "上传去重引用计数验证");
+    }
+
+    private void testProductSearch() throws Exception {
+        // 处理创建商品后登记的索引刷新
+        productSearchIndex.refreshPending();
+        assertTrueWithDebug(productSearchIndex.isReady(), "搜索索引应已构建", "搜索索引验证");
+
+        JsonNode byName = searchProducts(get("/api/search/products").param("keyword", "编程"), "按名称搜索");
+        assertEqualsWithDebug(1, byName.get("totalElements").asInt(), "命中数量", "名称搜索验证");
+        assertEqualsWithDebug(testProductId.intValue(), byName.get("content").get(0).get("id").asInt(), "命中商品", "名称搜索验证");
+
+        // 多个关键词无需原样相连
+        JsonNode multiTerm = searchProducts(get("/api/search/products").param("keyword", "ＳＰＲＩＮＧ 实战"), "多关键词搜索");
+        assertEqualsWithDebug(1, multiTerm.get("totalElements").asInt(), "命中数量", "多关键词搜索验证");
+        assertEqualsWithDebug(testProductId2.intValue(), multiTerm.get("content").get(0).get("id").asInt(), "命中商品", "多关键词搜索验证");
+
+        JsonNode filtered = searchProducts(get("/api/search/products").param("keyword", "java").param("maxPrice", "80"), "价格过滤搜索");
+        assertEqualsWithDebug(0, filtered.get("totalElements").asInt(), "命中数量", "价格过滤验证");
+
+        JsonNode sorted = searchProducts(get("/api/search/products").param("keyword", "")
+                .param("field", "price").param("order", "true").param("size", "2"), "按价格排序搜索");
+        assertEqualsWithDebug(testProductId2.intValue(), sorted.get("content").get(0).get("id").asInt(), "最低价商品", "排序搜索验证");
+
+        testFacetedSearch();
+        testSearchResultCache();
+        // 会新建商品使结果缓存失效，放在缓存测试之后
+        testFuzzySearch();
+    }
+
+    private void testFuzzySearch() throws Exception {
+        JsonNode byPinyin = searchProducts(get("/api/search/products").param("keyword", "biancheng"), "全拼搜索");
+        assertEqualsWithDebug(testProductId.intValue(), byPinyin.get("content").get(0).get("id").asInt(), "命中商品", "拼音搜索验证");
+
+        JsonNode byInitials = searchProducts(get("/api/search/products").param("keyword", "bcsx"), "首字母搜索");
+        assertEqualsWithDebug(testProductId.intValue(), byInitials.get("content").get(0).get("id").asInt(), "命中商品", "首字母搜索验证");
+
+        JsonNode byTypo = searchProducts(get("/api/search/products").param("keyword", "编成"), "错字搜索");
+        assertEqualsWithDebug(testProductId.intValue(), byTypo.get("content").get(0).get("id").asInt(), "命中商品", "错字搜索验证");
+
+        // 多音字按全部读音索引：茄在表中首选读音为 jia，番茄须能以 fanqie 与 fq 检索
+        Long tomatoId = createProduct("新鲜番茄", "测试商品描述", "199.00", storeManager2Token, testStoreId2);
+        productSearchIndex.refreshPending();
+        JsonNode byPolyphonic = searchProducts(get("/api/search/products").param("keyword", "fanqie"), "多音字全拼搜索");
+        assertEqualsWithDebug(tomatoId.intValue(), byPolyphonic.get("content").get(0).get("id").asInt(), "命中商品", "多音字拼音搜索验证");
+        JsonNode byPolyphonicInitials = searchProducts(get("/api/search/products").param("keyword", "fq"), "多音字首字母搜索");
+        assertEqualsWithDebug(tomatoId.intValue(), byPolyphonicInitials.get("content").get(0).get("id").asInt(), "命中商品", "多音字拼音搜索验证");
+    }
+
+    private void testSearchResultCache() throws Exception {
+        double hitsBefore = meterRegistry.get("search.cache.requests").tag("result", "hit").counter().count();
+        // 与前面的“编程”搜索条件相同，索引未变化时直接命中缓存
+        JsonNode cached = searchProducts(get("/api/search/products").param("keyword", "编程"), "重复搜索");
+        assertEqualsWithDebug(1, cached.get("totalElements").asInt(), "命中数量", "结果缓存验证");
+        assertEqualsWithDebug(testProductId.intValue(), cached.get("content").get(0).get("id").asInt(), "命中商品", "结果缓存验证");
+        double hitsAfter = meterRegistry.get("search.cache.requests").tag("result", "hit").counter().count();
+        assertEqualsWithDebug(hitsBefore + 1, hitsAfter, "缓存命中次数", "结果缓存验证");
+    }
+
+    private void testFacetedSearch() throws Exception {
+        JsonNode faceted = searchProducts(get("/api/search/products").param("keyword", "java")
+                .param("spec", "category:测试分类").param("facets", "category"), "规格筛选搜索");
+        assertEqualsWithDebug(1, faceted.get("totalElements").asInt(), "命中数量", "规格筛选验证");
+        JsonNode facet = faceted.get("facets").get(0);
+        assertEqualsWithDebug("category", facet.get("key").asText(), "分面键", "分面计数验证");
+        assertEqualsWithDebug("测试分类", facet.get("values").get(0).get("value").asText(), "分面取值", "分面计数验证");
+        assertEqualsWithDebug(1, facet.get("values").get(0).get("count").asInt(), "分面计数", "分面计数验证");
+        JsonNode buckets = faceted.get("priceBuckets");
+        for (JsonNode bucket : buckets) {
+            int expected = "50-100".equals(bucket.get("value").asText()) ? 1 : 0;
+            assertEqualsWithDebug(expected, bucket.get("count").asInt(), "价格区间 " + bucket.get("value").asText(), "价格分面验证");
+        }
+
+        // 规格键自身的筛选不影响该键的计数，便于切换到同级取值
+        JsonNode unmatched = searchProducts(get("/api/search/products").param("keyword", "java")
+                .param("spec", "category:不存在的分类").param("facets", "category"), "无匹配规格筛选");
+        assertEqualsWithDebug(0, unmatched.get("totalElements").asInt(), "命中数量", "规格筛选验证");
+        assertEqualsWithDebug(1, unmatched.get("facets").get(0).get("values").get(0).get("count").asInt(), "分面计数", "分面计数验证");
+
+        JsonNode byBucket = searchProducts(get("/api/search/products").param("keyword", "java")
+                .param("priceBucket", "0-50"), "价格区间筛选");
+        assertEqualsWithDebug(0, byBucket.get("totalElements").asInt(), "命中数量", "价格区间筛选验证");
+
+        // 超出搜索后端窗口的翻页回退数据库查询，分面为空而不是报错
+        JsonNode deepPage = searchProducts(get("/api/search/products").param("keyword", "java")
+                .param("facets", "category").param("page", "600").param("size", "20"), "深翻页分面搜索");
+        assertEqualsWithDebug(0, deepPage.get("content").size(), "命中数量", "分面回退验证");
+        assertEqualsWithDebug(0, deepPage.get("facets").size(), "分面数量", "分面回退验证");
+        // 回退数据库查询时规格与价格区间筛选同样生效
+        JsonNode deepFiltered = searchProducts(get("/api/search/products").param("keyword", "java")
+                .param("spec", "category:测试分类").param("page", "600").param("size", "20"), "深翻页规格筛选");
+        assertEqualsWithDebug(1, deepFiltered.get("totalElements").asInt(), "命中数量", "分面回退筛选验证");
+        JsonNode deepUnmatched = searchProducts(get("/api/search/products").param("keyword", "java")
+                .param("spec", "category:不存在的分类").param("page", "600").param("size", "20"), "深翻页无匹配规格筛选");
+        assertEqualsWithDebug(0, deepUnmatched.get("totalElements").asInt(), "命中数量", "分面回退筛选验证");
+        JsonNode deepBucket = searchProducts(get("/api/search/products").param("keyword", "java")
+                .param("priceBucket", "0-50").param("page", "600").param("size", "20"), "深翻页价格区间筛选");
+        assertEqualsWithDebug(0, deepBucket.get("totalElements").asInt(), "命中数量", "分面回退筛选验证");
+
+        executeRequest(get("/api/search/products").param("keyword", "java").param("facets", "category")
+                .param("field", "notAField"), 400, "不支持的排序字段");
+    }
+
+    private void testSearchSuggest() throws Exception {
+        // 补全表由后台线程定期重建，这里直接触发
+        suggestService.rebuild();
+
+        JsonNode products = searchProducts(get("/api/search/suggest").param("prefix", "JAVA"), "商品名联想");
+        assertEqualsWithDebug("Java编程思想(第4版)", products.get(0).get("text").asText(), "联想文本", "商品名联想验证");
+        assertEqualsWithDebug("PRODUCT", products.get(0).get("type").asText(), "联想类型", "商品名联想验证");
+
+        // testProductSearch 中有结果的搜索词计入热门搜索
+        JsonNode queries = searchProducts(get("/api/search/suggest").param("prefix", "编"), "搜索词联想");
+        assertEqualsWithDebug("编程", queries.get(0).get("text").asText(), "联想文本", "搜索词联想验证");
+        assertEqualsWithDebug("QUERY", queries.get(0).get("type").asText(), "联想类型", "搜索词联想验证");
+
+        JsonNode none = searchProducts(get("/api/search/suggest").param("prefix", "不存在的前缀"), "无匹配联想");
+        assertEqualsWithDebug(0, none.size(), "联想数量", "无匹配联想验证");
+
+        // 名称未变的刷新（如销量写回）更新索引，但不使补全表过期
+        long version = productSearchIndex.getVersion();
+        long nameVersion = productSearchIndex.getNameVersion();
+        productSearchIndex.refresh(testProductId.intValue());
+        productSearchIndex.refreshPending();
+        assertTrueWithDebug(productSearchIndex.getVersion() > version, "索引版本应递增", "联想重建条件验证");
+        assertEqualsWithDebug(nameVersion, productSearchIndex.getNameVersion(), "名称版本", "联想重建条件验证");
+    }
+
+    private void testStoreSearch() throws Exception {
+        // 处理创建店铺后登记的索引刷新
+        storeSearchIndex.refreshPending();
+        assertTrueWithDebug(storeSearchIndex.isReady(), "店铺索引应已构建", "店铺索引验证");
+
+        JsonNode byName = searchProducts(get("/api/search/stores").param("keyword", "技术"), "按名称搜索店铺");
+        assertEqualsWithDebug(testStoreId.intValue(), byName.get("content").get(0).get("id").asInt(), "命中店铺", "店铺名称搜索验证");
+
+        JsonNode byAddress = searchProducts(get("/api/search/stores").param("keyword", "陆家嘴"), "按地址搜索店铺");
+        assertEqualsWithDebug(testStoreId2.intValue(), byAddress.get("content").get(0).get("id").asInt(), "命中店铺", "店铺地址搜索验证");
+
+        // 名称前缀匹配排在描述、地址匹配之前
+        JsonNode byPrefix = searchProducts(get("/api/search/stores").param("keyword", "数码产品"), "按名称前缀搜索店铺");
+        assertEqualsWithDebug(testStoreId2.intValue(), byPrefix.get("content").get(0).get("id").asInt(), "首个店铺", "店铺排序验证");
+
+        // 数据库回退与索引的检索范围一致，不含系统店铺与已删除店铺
+        long searchable = countRecords("stores", "is_system_store = false AND status <> 'DELETED'");
+        assertEqualsWithDebug(searchable, storeRepository.searchStoresWithCustomSort("", PageRequest.of(0, 10)).getTotalElements(),
+                "店铺数量", "店铺回退查询范围验证");
+        assertEqualsWithDebug(searchable, storeRepository.searchStoresByRelevance("", PageRequest.of(0, 10)).getTotalElements(),
+                "店铺数量", "店铺回退查询范围验证");
+    }
+
+    private void testFulltextBackend() throws Exception {
+        // 测试库为 H2，全文检索后端以 LIKE 模拟
+        FulltextSearchBackend backend = new FulltextSearchBackend(
+                new FulltextSearchRepository(new JdbcTemplate(dataSource)), searchResultCache);
+        FacetQuery noFacets = FacetQuery.of(null, null, null);
+
+        SearchHits byName = backend.searchProducts("编程", null, null, noFacets, null, false, 0, 10);
+        assertEqualsWithDebug(1L, byName.getTotal(), "命中数量", "全文检索验证");
+        assertEqualsWithDebug(testProductId.intValue(), byName.getIds().get(0), "命中商品", "全文检索验证");
+
+        // 自然语言模式下任一词命中即可，命中词越多越靠前
+        SearchHits multiTerm = backend.searchProducts("spring 实战", null, null, noFacets, null, false, 0, 10);
+        assertEqualsWithDebug(testProductId2.intValue(), multiTerm.getIds().get(0), "首个商品", "全文检索排序验证");
+
+        SearchHits filtered = backend.searchProducts("java", null, new BigDecimal("80"), noFacets, null, false, 0, 10);
+        assertEqualsWithDebug(0L, filtered.getTotal(), "命中数量", "全文检索价格过滤验证");
+
+        SearchHits stores = backend.searchStores("陆家嘴", null, false, 0, 10);
+        assertEqualsWithDebug(testStoreId2.intValue(), stores.getIds().get(0), "命中店铺", "店铺全文检索验证");
+
+        // 单字关键词交给数据库模糊查询
+        assertTrueWithDebug(backend.searchProducts("编", null, null, noFacets, null, false, 0, 10) == null,
+                "单字关键词应回退", "全文检索回退验证");
+
+        // 规格与价格区间筛选在 SQL 中完成
+        SearchHits bySpec = backend.searchProducts("java", null, null,
+                FacetQuery.of(Collections.singletonList("category:测试分类"), null, null), null, false, 0, 10);
+        assertEqualsWithDebug(1L, bySpec.getTotal(), "命中数量", "全文检索规格筛选验证");
+        assertEqualsWithDebug(testProductId.intValue(), bySpec.getIds().get(0), "命中商品", "全文检索规格筛选验证");
+        SearchHits byBucket = backend.searchProducts("java", null, null,
+                FacetQuery.of(null, Collections.singletonList("0-50"), null), null, false, 0, 10);
+        assertEqualsWithDebug(0L, byBucket.getTotal(), "命中数量", "全文检索价格区间筛选验证");
+
+        // 经 SearchService 以全文检索后端执行分面搜索：筛选生效，分面计数为空
+        SearchServiceImpl fulltextSearch = new SearchServiceImpl(productRepository, productSearchRepository,
+                storeRepository, backend, suggestService, searchResultCache);
+        Page<ProductBriefResponse> faceted = fulltextSearch.searchProducts("java", 0, 10, null, null, null, null,
+                Collections.singletonList("category:测试分类"), null, Collections.singletonList("category"));
+        assertEqualsWithDebug(1L, faceted.getTotalElements(), "命中数量", "全文检索分面搜索验证");
+        assertEqualsWithDebug(testProductId.intValue(), faceted.getContent().get(0).getId(), "命中商品", "全文检索分面搜索验证");
+        assertTrueWithDebug(faceted instanceof FacetedPage && ((FacetedPage<?>) faceted).getFacets().isEmpty(),
+                "分面计数应为空", "全文检索分面搜索验证");
+
+        // 空关键词全文检索无法处理，回退数据库查询时筛选仍须生效
+        Page<ProductBriefResponse> browse = fulltextSearch.searchProducts("", 0, 10, null, null, null, null,
+                Collections.singletonList("category:测试分类"), null, null);
+        int categorized = countRecords("products", "on_sale = true AND id IN (SELECT product_id FROM product_specifications " +
+                "WHERE specifications_key = 'category' AND specifications = '测试分类')");
+        assertEqualsWithDebug((long) categorized, browse.getTotalElements(), "命中数量", "全文检索回退筛选验证");
+        Page<ProductBriefResponse> browseUnmatched = fulltextSearch.searchProducts("", 0, 10, null, null, null, null,
+                Collections.singletonList("category:不存在的分类"), null, null);
+        assertEqualsWithDebug(0L, browseUnmatched.getTotalElements(), "命中数量", "全文检索回退筛选验证");
+    }
+
+    private JsonNode searchProducts(MockHttpServletRequestBuilder request,
+                                    String description) throws Exception {
+        MvcResult result = executeRequest(request, 200, description);
+        return extractDataFromResponse(verifyApiSuccessResponse(result, description + "响应"), description);
+    }
+
+    private String getProductCover(Long productId) throws Exception {
+        MvcResult result = executeRequest(get("/api/products/" + productId), 200, "获取商品图片地址");
+        return extractDataFromResponse(verifyApiSuccessResponse(result, "商品详情响应"), "商品详情").get("cover").asText();
+    }
+
+    private void testProductExport() throws Exception {
+        MvcResult csvResult = executeRequest(
+                authenticatedGet("/api/products/export", storeManagerToken)
+                        .param("storeId", testStoreId.toString()).param("format", "CSV"),
+                200, "导出店铺商品CSV"
+        );
+        String[] csvLines = csvResult.getResponse().getContentAsString().trim().split("\n");
+        assertTrueWithDebug(csvLines[0].startsWith("id,storeId,name"), "CSV应包含表头", "CSV导出验证");
+        assertTrueWithDebug(csvLines.length == 3, "CSV应包含2条商品记录", "CSV导出验证");
+
+        MvcResult ndjsonResult = executeRequest(
+                authenticatedGet("/api/products/export", storeManagerToken)
+                        .param("storeId", testStoreId.toString()).param("format", "NDJSON"),
+                200, "导出店铺商品NDJSON"
+        );
+        String[] jsonLines = ndjsonResult.getResponse().getContentAsString().trim().split("\n");
+        assertTrueWithDebug(jsonLines.length == 2, "NDJSON应包含2条商品记录", "NDJSON导出验证");
+        for (String line : jsonLines) {
+            JsonNode row = objectMapper.readTree(line);
+            assertTrueWithDebug(row.get("storeId").asLong() == testStoreId, "导出商品应属于该店铺", "NDJSON导出验证");
+        }
+
+        executeRequest(
+                authenticatedGet("/api/products/export", storeManager2Token).param("storeId", testStoreId.toString()),
+                403, "跨店铺导出商品"
+        );
+        executeRequest(authenticatedGet("/api/products/export", storeManagerToken), 403, "非管理员导出全部商品");
+        executeRequest(authenticatedGet("/api/products/export", adminToken), 200, "管理员导出全部商品");
+    }
+
     private void testLowInventory() throws Exception {
         setInventory(testProductId, 15, storeManagerToken);
         MvcResult result = executeRequest(get("/api/products/" + testProductId), 200, "获取低库存商品详情");
@@ -511,6 +1022,13 @@ public class ProductModuleTest extends BaseIntegrationTest {
         assertTrueWithDebug(snapshotCount >= 2, "快照数量应至少为2", "快照创建验证");
     }
 
+    private void verifyUnchangedUpdateReusesSnapshot(Long productId) throws Exception {
+        int before = countRecords("product_snapshots", "product_id = " + productId);
+        updateProduct(productId, "title", "Spring Boot实战(更新版)", storeManagerToken);
+        int after = countRecords("product_snapshots", "product_id = " + productId);
+        assertTrueWithDebug(before == after, "内容未变化时不应新增快照", "快照去重验证");
+    }
+
     private void testBatchQuery() throws Exception {
         long start = System.currentTimeMillis();
         for (int i = 0; i < 5; i++) {
@@ -525,10 +1043,12 @@ public class ProductModuleTest extends BaseIntegrationTest {
     }
 
     private void testLargePagination() throws Exception {
-        executeRequest(
+        MvcResult result = executeRequest(
                 get("/api/products").param("page", "0").param("size", "1000").param("field", "id").param("order", "true"),
                 200, "大分页查询"
         );
+        JsonNode data = extractDataFromResponse(verifyApiSuccessResponse(result, "大分页响应"), "大分页");
+        assertTrueWithDebug(data.get("size").asInt() <= 100, "单页大小应被限制在100以内", "分页上限验证");
     }
 
     private void testConcurrentOperations() throws Exception {
@@ -0,0 +1,108 @@
+package cn.edu.nju.TomatoMall.test;
+
+import cn.edu.nju.TomatoMall.service.impl.search.analysis.ChineseAnalyzer;
+import cn.edu.nju.TomatoMall.service.impl.search.analysis.UserDictionary;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 搜索分析链测试
+ * 吞吐量基准默认跳过，使用 mvn test -Dtest=SearchAnalyzerTest -Dbenchmark=true 运行
+ */
+public class SearchAnalyzerTest {
+    private static final String COMMON_HAN =
+            "番茄有机新鲜水果蔬菜进口国产精选礼盒装家用厨房电器手机数码配件男女装鞋包图书编程思想实战" +
+            "经典教材儿童玩具运动户外健身美妆护肤洗发沐浴零食饮料茶叶咖啡大米食用油牛奶酸奶面包蛋糕";
+    private static final String[] LATIN_WORDS = {
+            "java", "spring", "boot", "iphone", "usb", "type", "c", "pro", "max", "wifi", "led", "4k", "2024"
+    };
+
+    private final ChineseAnalyzer analyzer =
+            new ChineseAnalyzer(new UserDictionary(Arrays.asList("番茄酱", "编程思想")));
+
+    @Test
+    @DisplayName("分析链切分测试")
+    void testAnalyzerChain() {
+        // 全角折叠与大小写统一
+        assertEquals("java编程 (第4版)", analyzer.normalize("ＪＡＶＡ编程　（第４版）"));
+        assertEquals(Arrays.asList("spring", "boot", "实战"), analyzer.queryTerms("Spring Boot实战"));
+        // 字母与数字交界处切开
+        assertEquals(Arrays.asList("iphone", "15", "pro"), analyzer.queryTerms("iPhone15 Pro"));
+        // 多个查询词分别切分
+        assertEquals(Arrays.asList("番茄", "有机"), analyzer.queryTerms("番茄 有机"));
+        // 词典正向最大匹配，剩余部分输出二字组或单字
+        assertEquals(Arrays.asList("番茄酱", "汁"), analyzer.queryTerms("番茄酱汁"));
+        assertEquals(Arrays.asList("java", "编程思想"), analyzer.queryTerms("Java编程思想"));
+
+        List<String> indexTerms = analyzer.indexTerms("有机番茄酱");
+        assertTrue(indexTerms.containsAll(Arrays.asList("有", "有机", "番茄", "番茄酱", "酱")));
+        // 查询词项必须是索引词项的子集
+        assertTrue(analyzer.indexTerms("Java编程思想(第4版)").containsAll(analyzer.queryTerms("JAVA编程思想 第4版")));
+    }
+
+    @Test
+    @DisplayName("分析链吞吐量基准")
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkThroughput() {
+        List<String> corpus = syntheticCorpus(20000, 200, new Random(42));
+        long chars = corpus.stream().mapToLong(String::length).sum();
+
+        // 预热
+        for (int round = 0; round < 3; round++) {
+            analyzeAll(corpus, false);
+        }
+
+        for (boolean query : new boolean[]{false, true}) {
+            long start = System.nanoTime();
+            long tokens = analyzeAll(corpus, query);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("[基准] %s: %d 篇 / %d 字符, %d 词项, %.3fs, %.0f 词项/秒, %.1f MB/s%n",
+                    query ? "查询切分" : "索引切分", corpus.size(), chars, tokens, seconds,
+                    tokens / seconds, chars * 2 / seconds / (1 << 20));
+            assertTrue(tokens > 0);
+        }
+    }
+
+    private long analyzeAll(List<String> corpus, boolean query) {
+        long tokens = 0;
+        for (String text : corpus) {
+            tokens += (query ? analyzer.queryTerms(text) : analyzer.indexTerms(text)).size();
+        }
+        return tokens;
+    }
+
+    /**
+     * 生成中文为主、夹杂英文词与数字的商品描述文本
+     */
+    private static List<String> syntheticCorpus(int documents, int averageLength, Random random) {
+        List<String> corpus = new ArrayList<>(documents);
+        for (int d = 0; d < documents; d++) {
+            StringBuilder text = new StringBuilder();
+            int length = averageLength / 2 + random.nextInt(averageLength);
+            while (text.length() < length) {
+                int kind = random.nextInt(10);
+                if (kind < 7) {
+                    int run = 2 + random.nextInt(8);
+                    for (int i = 0; i < run; i++) {
+                        text.append(COMMON_HAN.charAt(random.nextInt(COMMON_HAN.length())));
+                    }
+                } else if (kind < 9) {
+                    text.append(' ').append(LATIN_WORDS[random.nextInt(LATIN_WORDS.length)]).append(' ');
+                } else {
+                    text.append(random.nextBoolean() ? '，' : '、');
+                }
+            }
+            corpus.add(random.nextInt(5) == 0 ? text.toString().toUpperCase() : text.toString());
+        }
+        return corpus;
+    }
+}
@@ -0,0 +1,153 @@
+package cn.edu.nju.TomatoMall.test;
+
+import cn.edu.nju.TomatoMall.repository.FulltextSearchRepository;
+import cn.edu.nju.TomatoMall.repository.ProductRepository;
+import cn.edu.nju.TomatoMall.service.impl.search.FacetQuery;
+import cn.edu.nju.TomatoMall.service.impl.search.FulltextSearchBackend;
+import cn.edu.nju.TomatoMall.service.impl.search.ProductSearchIndex;
+import cn.edu.nju.TomatoMall.service.impl.search.SearchResultCache;
+import cn.edu.nju.TomatoMall.service.impl.search.StoreSearchIndex;
+import cn.edu.nju.TomatoMall.test.SearchWorkload.QueryClass;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 搜索性能基准：生成合成目录后回放查询负载，按查询类别报告吞吐量与延迟分位数
+ * 默认跳过，使用 mvn test -Dtest=SearchBenchmarkTest -Dbenchmark=true 运行，规模可通过
+ * -Dbenchmark.stores、-Dbenchmark.products、-Dbenchmark.queries、-Dbenchmark.threads 调整
+ * 默认在 H2 上运行；指定 -Dbenchmark.datasource.url（及 username、password、driver-class-name、dialect）可改用 MySQL，
+ * 此时会为生成的表建立 FULLTEXT 索引以对比全文检索后端
+ * 结果缓存在基准中关闭，以测量后端本身的开销
+ */
+@TestPropertySource(properties = {
+        "app.search.cache.enabled=false",
+        "spring.datasource.url=${benchmark.datasource.url:jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;MODE=MySQL}",
+        "spring.datasource.username=${benchmark.datasource.username:sa}",
+        "spring.datasource.password=${benchmark.datasource.password:}",
+        "spring.datasource.driver-class-name=${benchmark.datasource.driver-class-name:org.h2.Driver}",
+        "spring.jpa.properties.hibernate.dialect=${benchmark.datasource.dialect:org.hibernate.dialect.H2Dialect}",
+        "spring.jpa.show-sql=false"
+})
+@DisplayName("搜索性能基准")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class SearchBenchmarkTest extends BaseIntegrationTest {
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private StoreSearchIndex storeSearchIndex;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Value("${app.search.backend:index}")
+    private String configuredBackend;
+
+    @Value("${benchmark.stores:200}")
+    private int stores;
+
+    @Value("${benchmark.products:50000}")
+    private int products;
+
+    @Value("${benchmark.queries:5000}")
+    private int queries;
+
+    @Value("${benchmark.direct-queries:500}")
+    private int directQueries;
+
+    @Value("${benchmark.threads:4}")
+    private int threads;
+
+    @Test
+    @DisplayName("搜索后端延迟基准")
+    void benchmarkSearchBackends() throws Exception {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Integer managerId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Integer.class);
+
+        long start = System.nanoTime();
+        CatalogGenerator.Catalog catalog = new CatalogGenerator(jdbcTemplate, 42, 1000)
+                .generate(stores, products, managerId);
+        System.out.printf("[基准] 目录生成: %d 店铺, %d 商品, %.2fs%n", catalog.getStoreIds().size(),
+                catalog.getProductIds().size(), (System.nanoTime() - start) / 1e9);
+
+        FulltextSearchRepository fulltextSearchRepository = new FulltextSearchRepository(jdbcTemplate);
+        boolean mySql = isMySql(jdbcTemplate);
+        if (mySql) {
+            createFulltextIndexes(jdbcTemplate);
+        }
+
+        // 直接写库的数据需登记到索引
+        start = System.nanoTime();
+        catalog.getProductIds().forEach(productSearchIndex::refresh);
+        catalog.getStoreIds().forEach(storeSearchIndex::refresh);
+        productSearchIndex.refreshPending();
+        storeSearchIndex.refreshPending();
+        System.out.printf("[基准] 索引刷新: %.2fs%n", (System.nanoTime() - start) / 1e9);
+
+        SearchWorkload workload = new SearchWorkload(CatalogGenerator.vocabulary(), CatalogGenerator.brandedNouns(),
+                CatalogGenerator.storeVocabulary(), CatalogGenerator.specificationKeys());
+        Random random = new Random(7);
+
+        // 端到端：经 SearchController 访问当前配置的后端，分面查询只有索引后端支持
+        List<QueryClass> classes = Arrays.stream(QueryClass.values())
+                .filter(c -> c != QueryClass.FACETED || "index".equals(configuredBackend))
+                .collect(Collectors.toList());
+        List<SearchWorkload.Query> endToEnd = workload.generate(queries, classes, random);
+        SearchWorkload.Report report = SearchWorkload.replay(endToEnd, query -> {
+            MvcResult result = mockMvc.perform(query.toRequest(20)).andReturn();
+            if (result.getResponse().getStatus() != 200) {
+                throw new IllegalStateException("搜索失败: " + result.getResponse().getStatus());
+            }
+        }, threads, Math.min(200, queries));
+        report.print("SearchController(" + configuredBackend + ")");
+        assertEquals(0, report.getErrors(), "端到端查询不应失败");
+
+        // 同一批商品关键词直接对比全文检索后端与 LIKE 查询，不含读取列表信息与序列化
+        List<QueryClass> textClasses = Arrays.asList(QueryClass.HEAD_TERM, QueryClass.TAIL_TERM,
+                QueryClass.MULTI_TERM, QueryClass.PRICE_FILTER, QueryClass.NO_MATCH);
+        List<SearchWorkload.Query> direct = workload.generate(directQueries, textClasses, random);
+        FulltextSearchBackend fulltext = new FulltextSearchBackend(fulltextSearchRepository, searchResultCache);
+        FacetQuery noFacets = FacetQuery.of(null, null, null);
+        SearchWorkload.replay(direct, query -> fulltext.searchProducts(query.getKeyword(), query.getMinPrice(),
+                query.getMaxPrice(), noFacets, null, false, 0, 20), threads, Math.min(50, directQueries))
+                .print(mySql ? "fulltext(MySQL FULLTEXT)" : "fulltext(LIKE 模拟)");
+        SearchWorkload.replay(direct, query -> productRepository.searchProductsByRelevance(query.getKeyword(),
+                query.getMinPrice(), query.getMaxPrice(), PageRequest.of(0, 20)), threads, Math.min(50, directQueries))
+                .print("LIKE");
+    }
+
+    private static boolean isMySql(JdbcTemplate jdbcTemplate) {
+        String database = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return "MySQL".equalsIgnoreCase(database);
+    }
+
+    /**
+     * 与 db/migration/002_search_fulltext.sql 相同，测试库由 Hibernate 建表，需在此补建
+     */
+    private static void createFulltextIndexes(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("ALTER TABLE products ADD FULLTEXT INDEX ft_products_name_description " +
+                "(name, description) WITH PARSER ngram");
+        jdbcTemplate.execute("ALTER TABLE stores ADD FULLTEXT INDEX ft_stores_name_description_address " +
+                "(name, description, address) WITH PARSER ngram");
+    }
+}
@@ -0,0 +1,320 @@
+package cn.edu.nju.TomatoMall.test;
+
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * 搜索查询负载：按比例混合多类查询，关键词按 Zipf 分布从目录词表中抽取（少数热词占大部分查询）
+ * 回放时多线程并发执行，按查询类别统计吞吐量与延迟分位数
+ */
+public class SearchWorkload {
+
+    /**
+     * 查询类别及其在负载中的占比
+     */
+    public enum QueryClass {
+        HEAD_TERM(30), TAIL_TERM(15), MULTI_TERM(15), PRICE_FILTER(10), SORTED(10), FACETED(5), STORE(10), NO_MATCH(5);
+
+        final int weight;
+
+        QueryClass(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 一次搜索请求的参数
+     */
+    public static final class Query {
+        private final QueryClass queryClass;
+        private final String keyword;
+        private BigDecimal minPrice;
+        private BigDecimal maxPrice;
+        private String field;
+        private Boolean order;
+        private String facets;
+
+        Query(QueryClass queryClass, String keyword) {
+            this.queryClass = queryClass;
+            this.keyword = keyword;
+        }
+
+        public QueryClass getQueryClass() {
+            return queryClass;
+        }
+
+        public String getKeyword() {
+            return keyword;
+        }
+
+        public BigDecimal getMinPrice() {
+            return minPrice;
+        }
+
+        public BigDecimal getMaxPrice() {
+            return maxPrice;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public Boolean getOrder() {
+            return order;
+        }
+
+        public boolean isStore() {
+            return queryClass == QueryClass.STORE;
+        }
+
+        /**
+         * 对应的 SearchController 请求
+         */
+        public MockHttpServletRequestBuilder toRequest(int size) {
+            MockHttpServletRequestBuilder request = get(isStore() ? "/api/search/stores" : "/api/search/products")
+                    .param("keyword", keyword)
+                    .param("size", String.valueOf(size));
+            if (minPrice != null) {
+                request.param("minPrice", minPrice.toPlainString());
+            }
+            if (maxPrice != null) {
+                request.param("maxPrice", maxPrice.toPlainString());
+            }
+            if (field != null) {
+                request.param("field", field).param("order", String.valueOf(order));
+            }
+            if (facets != null) {
+                request.param("facets", facets);
+            }
+            return request;
+        }
+    }
+
+    /**
+     * 执行一次查询，抛出异常计为失败
+     */
+    public interface QueryExecutor {
+        void execute(Query query) throws Exception;
+    }
+
+    /**
+     * 一个类别的统计结果，延迟单位为毫秒
+     */
+    public static final class ClassReport {
+        final QueryClass queryClass;
+        final int count;
+        final int errors;
+        final double p50;
+        final double p95;
+        final double p99;
+        final double max;
+
+        ClassReport(QueryClass queryClass, long[] nanos, int errors) {
+            Arrays.sort(nanos);
+            this.queryClass = queryClass;
+            this.count = nanos.length;
+            this.errors = errors;
+            this.p50 = percentile(nanos, 0.50);
+            this.p95 = percentile(nanos, 0.95);
+            this.p99 = percentile(nanos, 0.99);
+            this.max = nanos.length == 0 ? 0 : nanos[nanos.length - 1] / 1e6;
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1e6;
+        }
+    }
+
+    /**
+     * 一次回放的统计结果
+     */
+    public static final class Report {
+        private final Map<QueryClass, ClassReport> classes;
+        private final double seconds;
+
+        Report(Map<QueryClass, ClassReport> classes, double seconds) {
+            this.classes = classes;
+            this.seconds = seconds;
+        }
+
+        public int getErrors() {
+            return classes.values().stream().mapToInt(r -> r.errors).sum();
+        }
+
+        /**
+         * 打印整体吞吐量（按墙钟时间）与各类别的延迟分位数
+         */
+        public void print(String backend) {
+            int total = classes.values().stream().mapToInt(r -> r.count).sum();
+            System.out.printf("[基准] %s: %d 次查询, %.2fs, %.0f 次/秒%n", backend, total, seconds, total / seconds);
+            for (ClassReport report : classes.values()) {
+                System.out.printf("[基准]   %-12s %6d 次, 失败 %4d, p50 %8.2fms, p95 %8.2fms, p99 %8.2fms, max %8.2fms%n",
+                        report.queryClass, report.count, report.errors, report.p50, report.p95, report.p99, report.max);
+            }
+        }
+    }
+
+    private final List<String> vocabulary;
+    private final List<String> phrases;
+    private final List<String> storeVocabulary;
+    private final List<String> facetKeys;
+    private final double[] cumulative;
+
+    public SearchWorkload(List<String> vocabulary, List<String> phrases, List<String> storeVocabulary,
+                          List<String> facetKeys) {
+        this.vocabulary = vocabulary;
+        this.phrases = phrases;
+        this.storeVocabulary = storeVocabulary;
+        this.facetKeys = facetKeys;
+        // Zipf 分布（指数 1）的累积概率，第 k 个词的权重为 1/k
+        this.cumulative = new double[vocabulary.size()];
+        double sum = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < cumulative.length; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    /**
+     * 按类别占比生成 count 个查询，只生成 classes 中的类别
+     */
+    public List<Query> generate(int count, List<QueryClass> classes, Random random) {
+        int totalWeight = classes.stream().mapToInt(c -> c.weight).sum();
+        List<Query> queries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int roll = random.nextInt(totalWeight);
+            QueryClass queryClass = classes.get(0);
+            for (QueryClass candidate : classes) {
+                if (roll < candidate.weight) {
+                    queryClass = candidate;
+                    break;
+                }
+                roll -= candidate.weight;
+            }
+            queries.add(randomQuery(queryClass, random));
+        }
+        return queries;
+    }
+
+    private Query randomQuery(QueryClass queryClass, Random random) {
+        switch (queryClass) {
+            case HEAD_TERM:
+                return new Query(queryClass, vocabulary.get(random.nextInt(Math.min(20, vocabulary.size()))));
+            case TAIL_TERM:
+                return new Query(queryClass, vocabulary.get(vocabulary.size() / 2 + random.nextInt(vocabulary.size() / 2)));
+            case MULTI_TERM:
+                return new Query(queryClass, phrases.get(random.nextInt(phrases.size())));
+            case PRICE_FILTER: {
+                Query query = new Query(queryClass, zipfWord(random));
+                int lower = 10 * random.nextInt(50);
+                query.minPrice = BigDecimal.valueOf(lower);
+                query.maxPrice = BigDecimal.valueOf(lower + 50 + random.nextInt(500));
+                return query;
+            }
+            case SORTED: {
+                Query query = new Query(queryClass, zipfWord(random));
+                query.field = random.nextBoolean() ? "price" : "sales";
+                query.order = random.nextBoolean();
+                return query;
+            }
+            case FACETED: {
+                Query query = new Query(queryClass, zipfWord(random));
+                query.facets = facetKeys.get(random.nextInt(facetKeys.size()));
+                return query;
+            }
+            case STORE:
+                return new Query(queryClass, storeVocabulary.get(random.nextInt(storeVocabulary.size())));
+            default:
+                return new Query(queryClass, "不存在的商品" + random.nextInt(1000));
+        }
+    }
+
+    private String zipfWord(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return vocabulary.get(Math.min(index >= 0 ? index : -index - 1, vocabulary.size() - 1));
+    }
+
+    /**
+     * 以 threads 个线程并发回放查询，返回各类别的统计
+     *
+     * @param warmup 正式计时前先顺序执行的查询数，用于预热
+     */
+    public static Report replay(List<Query> queries, QueryExecutor executor, int threads, int warmup)
+            throws Exception {
+        for (int i = 0; i < Math.min(warmup, queries.size()); i++) {
+            executeQuietly(executor, queries.get(i));
+        }
+        long[] latencies = new long[queries.size()];
+        boolean[] failed = new boolean[queries.size()];
+        AtomicInteger cursor = new AtomicInteger();
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    for (int i = cursor.getAndIncrement(); i < queries.size(); i = cursor.getAndIncrement()) {
+                        long queryStart = System.nanoTime();
+                        failed[i] = !executeQuietly(executor, queries.get(i));
+                        latencies[i] = System.nanoTime() - queryStart;
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<QueryClass, List<Integer>> byClass = new EnumMap<>(QueryClass.class);
+        for (int i = 0; i < queries.size(); i++) {
+            byClass.computeIfAbsent(queries.get(i).getQueryClass(), c -> new ArrayList<>()).add(i);
+        }
+        Map<QueryClass, ClassReport> reports = new EnumMap<>(QueryClass.class);
+        byClass.forEach((queryClass, indexes) -> {
+            long[] nanos = new long[indexes.size()];
+            int errors = 0;
+            for (int j = 0; j < nanos.length; j++) {
+                nanos[j] = latencies[indexes.get(j)];
+                if (failed[indexes.get(j)]) {
+                    errors++;
+                }
+            }
+            reports.put(queryClass, new ClassReport(queryClass, nanos, errors));
+        });
+        return new Report(reports, seconds);
+    }
+
+    private static boolean executeQuietly(QueryExecutor executor, Query query) {
+        try {
+            executor.execute(query);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package cn.edu.nju.TomatoMall.test;
 
+import cn.edu.nju.TomatoMall.service.SalesCounterService;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.var;
 import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.annotation.Commit;
@@ -26,6 +28,9 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class ShoppingModuleTest extends BaseIntegrationTest {
 
+    @Autowired
+    private SalesCounterService salesCounterService;
+
     // 测试数据
     private Long testStoreId;
     private Long testProductId;
@@ -682,7 +687,8 @@ public class ShoppingModuleTest extends BaseIntegrationTest {
         assertEqualsWithDebug("COMPLETED", orderData.get("status").asText(),
                 "确认收货后订单状态", "用户确认收货验证");
 
-        // 验证商品销量增加
+        // 验证商品销量增加，销量为写后合并，先写回再查询
+        salesCounterService.flush();
         MvcResult productResult = executeRequest(
                 get("/api/products/" + testProductId),
                 200, "验证商品销量更新"
@@ -824,6 +830,7 @@ public class ShoppingModuleTest extends BaseIntegrationTest {
         logInfo("商品最终库存: " + finalInventory);
 
         // 验证商品销量
+        salesCounterService.flush();
         MvcResult productResult = executeRequest(
                 get("/api/products/" + testProductId),
                 200, "获取商品最终信息"
@@ -0,0 +1,117 @@
+package cn.edu.nju.TomatoMall.test;
+
+import cn.edu.nju.TomatoMall.websocket.TomatoMallWebSocketHandler;
+import cn.edu.nju.TomatoMall.websocket.type.BroadcastResult;
+import cn.edu.nju.TomatoMall.websocket.type.TomatoMallWebSocketMessage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * WebSocket 广播基准：注册大量内存中的模拟连接后广播一条消息，报告入队耗时与全部写出的耗时
+ * 默认跳过，使用 mvn test -Dtest=WebSocketBroadcastBenchmarkTest -Dbenchmark=true 运行，
+ * 连接数可通过 -Dbenchmark.connections 调整
+ */
+@TestPropertySource(properties = {
+        "websocket.max-connections-per-user=1000000",
+        "spring.jpa.show-sql=false"
+})
+@DisplayName("WebSocket广播性能基准")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class WebSocketBroadcastBenchmarkTest extends BaseIntegrationTest {
+
+    @Autowired
+    private TomatoMallWebSocketHandler webSocketHandler;
+
+    @Value("${benchmark.connections:100000}")
+    private int connections;
+
+    @Test
+    @DisplayName("十万连接广播基准")
+    void benchmarkBroadcast() throws Exception {
+        AtomicLong written = new AtomicLong();
+        List<WebSocketSession> sessions = new ArrayList<>(connections);
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            WebSocketSession session = mockSession(String.valueOf(i), written);
+            webSocketHandler.afterConnectionEstablished(session);
+            sessions.add(session);
+        }
+        System.out.printf("[基准] 建立连接: %d 个, %.2fs%n", connections, (System.nanoTime() - start) / 1e9);
+        waitForWrites(written, connections);
+
+        // 预热一次
+        webSocketHandler.broadcastToAll(TomatoMallWebSocketMessage.ping());
+        waitForWrites(written, 2L * connections);
+
+        start = System.nanoTime();
+        BroadcastResult result = webSocketHandler.broadcastToAll(
+                TomatoMallWebSocketMessage.serverShutdown("广播基准消息"));
+        double enqueueSeconds = (System.nanoTime() - start) / 1e9;
+        waitForWrites(written, 3L * connections);
+        double writeSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[基准] 广播: 入队 %d 个, 失败 %d 个, 入队耗时 %.3fs, 全部写出 %.3fs%n",
+                result.getDelivered(), result.getFailed(), enqueueSeconds, writeSeconds);
+        assertEquals(connections, result.getDelivered(), "所有连接都应收到广播");
+        assertEquals(0, result.getFailed(), "广播不应失败");
+
+        for (WebSocketSession session : sessions) {
+            webSocketHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        }
+    }
+
+    /**
+     * 只记录写出次数的内存连接，携带测试用户的 token 通过认证
+     */
+    private WebSocketSession mockSession(String id, AtomicLong written) {
+        URI uri = URI.create("ws://localhost/ws?token=" + userToken);
+        AtomicBoolean open = new AtomicBoolean(true);
+        return (WebSocketSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{WebSocketSession.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getId":
+                            return id;
+                        case "getUri":
+                            return uri;
+                        case "isOpen":
+                            return open.get();
+                        case "sendMessage":
+                            written.incrementAndGet();
+                            return null;
+                        case "close":
+                            open.set(false);
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "MockSession[" + id + "]";
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static void waitForWrites(AtomicLong written, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (written.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, written.get(), "消息应全部写出");
+    }
+}
@@ -0,0 +1,154 @@
+package cn.edu.nju.TomatoMall.websocket;
+
+import cn.edu.nju.TomatoMall.websocket.type.OverflowPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SessionSender 发送队列测试
+ * 发送任务先放入手动执行的队列，因此可以在写出之前把发送队列填满，再检查溢出策略、消息顺序、丢弃计数与关闭状态
+ */
+public class SessionSenderTest {
+    private static final int CAPACITY = 3;
+
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private final List<String> sent = new ArrayList<>();
+    private final List<Exception> failures = new ArrayList<>();
+    private MeterRegistry meterRegistry;
+    private Counter dropped;
+    private CloseStatus closeStatus;
+    private boolean open;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dropped = meterRegistry.counter("websocket.send.dropped");
+        open = true;
+    }
+
+    @Test
+    @DisplayName("DROP_OLDEST 丢弃最早的消息")
+    void testDropOldest() {
+        SessionSender sender = sender(OverflowPolicy.DROP_OLDEST, CAPACITY);
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(sender.send(message(i)), "丢弃旧消息时新消息应被接受");
+        }
+        assertEquals(CAPACITY, sender.depth());
+        assertEquals(2, dropped.count());
+
+        runTasks();
+        assertEquals(Arrays.asList("m3", "m4", "m5"), sent);
+        assertTrue(open, "DROP_OLDEST 不应断开连接");
+        assertNull(closeStatus);
+
+        sender.close(CloseStatus.NORMAL);
+        runTasks();
+        assertEquals(CloseStatus.NORMAL, closeStatus);
+        assertFalse(sender.send(message(6)), "关闭后不再接受消息");
+        assertEquals(2, dropped.count());
+        assertTrue(failures.isEmpty());
+    }
+
+    @Test
+    @DisplayName("DISCONNECT 清空队列并断开连接")
+    void testDisconnect() {
+        SessionSender sender = sender(OverflowPolicy.DISCONNECT, CAPACITY);
+        for (int i = 1; i <= CAPACITY; i++) {
+            assertTrue(sender.send(message(i)));
+        }
+        assertFalse(sender.send(message(4)), "队列满时应拒绝并断开");
+        // 溢出的一条加上被清空的积压消息
+        assertEquals(CAPACITY + 1, dropped.count());
+        assertFalse(sender.send(message(5)), "断开后不再接受消息");
+        assertEquals(CAPACITY + 1, dropped.count());
+
+        runTasks();
+        assertTrue(sent.isEmpty(), "积压的消息不应再写出");
+        assertEquals(CloseStatus.SESSION_NOT_RELIABLE.getCode(), closeStatus.getCode());
+        assertEquals("消息消费过慢", closeStatus.getReason());
+        assertFalse(open);
+        assertEquals(0, sender.depth());
+    }
+
+    @Test
+    @DisplayName("消息按入队顺序写出，关闭前先发完已入队的消息")
+    void testOrderAndClose() {
+        // 超过单次发送任务的批量，需要多次重新排队
+        SessionSender sender = sender(OverflowPolicy.DISCONNECT, 256);
+        for (int i = 1; i <= 200; i++) {
+            assertTrue(sender.send(message(i)));
+        }
+        sender.close(CloseStatus.GOING_AWAY);
+        assertFalse(sender.send(message(201)));
+
+        runTasks();
+        assertEquals(IntStream.rangeClosed(1, 200).mapToObj(i -> "m" + i).collect(Collectors.toList()), sent);
+        assertEquals(CloseStatus.GOING_AWAY, closeStatus);
+        assertEquals(0, dropped.count());
+        assertTrue(failures.isEmpty());
+    }
+
+    private SessionSender sender(OverflowPolicy policy, int capacity) {
+        return new SessionSender(stubSession(), capacity, policy, tasks::add,
+                meterRegistry.timer("websocket.send.latency"), dropped, (session, e) -> failures.add(e));
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static TextMessage message(int i) {
+        return new TextMessage("m" + i);
+    }
+
+    /**
+     * 记录写出的消息与关闭状态的内存连接
+     */
+    private WebSocketSession stubSession() {
+        return (WebSocketSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{WebSocketSession.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getId":
+                            return "stub";
+                        case "isOpen":
+                            return open;
+                        case "sendMessage":
+                            sent.add(((TextMessage) args[0]).getPayload());
+                            return null;
+                        case "close":
+                            closeStatus = args == null || args.length == 0 ? CloseStatus.NORMAL : (CloseStatus) args[0];
+                            open = false;
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+}